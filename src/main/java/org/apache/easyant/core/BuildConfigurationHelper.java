@@ -20,6 +20,7 @@ package org.apache.easyant.core;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.easyant.core.BuildConfigurationMatcher.RequestedBuildConfigurations;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 
@@ -106,46 +107,54 @@ public class BuildConfigurationHelper {
      *         null
      */
     public static boolean isBuildConfigurationActive(String requestedConfigurations, Project p, String message) {
+        return isRequestedBuildConfigurationActive(requestedConfigurations == null ? null
+                : new RequestedBuildConfigurations(requestedConfigurations), p, message);
+    }
+
+    /**
+     * Check if build configuration is active. Callers evaluating the same build configurations several times should
+     * keep the parsed {@link RequestedBuildConfigurations} around.
+     * 
+     * @param requestedConfigurations
+     *            parsed build configurations to check
+     * @param p
+     *            the project (used to retrieve available and active build configuration)
+     * @param message
+     *            (prefix message used for log)
+     * @return return true if buildconfiguration is active. This method also returns true if requestedConfigurations is
+     *         null
+     */
+    public static boolean isRequestedBuildConfigurationActive(RequestedBuildConfigurations requestedConfigurations,
+            Project p, String message) {
         if (requestedConfigurations == null) {
             p.log(message + " not bound to any build configuration", Project.MSG_DEBUG);
             return true;
         }
-        List<String> buildConfigurationsList = buildList(requestedConfigurations);
+        BuildConfigurationMatcher matcher = BuildConfigurationMatcher.getInstance(p);
 
         // check consistency, here we consider that a build configuration must
         // be explicitly declared
-        if (p.getProperty(EasyAntMagicNames.AVAILABLE_BUILD_CONFIGURATIONS) == null) {
+        if (!matcher.hasAvailableBuildConfigurations()) {
             throw new BuildException("there is no available build configuration");
         }
 
-        List<String> availableBuildConfigurations = Arrays.asList(p.getProperty(
-                EasyAntMagicNames.AVAILABLE_BUILD_CONFIGURATIONS).split(","));
-
-        for (String conf : buildConfigurationsList) {
-            if (!availableBuildConfigurations.contains(conf)) {
-                throw new BuildException("unknown build configuration named " + conf);
-            }
-        }
-
         // is there any activated build configuration matching with the build
-        // configurations defined?
-        if (p.getProperty(EasyAntMagicNames.MAIN_CONFS) != null) {
-            String buildConf = getFirstBuildConfigurationMatching(requestedConfigurations,
-                    p.getProperty(EasyAntMagicNames.MAIN_CONFS));
-            if (buildConf != null) {
-                p.log(message + " bound to build configuration " + buildConf, Project.MSG_DEBUG);
-                return true;
-            } else {
-                // if no activated build configuration match with required build
-                // configuration, it means
-                // that related element should not be loaded
-                p.log(message + " not bound to any active build configuration. Requested build configuration was "
-                        + requestedConfigurations, Project.MSG_DEBUG);
-                return false;
-            }
-        } else {
+        // configurations defined? This also fails on unknown build configurations
+        String buildConf = matcher.getFirstActive(requestedConfigurations);
+        if (!matcher.hasActiveBuildConfigurations()) {
             p.log("there is no activated build configuration", Project.MSG_DEBUG);
             return false;
         }
+        if (buildConf != null) {
+            p.log(message + " bound to build configuration " + buildConf, Project.MSG_DEBUG);
+            return true;
+        } else {
+            // if no activated build configuration match with required build
+            // configuration, it means
+            // that related element should not be loaded
+            p.log(message + " not bound to any active build configuration. Requested build configuration was "
+                    + requestedConfigurations.getValue(), Project.MSG_DEBUG);
+            return false;
+        }
     }
 }
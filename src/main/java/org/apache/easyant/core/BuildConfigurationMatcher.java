@@ -0,0 +1,163 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+/**
+ * Precompiled view of available and active build configurations of a project. Each available build configuration is
+ * given an index, active ones are stored in a bitset. A matcher is cached on the project and is only rebuilt when
+ * {@link EasyAntMagicNames#AVAILABLE_BUILD_CONFIGURATIONS} or {@link EasyAntMagicNames#MAIN_CONFS} change.
+ */
+public final class BuildConfigurationMatcher {
+
+    private static final String REFERENCE = "easyant.build.configuration.matcher";
+
+    private final String availableBuildConfigurations;
+
+    private final String mainConfs;
+
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+    private final BitSet active = new BitSet();
+
+    private BuildConfigurationMatcher(String availableBuildConfigurations, String mainConfs) {
+        this.availableBuildConfigurations = availableBuildConfigurations;
+        this.mainConfs = mainConfs;
+        if (availableBuildConfigurations != null) {
+            for (String conf : availableBuildConfigurations.split(",")) {
+                if (!indexes.containsKey(conf)) {
+                    indexes.put(conf, indexes.size());
+                }
+            }
+        }
+        if (mainConfs != null) {
+            for (String conf : BuildConfigurationHelper.buildList(mainConfs)) {
+                Integer index = indexes.get(conf);
+                if (index != null) {
+                    active.set(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the matcher of a project, compiling it if build configuration properties changed since last call
+     *
+     * @param p
+     *            a project
+     * @return a matcher reflecting current available and active build configurations
+     */
+    public static BuildConfigurationMatcher getInstance(Project p) {
+        String available = p.getProperty(EasyAntMagicNames.AVAILABLE_BUILD_CONFIGURATIONS);
+        String mainConfs = p.getProperty(EasyAntMagicNames.MAIN_CONFS);
+        Object cached = p.getReference(REFERENCE);
+        if (cached instanceof BuildConfigurationMatcher
+                && ((BuildConfigurationMatcher) cached).isCompiledFrom(available, mainConfs)) {
+            return (BuildConfigurationMatcher) cached;
+        }
+        BuildConfigurationMatcher matcher = new BuildConfigurationMatcher(available, mainConfs);
+        p.addReference(REFERENCE, matcher);
+        return matcher;
+    }
+
+    private boolean isCompiledFrom(String available, String main) {
+        return equals(availableBuildConfigurations, available) && equals(mainConfs, main);
+    }
+
+    private static boolean equals(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    public boolean hasAvailableBuildConfigurations() {
+        return availableBuildConfigurations != null;
+    }
+
+    public boolean hasActiveBuildConfigurations() {
+        return mainConfs != null;
+    }
+
+    /**
+     * Get the first requested build configuration which is active
+     *
+     * @param requested
+     *            requested build configurations
+     * @return the first active build configuration, null if none is active
+     * @throws BuildException
+     *             if a requested build configuration is not available
+     */
+    public String getFirstActive(RequestedBuildConfigurations requested) {
+        int[] requestedIndexes = requested.getIndexes(this);
+        for (int i = 0; i < requestedIndexes.length; i++) {
+            if (active.get(requestedIndexes[i])) {
+                return requested.getNames().get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build configurations requested by an element (task, property, ...), parsed once. Indexes of the last matcher
+     * used are kept so that evaluating the same element several times doesn't involve any string manipulation.
+     */
+    public static final class RequestedBuildConfigurations {
+
+        private final String value;
+
+        private final List<String> names;
+
+        private BuildConfigurationMatcher lastMatcher;
+
+        private int[] lastIndexes;
+
+        public RequestedBuildConfigurations(String value) {
+            this.value = value;
+            this.names = BuildConfigurationHelper.buildList(value);
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        private synchronized int[] getIndexes(BuildConfigurationMatcher matcher) {
+            if (matcher != lastMatcher) {
+                int[] indexes = new int[names.size()];
+                for (int i = 0; i < indexes.length; i++) {
+                    Integer index = matcher.indexes.get(names.get(i));
+                    if (index == null) {
+                        throw new BuildException("unknown build configuration named " + names.get(i));
+                    }
+                    indexes[i] = index;
+                }
+                lastIndexes = indexes;
+                lastMatcher = matcher;
+            }
+            return lastIndexes;
+        }
+    }
+}
@@ -86,6 +86,41 @@ public interface EasyAntConstants {
      */
     String DEFAULT_PRE_MODULE_TARGETS = "clean";
 
+    /**
+     * Default target after which pipelined sub-modules publish their artifacts
+     */
+    String DEFAULT_PIPELINE_PUBLISH_TARGET = "package";
+
+    /**
+     * Default maximum percentage of the heap pipelined sub-modules may use
+     */
+    int DEFAULT_PIPELINE_MAX_HEAP_USAGE = 80;
+
+    /**
+     * Default directory holding durations of sub-modules recorded by multi-module builds
+     */
+    String DEFAULT_EXECUTION_HISTORY_DIR = "${user.home}/.easyant/execution-history";
+
+    /**
+     * Default directory holding progress of multi-module builds
+     */
+    String DEFAULT_BUILD_PROGRESS_DIR = "${user.home}/.easyant/build-progress";
+
+    /**
+     * Default directory holding outputs of targets declaring their inputs and outputs
+     */
+    String DEFAULT_TARGET_CACHE_DIR = "${user.home}/.easyant/target-cache";
+
+    /**
+     * Default directory holding build lists of multi-module projects
+     */
+    String DEFAULT_BUILD_LIST_SNAPSHOT_DIR = "${user.home}/.easyant/build-list";
+
+    /**
+     * Default directory holding indexes of module revisions available in repositories
+     */
+    String DEFAULT_MODULE_INDEX_DIR = "${user.home}/.easyant/module-index";
+
     /**
      * Default build scope repository name
      */
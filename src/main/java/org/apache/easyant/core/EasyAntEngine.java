@@ -17,11 +17,15 @@
  */
 package org.apache.easyant.core;
 
+import org.apache.easyant.core.ant.EasyAntComponentHelper;
+import org.apache.easyant.core.ant.PluginClassLoaderPool;
+import org.apache.easyant.core.ant.ProjectStreamRouter;
 import org.apache.easyant.core.ant.ProjectUtils;
 import org.apache.easyant.core.ant.listerners.DefaultEasyAntLogger;
 import org.apache.easyant.core.configuration.EasyAntConfiguration;
 import org.apache.easyant.core.configuration.EasyantConfigurationFactory;
 import org.apache.easyant.core.descriptor.PluginDescriptor;
+import org.apache.easyant.core.ivy.CacheAccessLog;
 import org.apache.easyant.core.ivy.InheritableScope;
 import org.apache.easyant.core.ivy.IvyInstanceHelper;
 import org.apache.easyant.core.services.DefaultPluginService;
@@ -44,13 +48,14 @@ import org.apache.tools.ant.util.ProxySetup;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintStream;
 import java.lang.reflect.Method;
 import java.net.JarURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -64,6 +69,10 @@ public class EasyAntEngine {
 
     private PluginService pluginService = null;
 
+    private ClassLoader pluginClassLoaderParent;
+
+    private final List<Project> configuredProjects = new ArrayList<Project>();
+
     /**
      * Default constructor will initialize the default configuration
      */
@@ -231,6 +240,7 @@ public class EasyAntEngine {
     }
 
     public void configurePluginService(Project project, IvyAntSettings easyantIvyInstance) {
+        closePluginService();
         pluginService = new DefaultPluginService(easyantIvyInstance);
         String property = project.getProperty(EasyAntMagicNames.EASYANT_OFFLINE);
         pluginService.setOfflineMode(Project.toBoolean(property));
@@ -297,8 +307,8 @@ public class EasyAntEngine {
         }
 
         logger.setMessageOutputLevel(configuration.getMsgOutputLevel());
-        logger.setOutputPrintStream(configuration.getOut());
-        logger.setErrorPrintStream(configuration.getErr());
+        logger.setOutputPrintStream(ProjectStreamRouter.getLoggerStream(configuration.getOut()));
+        logger.setErrorPrintStream(ProjectStreamRouter.getLoggerStream(configuration.getErr()));
         logger.setEmacsMode(configuration.isEmacsMode());
 
         return logger;
@@ -350,6 +360,11 @@ public class EasyAntEngine {
     public void configureEasyAnt(Project project) {
 
         project.setCoreLoader(configuration.getCoreLoader());
+        configuredProjects.add(project);
+        if (pluginClassLoaderParent == null) {
+            pluginClassLoaderParent = PluginClassLoaderPool.getParent(project);
+            PluginClassLoaderPool.getInstance().acquire(pluginClassLoaderParent);
+        }
 
         addBuildListeners(project);
         addInputHandler(project);
@@ -376,6 +391,7 @@ public class EasyAntEngine {
         project.setName("EasyAnt");
 
         try {
+            EasyAntComponentHelper.install(project);
             project.init();
             project.addReference(EasyAntMagicNames.EASYANT_ENGINE_REF, this);
 
@@ -555,10 +571,38 @@ public class EasyAntEngine {
      */
     public void doBuild() throws BuildException {
         final Project project = new Project();
-        configureEasyAnt(project);
-        loadProject(project);
-        doBuild(project);
+        try {
+            configureEasyAnt(project);
+            loadProject(project);
+            doBuild(project);
+        } finally {
+            close();
+        }
+    }
 
+    /**
+     * Release everything registered by this engine outside of the projects it configured (module descriptor parsers,
+     * plugin class loaders, ivy loggers of the calling thread, etc...). Projects configured by this engine should not
+     * be used anymore once the engine is closed. The engine itself can be used again: a new configuration registers
+     * what it needs again.
+     */
+    public void close() {
+        for (Project project : configuredProjects) {
+            IvyInstanceHelper.popLoggers(project);
+        }
+        configuredProjects.clear();
+        closePluginService();
+        if (pluginClassLoaderParent != null) {
+            PluginClassLoaderPool.getInstance().release(pluginClassLoaderParent);
+            pluginClassLoaderParent = null;
+        }
+    }
+
+    private void closePluginService() {
+        if (pluginService instanceof DefaultPluginService) {
+            ((DefaultPluginService) pluginService).close();
+        }
+        pluginService = null;
     }
 
     public void doBuild(final Project project) {
@@ -568,41 +612,26 @@ public class EasyAntEngine {
 
         try {
 
-            PrintStream savedErr = System.err;
-            PrintStream savedOut = System.out;
-            InputStream savedIn = System.in;
-
-            // use a system manager that prevents from System.exit()
-            SecurityManager oldsm;
-            oldsm = System.getSecurityManager();
-
-            // SecurityManager can not be installed here for backwards
-            // compatibility reasons (PD). Needs to be loaded prior to
-            // ant class if we are going to implement it.
-            // System.setSecurityManager(new NoExitSecurityManager());
+            // system streams are routed to the project attached to the current thread so that concurrent builds
+            // don't mix their output
+            ProjectStreamRouter.attach(project);
             try {
                 if (configuration.isAllowInput()) {
-                    project.setDefaultInputStream(System.in);
+                    project.setDefaultInputStream(ProjectStreamRouter.getSystemIn());
                 }
-                System.setIn(new DemuxInputStream(project));
-                System.setOut(new PrintStream(new DemuxOutputStream(project, false)));
-                System.setErr(new PrintStream(new DemuxOutputStream(project, true)));
 
                 // make sure that we have a target to execute
-                if (configuration.getTargets().isEmpty() && project.getDefaultTarget() != null) {
-                    configuration.getTargets().add(project.getDefaultTarget());
+                List<String> targets = new ArrayList<String>(configuration.getTargets());
+                if (targets.isEmpty() && project.getDefaultTarget() != null) {
+                    targets.add(project.getDefaultTarget());
                 }
-                project.executeTargets(new Vector<String>(configuration.getTargets()));
-            } finally {
-                // put back the original security manager
-                // The following will never eval to true. (PD)
-                if (oldsm != null) {
-                    System.setSecurityManager(oldsm);
+                // an executor explicitly configured (such as MetaBuildExecutor) takes precedence
+                if (project.getProperty(MagicNames.ANT_EXECUTOR_CLASSNAME) == null) {
+                    ProjectUtils.installParallelTargetExecutor(project);
                 }
-
-                System.setOut(savedOut);
-                System.setErr(savedErr);
-                System.setIn(savedIn);
+                project.executeTargets(new Vector<String>(targets));
+            } finally {
+                ProjectStreamRouter.detach(project);
             }
         } catch (RuntimeException exc) {
             error = exc;
@@ -612,6 +641,7 @@ public class EasyAntEngine {
             throw e;
         } finally {
             fireBuildFinished(project, error);
+            CacheAccessLog.saveAll();
         }
         if (configuration.isShowMemoryDetails() || configuration.getMsgOutputLevel() >= Project.MSG_VERBOSE) {
             ProjectUtils.printMemoryDetails(project);
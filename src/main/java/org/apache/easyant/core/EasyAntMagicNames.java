@@ -214,4 +214,153 @@ public interface EasyAntMagicNames {
      */
     String IMPORT_CLASSPATH_TYPES = "import.classpath.types";
 
+    /**
+     * Name of the property containing the maximum size of repository caches used by cache garbage collection Value:
+     * {@value}
+     */
+    String CACHE_GC_MAX_SIZE = "cache.gc.max.size";
+
+    /**
+     * Name of the property containing the maximum time a module revision can stay unused in repository caches before
+     * being evicted by cache garbage collection Value: {@value}
+     */
+    String CACHE_GC_MAX_AGE = "cache.gc.max.age";
+
+    /**
+     * Name of the reference holding resolutions of imported modules shared by all modules of a build Value: {@value}
+     */
+    String IMPORT_RESOLUTION_CACHE = "import.resolution.cache";
+
+    /**
+     * Name of the property used to enable/disable sharing of plugin class loaders across projects (enabled by default)
+     * Value: {@value}
+     */
+    String PLUGIN_CLASSLOADER_POOL = "easyant.plugin.classloader.pool";
+
+    /**
+     * Name of the property used to execute independent targets of a module concurrently (disabled by default) Value:
+     * {@value}
+     */
+    String PARALLEL_TARGETS = "easyant.parallel.targets";
+
+    /**
+     * Name of the property containing the maximum number of targets of a module executed concurrently (number of
+     * processors by default) Value: {@value}
+     */
+    String PARALLEL_TARGETS_THREADS = "easyant.parallel.targets.threads";
+
+    /**
+     * Name of the property used to pipeline sub-modules of a multi-module build: each sub-module starts as soon as the
+     * previous one published its artifacts in the build scoped repository (disabled by default) Value: {@value}
+     */
+    String PIPELINE_BUILD = "easyant.pipeline";
+
+    /**
+     * Name of the property containing the target after which pipelined sub-modules publish their artifacts Value:
+     * {@value}
+     */
+    String PIPELINE_PUBLISH_TARGET = "easyant.pipeline.publish.target";
+
+    /**
+     * Name of the property containing the maximum number of pipelined sub-modules running at the same time (number of
+     * processors by default) Value: {@value}
+     */
+    String PIPELINE_THREADS = "easyant.pipeline.threads";
+
+    /**
+     * Name of the property containing the maximum percentage of the heap pipelined sub-modules may use, sub-modules are
+     * delayed until running ones release memory beyond it (80 by default) Value: {@value}
+     */
+    String PIPELINE_MAX_HEAP_USAGE = "easyant.pipeline.max.heap.usage";
+
+    /**
+     * Name of the property containing the file where durations of sub-modules are recorded, used to start the
+     * sub-modules of pipelined builds heading the longest chains first (stored in the user cache by default) Value:
+     * {@value}
+     */
+    String EXECUTION_HISTORY_FILE = "easyant.execution.history.file";
+
+    /**
+     * Name of the property containing the build cache location, a directory or the http url of a cache server.
+     * Artifacts of sub-modules are restored from it instead of executing targets when their inputs did not change
+     * Value: {@value}
+     */
+    String BUILD_CACHE = "easyant.build.cache";
+
+    /**
+     * Name of the property containing the directory where outputs of targets declaring their inputs and outputs are
+     * cached (stored in the user cache by default) Value: {@value}
+     */
+    String TARGET_CACHE_DIR = "easyant.target.cache.dir";
+
+    /**
+     * Name of the property used to execute targets declaring their inputs and outputs instead of restoring their
+     * outputs from the target cache Value: {@value}
+     */
+    String SKIP_TARGET_CACHE = "skip.target.cache";
+
+    /**
+     * Name of the property containing a file listing changed paths, one per line. Multi-module builds then build only
+     * the sub-modules owning these paths and the sub-modules depending on them Value: {@value}
+     */
+    String AFFECTED_CHANGES_FILE = "easyant.affected.changes.file";
+
+    /**
+     * Name of the property containing a git revision. Multi-module builds then build only the sub-modules owning paths
+     * changed in the working tree since this revision and the sub-modules depending on them Value: {@value}
+     */
+    String AFFECTED_SINCE = "easyant.affected.since";
+
+    /**
+     * Name of the property containing the sub-modules multi-module builds are restricted to: module names,
+     * organisation#module names or directories, separated by commas, which may use * and ? wildcards Value: {@value}
+     */
+    String SELECTED_MODULES = "easyant.modules";
+
+    /**
+     * Name of the property used to also build the sub-modules selected ones depend on Value: {@value}
+     */
+    String SELECTED_MODULES_UPSTREAM = "easyant.modules.upstream";
+
+    /**
+     * Name of the property used to also build the sub-modules depending on selected ones Value: {@value}
+     */
+    String SELECTED_MODULES_DOWNSTREAM = "easyant.modules.downstream";
+
+    /**
+     * Name of the property containing the file where multi-module builds record their progress, read back to resume a
+     * failed build (stored in the user cache by default) Value: {@value}
+     */
+    String BUILD_PROGRESS_FILE = "easyant.build.progress.file";
+
+    /**
+     * Name of the property used to resume a failed multi-module build, skipping sub-modules it built successfully which
+     * did not change since Value: {@value}
+     */
+    String RESUME_BUILD = "easyant.resume";
+
+    /**
+     * Name of the property containing the file where the build list of a multi-module project is recorded, to be
+     * restored as long as no module descriptor changed (stored in the user cache by default) Value: {@value}
+     */
+    String BUILD_LIST_SNAPSHOT_FILE = "easyant.build.list.snapshot.file";
+
+    /**
+     * Name of the property containing the directory where module indexes used to search repositories are stored (in
+     * the user cache by default) Value: {@value}
+     */
+    String MODULE_INDEX_DIR = "easyant.module.index.dir";
+
+    /**
+     * Name of the property containing the number of minutes during which searches are answered from module indexes
+     * without listing repositories again (10 by default, 0 always lists repositories) Value: {@value}
+     */
+    String MODULE_INDEX_TTL = "easyant.module.index.ttl";
+
+    /**
+     * Name of the property containing how long latest revisions of plugins found by check-plugin-updates are reused,
+     * as a number of days optionally followed by a unit: d (days), h (hours) or m (minutes) Value: {@value}
+     */
+    String PLUGIN_UPDATE_CACHE_TTL = "plugin.update.cache.ttl";
+
 }
@@ -323,6 +323,19 @@ public class EasyAntMain implements AntMain {
         if (line.hasOption("offline")) {
             easyAntConfiguration.setOffline(true);
         }
+        if (line.hasOption("resume")) {
+            easyAntConfiguration.getDefinedProps().put(EasyAntMagicNames.RESUME_BUILD, "true");
+        }
+        if (line.hasOption("modules")) {
+            easyAntConfiguration.getDefinedProps().put(EasyAntMagicNames.SELECTED_MODULES,
+                    line.getOptionValue("modules"));
+        }
+        if (line.hasOption("also-make")) {
+            easyAntConfiguration.getDefinedProps().put(EasyAntMagicNames.SELECTED_MODULES_UPSTREAM, "true");
+        }
+        if (line.hasOption("also-make-dependents")) {
+            easyAntConfiguration.getDefinedProps().put(EasyAntMagicNames.SELECTED_MODULES_DOWNSTREAM, "true");
+        }
         if (line.hasOption("nice")) {
             easyAntConfiguration.setThreadPriority(Integer.decode(line.getOptionValue("nice")));
 
@@ -631,12 +644,22 @@ public class EasyAntMain implements AntMain {
                 .withDescription("override EasyAnt's normal entry point").create("main");
         options.addOption(main);
         options.addOption("o", "offline", false, "turns EasyAnt in offline mode");
+        options.addOption("resume", false,
+                "resume the last failed multi-module build, skipping sub-modules built successfully since");
+        Option modules = OptionBuilder.withArgName("modules").hasArg()
+                .withDescription("build only given sub-modules: names, org#names or directories, wildcards allowed")
+                .withLongOpt("modules").create("m");
+        options.addOption(modules);
+        options.addOption("am", "also-make", false, "also build sub-modules the selected ones depend on");
+        options.addOption("amd", "also-make-dependents", false,
+                "also build sub-modules depending on the selected ones");
         options.addOption(new Describe());
         options.addOption(new ListExtensionPoints());
         options.addOption(new ListTargets());
         options.addOption(new ListProps());
         options.addOption(new ListParameters());
         options.addOption(new ListPlugins());
+        options.addOption(new CacheGarbageCollection());
     }
 
     /**
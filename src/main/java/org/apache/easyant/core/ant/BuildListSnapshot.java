@@ -0,0 +1,249 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.easyant.core.cache.ModuleFingerprint;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Snapshot of a sorted build list: the module descriptor of each build file, with its modification time, size and
+ * checksum, the build files in build order, the sorted modules and the dependencies between modules. A snapshot is
+ * persisted in a properties file, so that the build list can be restored without parsing and sorting module
+ * descriptors again as long as none of them changed.
+ */
+public class BuildListSnapshot {
+
+    private static final String CONFIGURATION = "configuration";
+
+    private static final String DESCRIPTOR_PREFIX = "descriptor.";
+
+    private static final String BUILD_FILE_PREFIX = "build.";
+
+    private static final String SORTED_MODULES = "sorted.modules";
+
+    private static final String DEPENDENCIES_PREFIX = "dependencies.";
+
+    private static final String MISSING = "<missing>";
+
+    private final File snapshotFile;
+
+    private final Properties snapshot = new Properties();
+
+    private BuildListSnapshot(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Load a snapshot recorded by a previous build
+     *
+     * @param snapshotFile
+     *            a properties file, which may not exist
+     * @param project
+     *            project used to report errors
+     * @return the snapshot, empty if the file doesn't exist or cannot be read
+     */
+    public static BuildListSnapshot load(File snapshotFile, Project project) {
+        BuildListSnapshot buildList = new BuildListSnapshot(snapshotFile);
+        if (!snapshotFile.exists()) {
+            return buildList;
+        }
+        InputStream is = null;
+        try {
+            is = new FileInputStream(snapshotFile);
+            buildList.snapshot.load(is);
+        } catch (IOException e) {
+            project.log("Unable to read build list snapshot " + snapshotFile + ": " + e.getMessage(),
+                    Project.MSG_WARN);
+        } finally {
+            FileUtils.close(is);
+        }
+        return buildList;
+    }
+
+    /**
+     * Check whether the recorded build list is still valid. Checksums are only computed for descriptors whose
+     * modification time or size changed, so that touching a descriptor does not invalidate the snapshot.
+     *
+     * @param configuration
+     *            description of the way the build list is computed
+     * @param descriptors
+     *            the module descriptor of each build file, in any order
+     * @return true if the build list was computed with the same configuration, from the same build files, and none of
+     *         their descriptors changed
+     */
+    public boolean isUpToDate(String configuration, Map<File, File> descriptors) {
+        if (!configuration.equals(snapshot.getProperty(CONFIGURATION))) {
+            return false;
+        }
+        int recorded = 0;
+        for (String key : snapshot.stringPropertyNames()) {
+            if (key.startsWith(DESCRIPTOR_PREFIX)) {
+                recorded++;
+            }
+        }
+        if (recorded != descriptors.size()) {
+            return false;
+        }
+        for (Map.Entry<File, File> entry : descriptors.entrySet()) {
+            String state = snapshot.getProperty(DESCRIPTOR_PREFIX + entry.getKey().getAbsolutePath());
+            if (state == null || !isUnchanged(state, entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isUnchanged(String state, File descriptor) {
+        if (!descriptor.isFile()) {
+            return MISSING.equals(state);
+        }
+        String[] recorded = state.split(",", 3);
+        if (recorded.length != 3) {
+            return false;
+        }
+        if (recorded[0].equals(String.valueOf(descriptor.lastModified()))
+                && recorded[1].equals(String.valueOf(descriptor.length()))) {
+            return true;
+        }
+        return recorded[2].equals(checksum(descriptor));
+    }
+
+    /**
+     * Get the recorded build files
+     *
+     * @return build files in build order
+     */
+    public List<File> getBuildFiles() {
+        List<File> buildFiles = new ArrayList<File>();
+        String buildFile;
+        while ((buildFile = snapshot.getProperty(BUILD_FILE_PREFIX + buildFiles.size())) != null) {
+            buildFiles.add(new File(buildFile));
+        }
+        return buildFiles;
+    }
+
+    /**
+     * Get the recorded sorted modules
+     *
+     * @return organisation#module names separated by commas
+     */
+    public String getSortedModules() {
+        return snapshot.getProperty(SORTED_MODULES, "");
+    }
+
+    /**
+     * Get the modules of the build list a module depends on
+     *
+     * @param module
+     *            an organisation#module name
+     * @return organisation#module names, empty if the module is not recorded
+     */
+    public List<String> getDependencies(String module) {
+        String dependencies = snapshot.getProperty(DEPENDENCIES_PREFIX + module, "");
+        if (dependencies.length() == 0) {
+            return Collections.emptyList();
+        }
+        List<String> modules = new ArrayList<String>();
+        Collections.addAll(modules, dependencies.split(","));
+        return modules;
+    }
+
+    /**
+     * Record a computed build list, replacing the previous one
+     *
+     * @param configuration
+     *            description of the way the build list is computed
+     * @param descriptors
+     *            the module descriptor of each build file
+     * @param buildFiles
+     *            build files in build order
+     * @param sortedModules
+     *            sorted organisation#module names separated by commas
+     * @param dependencies
+     *            organisation#module names of the modules of the build list each module depends on
+     */
+    public void record(String configuration, Map<File, File> descriptors, List<File> buildFiles,
+            String sortedModules, Map<String, ? extends Collection<String>> dependencies) {
+        snapshot.clear();
+        snapshot.setProperty(CONFIGURATION, configuration);
+        for (Map.Entry<File, File> entry : descriptors.entrySet()) {
+            File descriptor = entry.getValue();
+            snapshot.setProperty(DESCRIPTOR_PREFIX + entry.getKey().getAbsolutePath(), descriptor.isFile() ? descriptor
+                    .lastModified() + "," + descriptor.length() + "," + checksum(descriptor) : MISSING);
+        }
+        for (int i = 0; i < buildFiles.size(); i++) {
+            snapshot.setProperty(BUILD_FILE_PREFIX + i, buildFiles.get(i).getAbsolutePath());
+        }
+        snapshot.setProperty(SORTED_MODULES, sortedModules);
+        for (Map.Entry<String, ? extends Collection<String>> entry : dependencies.entrySet()) {
+            StringBuilder modules = new StringBuilder();
+            for (String module : entry.getValue()) {
+                if (modules.length() > 0) {
+                    modules.append(',');
+                }
+                modules.append(module);
+            }
+            snapshot.setProperty(DEPENDENCIES_PREFIX + entry.getKey(), modules.toString());
+        }
+    }
+
+    /**
+     * Persist the recorded build list
+     *
+     * @param project
+     *            project used to report errors
+     */
+    public void save(Project project) {
+        if (snapshotFile.getParentFile() != null && !snapshotFile.getParentFile().exists()) {
+            snapshotFile.getParentFile().mkdirs();
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(snapshotFile);
+            snapshot.store(os, "EasyAnt build list snapshot");
+        } catch (IOException e) {
+            project.log("Unable to write build list snapshot " + snapshotFile + ": " + e.getMessage(),
+                    Project.MSG_WARN);
+        } finally {
+            FileUtils.close(os);
+        }
+    }
+
+    private static String checksum(File descriptor) {
+        try {
+            return ModuleFingerprint.checksum(descriptor);
+        } catch (IOException e) {
+            // an unreadable descriptor never matches
+            return MISSING;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Progress of a multi-module build: sub-modules built successfully, with the fingerprint of their inputs and the
+ * artifacts they produced, and the sub-module which failed. Progress is persisted in a properties file after each
+ * sub-module, so that a failed build can be resumed without building again sub-modules which did not change.
+ */
+public class BuildProgress {
+
+    private static final String TARGETS = "targets";
+
+    private static final String FAILED_MODULE = "failed";
+
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+
+    private static final String ARTIFACTS_SUFFIX = ".artifacts";
+
+    private static final String ELAPSED_TIME_SUFFIX = ".elapsed";
+
+    private final File progressFile;
+
+    private final Properties progress = new Properties();
+
+    private BuildProgress(File progressFile) {
+        this.progressFile = progressFile;
+    }
+
+    /**
+     * Load the progress of a previous build
+     *
+     * @param progressFile
+     *            a properties file, which may not exist
+     * @param project
+     *            project used to report errors
+     * @return the progress, empty if the file doesn't exist or cannot be read
+     */
+    public static BuildProgress load(File progressFile, Project project) {
+        BuildProgress buildProgress = new BuildProgress(progressFile);
+        if (!progressFile.exists()) {
+            return buildProgress;
+        }
+        InputStream is = null;
+        try {
+            is = new FileInputStream(progressFile);
+            buildProgress.progress.load(is);
+        } catch (IOException e) {
+            project.log("Unable to read build progress " + progressFile + ": " + e.getMessage(), Project.MSG_WARN);
+        } finally {
+            FileUtils.close(is);
+        }
+        return buildProgress;
+    }
+
+    /**
+     * Load the progress of the previous build if it should be resumed and executed the same targets, start recording
+     * the progress of a new build otherwise
+     *
+     * @param progressFile
+     *            a properties file, which may not exist
+     * @param targets
+     *            targets executed on sub-modules
+     * @param resume
+     *            true to resume the previous build
+     * @param project
+     *            project used to report the resumed build and errors
+     * @return the progress
+     */
+    public static BuildProgress resumeOrStart(File progressFile, String targets, boolean resume, Project project) {
+        BuildProgress buildProgress = load(progressFile, project);
+        if (resume && targets.equals(buildProgress.getTargets())) {
+            String failedModule = buildProgress.getFailedModule();
+            project.log("Resuming previous build" + (failedModule != null ? " from " + failedModule : "")
+                    + ", sub-modules which did not change since they were built are skipped", Project.MSG_INFO);
+        } else {
+            if (resume) {
+                project.log("No build of " + targets + " to resume, building all sub-modules", Project.MSG_INFO);
+            }
+            buildProgress.start(targets);
+        }
+        return buildProgress;
+    }
+
+    /**
+     * Describe the artifacts of a sub-module by their names, sizes and modification dates
+     *
+     * @param artifactsDir
+     *            directory holding the artifacts, which may not exist
+     * @return a description which changes whenever an artifact is added, removed or modified
+     */
+    public static String describeArtifacts(File artifactsDir) {
+        Map<String, String> artifacts = new TreeMap<String, String>();
+        File[] files = artifactsDir.listFiles();
+        if (files != null) {
+            for (File artifact : files) {
+                artifacts.put(artifact.getName(), artifact.lastModified() + ":" + artifact.length());
+            }
+        }
+        return artifacts.toString();
+    }
+
+    /**
+     * Start recording the progress of a new build, forgetting the previous one
+     *
+     * @param targets
+     *            targets executed on sub-modules
+     */
+    public synchronized void start(String targets) {
+        progress.clear();
+        progress.setProperty(TARGETS, targets);
+    }
+
+    /**
+     * Get the targets executed on sub-modules by the recorded build
+     *
+     * @return targets separated by commas, null if no build has been recorded
+     */
+    public synchronized String getTargets() {
+        return progress.getProperty(TARGETS);
+    }
+
+    /**
+     * Get the sub-module which failed
+     *
+     * @return a sub-module name, null if no sub-module failed
+     */
+    public synchronized String getFailedModule() {
+        return progress.getProperty(FAILED_MODULE);
+    }
+
+    /**
+     * Check whether a sub-module has been built successfully with the same inputs, and its artifacts did not change
+     *
+     * @param module
+     *            a sub-module name
+     * @param fingerprint
+     *            fingerprint of the sub-module inputs
+     * @param artifacts
+     *            description of the sub-module artifacts
+     * @return true if the sub-module does not need to be built again
+     */
+    public synchronized boolean isUpToDate(String module, String fingerprint, String artifacts) {
+        return fingerprint.equals(progress.getProperty(module + FINGERPRINT_SUFFIX))
+                && artifacts.equals(progress.getProperty(module + ARTIFACTS_SUFFIX));
+    }
+
+    /**
+     * Get the time a sub-module took to build
+     *
+     * @param module
+     *            a sub-module name
+     * @return a duration in milliseconds, or -1 if the sub-module has not been built successfully
+     */
+    public synchronized long getElapsedTime(String module) {
+        try {
+            return Long.parseLong(progress.getProperty(module + ELAPSED_TIME_SUFFIX, "-1"));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Record a sub-module built successfully
+     *
+     * @param module
+     *            a sub-module name
+     * @param fingerprint
+     *            fingerprint of the sub-module inputs, null if they cannot be fingerprinted
+     * @param artifacts
+     *            description of the sub-module artifacts
+     * @param elapsedTime
+     *            time the sub-module took to build, in milliseconds
+     */
+    public synchronized void recordSuccess(String module, String fingerprint, String artifacts, long elapsedTime) {
+        if (fingerprint == null) {
+            forget(module);
+        } else {
+            progress.setProperty(module + FINGERPRINT_SUFFIX, fingerprint);
+            progress.setProperty(module + ARTIFACTS_SUFFIX, artifacts);
+            progress.setProperty(module + ELAPSED_TIME_SUFFIX, String.valueOf(elapsedTime));
+        }
+        if (module.equals(progress.getProperty(FAILED_MODULE))) {
+            progress.remove(FAILED_MODULE);
+        }
+    }
+
+    /**
+     * Record a sub-module which failed
+     *
+     * @param module
+     *            a sub-module name
+     */
+    public synchronized void recordFailure(String module) {
+        forget(module);
+        // with keep going mode, the first failure is the one to resume from
+        if (!progress.containsKey(FAILED_MODULE)) {
+            progress.setProperty(FAILED_MODULE, module);
+        }
+    }
+
+    private void forget(String module) {
+        progress.remove(module + FINGERPRINT_SUFFIX);
+        progress.remove(module + ARTIFACTS_SUFFIX);
+        progress.remove(module + ELAPSED_TIME_SUFFIX);
+    }
+
+    /**
+     * Persist the recorded progress
+     *
+     * @param project
+     *            project used to report errors
+     */
+    public synchronized void save(Project project) {
+        if (progressFile.getParentFile() != null && !progressFile.getParentFile().exists()) {
+            progressFile.getParentFile().mkdirs();
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(progressFile);
+            progress.store(os, "EasyAnt build progress");
+        } catch (IOException e) {
+            project.log("Unable to write build progress " + progressFile + ": " + e.getMessage(), Project.MSG_WARN);
+        } finally {
+            FileUtils.close(os);
+        }
+    }
+
+    /**
+     * Forget the recorded progress once the build is successful, there is nothing left to resume
+     */
+    public synchronized void delete() {
+        progress.clear();
+        FileUtils.delete(progressFile);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.easyant.core.EasyAntConstants;
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.cache.LocalBuildCacheBackend;
+import org.apache.easyant.core.cache.ModuleFingerprint;
+import org.apache.easyant.core.cache.TargetOutputCache;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.ExtensionPoint;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.PropertyHelper;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.AbstractFileSet;
+import org.apache.tools.ant.types.PropertySet;
+import org.apache.tools.ant.types.Resource;
+import org.apache.tools.ant.types.ResourceCollection;
+import org.apache.tools.ant.types.resources.FileProvider;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Target whose outputs are restored from a local cache instead of executing its tasks, when its inputs did not change
+ * since an execution of the same target stored them.
+ * <p>
+ * Inputs and outputs are declared by plugins with the <code>target-inputs</code> and <code>target-outputs</code>
+ * tasks, which replace the declared target by a cached one. Caching is disabled as long as no output is declared,
+ * and when the {@link EasyAntMagicNames#SKIP_TARGET_CACHE} property is set. As undeclared inputs are ignored, plugins
+ * should declare every file and property their target depends on.
+ */
+public class CachedTarget extends Target {
+
+    private final List<ResourceCollection> inputs = new ArrayList<ResourceCollection>();
+
+    private final List<PropertySet> propertyInputs = new ArrayList<PropertySet>();
+
+    private final List<File> outputs = new ArrayList<File>();
+
+    private CachedTarget(Target target) {
+        setProject(target.getProject());
+        setName(target.getName());
+        setLocation(target.getLocation());
+        setDescription(target.getDescription());
+        setIf(target.getIf());
+        setUnless(target.getUnless());
+        Enumeration<String> dependencies = target.getDependencies();
+        while (dependencies.hasMoreElements()) {
+            addDependency(dependencies.nextElement());
+        }
+        for (Task task : target.getTasks()) {
+            task.setOwningTarget(this);
+            addTask(task);
+        }
+    }
+
+    /**
+     * Get the cached target replacing a given target, replacing it if needed
+     * 
+     * @param project
+     *            project owning the target
+     * @param targetName
+     *            name of the target
+     * @return the cached target
+     * @throws BuildException
+     *             if the target doesn't exist or is an extension-point
+     */
+    public static CachedTarget get(Project project, String targetName) {
+        Target target = project.getTargets().get(targetName);
+        if (target == null) {
+            throw new BuildException("unable to find target " + targetName);
+        }
+        if (target instanceof CachedTarget) {
+            return (CachedTarget) target;
+        }
+        if (target instanceof ExtensionPoint) {
+            throw new BuildException("extension-point " + targetName + " has no outputs to cache");
+        }
+        CachedTarget cachedTarget = new CachedTarget(target);
+        // imported targets are also registered under their prefixed names
+        Map<String, Target> targets = new HashMap<String, Target>(project.getTargets());
+        for (Map.Entry<String, Target> entry : targets.entrySet()) {
+            if (entry.getValue() == target) {
+                project.addOrReplaceTarget(entry.getKey(), cachedTarget);
+            }
+        }
+        return cachedTarget;
+    }
+
+    public void addInput(ResourceCollection input) {
+        inputs.add(input);
+    }
+
+    public void addPropertyInput(PropertySet input) {
+        propertyInputs.add(input);
+    }
+
+    public void addOutput(File output) {
+        outputs.add(output);
+    }
+
+    public List<File> getOutputs() {
+        return Collections.unmodifiableList(outputs);
+    }
+
+    @Override
+    public void execute() throws BuildException {
+        Project project = getProject();
+        PropertyHelper propertyHelper = PropertyHelper.getPropertyHelper(project);
+        if (outputs.isEmpty() || Project.toBoolean(project.getProperty(EasyAntMagicNames.SKIP_TARGET_CACHE))
+                || !propertyHelper.testIfCondition(getIf()) || !propertyHelper.testUnlessCondition(getUnless())) {
+            super.execute();
+            return;
+        }
+        TargetOutputCache cache = new TargetOutputCache(new LocalBuildCacheBackend(getCacheDirectory()));
+        String fingerprint = null;
+        try {
+            fingerprint = computeFingerprint();
+            if (cache.restore(fingerprint, outputs)) {
+                project.log(this, "Outputs of " + getName() + " restored from target cache (" + fingerprint + ")",
+                        Project.MSG_INFO);
+                return;
+            }
+        } catch (IOException e) {
+            project.log(this, "Unable to restore outputs of " + getName() + " from target cache: " + e.getMessage(),
+                    Project.MSG_WARN);
+        }
+        super.execute();
+        if (fingerprint != null) {
+            try {
+                cache.store(fingerprint, outputs);
+            } catch (IOException e) {
+                project.log(this, "Unable to store outputs of " + getName() + " in target cache: " + e.getMessage(),
+                        Project.MSG_WARN);
+            }
+        }
+    }
+
+    private File getCacheDirectory() {
+        String cacheDirectory = getProject().getProperty(EasyAntMagicNames.TARGET_CACHE_DIR);
+        if (cacheDirectory == null) {
+            cacheDirectory = getProject().replaceProperties(EasyAntConstants.DEFAULT_TARGET_CACHE_DIR);
+        }
+        return getProject().resolveFile(cacheDirectory);
+    }
+
+    /**
+     * Compute the fingerprint of the target inputs. Files are named relatively to the project base directory, so that
+     * a project moved elsewhere still hits the cache.
+     */
+    private String computeFingerprint() throws IOException {
+        ModuleFingerprint fingerprint = new ModuleFingerprint();
+        fingerprint.add("target", getName());
+        fingerprint.add("java.version", System.getProperty("java.version"));
+        for (File output : outputs) {
+            fingerprint.add("output", getRelativePath(output));
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            ResourceCollection input = inputs.get(i);
+            fingerprint.add("input", String.valueOf(i));
+            if (input instanceof AbstractFileSet && !((AbstractFileSet) input).getDir(getProject()).exists()) {
+                fingerprint.add("missing", getRelativePath(((AbstractFileSet) input).getDir(getProject())));
+                continue;
+            }
+            List<Resource> resources = new ArrayList<Resource>();
+            for (Iterator<?> it = input.iterator(); it.hasNext();) {
+                resources.add((Resource) it.next());
+            }
+            if (input instanceof AbstractFileSet) {
+                // scan order depends on the file system, while order of paths matters
+                Collections.sort(resources);
+            }
+            for (Resource resource : resources) {
+                FileProvider fileProvider = resource.as(FileProvider.class);
+                if (fileProvider == null) {
+                    fingerprint.add(resource.toLongString(), resource.getSize() + "@" + resource.getLastModified());
+                } else if (fileProvider.getFile().isDirectory()) {
+                    fingerprint.addDirectory(getRelativePath(fileProvider.getFile()), fileProvider.getFile());
+                } else {
+                    fingerprint.addFile(getRelativePath(fileProvider.getFile()), fileProvider.getFile());
+                }
+            }
+        }
+        for (PropertySet propertyInput : propertyInputs) {
+            Map<Object, Object> properties = new TreeMap<Object, Object>(propertyInput.getProperties());
+            for (Map.Entry<Object, Object> property : properties.entrySet()) {
+                fingerprint.add(String.valueOf(property.getKey()), String.valueOf(property.getValue()));
+            }
+        }
+        return fingerprint.getValue();
+    }
+
+    private String getRelativePath(File file) {
+        return FileUtils.getFileUtils().removeLeadingPath(getProject().getBaseDir(), file).replace(File.separatorChar,
+                '/');
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.taskdefs.Execute;
+import org.apache.tools.ant.taskdefs.PumpStreamHandler;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Lists files changed in a project, used to build only the sub-modules affected by a change
+ */
+public final class ChangedFiles {
+
+    private ChangedFiles() {
+    }
+
+    /**
+     * Read changed files from a file listing one path per line. Blank lines and lines starting with # are ignored.
+     *
+     * @param listFile
+     *            the file listing changed paths
+     * @param baseDir
+     *            directory relative paths are resolved against
+     * @return changed files
+     * @throws BuildException
+     *             if the list cannot be read
+     */
+    public static List<File> read(File listFile, File baseDir) {
+        List<File> changedFiles = new ArrayList<File>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(listFile), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    changedFiles.add(FileUtils.getFileUtils().resolveFile(baseDir, line));
+                }
+            }
+        } catch (IOException e) {
+            throw new BuildException("Unable to read changed files from " + listFile + ": " + e.getMessage(), e);
+        } finally {
+            FileUtils.close(reader);
+        }
+        return changedFiles;
+    }
+
+    /**
+     * List files of a git working tree which differ from a base revision: committed, staged and unstaged changes, and
+     * untracked files which are not ignored. Both sides of renames are listed.
+     *
+     * @param workDir
+     *            a directory of the working tree
+     * @param baseRevision
+     *            the revision changes are computed against
+     * @return changed files
+     * @throws BuildException
+     *             if git cannot be executed or fails
+     */
+    public static List<File> fromGit(File workDir, String baseRevision) {
+        File topLevel = new File(git(workDir, "rev-parse", "--show-toplevel").trim());
+        List<File> changedFiles = new ArrayList<File>();
+        addLines(changedFiles, topLevel, git(workDir, "diff", "--name-only", "--no-renames", baseRevision, "--"));
+        addLines(changedFiles, topLevel, git(workDir, "ls-files", "--others", "--exclude-standard", "--full-name"));
+        return changedFiles;
+    }
+
+    private static void addLines(List<File> changedFiles, File topLevel, String output) {
+        BufferedReader reader = new BufferedReader(new StringReader(output));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() > 0) {
+                    changedFiles.add(new File(topLevel, line));
+                }
+            }
+        } catch (IOException e) {
+            // cannot happen while reading a string
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String git(File workDir, String... args) {
+        String[] commandline = new String[args.length + 3];
+        commandline[0] = "git";
+        // keep non ascii paths unquoted
+        commandline[1] = "-c";
+        commandline[2] = "core.quotepath=off";
+        System.arraycopy(args, 0, commandline, 3, args.length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Execute execute = new Execute(new PumpStreamHandler(out, err));
+        execute.setWorkingDirectory(workDir);
+        execute.setCommandline(commandline);
+        try {
+            int exitValue = execute.execute();
+            if (Execute.isFailure(exitValue)) {
+                throw new BuildException("git " + args[0] + " failed in " + workDir + ": " + toString(err).trim());
+            }
+            return toString(out);
+        } catch (IOException e) {
+            throw new BuildException("Unable to execute git in " + workDir + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String toString(ByteArrayOutputStream out) {
+        try {
+            return out.toString("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tools.ant.AntTypeDefinition;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.ComponentHelper;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.taskdefs.Definer;
+import org.apache.tools.ant.taskdefs.Taskdef;
+import org.apache.tools.ant.taskdefs.Typedef;
+import org.apache.tools.ant.types.Reference;
+
+/**
+ * Component helper sharing definitions loaded from antlib resources between a project and its sub-projects.
+ * <p>
+ * Taskdef and typedef tasks loading a resource are replaced by caching variants. Definitions loaded from a resource are
+ * recorded, keyed by the resource and the class loader used to load it. Any other project loading the same resource
+ * with the same class loader gets the recorded definitions by reference, without parsing the resource again. Recorded
+ * definitions are never modified: a project redefining a component only replaces the entry of its own table.
+ * <p>
+ * Only definitions loaded by class loaders shared between projects are recorded: plugin class loaders pooled by
+ * {@link PluginClassLoaderPool} and the core class loader. Ant creates a new class loader for any other classpath, its
+ * definitions could never be reused.
+ * <p>
+ * Definitions bound to the project that created them (macrodef, presetdef, etc...) are never shared.
+ * <p>
+ * Definers whose classpath is the one of an imported plugin use the class loader registered for it by
+ * {@link PluginClassLoaderPool}.
+ */
+public class EasyAntComponentHelper extends ComponentHelper {
+
+    private static final String TASKDEF = "taskdef";
+
+    private static final String TYPEDEF = "typedef";
+
+    private static final AntTypeDefinition CACHING_TASKDEF = createDefinition(TASKDEF, CachingTaskdef.class);
+
+    private static final AntTypeDefinition CACHING_TYPEDEF = createDefinition(TYPEDEF, CachingTypedef.class);
+
+    private Map<ClassLoader, Map<String, List<AntTypeDefinition>>> antlibDefinitions =
+            new IdentityHashMap<ClassLoader, Map<String, List<AntTypeDefinition>>>();
+
+    protected EasyAntComponentHelper() {
+    }
+
+    /**
+     * Install an easyant component helper on a project. This must be done before the project is initialized, a project
+     * already using another component helper keeps it as its definitions can't be moved.
+     *
+     * @param project
+     *            a project
+     * @return the component helper of the project, null if the project already uses another component helper
+     */
+    public static EasyAntComponentHelper install(Project project) {
+        ComponentHelper existingHelper = project.getReference(ComponentHelper.COMPONENT_HELPER_REFERENCE);
+        if (existingHelper != null) {
+            return existingHelper instanceof EasyAntComponentHelper ? (EasyAntComponentHelper) existingHelper : null;
+        }
+        EasyAntComponentHelper helper = new EasyAntComponentHelper();
+        helper.setProject(project);
+        project.addReference(ComponentHelper.COMPONENT_HELPER_REFERENCE, helper);
+        return helper;
+    }
+
+    @Override
+    public void initSubProject(ComponentHelper helper) {
+        super.initSubProject(helper);
+        if (helper instanceof EasyAntComponentHelper) {
+            // sub-projects share definitions already loaded by their parent
+            antlibDefinitions = ((EasyAntComponentHelper) helper).antlibDefinitions;
+        }
+    }
+
+    @Override
+    public AntTypeDefinition getDefinition(String componentName) {
+        AntTypeDefinition definition = super.getDefinition(componentName);
+        if (definition == null) {
+            return null;
+        }
+        // only core definitions are replaced, a redefined taskdef/typedef is left untouched
+        if (TASKDEF.equals(componentName) && Taskdef.class.getName().equals(definition.getClassName())) {
+            return CACHING_TASKDEF;
+        }
+        if (TYPEDEF.equals(componentName) && Typedef.class.getName().equals(definition.getClassName())) {
+            return CACHING_TYPEDEF;
+        }
+        return definition;
+    }
+
+    /**
+     * Number of resources whose definitions are shared
+     */
+    public int getSharedResourcesCount() {
+        synchronized (antlibDefinitions) {
+            int count = 0;
+            for (Map<String, List<AntTypeDefinition>> definitions : antlibDefinitions.values()) {
+                count += definitions.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Execute a definer, reusing definitions recorded for the same resource and class loader if any
+     *
+     * @param definer
+     *            the definer to execute
+     * @param loader
+     *            class loader used by the definer
+     * @param options
+     *            definer options changing the loaded definitions
+     * @param execution
+     *            effective execution of the definer
+     */
+    private void execute(Definer definer, ClassLoader loader, String options, Runnable execution) {
+        if (definer.getResource() == null || definer.getFile() != null || definer.getName() != null
+                || !isShared(loader)) {
+            execution.run();
+            return;
+        }
+        String key = definer.getURI() + '|' + definer.getResource() + '|' + options;
+        List<AntTypeDefinition> definitions;
+        synchronized (antlibDefinitions) {
+            Map<String, List<AntTypeDefinition>> loaderDefinitions = antlibDefinitions.get(loader);
+            definitions = loaderDefinitions == null ? null : loaderDefinitions.get(key);
+        }
+        if (definitions != null) {
+            getProject().log("Reusing " + definitions.size() + " definitions loaded from " + definer.getResource(),
+                    Project.MSG_DEBUG);
+            for (AntTypeDefinition definition : definitions) {
+                addDataTypeDefinition(definition);
+            }
+            return;
+        }
+
+        Map<String, AntTypeDefinition> previousDefinitions = new HashMap<String, AntTypeDefinition>(getAntTypeTable());
+        execution.run();
+        List<AntTypeDefinition> loadedDefinitions = new ArrayList<AntTypeDefinition>();
+        for (Map.Entry<String, AntTypeDefinition> entry : getAntTypeTable().entrySet()) {
+            AntTypeDefinition definition = entry.getValue();
+            if (previousDefinitions.get(entry.getKey()) != definition) {
+                if (definition.getClass() != AntTypeDefinition.class || definition.getClassLoader() != loader) {
+                    // definition bound to this project, or not loaded by the shared class loader
+                    return;
+                }
+                loadedDefinitions.add(definition);
+            }
+        }
+        if (!loadedDefinitions.isEmpty()) {
+            synchronized (antlibDefinitions) {
+                Map<String, List<AntTypeDefinition>> loaderDefinitions = antlibDefinitions.get(loader);
+                if (loaderDefinitions == null) {
+                    loaderDefinitions = new HashMap<String, List<AntTypeDefinition>>();
+                    antlibDefinitions.put(loader, loaderDefinitions);
+                }
+                loaderDefinitions.put(key, Collections.unmodifiableList(loadedDefinitions));
+            }
+        }
+    }
+
+    /**
+     * Check whether a class loader is shared between projects
+     */
+    private boolean isShared(ClassLoader loader) {
+        ClassLoader coreLoader = getProject().getCoreLoader() != null ? getProject().getCoreLoader() : Project.class
+                .getClassLoader();
+        return loader == coreLoader || PluginClassLoaderPool.getInstance().contains(loader);
+    }
+
+    private static AntTypeDefinition createDefinition(String name, Class<?> definerClass) {
+        AntTypeDefinition definition = new AntTypeDefinition();
+        definition.setName(name);
+        definition.setClassName(definerClass.getName());
+        definition.setClass(definerClass);
+        definition.setClassLoader(definerClass.getClassLoader());
+        return definition;
+    }
+
+    private static void executeDefiner(Definer definer, ClassLoader loader, String options, Runnable execution) {
+        ComponentHelper helper = ComponentHelper.getComponentHelper(definer.getProject());
+        if (helper instanceof EasyAntComponentHelper) {
+            ((EasyAntComponentHelper) helper).execute(definer, loader, options, execution);
+        } else {
+            execution.run();
+        }
+    }
+
+    /**
+     * Definer options changing the loaded definitions
+     */
+    private static class DefinerOptions {
+
+        private int format = -1;
+
+        private String adapter;
+
+        private String adaptTo;
+
+        @Override
+        public String toString() {
+            return format + "|" + adapter + "|" + adaptTo;
+        }
+    }
+
+    /**
+     * Class loader references of a definer. Ant's class loader reuse is not enabled for the whole project, a definer
+     * using the classpath of an imported plugin is explicitly given the class loader pooled for this classpath, other
+     * definers are left untouched.
+     */
+    private static class LoaderReferences {
+
+        private String classpathId;
+
+        private boolean explicitLoader;
+
+        private void usePluginClassLoader(Definer definer) {
+            if (classpathId == null || explicitLoader) {
+                return;
+            }
+            String loaderId = MagicNames.REFID_CLASSPATH_LOADER_PREFIX + classpathId;
+            Object loader = definer.getProject().getReference(loaderId);
+            if (loader instanceof ClassLoader && PluginClassLoaderPool.getInstance().contains((ClassLoader) loader)) {
+                definer.setLoaderRef(new Reference(definer.getProject(), loaderId));
+            }
+        }
+    }
+
+    /**
+     * Taskdef sharing definitions loaded from resources
+     */
+    public static class CachingTaskdef extends Taskdef {
+
+        private final DefinerOptions options = new DefinerOptions();
+
+        private final LoaderReferences loaderReferences = new LoaderReferences();
+
+        @Override
+        public void setClasspathRef(Reference r) {
+            super.setClasspathRef(r);
+            loaderReferences.classpathId = r.getRefId();
+        }
+
+        @Override
+        public void setLoaderRef(Reference r) {
+            super.setLoaderRef(r);
+            loaderReferences.explicitLoader = true;
+        }
+
+        @Override
+        public void setFormat(Format format) {
+            super.setFormat(format);
+            options.format = format.getIndex();
+        }
+
+        @Override
+        public void setAdapter(String adapter) {
+            super.setAdapter(adapter);
+            options.adapter = adapter;
+        }
+
+        @Override
+        public void setAdaptTo(String adaptTo) {
+            super.setAdaptTo(adaptTo);
+            options.adaptTo = adaptTo;
+        }
+
+        @Override
+        public void execute() throws BuildException {
+            loaderReferences.usePluginClassLoader(this);
+            executeDefiner(this, createLoader(), options.toString(), new Runnable() {
+                public void run() {
+                    CachingTaskdef.super.execute();
+                }
+            });
+        }
+    }
+
+    /**
+     * Typedef sharing definitions loaded from resources
+     */
+    public static class CachingTypedef extends Typedef {
+
+        private final DefinerOptions options = new DefinerOptions();
+
+        private final LoaderReferences loaderReferences = new LoaderReferences();
+
+        @Override
+        public void setClasspathRef(Reference r) {
+            super.setClasspathRef(r);
+            loaderReferences.classpathId = r.getRefId();
+        }
+
+        @Override
+        public void setLoaderRef(Reference r) {
+            super.setLoaderRef(r);
+            loaderReferences.explicitLoader = true;
+        }
+
+        @Override
+        public void setFormat(Format format) {
+            super.setFormat(format);
+            options.format = format.getIndex();
+        }
+
+        @Override
+        public void setAdapter(String adapter) {
+            super.setAdapter(adapter);
+            options.adapter = adapter;
+        }
+
+        @Override
+        public void setAdaptTo(String adaptTo) {
+            super.setAdaptTo(adaptTo);
+            options.adaptTo = adaptTo;
+        }
+
+        @Override
+        public void execute() throws BuildException {
+            loaderReferences.usePluginClassLoader(this);
+            executeDefiner(this, createLoader(), options.toString(), new Runnable() {
+                public void run() {
+                    CachingTypedef.super.execute();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.PropertyHelper;
+
+/**
+ * A property helper used by sub-modules. User and inherited properties of the parent project are read through an
+ * immutable {@link Snapshot} shared by every sub-module, only properties written by the sub-module itself are stored
+ * locally.
+ * <p>
+ * Parent user properties keep their precedence: they can't be overridden by regular properties of the sub-module, but
+ * a user property set on the sub-module shadows the parent one. Methods enumerating properties expose the merged view
+ * so that sub-builds (antcall, nested submodules, ...) inherit them as usual.
+ */
+public class LayeredPropertyHelper extends PropertyHelper {
+
+    private final Snapshot parent;
+
+    protected LayeredPropertyHelper(Snapshot parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Install a layered property helper on a freshly created sub-project. This must be done before any property is set
+     * on the sub-project.
+     *
+     * @param subProject
+     *            a sub-project
+     * @param parent
+     *            properties of the parent project
+     * @return the installed property helper
+     */
+    public static LayeredPropertyHelper install(Project subProject, Snapshot parent) {
+        LayeredPropertyHelper helper = new LayeredPropertyHelper(parent);
+        helper.setProject(subProject);
+        subProject.addReference(MagicNames.REFID_PROPERTY_HELPER, helper);
+        return helper;
+    }
+
+    /**
+     * Is the given property a parent user property not shadowed by a local user property ?
+     */
+    private boolean isReadOnlyParentProperty(String name) {
+        return name != null && parent.getUserProperties().containsKey(name) && super.getUserProperty(name) == null;
+    }
+
+    @Override
+    public boolean setProperty(String name, Object value, boolean verbose) {
+        if (isReadOnlyParentProperty(name)) {
+            if (verbose) {
+                getProject().log("Override ignored for user property \"" + name + "\"", Project.MSG_VERBOSE);
+            }
+            return false;
+        }
+        return super.setProperty(name, value, verbose);
+    }
+
+    @Override
+    public void setNewProperty(String name, Object value) {
+        if (isReadOnlyParentProperty(name)) {
+            getProject().log("Override ignored for property \"" + name + "\"", Project.MSG_VERBOSE);
+            return;
+        }
+        super.setNewProperty(name, value);
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        Object value = super.getProperty(name);
+        if (value == null && name != null) {
+            value = parent.getUserProperties().get(name);
+        }
+        return value;
+    }
+
+    @Override
+    public Object getUserProperty(String name) {
+        Object value = super.getUserProperty(name);
+        if (value == null && name != null) {
+            value = parent.getUserProperties().get(name);
+        }
+        return value;
+    }
+
+    @Override
+    public Hashtable<String, Object> getProperties() {
+        Hashtable<String, Object> properties = new Hashtable<String, Object>(parent.getUserProperties());
+        properties.putAll(super.getProperties());
+        return properties;
+    }
+
+    @Override
+    public Hashtable<String, Object> getUserProperties() {
+        Hashtable<String, Object> properties = new Hashtable<String, Object>(parent.getUserProperties());
+        properties.putAll(super.getUserProperties());
+        return properties;
+    }
+
+    @Override
+    public Hashtable<String, Object> getInheritedProperties() {
+        Hashtable<String, Object> properties = new Hashtable<String, Object>();
+        for (String name : parent.getInheritedPropertyNames()) {
+            if (super.getUserProperty(name) == null) {
+                properties.put(name, parent.getUserProperties().get(name));
+            }
+        }
+        properties.putAll(super.getInheritedProperties());
+        return properties;
+    }
+
+    /**
+     * Names of all properties, including parent ones (used by Ant 1.10+)
+     */
+    public Set<String> getPropertyNames() {
+        Set<String> names = new HashSet<String>(parent.getUserProperties().keySet());
+        names.addAll(super.getProperties().keySet());
+        return Collections.unmodifiableSet(names);
+    }
+
+    @Override
+    public void copyUserProperties(Project other) {
+        for (Entry<String, Object> entry : parent.getUserProperties().entrySet()) {
+            String name = entry.getKey();
+            if (!parent.getInheritedPropertyNames().contains(name) && super.getUserProperty(name) == null) {
+                other.setUserProperty(name, entry.getValue().toString());
+            }
+        }
+        super.copyUserProperties(other);
+    }
+
+    @Override
+    public void copyInheritedProperties(Project other) {
+        for (String name : parent.getInheritedPropertyNames()) {
+            if (super.getUserProperty(name) == null && other.getUserProperty(name) == null) {
+                other.setInheritedProperty(name, parent.getUserProperties().get(name).toString());
+            }
+        }
+        super.copyInheritedProperties(other);
+    }
+
+    /**
+     * Immutable view of user and inherited properties of a project, taken once and shared by all sub-modules. basedir
+     * and ant.file properties are omitted as they are specific to each project.
+     */
+    public static class Snapshot {
+
+        private final Map<String, Object> userProperties;
+
+        private final Set<String> inheritedPropertyNames;
+
+        public Snapshot(Project project) {
+            Map<String, Object> user = new HashMap<String, Object>();
+            for (Entry<String, Object> entry : project.getUserProperties().entrySet()) {
+                String name = entry.getKey();
+                if (!MagicNames.PROJECT_BASEDIR.equals(name) && !MagicNames.ANT_FILE.equals(name)) {
+                    user.put(name, entry.getValue().toString());
+                }
+            }
+            Set<String> inherited = new HashSet<String>(project.getInheritedProperties().keySet());
+            inherited.retainAll(user.keySet());
+            this.userProperties = Collections.unmodifiableMap(user);
+            this.inheritedPropertyNames = Collections.unmodifiableSet(inherited);
+        }
+
+        public Map<String, Object> getUserProperties() {
+            return userProperties;
+        }
+
+        public Set<String> getInheritedPropertyNames() {
+            return inheritedPropertyNames;
+        }
+    }
+}
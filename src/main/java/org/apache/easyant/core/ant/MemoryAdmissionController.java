@@ -0,0 +1,197 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.easyant.core.ant.listerners.ExecutionHistory;
+
+/**
+ * Decides whether a sub-module can be started next to the ones already running in the same JVM, according to the heap
+ * and metaspace currently used and to the heap footprint of each sub-module.
+ * <p>
+ * The footprint of a sub-module is the growth of the used heap observed while it runs. It is learned from previous
+ * builds through the {@link ExecutionHistory}. As garbage and concurrent sub-modules are accounted for, footprints are
+ * overestimated, which makes decisions conservative.
+ */
+public class MemoryAdmissionController {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final int maxUsage;
+
+    private final ExecutionHistory history;
+
+    private final Map<String, Running> running = new HashMap<String, Running>();
+
+    private final Map<String, Long> measuredFootprints = new HashMap<String, Long>();
+
+    private String refusalReason;
+
+    /**
+     * @param maxUsage
+     *            maximum percentage of the heap and metaspace sub-modules may use
+     * @param history
+     *            history holding footprints learned by previous builds, may be null
+     */
+    public MemoryAdmissionController(int maxUsage, ExecutionHistory history) {
+        this.maxUsage = maxUsage;
+        this.history = history;
+    }
+
+    /**
+     * Check whether a sub-module can be started now. A sub-module is always admitted if no other one is running.
+     *
+     * @param module
+     *            a sub-module name
+     * @return true if the sub-module can be started, false if it should wait for running sub-modules to release memory.
+     *         The reason of a refusal is then available through {@link #getRefusalReason()}.
+     */
+    public synchronized boolean admit(String module) {
+        refusalReason = null;
+        if (running.isEmpty()) {
+            return true;
+        }
+        sample();
+        MemoryUsage metaspace = getMetaspaceUsage();
+        if (metaspace != null && metaspace.getMax() > 0 && metaspace.getUsed() * 100 > metaspace.getMax() * maxUsage) {
+            refusalReason = "metaspace: " + format(metaspace.getUsed()) + " used of " + format(metaspace.getMax());
+            return false;
+        }
+        MemoryUsage heap = getHeapUsage();
+        if (heap.getMax() <= 0) {
+            return true;
+        }
+        // running sub-modules may not have reached their footprint yet
+        long reserved = 0;
+        for (Map.Entry<String, Running> entry : running.entrySet()) {
+            reserved += Math.max(0, getFootprint(entry.getKey()) - entry.getValue().getGrowth());
+        }
+        long needed = heap.getUsed() + reserved + getFootprint(module);
+        if (needed * 100 > heap.getMax() * maxUsage) {
+            refusalReason = "heap: " + format(heap.getUsed()) + " used, " + format(reserved)
+                    + " reserved by running sub-modules, " + format(getFootprint(module)) + " needed, of "
+                    + format(heap.getMax());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the reason why the last sub-module has not been admitted
+     */
+    public synchronized String getRefusalReason() {
+        return refusalReason;
+    }
+
+    /**
+     * Notify that a sub-module has been started
+     *
+     * @param module
+     *            a sub-module name
+     */
+    public synchronized void started(String module) {
+        running.put(module, new Running(getHeapUsage().getUsed()));
+    }
+
+    /**
+     * Notify that a sub-module is finished, and record its footprint
+     *
+     * @param module
+     *            a sub-module name
+     */
+    public synchronized void finished(String module) {
+        sample();
+        Running run = running.remove(module);
+        if (run != null) {
+            measuredFootprints.put(module, run.getGrowth());
+            if (history != null) {
+                history.recordModuleFootprint(module, run.getGrowth());
+            }
+        }
+    }
+
+    /**
+     * Update the peak heap usage of running sub-modules. Should be invoked regularly while sub-modules are running.
+     */
+    public synchronized void sample() {
+        long used = getHeapUsage().getUsed();
+        for (Running run : running.values()) {
+            run.peak = Math.max(run.peak, used);
+        }
+    }
+
+    /**
+     * Get the estimated footprint of a sub-module: the one recorded by previous builds if any, the average footprint of
+     * sub-modules already built otherwise
+     */
+    private long getFootprint(String module) {
+        long footprint = history != null ? history.getModuleFootprint(module) : -1;
+        if (footprint >= 0) {
+            return footprint;
+        }
+        if (measuredFootprints.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        for (long measured : measuredFootprints.values()) {
+            total += measured;
+        }
+        return total / measuredFootprints.size();
+    }
+
+    protected MemoryUsage getHeapUsage() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    }
+
+    protected MemoryUsage getMetaspaceUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP
+                    && (pool.getName().contains("Metaspace") || pool.getName().contains("Perm Gen"))
+                    && !pool.getName().contains("Compressed")) {
+                return pool.getUsage();
+            }
+        }
+        return null;
+    }
+
+    private static String format(long bytes) {
+        return (bytes / MEGABYTE) + "MB";
+    }
+
+    private static class Running {
+
+        private final long initial;
+
+        private long peak;
+
+        private Running(long initial) {
+            this.initial = initial;
+            this.peak = initial;
+        }
+
+        private long getGrowth() {
+            return Math.max(0, peak - initial);
+        }
+    }
+}
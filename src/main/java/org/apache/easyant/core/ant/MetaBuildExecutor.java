@@ -27,6 +27,7 @@ import org.apache.tools.ant.helper.DefaultExecutor;
 import org.apache.tools.ant.types.Reference;
 import org.apache.tools.ant.util.StringUtils;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -86,6 +87,45 @@ public class MetaBuildExecutor extends DefaultExecutor {
         Boolean useBuildRepository = project.getProperty(EasyAntMagicNames.USE_BUILD_REPOSITORY) != null ? Boolean
                 .parseBoolean(project.getProperty(EasyAntMagicNames.USE_BUILD_REPOSITORY)) : true;
         subModule.setUseBuildRepository(useBuildRepository);
+        subModule.setPipelined(Project.toBoolean(project.getProperty(EasyAntMagicNames.PIPELINE_BUILD)));
+        String publishTarget = project.getProperty(EasyAntMagicNames.PIPELINE_PUBLISH_TARGET);
+        if (publishTarget != null) {
+            subModule.setPublishTarget(publishTarget);
+        }
+        String pipelineThreads = project.getProperty(EasyAntMagicNames.PIPELINE_THREADS);
+        if (pipelineThreads != null) {
+            try {
+                subModule.setThreadCount(Integer.parseInt(pipelineThreads.trim()));
+            } catch (NumberFormatException e) {
+                throw new BuildException(EasyAntMagicNames.PIPELINE_THREADS + " must be a positive integer, found: "
+                        + pipelineThreads);
+            }
+        }
+
+        String maxHeapUsage = project.getProperty(EasyAntMagicNames.PIPELINE_MAX_HEAP_USAGE);
+        if (maxHeapUsage != null) {
+            try {
+                subModule.setMaxHeapUsage(Integer.parseInt(maxHeapUsage.trim()));
+            } catch (NumberFormatException e) {
+                throw new BuildException(EasyAntMagicNames.PIPELINE_MAX_HEAP_USAGE
+                        + " must be a percentage between 1 and 100, found: " + maxHeapUsage);
+            }
+        }
+        subModule.setHistoryFile(getUserCacheFile(project, EasyAntMagicNames.EXECUTION_HISTORY_FILE,
+                EasyAntConstants.DEFAULT_EXECUTION_HISTORY_DIR));
+        subModule.setProgressFile(getUserCacheFile(project, EasyAntMagicNames.BUILD_PROGRESS_FILE,
+                EasyAntConstants.DEFAULT_BUILD_PROGRESS_DIR));
+        subModule.setResume(Project.toBoolean(project.getProperty(EasyAntMagicNames.RESUME_BUILD)));
+        subModule.setBuildCache(project.getProperty(EasyAntMagicNames.BUILD_CACHE));
+        subModule.setModules(project.getProperty(EasyAntMagicNames.SELECTED_MODULES));
+        subModule.setIncludeUpstream(Project.toBoolean(project
+                .getProperty(EasyAntMagicNames.SELECTED_MODULES_UPSTREAM)));
+        subModule.setIncludeDownstream(Project.toBoolean(project
+                .getProperty(EasyAntMagicNames.SELECTED_MODULES_DOWNSTREAM)));
+        List<File> changedFiles = getChangedFiles(project);
+        if (changedFiles != null) {
+            subModule.setAffectedBy(changedFiles);
+        }
 
         subModule.setBuildpathRef(new Reference(project, "build-path"));
         subModule.setTargets(new TargetList(targets));
@@ -96,6 +136,38 @@ public class MetaBuildExecutor extends DefaultExecutor {
         super.executeTargets(project, postTargetsToRun.toArray(new String[postTargetsToRun.size()]));
     }
 
+    /*
+     * durations and progress are recorded by default in the user cache, in files dedicated to this multi-module
+     * project
+     */
+    private File getUserCacheFile(Project project, String property, String defaultDir) {
+        String file = project.getProperty(property);
+        if (file != null) {
+            return project.resolveFile(file);
+        }
+        File dir = new File(project.replaceProperties(defaultDir));
+        return new File(dir, Integer.toHexString(project.getBaseDir().getAbsolutePath().hashCode()) + ".properties");
+    }
+
+    /*
+     * changed files listed in a file and/or computed by git, null to build all sub-modules
+     */
+    private List<File> getChangedFiles(Project project) {
+        String changesFile = project.getProperty(EasyAntMagicNames.AFFECTED_CHANGES_FILE);
+        String since = project.getProperty(EasyAntMagicNames.AFFECTED_SINCE);
+        if (changesFile == null && since == null) {
+            return null;
+        }
+        List<File> changedFiles = new ArrayList<File>();
+        if (changesFile != null) {
+            changedFiles.addAll(ChangedFiles.read(project.resolveFile(changesFile), project.getBaseDir()));
+        }
+        if (since != null) {
+            changedFiles.addAll(ChangedFiles.fromGit(project.getBaseDir(), since));
+        }
+        return changedFiles;
+    }
+
     /*
      * informs all the sub-modules that will be built, in the order they will be built
      */
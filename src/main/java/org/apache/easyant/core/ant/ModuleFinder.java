@@ -0,0 +1,94 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.util.Message;
+import org.apache.tools.ant.BuildException;
+
+/**
+ * Finds module revisions in repositories concurrently
+ */
+public final class ModuleFinder {
+
+    private ModuleFinder() {
+    }
+
+    /**
+     * Find module revisions with {@link Ivy#findModule(ModuleRevisionId)}, in a pool of daemon threads. Module
+     * revisions which can't be found, or whose lookup fails, are missing from the result.
+     *
+     * @param ivy
+     *            Ivy instance used to find module revisions
+     * @param mrids
+     *            module revisions to find, dynamic revisions are resolved
+     * @param name
+     *            prefix of thread names
+     * @param threadCount
+     *            maximum number of module revisions looked for at the same time
+     * @return found module revisions by requested module revision, in the order they were requested
+     * @throws BuildException
+     *             if the calling thread is interrupted while waiting, its interrupted status is restored
+     */
+    public static Map<ModuleRevisionId, ResolvedModuleRevision> findModules(final Ivy ivy,
+            Collection<ModuleRevisionId> mrids, String name, int threadCount) {
+        List<ModuleRevisionId> toFind = new ArrayList<ModuleRevisionId>(new LinkedHashSet<ModuleRevisionId>(mrids));
+        Map<ModuleRevisionId, ResolvedModuleRevision> found = new LinkedHashMap<ModuleRevisionId,
+                ResolvedModuleRevision>();
+        if (toFind.isEmpty()) {
+            return found;
+        }
+        List<Callable<ResolvedModuleRevision>> lookups = new ArrayList<Callable<ResolvedModuleRevision>>();
+        for (final ModuleRevisionId mrid : toFind) {
+            lookups.add(new Callable<ResolvedModuleRevision>() {
+                public ResolvedModuleRevision call() {
+                    return ivy.findModule(mrid);
+                }
+            });
+        }
+        try {
+            List<Future<ResolvedModuleRevision>> results = ThreadPools.invokeAll(name, threadCount, lookups);
+            for (int i = 0; i < toFind.size(); i++) {
+                try {
+                    ResolvedModuleRevision rmr = results.get(i).get();
+                    if (rmr != null) {
+                        found.put(toFind.get(i), rmr);
+                    }
+                } catch (ExecutionException e) {
+                    Message.verbose("unable to find " + toFind.get(i) + ": " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while looking for module revisions", e);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ant.listerners.OrderedBuildEventDispatcher;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Executor;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.helper.SingleCheckExecutor;
+
+/**
+ * Executes the targets of a module concurrently, as soon as all their dependencies succeeded.
+ * <p>
+ * Dependencies are the ones of the target graph, including the ones added to extension points and phases by
+ * extensionOf attributes. Targets listed in a depends attribute without depending on each other can run in any order,
+ * even if ant would run them from left to right. Each target is executed only once. The number of concurrent targets
+ * is bounded by {@link EasyAntMagicNames#PARALLEL_TARGETS_THREADS} property (number of processors by default).
+ * <p>
+ * Log events of each target are grouped and delivered in the order ant would have executed targets, whatever the
+ * order they really completed in. When a target fails, remaining targets are cancelled, unless keep going mode is
+ * enabled in which case only targets depending on the failed one are skipped.
+ */
+public class ParallelTargetExecutor implements Executor {
+
+    private static final SingleCheckExecutor SUB_EXECUTOR = new SingleCheckExecutor();
+
+    public void executeTargets(Project project, String[] targetNames) throws BuildException {
+        Vector<Target> sortedTargets = project.topoSort(targetNames, project.getTargets(), false);
+        new Execution(project, sortedTargets, getThreadCount(project)).run();
+    }
+
+    public Executor getSubProjectExecutor() {
+        return SUB_EXECUTOR;
+    }
+
+    private static int getThreadCount(Project project) {
+        String threads = project.getProperty(EasyAntMagicNames.PARALLEL_TARGETS_THREADS);
+        if (threads == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            int threadCount = Integer.parseInt(threads.trim());
+            if (threadCount > 0) {
+                return threadCount;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new BuildException(EasyAntMagicNames.PARALLEL_TARGETS_THREADS + " must be a positive integer, found: "
+                + threads);
+    }
+
+    private enum State {
+        WAITING, RUNNING, SUCCEEDED, FAILED, SKIPPED
+    }
+
+    /**
+     * Execution of a sorted list of targets
+     */
+    private static final class Execution {
+
+        private final Project project;
+
+        private final List<Target> targets;
+
+        private final int threadCount;
+
+        private final State[] states;
+
+        private final Throwable[] failures;
+
+        private final Thread[] runners;
+
+        private final int[] pendingDependencies;
+
+        private final List<List<Integer>> dependents = new ArrayList<List<Integer>>();
+
+        private final Map<Future<Integer>, Integer> futures = new IdentityHashMap<Future<Integer>, Integer>();
+
+        private final LogGrouper logGrouper;
+
+        private volatile boolean cancelled = false;
+
+        private Throwable firstFailure;
+
+        private Execution(Project project, List<Target> targets, int threadCount) {
+            this.project = project;
+            this.targets = targets;
+            this.threadCount = threadCount;
+            this.states = new State[targets.size()];
+            this.failures = new Throwable[targets.size()];
+            this.runners = new Thread[targets.size()];
+            this.pendingDependencies = new int[targets.size()];
+            this.logGrouper = new LogGrouper(project, targets);
+
+            Map<String, Integer> indexes = new HashMap<String, Integer>();
+            for (int i = 0; i < targets.size(); i++) {
+                indexes.put(targets.get(i).getName(), i);
+                dependents.add(new ArrayList<Integer>());
+                states[i] = State.WAITING;
+            }
+            for (int i = 0; i < targets.size(); i++) {
+                for (Enumeration<String> deps = targets.get(i).getDependencies(); deps.hasMoreElements();) {
+                    Integer dependency = indexes.get(deps.nextElement());
+                    // topological sort ensures that every dependency is in the list
+                    if (dependency != null) {
+                        dependents.get(dependency).add(i);
+                        pendingDependencies[i]++;
+                    }
+                }
+            }
+        }
+
+        private void run() {
+            ExecutorService pool = ThreadPools.newDaemonPool(project.getName() + "-target", threadCount,
+                    targets.size());
+            CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(pool);
+            logGrouper.install();
+            try {
+                for (int i = 0; i < targets.size(); i++) {
+                    if (pendingDependencies[i] == 0) {
+                        submit(completionService, i);
+                    }
+                }
+                while (!futures.isEmpty()) {
+                    Future<Integer> future = completionService.take();
+                    int index = futures.remove(future);
+                    completed(completionService, index);
+                    logGrouper.finish(index);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new BuildException("Interrupted while executing targets"));
+            } finally {
+                // running targets may ignore interruptions, wait for them before returning
+                ThreadPools.shutdownAndWait(pool);
+                logGrouper.uninstall();
+            }
+            if (firstFailure instanceof Error) {
+                throw (Error) firstFailure;
+            }
+            if (firstFailure != null) {
+                throw (BuildException) firstFailure;
+            }
+        }
+
+        private void submit(CompletionService<Integer> completionService, final int index) {
+            states[index] = State.RUNNING;
+            Future<Integer> future = completionService.submit(new Callable<Integer>() {
+                public Integer call() {
+                    runTarget(index);
+                    return index;
+                }
+            });
+            futures.put(future, index);
+        }
+
+        private void runTarget(int index) {
+            synchronized (runners) {
+                if (cancelled) {
+                    return;
+                }
+                runners[index] = Thread.currentThread();
+            }
+            Target target = targets.get(index);
+            logGrouper.enter(index);
+            try {
+                target.performTasks();
+            } catch (BuildException e) {
+                failures[index] = e;
+            } catch (RuntimeException e) {
+                failures[index] = new BuildException(e);
+            } catch (Error e) {
+                failures[index] = e;
+            } finally {
+                if (failures[index] != null && project.isKeepGoingMode()) {
+                    project.log(target.toString() + " failed with message '" + failures[index].getMessage() + "'.",
+                            Project.MSG_ERR);
+                }
+                logGrouper.leave();
+                synchronized (runners) {
+                    runners[index] = null;
+                    // clear a cancellation request which came too late, the thread is going to be reused
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        private void completed(CompletionService<Integer> completionService, int index) {
+            if (failures[index] != null) {
+                states[index] = State.FAILED;
+                fail(failures[index]);
+            } else {
+                states[index] = cancelled ? State.SKIPPED : State.SUCCEEDED;
+            }
+            release(completionService, index);
+        }
+
+        /**
+         * Submit or skip the targets waiting for a target which is not running anymore
+         */
+        private void release(CompletionService<Integer> completionService, int index) {
+            if (cancelled) {
+                return;
+            }
+            for (int dependent : dependents.get(index)) {
+                pendingDependencies[dependent]--;
+                if (pendingDependencies[dependent] == 0) {
+                    String failedDependency = getFailedDependency(dependent);
+                    if (failedDependency == null) {
+                        submit(completionService, dependent);
+                    } else {
+                        logGrouper.log(dependent, "Cannot execute '" + targets.get(dependent).getName() + "' - '"
+                                + failedDependency + "' failed or was not executed.", Project.MSG_ERR);
+                        states[dependent] = State.SKIPPED;
+                        logGrouper.finish(dependent);
+                        release(completionService, dependent);
+                    }
+                }
+            }
+        }
+
+        private String getFailedDependency(int index) {
+            for (Enumeration<String> deps = targets.get(index).getDependencies(); deps.hasMoreElements();) {
+                String dependency = deps.nextElement();
+                for (int i = 0; i < targets.size(); i++) {
+                    if (targets.get(i).getName().equals(dependency) && states[i] != State.SUCCEEDED) {
+                        return dependency;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void fail(Throwable failure) {
+            if (firstFailure == null) {
+                firstFailure = failure;
+            }
+            if (!project.isKeepGoingMode() || failure instanceof Error) {
+                synchronized (runners) {
+                    cancelled = true;
+                    // running targets are interrupted, the other ones won't start
+                    for (Thread runner : runners) {
+                        if (runner != null) {
+                            runner.interrupt();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the listeners of a project while targets are running, so that events of each target are delivered once
+     * all the targets preceding it are finished
+     */
+    private static final class LogGrouper implements SubBuildListener {
+
+        private final Project project;
+
+        private final Map<Target, Integer> slotsByTarget = new IdentityHashMap<Target, Integer>();
+
+        private final ThreadLocal<Integer> currentSlot = new ThreadLocal<Integer>();
+
+        private List<BuildListener> listeners;
+
+        private OrderedBuildEventDispatcher dispatcher;
+
+        private LogGrouper(Project project, List<Target> targets) {
+            this.project = project;
+            for (int i = 0; i < targets.size(); i++) {
+                slotsByTarget.put(targets.get(i), i);
+            }
+        }
+
+        private void install() {
+            listeners = new ArrayList<BuildListener>(project.getBuildListeners());
+            dispatcher = new OrderedBuildEventDispatcher(listeners, slotsByTarget.size());
+            for (BuildListener listener : listeners) {
+                project.removeBuildListener(listener);
+            }
+            project.addBuildListener(this);
+        }
+
+        private void uninstall() {
+            project.removeBuildListener(this);
+            for (BuildListener listener : listeners) {
+                project.addBuildListener(listener);
+            }
+            dispatcher.flush();
+        }
+
+        private void enter(int index) {
+            currentSlot.set(index);
+        }
+
+        private void leave() {
+            currentSlot.remove();
+        }
+
+        private void log(int index, String message, int priority) {
+            BuildEvent event = new BuildEvent(project);
+            event.setMessage(message, priority);
+            dispatcher.getListener(index).messageLogged(event);
+        }
+
+        private void finish(int index) {
+            dispatcher.finish(index);
+        }
+
+        private SubBuildListener getListener(BuildEvent event) {
+            Integer slot = currentSlot.get();
+            if (slot == null && event.getTarget() != null) {
+                // events fired by threads started by a target
+                slot = slotsByTarget.get(event.getTarget());
+            }
+            return slot == null ? dispatcher.getUnorderedListener() : dispatcher.getListener(slot);
+        }
+
+        public void buildStarted(BuildEvent event) {
+            getListener(event).buildStarted(event);
+        }
+
+        public void buildFinished(BuildEvent event) {
+            getListener(event).buildFinished(event);
+        }
+
+        public void targetStarted(BuildEvent event) {
+            getListener(event).targetStarted(event);
+        }
+
+        public void targetFinished(BuildEvent event) {
+            getListener(event).targetFinished(event);
+        }
+
+        public void taskStarted(BuildEvent event) {
+            getListener(event).taskStarted(event);
+        }
+
+        public void taskFinished(BuildEvent event) {
+            getListener(event).taskFinished(event);
+        }
+
+        public void messageLogged(BuildEvent event) {
+            getListener(event).messageLogged(event);
+        }
+
+        public void subBuildStarted(BuildEvent event) {
+            getListener(event).subBuildStarted(event);
+        }
+
+        public void subBuildFinished(BuildEvent event) {
+            getListener(event).subBuildFinished(event);
+        }
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.easyant.core.ant.listerners.ExecutionHistory;
+import org.apache.easyant.core.ant.listerners.OrderedBuildEventDispatcher;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.util.DateUtils;
+
+/**
+ * Runs sub-builds concurrently. Each sub-build starts as soon as the sub-builds it depends on published their
+ * artifacts, or finished successfully without publishing them. When several sub-builds are ready, the one heading the
+ * longest chain of dependent sub-builds, according to durations recorded in the {@link ExecutionHistory}, starts
+ * first, unless the heap cannot hold it next to the running ones. Events of sub-builds are delivered to the listeners
+ * of the parent project in build order.
+ * <p>
+ * Once a sub-build fails, no other sub-build is started unless the project is in keep going mode. In keep going mode,
+ * sub-builds which did not start yet and depend on the failed one, directly or not, are skipped.
+ */
+public class PipelineScheduler {
+
+    private static final long MEMORY_SAMPLING_INTERVAL = 500;
+
+    private final Task task;
+
+    private final ExecutionHistory history;
+
+    private final MemoryAdmissionController admissionController;
+
+    private final OrderedBuildEventDispatcher dispatcher;
+
+    private final List<PipelinedBuild> builds = new ArrayList<PipelinedBuild>();
+
+    private final Object lock = new Object();
+
+    /**
+     * @param task
+     *            the task orchestrating sub-builds
+     * @param subBuilds
+     *            sub-builds of the task
+     * @param filenames
+     *            sub-builds to run, in build order
+     * @param history
+     *            history holding durations and footprints recorded by previous builds, may be null
+     * @param maxHeapUsage
+     *            maximum percentage of the heap sub-builds may use
+     */
+    public PipelineScheduler(Task task, SubBuilds subBuilds, String[] filenames, ExecutionHistory history,
+            int maxHeapUsage) {
+        this.task = task;
+        this.history = history;
+        this.dispatcher = new OrderedBuildEventDispatcher(task.getProject().getBuildListeners(), filenames.length);
+        for (int i = 0; i < filenames.length; i++) {
+            File buildModule = subBuilds.getBuildModule(filenames[i]);
+            builds.add(new PipelinedBuild(i, buildModule, subBuilds.getModuleName(buildModule.getParentFile())));
+        }
+        linkBuilds(subBuilds);
+        computeCriticalPaths();
+        this.admissionController = new MemoryAdmissionController(maxHeapUsage, history);
+    }
+
+    /**
+     * Get the sub-builds to run
+     *
+     * @return sub-builds, in build order
+     */
+    public List<PipelinedBuild> getBuilds() {
+        return builds;
+    }
+
+    /**
+     * Run all sub-builds, unless one of them fails. Running sub-builds are never interrupted: this method returns once
+     * they are all finished.
+     *
+     * @param threadCount
+     *            maximum number of sub-builds running at the same time
+     * @param runner
+     *            runs a sub-build, failures are recorded in the sub-build
+     * @throws InterruptedException
+     *             if interrupted while waiting for sub-builds
+     */
+    public void execute(int threadCount, final SubBuildRunner runner) throws InterruptedException {
+        int poolSize = Math.min(threadCount, builds.size());
+        ExecutorService pool = ThreadPools.newDaemonPool(task.getTaskName(), poolSize, builds.size());
+        try {
+            schedule(pool, poolSize, runner);
+        } finally {
+            // running sub-builds are not interrupted, wait for them before returning
+            ThreadPools.shutdownAndWait(pool);
+            dispatcher.flush();
+        }
+    }
+
+    /**
+     * Start sub-builds as soon as they are ready and a thread is available, longest critical path first. A sub-build
+     * waits for running ones to finish if the heap cannot hold all of them.
+     */
+    private void schedule(ExecutorService pool, int poolSize, SubBuildRunner runner) throws InterruptedException {
+        List<PipelinedBuild> pending = new ArrayList<PipelinedBuild>(builds);
+        synchronized (lock) {
+            while (!pending.isEmpty()) {
+                if (!task.getProject().isKeepGoingMode() && hasFailure()) {
+                    return;
+                }
+                skipBlocked(pending);
+                if (pending.isEmpty()) {
+                    return;
+                }
+                PipelinedBuild next = countRunning() < poolSize ? selectReady(pending) : null;
+                if (next != null && !admissionController.admit(next.moduleName)) {
+                    if (next.throttledSince == 0) {
+                        next.throttledSince = System.currentTimeMillis();
+                        next.throttlingReason = admissionController.getRefusalReason();
+                        logUnordered("Delaying " + next.moduleName + " until running sub-builds release memory ("
+                                + next.throttlingReason + ")");
+                    }
+                    next = null;
+                }
+                if (next == null) {
+                    // woken up by sub-builds publishing their artifacts or finishing, memory is sampled meanwhile
+                    lock.wait(MEMORY_SAMPLING_INTERVAL);
+                    admissionController.sample();
+                    continue;
+                }
+                pending.remove(next);
+                if (next.throttledSince > 0) {
+                    next.throttlingReport = next.moduleName + " delayed "
+                            + DateUtils.formatElapsedTime(System.currentTimeMillis() - next.throttledSince) + " ("
+                            + next.throttlingReason + ")";
+                }
+                next.started = true;
+                admissionController.started(next.moduleName);
+                logUnordered("Starting " + next.moduleName + " (critical path: "
+                        + DateUtils.formatElapsedTime(next.criticalPath) + ")");
+                pool.execute(next.createRunnable(runner));
+            }
+        }
+    }
+
+    /**
+     * Skip pending sub-builds depending on a sub-build which failed or has been skipped
+     */
+    private void skipBlocked(List<PipelinedBuild> pending) {
+        // pending sub-builds are in build order, a skipped sub-build is met before its dependents
+        for (Iterator<PipelinedBuild> it = pending.iterator(); it.hasNext();) {
+            PipelinedBuild build = it.next();
+            for (PipelinedBuild upstream : build.upstream) {
+                if (upstream.failure != null || upstream.skipped) {
+                    build.skipped = true;
+                    it.remove();
+                    BuildEvent event = new BuildEvent(task.getProject());
+                    event.setMessage("Skipping " + build.moduleName + " as " + upstream.moduleName
+                            + (upstream.skipped ? " has been skipped" : " failed"), Project.MSG_WARN);
+                    dispatcher.getListener(build.index).messageLogged(event);
+                    dispatcher.finish(build.index);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void logUnordered(String message) {
+        BuildEvent event = new BuildEvent(task.getProject());
+        event.setMessage(message, Project.MSG_VERBOSE);
+        dispatcher.getUnorderedListener().messageLogged(event);
+    }
+
+    private PipelinedBuild selectReady(List<PipelinedBuild> pending) {
+        PipelinedBuild selected = null;
+        for (PipelinedBuild build : pending) {
+            if (build.isReady() && (selected == null || build.criticalPath > selected.criticalPath)) {
+                selected = build;
+            }
+        }
+        return selected;
+    }
+
+    private int countRunning() {
+        int running = 0;
+        for (PipelinedBuild build : builds) {
+            if (build.started && !build.finished) {
+                running++;
+            }
+        }
+        return running;
+    }
+
+    private boolean hasFailure() {
+        for (PipelinedBuild build : builds) {
+            if (build.failure != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find which sub-builds each sub-build depends on. If a module descriptor cannot be read, each sub-build depends on
+     * the previous one in build order.
+     */
+    private void linkBuilds(SubBuilds subBuilds) {
+        Map<ModuleId, PipelinedBuild> buildsById = new HashMap<ModuleId, PipelinedBuild>();
+        List<ModuleDescriptor> descriptors = new ArrayList<ModuleDescriptor>();
+        for (PipelinedBuild build : builds) {
+            ModuleDescriptor md = subBuilds.getModuleDescriptor(build.buildModule);
+            if (md == null) {
+                task.log("Sub-builds will start in build order", Project.MSG_VERBOSE);
+                for (int i = 1; i < builds.size(); i++) {
+                    builds.get(i).dependsOn(builds.get(i - 1));
+                }
+                return;
+            }
+            descriptors.add(md);
+            buildsById.put(md.getModuleRevisionId().getModuleId(), build);
+        }
+        for (int i = 0; i < builds.size(); i++) {
+            for (DependencyDescriptor dependency : descriptors.get(i).getDependencies()) {
+                PipelinedBuild upstream = buildsById.get(dependency.getDependencyId());
+                // build path is sorted, only earlier sub-builds can be dependencies
+                if (upstream != null && upstream.index < i) {
+                    builds.get(i).dependsOn(upstream);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute, for each sub-build, the estimated duration of the longest chain of sub-builds starting with it.
+     * Sub-builds never recorded in the execution history are assumed to last as long as the average recorded one.
+     */
+    private void computeCriticalPaths() {
+        long total = 0;
+        int known = 0;
+        for (PipelinedBuild build : builds) {
+            build.duration = history != null ? history.getModuleDuration(build.moduleName) : -1;
+            if (build.duration >= 0) {
+                total += build.duration;
+                known++;
+            }
+        }
+        long defaultDuration = known > 0 ? total / known : 1;
+        // dependents always come later in build order
+        for (int i = builds.size() - 1; i >= 0; i--) {
+            PipelinedBuild build = builds.get(i);
+            long longestDownstream = 0;
+            for (PipelinedBuild downstream : build.downstream) {
+                longestDownstream = Math.max(longestDownstream, downstream.criticalPath);
+            }
+            build.criticalPath = (build.duration >= 0 ? build.duration : defaultDuration) + longestDownstream;
+        }
+    }
+
+    /**
+     * Runs a sub-build in the calling thread
+     */
+    public interface SubBuildRunner {
+
+        /**
+         * @param build
+         *            the sub-build to run, which should be {@link PipelinedBuild#published(File) notified} as soon as
+         *            its artifacts are published
+         */
+        void run(PipelinedBuild build);
+    }
+
+    /**
+     * Pipelined execution of a sub-build
+     */
+    public class PipelinedBuild {
+
+        private final int index;
+
+        private final File buildModule;
+
+        private final String moduleName;
+
+        private final CountDownLatch published = new CountDownLatch(1);
+
+        private final List<PipelinedBuild> upstream = new ArrayList<PipelinedBuild>();
+
+        private final List<PipelinedBuild> downstream = new ArrayList<PipelinedBuild>();
+
+        private long duration;
+
+        private long criticalPath;
+
+        private volatile boolean started = false;
+
+        private volatile boolean finished = false;
+
+        private volatile boolean skipped = false;
+
+        private long throttledSince;
+
+        private String throttlingReason;
+
+        private String throttlingReport;
+
+        private volatile Project subModule;
+
+        private volatile Throwable failure;
+
+        private volatile String publishedArtifacts;
+
+        private PipelinedBuild(int index, File buildModule, String moduleName) {
+            this.index = index;
+            this.buildModule = buildModule;
+            this.moduleName = moduleName;
+        }
+
+        private Runnable createRunnable(final SubBuildRunner runner) {
+            return new Runnable() {
+                public void run() {
+                    try {
+                        runner.run(PipelinedBuild.this);
+                    } catch (Throwable t) {
+                        failure = t;
+                    } finally {
+                        dispatcher.finish(index);
+                        admissionController.finished(moduleName);
+                        synchronized (lock) {
+                            if (failure == null) {
+                                // dependents of a sub-build which published nothing start once it succeeded
+                                published.countDown();
+                            }
+                            finished = true;
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            };
+        }
+
+        private void dependsOn(PipelinedBuild build) {
+            upstream.add(build);
+            build.downstream.add(this);
+        }
+
+        /**
+         * Check whether all the sub-builds this one depends on have published their artifacts or succeeded
+         */
+        private boolean isReady() {
+            for (PipelinedBuild build : upstream) {
+                if (build.published.getCount() > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public File getBuildModule() {
+            return buildModule;
+        }
+
+        public String getModuleName() {
+            return moduleName;
+        }
+
+        /**
+         * Get the listener sub-build events should be delivered to, so that they are dispatched in build order
+         */
+        public BuildListener getListener() {
+            return dispatcher.getListener(index);
+        }
+
+        /**
+         * Get the project of the sub-build
+         *
+         * @return the project, null if the sub-build has not been configured
+         */
+        public Project getSubModule() {
+            return subModule;
+        }
+
+        public void setSubModule(Project subModule) {
+            this.subModule = subModule;
+        }
+
+        /**
+         * Get the reason why the sub-build failed
+         *
+         * @return the failure, null if the sub-build did not fail
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        /**
+         * Check whether the sub-build has been skipped, as a sub-build it depends on failed
+         */
+        public boolean isSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Get a report of the time the sub-build waited for running sub-builds to release memory
+         *
+         * @return the report, null if the sub-build has not been delayed
+         */
+        public String getThrottlingReport() {
+            return throttlingReport;
+        }
+
+        /**
+         * Notify that the artifacts of the sub-build have been published, sub-builds depending on it may start
+         *
+         * @param artifactsDir
+         *            directory holding the published artifacts
+         */
+        public void published(File artifactsDir) {
+            publishedArtifacts = BuildProgress.describeArtifacts(artifactsDir);
+            synchronized (lock) {
+                published.countDown();
+                lock.notifyAll();
+            }
+        }
+
+        /**
+         * Check whether artifacts have been created or modified since they have been published
+         */
+        public boolean hasArtifactsChanged(File artifactsDir) {
+            return publishedArtifacts == null
+                    || !publishedArtifacts.equals(BuildProgress.describeArtifacts(artifactsDir));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tools.ant.AntClassLoader;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * JVM wide pool of plugin class loaders. Class loaders are keyed by their parent and the ordered list of their
+ * classpath entries, including a checksum of each entry, so that projects using the same plugin revisions share loaded
+ * classes while a modified jar always gets a new class loader.
+ * <p>
+ * Pooled class loaders are not bound to any project: they are not cleaned up at the end of a (sub-)build. Users of the
+ * pool, typically engines, {@link #acquire(ClassLoader) acquire} the parent class loader they use, and class loaders
+ * created for a parent are cleaned up once the last of its users {@link #release(ClassLoader) releases} it.
+ */
+public final class PluginClassLoaderPool {
+
+    private static final PluginClassLoaderPool INSTANCE = new PluginClassLoaderPool();
+
+    private final Map<ClassLoader, Map<String, AntClassLoader>> loaders = new IdentityHashMap<ClassLoader, Map<String, AntClassLoader>>();
+
+    private final Map<ClassLoader, Integer> users = new IdentityHashMap<ClassLoader, Integer>();
+
+    private final Map<String, String> checksums = new HashMap<String, String>();
+
+    private PluginClassLoaderPool() {
+    }
+
+    public static PluginClassLoaderPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get a class loader for the given classpath, creating it if no equivalent class loader exists in the pool
+     *
+     * @param parent
+     *            parent class loader
+     * @param classpath
+     *            ordered classpath entries
+     * @return a shared class loader
+     */
+    public synchronized AntClassLoader getClassLoader(ClassLoader parent, List<File> classpath) {
+        Map<String, AntClassLoader> parentLoaders = loaders.get(parent);
+        if (parentLoaders == null) {
+            parentLoaders = new HashMap<String, AntClassLoader>();
+            loaders.put(parent, parentLoaders);
+        }
+        String key = computeKey(classpath);
+        AntClassLoader loader = parentLoaders.get(key);
+        if (loader == null) {
+            loader = new AntClassLoader(parent, true);
+            for (File entry : classpath) {
+                loader.addPathComponent(entry);
+            }
+            parentLoaders.put(key, loader);
+        }
+        return loader;
+    }
+
+    /**
+     * Get the parent of plugin class loaders used by a project
+     */
+    public static ClassLoader getParent(Project project) {
+        return project.getCoreLoader() != null ? project.getCoreLoader() : project.getClass().getClassLoader();
+    }
+
+    /**
+     * Check whether a class loader comes from this pool
+     */
+    public synchronized boolean contains(ClassLoader loader) {
+        for (Map<String, AntClassLoader> parentLoaders : loaders.values()) {
+            if (parentLoaders.containsValue(loader)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Declare a new user of the class loaders created for a parent
+     *
+     * @param parent
+     *            parent class loader
+     */
+    public synchronized void acquire(ClassLoader parent) {
+        Integer count = users.get(parent);
+        users.put(parent, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Release a user of the class loaders created for a parent. Once the last user is released, these class loaders
+     * are cleaned up and removed from the pool. Classes already loaded stay usable by projects referencing them.
+     *
+     * @param parent
+     *            parent class loader, previously {@link #acquire(ClassLoader) acquired}
+     */
+    public synchronized void release(ClassLoader parent) {
+        Integer count = users.get(parent);
+        if (count != null && count > 1) {
+            users.put(parent, count - 1);
+            return;
+        }
+        users.remove(parent);
+        Map<String, AntClassLoader> parentLoaders = loaders.remove(parent);
+        if (parentLoaders != null) {
+            for (AntClassLoader loader : parentLoaders.values()) {
+                loader.cleanup();
+            }
+        }
+    }
+
+    /**
+     * Number of pooled class loaders
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (Map<String, AntClassLoader> parentLoaders : loaders.values()) {
+            size += parentLoaders.size();
+        }
+        return size;
+    }
+
+    /**
+     * Release all pooled class loaders. Classes already loaded stay usable by projects referencing them.
+     */
+    public synchronized void clear() {
+        for (Map<String, AntClassLoader> parentLoaders : loaders.values()) {
+            for (AntClassLoader loader : parentLoaders.values()) {
+                loader.cleanup();
+            }
+        }
+        loaders.clear();
+        users.clear();
+        checksums.clear();
+    }
+
+    private String computeKey(List<File> classpath) {
+        StringBuilder key = new StringBuilder();
+        for (File entry : classpath) {
+            key.append(entry.getAbsolutePath()).append('@').append(getChecksum(entry)).append(File.pathSeparatorChar);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Get the checksum of a classpath entry. Checksums are computed once per file state (length and last modification
+     * date).
+     */
+    private String getChecksum(File entry) {
+        if (!entry.isFile()) {
+            // directories and missing entries are identified by their path only
+            return "";
+        }
+        String fileState = entry.getAbsolutePath() + ':' + entry.length() + ':' + entry.lastModified();
+        String checksum = checksums.get(fileState);
+        if (checksum == null) {
+            checksum = computeChecksum(entry);
+            checksums.put(fileState, checksum);
+        }
+        return checksum;
+    }
+
+    private static String computeChecksum(File file) {
+        InputStream is = null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            is = new FileInputStream(file);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            StringBuilder checksum = new StringBuilder();
+            for (byte b : digest.digest()) {
+                checksum.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+            return checksum.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new BuildException("SHA-1 algorithm is not available", e);
+        } catch (IOException e) {
+            throw new BuildException("Unable to compute checksum of " + file, e);
+        } finally {
+            FileUtils.close(is);
+        }
+    }
+
+    /**
+     * Utility to build an ordered list of classpath entries
+     */
+    public static List<File> toFiles(String[] paths) {
+        List<File> files = new ArrayList<File>();
+        for (String path : paths) {
+            files.add(new File(path));
+        }
+        return files;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.apache.tools.ant.DemuxInputStream;
+import org.apache.tools.ant.DemuxOutputStream;
+import org.apache.tools.ant.Project;
+
+/**
+ * Routes System.in, System.out and System.err to the project attached to the current thread, so that several builds
+ * can run concurrently in the same JVM, each one logging through its own listeners.
+ * <p>
+ * System streams are replaced when the first project is attached and restored when the last one is detached. Threads
+ * started by an attached thread are attached to the same project. Threads not attached to any project use the original
+ * streams.
+ */
+public final class ProjectStreamRouter {
+
+    private static final InheritableThreadLocal<Route> CURRENT_ROUTE = new InheritableThreadLocal<Route>();
+
+    private static int attachedProjects = 0;
+
+    private static volatile InputStream systemIn;
+
+    private static volatile PrintStream systemOut;
+
+    private static volatile PrintStream systemErr;
+
+    private ProjectStreamRouter() {
+    }
+
+    /**
+     * Attach a project to the current thread. Every call must be followed by a call to {@link #detach(Project)} on the
+     * same thread.
+     *
+     * @param project
+     *            a project
+     */
+    public static synchronized void attach(Project project) {
+        if (attachedProjects == 0) {
+            systemIn = System.in;
+            systemOut = System.out;
+            systemErr = System.err;
+            System.setIn(new RoutingInputStream());
+            System.setOut(new RoutingPrintStream(false));
+            System.setErr(new RoutingPrintStream(true));
+        }
+        attachedProjects++;
+        CURRENT_ROUTE.set(new Route(project, CURRENT_ROUTE.get()));
+    }
+
+    /**
+     * Detach a project from the current thread. As it is called from finally blocks, a project which is not the one
+     * attached last is only logged as a warning, and nothing is detached.
+     *
+     * @param project
+     *            the project attached by the last call to {@link #attach(Project)} on this thread
+     */
+    public static synchronized void detach(Project project) {
+        Route route = CURRENT_ROUTE.get();
+        if (route == null || route.project != project) {
+            project.log("project " + project.getName() + " is not attached to current thread", Project.MSG_WARN);
+            return;
+        }
+        route.flush();
+        if (route.previous == null) {
+            CURRENT_ROUTE.remove();
+        } else {
+            CURRENT_ROUTE.set(route.previous);
+        }
+        attachedProjects--;
+        if (attachedProjects == 0) {
+            System.setIn(systemIn);
+            System.setOut(systemOut);
+            System.setErr(systemErr);
+        }
+    }
+
+    /**
+     * Get the original standard input, the one in use before any project has been attached
+     */
+    public static synchronized InputStream getSystemIn() {
+        return attachedProjects == 0 ? System.in : systemIn;
+    }
+
+    /**
+     * Get the original standard output, the one in use before any project has been attached
+     */
+    public static synchronized PrintStream getSystemOut() {
+        return attachedProjects == 0 ? System.out : systemOut;
+    }
+
+    /**
+     * Get the original standard error, the one in use before any project has been attached
+     */
+    public static synchronized PrintStream getSystemErr() {
+        return attachedProjects == 0 ? System.err : systemErr;
+    }
+
+    /**
+     * Get the stream a build logger should write to. A logger writing to a routing stream would write back to its own
+     * project, where ant drops messages logged while a message is being logged: routing streams are replaced by the
+     * original standard output or error.
+     *
+     * @param stream
+     *            a stream, possibly captured from System.out or System.err while a project was attached
+     * @return the stream itself, or the matching original stream if it is a routing one
+     */
+    public static PrintStream getLoggerStream(PrintStream stream) {
+        if (stream instanceof RoutingPrintStream) {
+            return ((RoutingPrintStream) stream).isErrorStream ? getSystemErr() : getSystemOut();
+        }
+        return stream;
+    }
+
+    private static class Route {
+
+        private final Project project;
+
+        private final Route previous;
+
+        private final DemuxOutputStream out;
+
+        private final DemuxOutputStream err;
+
+        private final DemuxInputStream in;
+
+        private Route(Project project, Route previous) {
+            this.project = project;
+            this.previous = previous;
+            this.out = new DemuxOutputStream(project, false);
+            this.err = new DemuxOutputStream(project, true);
+            this.in = new DemuxInputStream(project);
+        }
+
+        private void flush() {
+            try {
+                out.flush();
+                err.flush();
+            } catch (IOException e) {
+                project.log("Unable to flush output: " + e.getMessage(), Project.MSG_DEBUG);
+            }
+        }
+    }
+
+    private static class RoutingOutputStream extends OutputStream {
+
+        private final boolean isErrorStream;
+
+        private RoutingOutputStream(boolean isErrorStream) {
+            this.isErrorStream = isErrorStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            getTarget().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            getTarget().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            getTarget().flush();
+        }
+
+        private OutputStream getTarget() {
+            Route route = CURRENT_ROUTE.get();
+            if (route != null) {
+                return isErrorStream ? route.err : route.out;
+            }
+            return isErrorStream ? systemErr : systemOut;
+        }
+    }
+
+    private static class RoutingPrintStream extends PrintStream {
+
+        private final boolean isErrorStream;
+
+        private RoutingPrintStream(boolean isErrorStream) {
+            super(new RoutingOutputStream(isErrorStream));
+            this.isErrorStream = isErrorStream;
+        }
+    }
+
+    private static class RoutingInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            return getSource().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return getSource().read(b, off, len);
+        }
+
+        private InputStream getSource() {
+            Route route = CURRENT_ROUTE.get();
+            return route != null ? route.in : systemIn;
+        }
+    }
+}
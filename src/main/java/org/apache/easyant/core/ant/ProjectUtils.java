@@ -121,6 +121,17 @@ public class ProjectUtils {
         replaceMainLogger(project, buildLogger);
     }
 
+    /**
+     * Install {@link ParallelTargetExecutor} if {@link EasyAntMagicNames}.PARALLEL_TARGETS property is set to true
+     *
+     * @param project a given project where targets should be executed concurrently
+     */
+    public static void installParallelTargetExecutor(Project project) {
+        if (Project.toBoolean(project.getProperty(EasyAntMagicNames.PARALLEL_TARGETS))) {
+            project.setExecutor(new ParallelTargetExecutor());
+        }
+    }
+
     /**
      * Print memory details
      *
@@ -0,0 +1,220 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.easyant.tasks.AbstractImport;
+import org.apache.easyant.tasks.Import;
+import org.apache.easyant.tasks.ImportDeferred;
+import org.apache.easyant.tasks.ImportTestModule;
+import org.apache.easyant.tasks.PropertyTask;
+import org.apache.tools.ant.AntTypeDefinition;
+import org.apache.tools.ant.ComponentHelper;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.RuntimeConfigurable;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.UnknownElement;
+import org.apache.tools.ant.taskdefs.PreSetDef;
+import org.apache.tools.ant.taskdefs.Property;
+
+/**
+ * Utilitary class to inspect tasks of a parsed project without configuring them: components are identified by the
+ * class name of their definition and attributes are read from their {@link RuntimeConfigurable} wrapper, so tasks are
+ * never instantiated.
+ * <p>
+ * Class names only tell the superclasses of core components, which are listed here. The class of any other component,
+ * typically a plugin subclass of {@link Property}, is loaded without being initialized to check its superclasses. A
+ * component whose class can't be loaded is not identified, which is logged at verbose level.
+ * </p>
+ */
+public class StaticTaskInspector {
+
+    /**
+     * Superclasses of core components, so that their classes are never loaded
+     */
+    private static final Map<String, Set<String>> SUPERCLASSES = new HashMap<String, Set<String>>();
+
+    static {
+        addSuperclasses(PropertyTask.class, Property.class);
+        addSuperclasses(Import.class, AbstractImport.class);
+        addSuperclasses(ImportDeferred.class, AbstractImport.class);
+        addSuperclasses(ImportTestModule.class, AbstractImport.class);
+    }
+
+    private StaticTaskInspector() {
+    }
+
+    private static void addSuperclasses(Class<?> type, Class<?>... superclasses) {
+        Set<String> names = new HashSet<String>();
+        for (Class<?> superclass : superclasses) {
+            names.add(superclass.getName());
+        }
+        SUPERCLASSES.put(type.getName(), names);
+    }
+
+    /**
+     * Check whether a component is defined by a given class or one of its subclasses. Presets are identified by the
+     * class of the component they preset.
+     *
+     * @param project
+     *            project where the component is defined
+     * @param componentName
+     *            name of the component, as returned by {@link Task#getTaskType()}
+     * @param type
+     *            a class
+     * @return true if the component is an instance of this class
+     */
+    public static boolean isA(Project project, String componentName, Class<?> type) {
+        if (componentName == null) {
+            return false;
+        }
+        AntTypeDefinition definition = ComponentHelper.getComponentHelper(project).getDefinition(componentName);
+        if (definition == null || definition.getClassName() == null) {
+            return false;
+        }
+        String className = definition.getClassName();
+        if (className.equals(type.getName())) {
+            return true;
+        }
+        Set<String> superclasses = SUPERCLASSES.get(className);
+        if (superclasses != null) {
+            return superclasses.contains(type.getName());
+        }
+        Class<?> componentClass = loadClass(project, definition);
+        return componentClass != null && type.isAssignableFrom(componentClass);
+    }
+
+    /**
+     * Load the class of a component without initializing it
+     *
+     * @return the class of the component, or null if it can't be loaded
+     */
+    private static Class<?> loadClass(Project project, AntTypeDefinition definition) {
+        ClassLoader classLoader = definition.getClassLoader();
+        if (classLoader == null) {
+            classLoader = project.getCoreLoader() != null ? project.getCoreLoader() : StaticTaskInspector.class
+                    .getClassLoader();
+        }
+        try {
+            return Class.forName(definition.getClassName(), false, classLoader);
+        } catch (ClassNotFoundException e) {
+            project.log("Unknown class " + definition.getClassName() + " of component " + definition.getName(),
+                    Project.MSG_VERBOSE);
+        } catch (LinkageError e) {
+            project.log("Can't load class " + definition.getClassName() + " of component " + definition.getName()
+                    + ": " + e, Project.MSG_VERBOSE);
+        }
+        return null;
+    }
+
+    /**
+     * Get the attributes of a task, including the ones set by its preset definition if any
+     *
+     * @param task
+     *            a task, typically an {@link UnknownElement}
+     * @return attribute values with properties expanded, indexed by lower case attribute name
+     */
+    public static Map<String, String> getAttributes(Task task) {
+        Map<String, String> attributes = new HashMap<String, String>();
+        AntTypeDefinition definition = task.getTaskType() == null ? null : ComponentHelper.getComponentHelper(
+                task.getProject()).getDefinition(task.getTaskType());
+        if (definition instanceof PreSetDef.PreSetDefinition) {
+            UnknownElement preSets = ((PreSetDef.PreSetDefinition) definition).getPreSets();
+            attributes.putAll(getAttributes(task.getProject(), preSets.getWrapper()));
+        }
+        attributes.putAll(getAttributes(task.getProject(), task.getRuntimeConfigurableWrapper()));
+        return attributes;
+    }
+
+    /**
+     * Get the attributes of a parsed element
+     *
+     * @param project
+     *            project used to expand properties
+     * @param wrapper
+     *            the wrapper of a parsed element
+     * @return attribute values with properties expanded, indexed by lower case attribute name
+     */
+    public static Map<String, String> getAttributes(Project project, RuntimeConfigurable wrapper) {
+        if (wrapper == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> attributes = new HashMap<String, String>();
+        for (Map.Entry<String, Object> attribute : wrapper.getAttributeMap().entrySet()) {
+            Object value = attribute.getValue();
+            attributes.put(attribute.getKey().toLowerCase(), value instanceof String ? project
+                    .replaceProperties((String) value) : String.valueOf(value));
+        }
+        return attributes;
+    }
+
+    /**
+     * Get the nested text of a parsed element
+     *
+     * @param project
+     *            project used to expand properties
+     * @param wrapper
+     *            the wrapper of a parsed element
+     * @return the trimmed text with properties expanded, or null if the element has no text
+     */
+    public static String getText(Project project, RuntimeConfigurable wrapper) {
+        if (wrapper == null || wrapper.getText().toString().trim().length() == 0) {
+            return null;
+        }
+        return project.replaceProperties(wrapper.getText().toString().trim());
+    }
+
+    /**
+     * Get the wrappers of the elements nested in a parsed element
+     */
+    public static Iterable<RuntimeConfigurable> getChildren(RuntimeConfigurable wrapper) {
+        return Collections.list(wrapper.getChildren());
+    }
+
+    /**
+     * Interpret a boolean attribute like Ant does
+     *
+     * @param attributes
+     *            attributes of an element
+     * @param name
+     *            lower case name of the attribute
+     * @param defaultValue
+     *            value used if the attribute is not set
+     */
+    public static boolean getBoolean(Map<String, String> attributes, String name, boolean defaultValue) {
+        String value = attributes.get(name);
+        return value == null ? defaultValue : Project.toBoolean(value);
+    }
+
+    /**
+     * Get the first attribute set among given aliases
+     */
+    public static String getAttribute(Map<String, String> attributes, String... names) {
+        for (String name : names) {
+            if (attributes.get(name) != null) {
+                return attributes.get(name);
+            }
+        }
+        return null;
+    }
+}
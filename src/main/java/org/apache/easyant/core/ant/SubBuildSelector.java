@@ -0,0 +1,269 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Selects the sub-builds of a multi-module build to build: the ones matching module patterns or the ones affected by
+ * changed files, expanded to the sub-builds they depend on or depending on them. Dependencies are read from module
+ * descriptors, or follow build order when a descriptor cannot be read.
+ */
+public class SubBuildSelector {
+
+    private final Task task;
+
+    private final SubBuilds subBuilds;
+
+    /**
+     * @param task
+     *            the task orchestrating sub-builds, used to report selections
+     * @param subBuilds
+     *            sub-builds of the task
+     */
+    public SubBuildSelector(Task task, SubBuilds subBuilds) {
+        this.task = task;
+        this.subBuilds = subBuilds;
+    }
+
+    /**
+     * Select the sub-builds matching module patterns, and optionally the sub-builds they depend on and the sub-builds
+     * depending on them, directly or not. Patterns are matched against module names, organisation#module names and
+     * directories relative to the base directory of the project.
+     *
+     * @param filenames
+     *            sub-builds, in build order
+     * @param modules
+     *            module names, organisation#module names or directories, separated by commas. Each of them may be a
+     *            pattern using * and ? wildcards.
+     * @param includeUpstream
+     *            true to select the sub-builds matching sub-builds depend on
+     * @param includeDownstream
+     *            true to select the sub-builds depending on matching sub-builds
+     * @return selected sub-builds, in build order
+     * @throws BuildException
+     *             if a pattern does not match any sub-build
+     */
+    public String[] selectModules(String[] filenames, String modules, boolean includeUpstream,
+            boolean includeDownstream) {
+        boolean[] matching = new boolean[filenames.length];
+        for (String pattern : modules.split(",")) {
+            pattern = pattern.trim();
+            if (pattern.length() == 0) {
+                continue;
+            }
+            boolean matched = false;
+            for (int i = 0; i < filenames.length; i++) {
+                if (matches(pattern, filenames[i])) {
+                    matching[i] = true;
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                throw new BuildException("No sub-module matches " + pattern);
+            }
+        }
+        boolean[] selected = matching.clone();
+        if (includeUpstream) {
+            boolean[] upstream = matching.clone();
+            addUpstream(filenames, upstream);
+            or(selected, upstream);
+        }
+        if (includeDownstream) {
+            boolean[] downstream = matching.clone();
+            addDownstream(filenames, downstream);
+            or(selected, downstream);
+        }
+        return getSelected(filenames, selected, "selected");
+    }
+
+    private boolean matches(String pattern, String filename) {
+        File buildModule = subBuilds.getBuildModule(filename);
+        if (SelectorUtils.match(pattern, subBuilds.getModuleName(buildModule.getParentFile()))) {
+            return true;
+        }
+        ModuleDescriptor md = subBuilds.getModuleDescriptor(buildModule);
+        if (md == null) {
+            return false;
+        }
+        ModuleId moduleId = md.getModuleRevisionId().getModuleId();
+        return SelectorUtils.match(pattern, moduleId.getName())
+                || SelectorUtils.match(pattern, moduleId.getOrganisation() + "#" + moduleId.getName());
+    }
+
+    private void or(boolean[] selected, boolean[] other) {
+        for (int i = 0; i < selected.length; i++) {
+            selected[i] |= other[i];
+        }
+    }
+
+    /**
+     * Select the sub-builds owning changed files, and the sub-builds depending on them directly or not. A file belongs
+     * to the sub-build with the deepest directory containing it. Files outside of the project are ignored, while other
+     * files not belonging to any sub-build affect all sub-builds.
+     *
+     * @param filenames
+     *            sub-builds, in build order
+     * @param changedFiles
+     *            files changed since a base revision
+     * @return affected sub-builds, in build order
+     */
+    public String[] selectAffected(String[] filenames, Collection<File> changedFiles) {
+        File[] directories = new File[filenames.length];
+        for (int i = 0; i < filenames.length; i++) {
+            directories[i] = getCanonicalFile(subBuilds.getBuildModule(filenames[i]).getParentFile());
+        }
+        File baseDir = getCanonicalFile(task.getProject().getBaseDir());
+        boolean[] affected = new boolean[filenames.length];
+        for (File changedFile : changedFiles) {
+            File file = getCanonicalFile(changedFile);
+            int owner = -1;
+            for (int i = 0; i < directories.length; i++) {
+                if (FileUtils.getFileUtils().isLeadingPath(directories[i], file)
+                        && (owner == -1 || directories[i].getPath().length() > directories[owner].getPath().length())) {
+                    owner = i;
+                }
+            }
+            if (owner != -1) {
+                File ownerDirectory = subBuilds.getBuildModule(filenames[owner]).getParentFile();
+                task.log(file + " changed in " + subBuilds.getModuleName(ownerDirectory), Project.MSG_VERBOSE);
+                affected[owner] = true;
+            } else if (FileUtils.getFileUtils().isLeadingPath(baseDir, file)) {
+                task.log(file + " does not belong to any sub-build, all sub-builds are affected", Project.MSG_INFO);
+                return filenames;
+            } else {
+                task.log(file + " is outside of the project, ignoring it", Project.MSG_VERBOSE);
+            }
+        }
+        addDownstream(filenames, affected);
+        return getSelected(filenames, affected, "affected by changed files");
+    }
+
+    private String[] getSelected(String[] filenames, boolean[] selected, String reason) {
+        List<String> selectedFilenames = new ArrayList<String>();
+        List<String> selectedModules = new ArrayList<String>();
+        for (int i = 0; i < filenames.length; i++) {
+            if (selected[i]) {
+                selectedFilenames.add(filenames[i]);
+                selectedModules.add(subBuilds.getModuleName(subBuilds.getBuildModule(filenames[i]).getParentFile()));
+            }
+        }
+        task.log(selectedFilenames.size() + " of " + filenames.length + " sub-builds " + reason + ": "
+                + selectedModules, Project.MSG_INFO);
+        return selectedFilenames.toArray(new String[selectedFilenames.size()]);
+    }
+
+    /**
+     * Mark as selected the sub-builds depending on selected ones. If a module descriptor cannot be read, all sub-builds
+     * following a selected one in build order are selected.
+     */
+    private void addDownstream(String[] filenames, boolean[] selected) {
+        ModuleDescriptor[] mds = getModuleDescriptors(filenames);
+        if (mds == null) {
+            for (int i = 1; i < filenames.length; i++) {
+                selected[i] |= selected[i - 1];
+            }
+            return;
+        }
+        Map<ModuleId, Integer> indexes = getIndexes(mds);
+        // build path is sorted, dependencies are met before their dependents
+        for (int i = 0; i < filenames.length; i++) {
+            for (DependencyDescriptor dependency : mds[i].getDependencies()) {
+                Integer upstream = indexes.get(dependency.getDependencyId());
+                if (!selected[i] && upstream != null && upstream < i && selected[upstream]) {
+                    task.log(mds[i].getModuleRevisionId().getModuleId() + " depends on " + dependency.getDependencyId(),
+                            Project.MSG_VERBOSE);
+                    selected[i] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark as selected the sub-builds selected ones depend on. If a module descriptor cannot be read, all sub-builds
+     * preceding a selected one in build order are selected.
+     */
+    private void addUpstream(String[] filenames, boolean[] selected) {
+        ModuleDescriptor[] mds = getModuleDescriptors(filenames);
+        if (mds == null) {
+            for (int i = filenames.length - 2; i >= 0; i--) {
+                selected[i] |= selected[i + 1];
+            }
+            return;
+        }
+        Map<ModuleId, Integer> indexes = getIndexes(mds);
+        // build path is sorted, dependents are met before their dependencies when walking it backwards
+        for (int i = filenames.length - 1; i >= 0; i--) {
+            if (!selected[i]) {
+                continue;
+            }
+            for (DependencyDescriptor dependency : mds[i].getDependencies()) {
+                Integer upstream = indexes.get(dependency.getDependencyId());
+                if (upstream != null && upstream < i && !selected[upstream]) {
+                    task.log(mds[i].getModuleRevisionId().getModuleId() + " depends on " + dependency.getDependencyId(),
+                            Project.MSG_VERBOSE);
+                    selected[upstream] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the module descriptors of sub-builds
+     *
+     * @return descriptors in build order, null if one of them cannot be parsed
+     */
+    private ModuleDescriptor[] getModuleDescriptors(String[] filenames) {
+        ModuleDescriptor[] mds = subBuilds.getModuleDescriptors(filenames);
+        if (mds == null) {
+            task.log("Sub-builds will be selected according to build order", Project.MSG_VERBOSE);
+        }
+        return mds;
+    }
+
+    private Map<ModuleId, Integer> getIndexes(ModuleDescriptor[] mds) {
+        Map<ModuleId, Integer> indexes = new HashMap<ModuleId, Integer>();
+        for (int i = 0; i < mds.length; i++) {
+            indexes.put(mds[i].getModuleRevisionId().getModuleId(), i);
+        }
+        return indexes;
+    }
+
+    private File getCanonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Sub-builds of a multi-module build: their module files, the names under which they are reported, and their module
+ * descriptors, parsed without resolving anything.
+ */
+public class SubBuilds {
+
+    private final Project project;
+
+    private final String moduleFile;
+
+    private final Map<File, ModuleDescriptor> descriptors = new HashMap<File, ModuleDescriptor>();
+
+    private IvySettings descriptorSettings;
+
+    /**
+     * @param project
+     *            the project orchestrating sub-builds
+     * @param moduleFile
+     *            name of the module file of sub-builds given as directories
+     */
+    public SubBuilds(Project project, String moduleFile) {
+        this.project = project;
+        this.moduleFile = moduleFile;
+    }
+
+    /**
+     * Get the module file of a sub-build
+     *
+     * @param filename
+     *            a module file, or the directory of a sub-build
+     */
+    public File getBuildModule(String filename) {
+        File buildModule = new File(filename);
+        if (buildModule.isDirectory()) {
+            buildModule = new File(buildModule, moduleFile);
+        }
+        return buildModule;
+    }
+
+    /**
+     * Get the name under which a sub-build is reported and its durations are recorded: the path of its directory,
+     * relative to the base directory of the project
+     *
+     * @param directory
+     *            the directory of a sub-build
+     */
+    public String getModuleName(File directory) {
+        try {
+            String path = FileUtils.getRelativePath(project.getBaseDir(), directory);
+            return path.length() > 0 ? path : ".";
+        } catch (Exception e) {
+            return directory.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Get the module descriptor of a sub-build, parsed without resolving anything
+     *
+     * @param buildModule
+     *            the module file of a sub-build
+     * @return the module descriptor, null if it cannot be parsed
+     */
+    public synchronized ModuleDescriptor getModuleDescriptor(File buildModule) {
+        if (descriptors.containsKey(buildModule)) {
+            return descriptors.get(buildModule);
+        }
+        ModuleDescriptor md = null;
+        try {
+            md = XmlModuleDescriptorParser.getInstance().parseDescriptor(getDescriptorSettings(),
+                    buildModule.toURI().toURL(), false);
+        } catch (Exception e) {
+            project.log("Unable to read module descriptor " + buildModule + ": " + e.getMessage(), Project.MSG_VERBOSE);
+        }
+        descriptors.put(buildModule, md);
+        return md;
+    }
+
+    /**
+     * Get the module descriptors of sub-builds
+     *
+     * @param filenames
+     *            sub-builds
+     * @return descriptors in the same order, null if one of them cannot be parsed
+     */
+    public ModuleDescriptor[] getModuleDescriptors(String[] filenames) {
+        ModuleDescriptor[] mds = new ModuleDescriptor[filenames.length];
+        for (int i = 0; i < filenames.length; i++) {
+            mds[i] = getModuleDescriptor(getBuildModule(filenames[i]));
+            if (mds[i] == null) {
+                return null;
+            }
+        }
+        return mds;
+    }
+
+    /**
+     * Get the settings module descriptors are parsed with
+     */
+    public synchronized IvySettings getDescriptorSettings() {
+        if (descriptorSettings == null) {
+            descriptorSettings = new IvySettings();
+        }
+        return descriptorSettings;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the thread pools running sub-builds, targets and repository lookups concurrently
+ */
+public final class ThreadPools {
+
+    private ThreadPools() {
+    }
+
+    /**
+     * Create a fixed size pool of daemon threads, so that a pool which is not shut down never prevents the JVM from
+     * exiting. The pool never has more threads than tasks to run, nor less than one.
+     *
+     * @param name
+     *            prefix of thread names, followed by the thread number
+     * @param threadCount
+     *            maximum number of threads
+     * @param taskCount
+     *            number of tasks that will be submitted to the pool
+     * @return a new thread pool
+     */
+    public static ExecutorService newDaemonPool(final String name, int threadCount, int taskCount) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, taskCount)), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Shut down a pool and wait for its running tasks, which are not interrupted. The interrupted status of the
+     * calling thread is restored if it is interrupted while waiting.
+     *
+     * @param pool
+     *            the pool to shut down
+     */
+    public static void shutdownAndWait(ExecutorService pool) {
+        pool.shutdown();
+        boolean interrupted = false;
+        while (!pool.isTerminated()) {
+            try {
+                pool.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run tasks in a new pool of daemon threads and wait until all of them are done. The pool is shut down afterwards,
+     * and tasks still running are interrupted if the calling thread is interrupted while waiting.
+     *
+     * @param name
+     *            prefix of thread names
+     * @param threadCount
+     *            maximum number of tasks run at the same time
+     * @param tasks
+     *            tasks to run
+     * @return futures of the tasks, in the same order, all of them done
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting
+     */
+    public static <T> List<Future<T>> invokeAll(String name, int threadCount, List<Callable<T>> tasks)
+            throws InterruptedException {
+        ExecutorService pool = newDaemonPool(name, threadCount, tasks.size());
+        try {
+            return pool.invokeAll(tasks);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
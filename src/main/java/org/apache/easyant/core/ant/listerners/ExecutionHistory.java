@@ -0,0 +1,267 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant.listerners;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Durations of modules and of their targets, and heap footprints of modules, measured by previous builds. Measures are
+ * recorded in memory, durations by {@link #createRecorder(String) recorders} attached to sub-builds, and persisted in a
+ * properties file when {@link #save(Project)} is invoked.
+ * <p>
+ * Each recorded measure is averaged with the previous one, so that a single unusual build does not change estimates
+ * too much.
+ */
+public class ExecutionHistory {
+
+    private static final String TARGET_SEPARATOR = "#";
+
+    private static final String FOOTPRINT_SUFFIX = "@heap";
+
+    private final File historyFile;
+
+    private final Map<String, Long> measures = new HashMap<String, Long>();
+
+    private boolean dirty = false;
+
+    private ExecutionHistory(File historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    /**
+     * Load the history stored in a given file
+     *
+     * @param historyFile
+     *            a properties file, which may not exist yet
+     * @param project
+     *            project used to report errors
+     * @return the execution history, empty if the file doesn't exist or cannot be read
+     */
+    public static ExecutionHistory load(File historyFile, Project project) {
+        ExecutionHistory history = new ExecutionHistory(historyFile);
+        if (!historyFile.exists()) {
+            return history;
+        }
+        Properties props = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(historyFile);
+            props.load(is);
+        } catch (IOException e) {
+            project.log("Unable to read execution history " + historyFile + ": " + e.getMessage(), Project.MSG_WARN);
+        } finally {
+            FileUtils.close(is);
+        }
+        for (String key : props.stringPropertyNames()) {
+            try {
+                history.measures.put(key, Long.valueOf(props.getProperty(key)));
+            } catch (NumberFormatException e) {
+                // ignore corrupted entries
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Get the estimated duration of a module
+     *
+     * @param module
+     *            a module name
+     * @return a duration in milliseconds, or -1 if this module has never been recorded
+     */
+    public synchronized long getModuleDuration(String module) {
+        Long duration = measures.get(module);
+        return duration == null ? -1 : duration;
+    }
+
+    /**
+     * Get the estimated duration of a target
+     *
+     * @param module
+     *            name of the module owning the target
+     * @param target
+     *            a target name
+     * @return a duration in milliseconds, or -1 if this target has never been recorded
+     */
+    public synchronized long getTargetDuration(String module, String target) {
+        Long duration = measures.get(module + TARGET_SEPARATOR + target);
+        return duration == null ? -1 : duration;
+    }
+
+    /**
+     * Get the estimated heap footprint of a module
+     *
+     * @param module
+     *            a module name
+     * @return a number of bytes, or -1 if this module has never been recorded
+     */
+    public synchronized long getModuleFootprint(String module) {
+        Long footprint = measures.get(module + FOOTPRINT_SUFFIX);
+        return footprint == null ? -1 : footprint;
+    }
+
+    /**
+     * Record the duration of a module
+     *
+     * @param module
+     *            a module name
+     * @param duration
+     *            a duration in milliseconds
+     */
+    public void recordModuleDuration(String module, long duration) {
+        record(module, duration);
+    }
+
+    /**
+     * Record the duration of a target
+     *
+     * @param module
+     *            name of the module owning the target
+     * @param target
+     *            a target name
+     * @param duration
+     *            a duration in milliseconds
+     */
+    public void recordTargetDuration(String module, String target, long duration) {
+        record(module + TARGET_SEPARATOR + target, duration);
+    }
+
+    /**
+     * Record the heap footprint of a module
+     *
+     * @param module
+     *            a module name
+     * @param footprint
+     *            a number of bytes
+     */
+    public void recordModuleFootprint(String module, long footprint) {
+        record(module + FOOTPRINT_SUFFIX, footprint);
+    }
+
+    private synchronized void record(String key, long value) {
+        Long previous = measures.get(key);
+        measures.put(key, previous == null ? value : (previous + value) / 2);
+        dirty = true;
+    }
+
+    /**
+     * Create a listener recording durations of a sub-build and of its targets. Only successful executions are recorded.
+     *
+     * @param module
+     *            name under which durations are recorded
+     * @return a listener to add to the sub-build project
+     */
+    public SubBuildListener createRecorder(String module) {
+        return new Recorder(module);
+    }
+
+    /**
+     * Persist recorded measures
+     *
+     * @param project
+     *            project used to report errors
+     */
+    public synchronized void save(Project project) {
+        if (!dirty) {
+            return;
+        }
+        Properties props = new Properties();
+        for (Map.Entry<String, Long> entry : measures.entrySet()) {
+            props.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        if (historyFile.getParentFile() != null && !historyFile.getParentFile().exists()) {
+            historyFile.getParentFile().mkdirs();
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(historyFile);
+            props.store(os, "EasyAnt execution history");
+            dirty = false;
+        } catch (IOException e) {
+            project.log("Unable to write execution history " + historyFile + ": " + e.getMessage(), Project.MSG_WARN);
+        } finally {
+            FileUtils.close(os);
+        }
+    }
+
+    private class Recorder implements SubBuildListener {
+
+        private final String module;
+
+        // targets may be executed concurrently
+        private final Map<Target, Long> targetStartTimes = new ConcurrentHashMap<Target, Long>();
+
+        private volatile long startTime;
+
+        private Recorder(String module) {
+            this.module = module;
+        }
+
+        public void subBuildStarted(BuildEvent event) {
+            startTime = System.currentTimeMillis();
+        }
+
+        public void subBuildFinished(BuildEvent event) {
+            if (event.getException() == null) {
+                recordModuleDuration(module, System.currentTimeMillis() - startTime);
+            }
+        }
+
+        public void targetStarted(BuildEvent event) {
+            targetStartTimes.put(event.getTarget(), System.currentTimeMillis());
+        }
+
+        public void targetFinished(BuildEvent event) {
+            Long targetStartTime = targetStartTimes.remove(event.getTarget());
+            if (targetStartTime != null && event.getException() == null) {
+                recordTargetDuration(module, event.getTarget().getName(), System.currentTimeMillis()
+                        - targetStartTime);
+            }
+        }
+
+        public void buildStarted(BuildEvent event) {
+        }
+
+        public void buildFinished(BuildEvent event) {
+        }
+
+        public void taskStarted(BuildEvent event) {
+        }
+
+        public void taskFinished(BuildEvent event) {
+        }
+
+        public void messageLogged(BuildEvent event) {
+        }
+    }
+}
@@ -38,6 +38,11 @@ public class MultiModuleLogger extends DefaultEasyAntLogger implements SubBuildL
      */
     public static final String EXECUTION_TIMER_BUILD_RESULTS = "execution.timer.build.results";
 
+    /**
+     * Reference key against which sub-modules delayed by memory admission control will be stored
+     */
+    public static final String ADMISSION_THROTTLING_RESULTS = "admission.throttling.results";
+
     private static final String DEMARKER = "======================================================================";
     private volatile boolean subBuildStartedRaised = false;
     private final Object subBuildLock = new Object();
@@ -158,7 +163,8 @@ public class MultiModuleLogger extends DefaultEasyAntLogger implements SubBuildL
     }
 
     private void initTimer(Project project) {
-        buildStartTime = System.currentTimeMillis();
+        // sub-builds running concurrently have their events delivered late
+        buildStartTime = OrderedBuildEventDispatcher.getEventTime();
         project.addReference(EXECUTION_TIMER_BUILD_RESULTS, new ArrayList<ExecutionResult>());
     }
 
@@ -174,8 +180,8 @@ public class MultiModuleLogger extends DefaultEasyAntLogger implements SubBuildL
             status = ExecutionStatus.SKIPPED;
         }
 
-        ExecutionResult execResult = new ExecutionResult(event.getProject().getName(), System.currentTimeMillis()
-                - buildStartTime, status);
+        ExecutionResult execResult = new ExecutionResult(event.getProject().getName(),
+                OrderedBuildEventDispatcher.getEventTime() - buildStartTime, status);
 
         results.add(execResult);
 
@@ -186,6 +192,14 @@ public class MultiModuleLogger extends DefaultEasyAntLogger implements SubBuildL
         if (allSubBuildResults != null && !allSubBuildResults.isEmpty()) {
             project.log(LINE_SEP + "Project Sub-modules Summary: " + LINE_SEP + formatExecutionResults(allSubBuildResults));
         }
+        List<String> throttlingResults = project.getReference(ADMISSION_THROTTLING_RESULTS);
+        if (throttlingResults != null && !throttlingResults.isEmpty()) {
+            StringBuilder sb = new StringBuilder(LINE_SEP);
+            for (String result : throttlingResults) {
+                sb.append(" * ").append(result).append(LINE_SEP);
+            }
+            project.log("Sub-modules delayed by memory admission control: " + LINE_SEP + sb);
+        }
     }
 
     private String formatExecutionResults(List<ExecutionResult> results) {
@@ -0,0 +1,267 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant.listerners;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.SubBuildListener;
+
+/**
+ * Delivers build events fired concurrently by several units of work (targets, modules...) to a set of listeners, as if
+ * units had been executed one after the other.
+ * <p>
+ * Each unit fires its events through the listener of its slot. Events of the first unfinished slot are delivered
+ * immediately, events of the following slots are buffered until all the preceding slots are finished. Listeners are
+ * always called by one thread at a time.
+ */
+public class OrderedBuildEventDispatcher {
+
+    private static final ThreadLocal<Long> EVENT_TIME = new ThreadLocal<Long>();
+
+    private final List<BuildListener> listeners;
+
+    private final Slot[] slots;
+
+    private final SubBuildListener unorderedListener = new Slot(-1);
+
+    private int head = 0;
+
+    /**
+     * @param listeners
+     *            listeners receiving events
+     * @param slotCount
+     *            number of slots, in delivery order
+     */
+    public OrderedBuildEventDispatcher(List<? extends BuildListener> listeners, int slotCount) {
+        this.listeners = new ArrayList<BuildListener>(listeners);
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot(i);
+        }
+        if (slotCount > 0) {
+            slots[0].live = true;
+        }
+    }
+
+    /**
+     * Get the listener of a slot
+     *
+     * @param slot
+     *            a slot index
+     * @return a listener buffering events until they can be delivered
+     */
+    public SubBuildListener getListener(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * Get a listener delivering events immediately, for events not bound to any slot
+     */
+    public SubBuildListener getUnorderedListener() {
+        return unorderedListener;
+    }
+
+    /**
+     * Mark a slot as finished and deliver events of the following slots which can be delivered
+     *
+     * @param slot
+     *            a slot index
+     */
+    public synchronized void finish(int slot) {
+        slots[slot].finished = true;
+        while (head < slots.length && slots[head].finished) {
+            slots[head].deliver();
+            head++;
+        }
+        if (head < slots.length) {
+            slots[head].deliver();
+            slots[head].live = true;
+        }
+    }
+
+    /**
+     * Deliver buffered events of all slots, finished or not. Events fired later are delivered immediately.
+     */
+    public synchronized void flush() {
+        for (; head < slots.length; head++) {
+            slots[head].deliver();
+            slots[head].live = true;
+        }
+    }
+
+    /**
+     * Get the time at which the event being delivered by the current thread has been fired. Listeners measuring
+     * durations should use it instead of the current time, as buffered events are delivered late.
+     *
+     * @return the time the event was fired at, current time if the current thread is not delivering a buffered event
+     */
+    public static long getEventTime() {
+        Long eventTime = EVENT_TIME.get();
+        return eventTime == null ? System.currentTimeMillis() : eventTime;
+    }
+
+    private void fire(EventType type, BuildEvent event) {
+        for (BuildListener listener : listeners) {
+            type.fire(listener, event);
+        }
+    }
+
+    private class Slot implements SubBuildListener {
+
+        private final int index;
+
+        private final List<EventType> types = new ArrayList<EventType>();
+
+        private final List<BuildEvent> events = new ArrayList<BuildEvent>();
+
+        private final List<Long> times = new ArrayList<Long>();
+
+        private boolean live;
+
+        private boolean finished = false;
+
+        private Slot(int index) {
+            this.index = index;
+            this.live = index < 0;
+        }
+
+        private void add(EventType type, BuildEvent event) {
+            synchronized (OrderedBuildEventDispatcher.this) {
+                if (live) {
+                    fire(type, event);
+                } else {
+                    types.add(type);
+                    events.add(event);
+                    times.add(System.currentTimeMillis());
+                }
+            }
+        }
+
+        private void deliver() {
+            try {
+                for (int i = 0; i < events.size(); i++) {
+                    EVENT_TIME.set(times.get(i));
+                    fire(types.get(i), events.get(i));
+                }
+            } finally {
+                EVENT_TIME.remove();
+            }
+            types.clear();
+            events.clear();
+            times.clear();
+        }
+
+        public void buildStarted(BuildEvent event) {
+            add(EventType.BUILD_STARTED, event);
+        }
+
+        public void buildFinished(BuildEvent event) {
+            add(EventType.BUILD_FINISHED, event);
+        }
+
+        public void targetStarted(BuildEvent event) {
+            add(EventType.TARGET_STARTED, event);
+        }
+
+        public void targetFinished(BuildEvent event) {
+            add(EventType.TARGET_FINISHED, event);
+        }
+
+        public void taskStarted(BuildEvent event) {
+            add(EventType.TASK_STARTED, event);
+        }
+
+        public void taskFinished(BuildEvent event) {
+            add(EventType.TASK_FINISHED, event);
+        }
+
+        public void messageLogged(BuildEvent event) {
+            add(EventType.MESSAGE_LOGGED, event);
+        }
+
+        public void subBuildStarted(BuildEvent event) {
+            add(EventType.SUB_BUILD_STARTED, event);
+        }
+
+        public void subBuildFinished(BuildEvent event) {
+            add(EventType.SUB_BUILD_FINISHED, event);
+        }
+
+        @Override
+        public String toString() {
+            return "ordered events of slot " + index;
+        }
+    }
+
+    private enum EventType {
+        BUILD_STARTED {
+            void fire(BuildListener listener, BuildEvent event) {
+                listener.buildStarted(event);
+            }
+        },
+        BUILD_FINISHED {
+            void fire(BuildListener listener, BuildEvent event) {
+                listener.buildFinished(event);
+            }
+        },
+        TARGET_STARTED {
+            void fire(BuildListener listener, BuildEvent event) {
+                listener.targetStarted(event);
+            }
+        },
+        TARGET_FINISHED {
+            void fire(BuildListener listener, BuildEvent event) {
+                listener.targetFinished(event);
+            }
+        },
+        TASK_STARTED {
+            void fire(BuildListener listener, BuildEvent event) {
+                listener.taskStarted(event);
+            }
+        },
+        TASK_FINISHED {
+            void fire(BuildListener listener, BuildEvent event) {
+                listener.taskFinished(event);
+            }
+        },
+        MESSAGE_LOGGED {
+            void fire(BuildListener listener, BuildEvent event) {
+                listener.messageLogged(event);
+            }
+        },
+        SUB_BUILD_STARTED {
+            void fire(BuildListener listener, BuildEvent event) {
+                if (listener instanceof SubBuildListener) {
+                    ((SubBuildListener) listener).subBuildStarted(event);
+                }
+            }
+        },
+        SUB_BUILD_FINISHED {
+            void fire(BuildListener listener, BuildEvent event) {
+                if (listener instanceof SubBuildListener) {
+                    ((SubBuildListener) listener).subBuildFinished(event);
+                }
+            }
+        };
+
+        abstract void fire(BuildListener listener, BuildEvent event);
+    }
+}
@@ -20,9 +20,9 @@ package org.apache.easyant.core.ant.listerners;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.easyant.core.ant.StaticTaskInspector;
 import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildListener;
-import org.apache.tools.ant.ComponentHelper;
 import org.apache.tools.ant.Location;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
@@ -40,15 +40,10 @@ public class TaskCollectorFromImplicitTargetListener implements BuildListener {
         gatherRootModuleLocation(buildEvent.getProject(), buildEvent.getTask().getLocation());
         if (buildEvent.getTarget().getName().equals("")) {
             Task task = buildEvent.getTask();
-            if (task.getTaskType() != null) {
-                Class<?> taskClass = ComponentHelper.getComponentHelper(buildEvent.getProject()).getComponentClass(
-                        task.getTaskType());
-                if (taskClass != null) {
-                    for (Class<?> supportedClass : supportedClasses) {
-                        if (supportedClass.isAssignableFrom(taskClass)) {
-                            tasksCollected.add(task);
-                        }
-                    }
+            // tasks are identified by their definition, without loading their class
+            for (Class<?> supportedClass : supportedClasses) {
+                if (StaticTaskInspector.isA(buildEvent.getProject(), task.getTaskType(), supportedClass)) {
+                    tasksCollected.add(task);
                 }
             }
 
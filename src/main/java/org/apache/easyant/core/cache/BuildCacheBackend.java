@@ -0,0 +1,54 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Storage of build cache entries. Entries are opaque archives identified by a key, typically a fingerprint of the
+ * inputs of a module.
+ */
+public interface BuildCacheBackend {
+
+    /**
+     * Load a cache entry
+     * 
+     * @param key
+     *            an entry key
+     * @param out
+     *            stream receiving the entry content
+     * @return true if the entry has been found, false otherwise
+     * @throws IOException
+     *             if the entry cannot be read
+     */
+    boolean load(String key, OutputStream out) throws IOException;
+
+    /**
+     * Store a cache entry, replacing the existing one if any
+     * 
+     * @param key
+     *            an entry key
+     * @param entry
+     *            a file holding the entry content
+     * @throws IOException
+     *             if the entry cannot be written
+     */
+    void store(String key, File entry) throws IOException;
+}
@@ -0,0 +1,106 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Zip archives holding cache entries
+ */
+final class CacheArchive {
+
+    private CacheArchive() {
+    }
+
+    /**
+     * Create an archive
+     * 
+     * @param entries
+     *            files to archive, by entry name
+     * @param archive
+     *            the archive to create
+     * @throws IOException
+     *             if a file cannot be read or the archive cannot be written
+     */
+    static void zip(Map<String, File> entries, File archive) throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archive)));
+        try {
+            for (Map.Entry<String, File> entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey().replace(File.separatorChar, '/')));
+                InputStream in = new FileInputStream(entry.getValue());
+                try {
+                    LocalBuildCacheBackend.copy(in, out);
+                } finally {
+                    FileUtils.close(in);
+                }
+                out.closeEntry();
+            }
+        } finally {
+            FileUtils.close(out);
+        }
+    }
+
+    /**
+     * Extract an archive. Entries escaping the target directory are rejected.
+     * 
+     * @param archive
+     *            an archive
+     * @param directory
+     *            directory receiving the entries
+     * @throws IOException
+     *             if the archive cannot be read or is invalid, or if a file cannot be written
+     */
+    static void unzip(File archive, File directory) throws IOException {
+        String root = directory.getCanonicalPath() + File.separator;
+        ZipInputStream in = new ZipInputStream(new FileInputStream(archive));
+        try {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                File file = new File(directory, entry.getName());
+                if (!file.getCanonicalPath().startsWith(root)) {
+                    throw new IOException("Invalid build cache entry " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    file.mkdirs();
+                    continue;
+                }
+                file.getParentFile().mkdirs();
+                OutputStream out = new FileOutputStream(file);
+                try {
+                    LocalBuildCacheBackend.copy(in, out);
+                } finally {
+                    FileUtils.close(out);
+                }
+            }
+        } finally {
+            FileUtils.close(in);
+        }
+    }
+}
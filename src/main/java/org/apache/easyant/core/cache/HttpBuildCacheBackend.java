@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.URL;
+
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Build cache backend storing entries on an HTTP server. Entries are read with GET requests and written with PUT
+ * requests on <code>&lt;base url&gt;/&lt;key&gt;.zip</code>, a missing entry being reported with a 404 status.
+ */
+public class HttpBuildCacheBackend implements BuildCacheBackend {
+
+    private static final int TIMEOUT = 30000;
+
+    private final String baseUrl;
+
+    /**
+     * @param baseUrl
+     *            url of the cache root
+     */
+    public HttpBuildCacheBackend(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+    }
+
+    public boolean load(String key, OutputStream out) throws IOException {
+        HttpURLConnection connection = openConnection(key);
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return false;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unable to load build cache entry " + connection.getURL() + ": " + status + " "
+                        + connection.getResponseMessage());
+            }
+            InputStream in = connection.getInputStream();
+            try {
+                LocalBuildCacheBackend.copy(in, out);
+            } finally {
+                FileUtils.close(in);
+            }
+            return true;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    public void store(String key, File entry) throws IOException {
+        try {
+            upload(key, entry);
+        } catch (SocketException e) {
+            // streamed requests are not retried on kept-alive connections closed by the server
+            upload(key, entry);
+        }
+    }
+
+    private void upload(String key, File entry) throws IOException {
+        HttpURLConnection connection = openConnection(key);
+        try {
+            connection.setRequestMethod("PUT");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode((int) entry.length());
+            connection.setRequestProperty("Content-Type", "application/zip");
+            OutputStream out = connection.getOutputStream();
+            InputStream in = new FileInputStream(entry);
+            try {
+                LocalBuildCacheBackend.copy(in, out);
+            } finally {
+                FileUtils.close(in);
+                FileUtils.close(out);
+            }
+            int status = connection.getResponseCode();
+            if (status / 100 != 2) {
+                throw new IOException("Unable to store build cache entry " + connection.getURL() + ": " + status + " "
+                        + connection.getResponseMessage());
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection openConnection(String key) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + key + ".zip").openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
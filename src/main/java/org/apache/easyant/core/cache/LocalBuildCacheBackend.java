@@ -0,0 +1,86 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Build cache backend storing entries in a local directory, which may be shared by several builds
+ */
+public class LocalBuildCacheBackend implements BuildCacheBackend {
+
+    private static final String ENTRY_EXTENSION = ".zip";
+
+    private final File directory;
+
+    /**
+     * @param directory
+     *            directory holding cache entries, created if needed
+     */
+    public LocalBuildCacheBackend(File directory) {
+        this.directory = directory;
+    }
+
+    public boolean load(String key, OutputStream out) throws IOException {
+        File entry = new File(directory, key + ENTRY_EXTENSION);
+        if (!entry.isFile()) {
+            return false;
+        }
+        InputStream in = new FileInputStream(entry);
+        try {
+            copy(in, out);
+        } finally {
+            FileUtils.close(in);
+        }
+        return true;
+    }
+
+    public void store(String key, File entry) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create build cache directory " + directory);
+        }
+        // entries are renamed once complete, builds sharing the directory never read partial entries
+        File tmpEntry = File.createTempFile(key, ".tmp", directory);
+        try {
+            FileUtils.getFileUtils().copyFile(entry, tmpEntry, null, true);
+            File cachedEntry = new File(directory, key + ENTRY_EXTENSION);
+            FileUtils.getFileUtils().rename(tmpEntry, cachedEntry);
+        } finally {
+            FileUtils.delete(tmpEntry);
+        }
+    }
+
+    static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return directory.getAbsolutePath();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Fingerprint of the inputs of a module. Two builds computing the same fingerprint are expected to produce the same
+ * artifacts. Inputs are named, so that moving content from an input to another one changes the fingerprint.
+ */
+public class ModuleFingerprint {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+
+    public ModuleFingerprint() {
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Add a value to the fingerprint
+     * 
+     * @param name
+     *            name of the input
+     * @param value
+     *            the input value, may be null
+     */
+    public void add(String name, String value) {
+        update(name);
+        update(value == null ? "<null>" : value);
+    }
+
+    /**
+     * Add the content of a file to the fingerprint
+     * 
+     * @param name
+     *            name of the input
+     * @param file
+     *            a file, which may not exist
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public void addFile(String name, File file) throws IOException {
+        update(name);
+        if (!file.isFile()) {
+            update("<missing>");
+            return;
+        }
+        byte[] buffer = new byte[8192];
+        InputStream in = new FileInputStream(file);
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            FileUtils.close(in);
+        }
+    }
+
+    /**
+     * Add the paths and contents of all files of a directory to the fingerprint. Files ignored by default by ant (VCS
+     * metadata, editor backups...) are not taken into account.
+     * 
+     * @param name
+     *            name of the input
+     * @param directory
+     *            a directory
+     * @param excludes
+     *            patterns of files to ignore, relative to the directory
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    public void addDirectory(String name, File directory, String... excludes) throws IOException {
+        update(name);
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(directory);
+        scanner.setExcludes(excludes);
+        scanner.addDefaultExcludes();
+        scanner.scan();
+        String[] files = scanner.getIncludedFiles();
+        // scan order depends on the file system
+        Arrays.sort(files);
+        for (String file : files) {
+            addFile(file.replace(File.separatorChar, '/'), new File(directory, file));
+        }
+    }
+
+    /**
+     * Compute the checksum of a single file
+     * 
+     * @param file
+     *            a file, which may not exist
+     * @return an hexadecimal SHA-1 digest of the file content
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static String checksum(File file) throws IOException {
+        ModuleFingerprint checksum = new ModuleFingerprint();
+        checksum.addFile("file", file);
+        return checksum.getValue();
+    }
+
+    /**
+     * Get the fingerprint value. No input should be added afterwards.
+     * 
+     * @return an hexadecimal SHA-1 digest of all inputs
+     */
+    public String getValue() {
+        byte[] bytes = digest.digest();
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private void update(String value) {
+        try {
+            digest.update(value.getBytes("UTF-8"));
+            // separator, so that ("ab", "c") and ("a", "bc") differ
+            digest.update((byte) 0);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
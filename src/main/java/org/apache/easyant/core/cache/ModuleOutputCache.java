@@ -0,0 +1,129 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Cache of the artifacts produced by modules, stored as zip archives in a {@link BuildCacheBackend} and keyed by the
+ * {@link ModuleFingerprint fingerprint} of the module inputs.
+ */
+public class ModuleOutputCache {
+
+    private final BuildCacheBackend backend;
+
+    public ModuleOutputCache(BuildCacheBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Create a cache from a location
+     * 
+     * @param location
+     *            an http(s) url or a local directory
+     * @return a cache bound to the corresponding backend
+     */
+    public static ModuleOutputCache forLocation(String location) {
+        if (location.startsWith("http://") || location.startsWith("https://")) {
+            return new ModuleOutputCache(new HttpBuildCacheBackend(location));
+        }
+        return new ModuleOutputCache(new LocalBuildCacheBackend(new File(location)));
+    }
+
+    public BuildCacheBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Restore cached artifacts
+     * 
+     * @param fingerprint
+     *            fingerprint of the module inputs
+     * @param artifactsDir
+     *            directory receiving the artifacts
+     * @return true if artifacts have been restored, false if the cache doesn't contain them
+     * @throws IOException
+     *             if the cache entry cannot be read
+     */
+    public boolean restore(String fingerprint, File artifactsDir) throws IOException {
+        File archive = File.createTempFile("easyant-cache-", ".zip");
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(archive));
+            boolean found;
+            try {
+                found = backend.load(fingerprint, out);
+            } finally {
+                FileUtils.close(out);
+            }
+            if (found) {
+                CacheArchive.unzip(archive, artifactsDir);
+            }
+            return found;
+        } finally {
+            FileUtils.delete(archive);
+        }
+    }
+
+    /**
+     * Store artifacts in the cache. Nothing is stored if the artifacts directory is empty.
+     * 
+     * @param fingerprint
+     *            fingerprint of the module inputs
+     * @param artifactsDir
+     *            directory holding the artifacts
+     * @return true if artifacts have been stored
+     * @throws IOException
+     *             if the cache entry cannot be written
+     */
+    public boolean store(String fingerprint, File artifactsDir) throws IOException {
+        Map<String, File> files = listFiles(artifactsDir);
+        if (files.isEmpty()) {
+            return false;
+        }
+        File archive = File.createTempFile("easyant-cache-", ".zip");
+        try {
+            CacheArchive.zip(files, archive);
+            backend.store(fingerprint, archive);
+        } finally {
+            FileUtils.delete(archive);
+        }
+        return true;
+    }
+
+    private Map<String, File> listFiles(File directory) {
+        Map<String, File> files = new TreeMap<String, File>();
+        if (directory.isDirectory()) {
+            DirectoryScanner scanner = new DirectoryScanner();
+            scanner.setBasedir(directory);
+            scanner.scan();
+            for (String file : scanner.getIncludedFiles()) {
+                files.put(file, new File(directory, file));
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.plugins.version.VersionMatcher;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * {@link ModuleFingerprint Fingerprints} of the sub-builds of a multi-module build. The fingerprint of a sub-build
+ * covers its directory content, requested targets, active build configurations, imported plugins and the fingerprints
+ * of the sub-builds it depends on, which must be computed first.
+ */
+public class SubBuildFingerprints {
+
+    private final Set<ModuleId> buildModules;
+
+    private final VersionMatcher versionMatcher;
+
+    private final Map<ModuleId, String> fingerprints = new ConcurrentHashMap<ModuleId, String>();
+
+    /**
+     * @param buildModules
+     *            modules built by the multi-module build
+     * @param versionMatcher
+     *            matcher telling which revisions of other dependencies are dynamic
+     */
+    public SubBuildFingerprints(Collection<ModuleId> buildModules, VersionMatcher versionMatcher) {
+        this.buildModules = new HashSet<ModuleId>(buildModules);
+        this.versionMatcher = versionMatcher;
+    }
+
+    /**
+     * Compute the fingerprint of the inputs of a sub-build
+     *
+     * @param subModule
+     *            the configured sub-build
+     * @param md
+     *            module descriptor of the sub-build
+     * @param directory
+     *            directory of the sub-build
+     * @param targets
+     *            targets executed on the sub-build
+     * @param artifactsDir
+     *            directory holding the artifacts of the sub-build, excluded from its inputs
+     * @return the fingerprint, null if the artifacts of this sub-build cannot be cached
+     */
+    public String compute(Project subModule, ModuleDescriptor md, File directory, String targets, File artifactsDir) {
+        ModuleFingerprint fingerprint = new ModuleFingerprint();
+        fingerprint.add("targets", targets);
+        fingerprint.add("build configurations", subModule.getProperty(EasyAntMagicNames.ACTIVE_BUILD_CONFIGURATIONS));
+        fingerprint.add("java version", subModule.getProperty("java.version"));
+        for (DependencyDescriptor dependency : md.getDependencies()) {
+            ModuleId dependencyId = dependency.getDependencyId();
+            if (buildModules.contains(dependencyId)) {
+                String upstreamFingerprint = fingerprints.get(dependencyId);
+                if (upstreamFingerprint == null) {
+                    subModule.log("Not using build cache as " + dependencyId + " artifacts were not cached",
+                            Project.MSG_VERBOSE);
+                    return null;
+                }
+                fingerprint.add("upstream " + dependencyId, upstreamFingerprint);
+            } else if (versionMatcher.isDynamic(dependency.getDependencyRevisionId())) {
+                subModule.log("Not using build cache as " + dependency.getDependencyRevisionId()
+                        + " is a dynamic revision", Project.MSG_VERBOSE);
+                return null;
+            }
+        }
+        try {
+            // imported plugins are registered as [org]#[module].[ext].file, their paths contain resolved revisions
+            Map<String, Object> properties = new TreeMap<String, Object>(subModule.getProperties());
+            for (Entry<String, Object> property : properties.entrySet()) {
+                if (property.getKey().contains("#") && property.getKey().endsWith(".file")) {
+                    fingerprint.addFile(property.getKey(), new File(property.getValue().toString()));
+                }
+            }
+            List<String> excludes = new ArrayList<String>();
+            String target = subModule.getProperty(EasyAntMagicNames.TARGET);
+            addExclude(excludes, directory, subModule.resolveFile(target != null ? target : "target"));
+            addExclude(excludes, directory, artifactsDir);
+            fingerprint.addDirectory("sources", directory, excludes.toArray(new String[excludes.size()]));
+        } catch (IOException e) {
+            subModule.log("Not using build cache: " + e.getMessage(), Project.MSG_VERBOSE);
+            return null;
+        }
+        String value = fingerprint.getValue();
+        fingerprints.put(md.getModuleRevisionId().getModuleId(), value);
+        return value;
+    }
+
+    private void addExclude(List<String> excludes, File directory, File excluded) {
+        try {
+            String path = FileUtils.getRelativePath(directory, excluded);
+            if (path.length() > 0 && !path.startsWith("..")) {
+                excludes.add(path + "/**");
+            }
+        } catch (Exception e) {
+            // not inside the sub-build directory
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Cache of the outputs of targets, stored as zip archives in a {@link BuildCacheBackend} and keyed by the fingerprint
+ * of the target inputs.
+ * <p>
+ * A target may declare several outputs, files or directories. Each output is archived under its index, so that
+ * outputs are restored at the locations declared by the build restoring them.
+ */
+public class TargetOutputCache {
+
+    private final BuildCacheBackend backend;
+
+    public TargetOutputCache(BuildCacheBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Restore cached outputs. Existing outputs are replaced, so that files which are not produced anymore do not
+     * remain.
+     * 
+     * @param fingerprint
+     *            fingerprint of the target inputs
+     * @param outputs
+     *            files or directories receiving the outputs, in the order they were stored
+     * @return true if outputs have been restored, false if the cache doesn't contain them
+     * @throws IOException
+     *             if the cache entry cannot be read or an output cannot be written
+     */
+    public boolean restore(String fingerprint, List<File> outputs) throws IOException {
+        File archive = File.createTempFile("easyant-cache-", ".zip");
+        File directory = null;
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(archive));
+            boolean found;
+            try {
+                found = backend.load(fingerprint, out);
+            } finally {
+                FileUtils.close(out);
+            }
+            if (!found) {
+                return false;
+            }
+            directory = File.createTempFile("easyant-cache-", "");
+            FileUtils.delete(directory);
+            CacheArchive.unzip(archive, directory);
+            for (int i = 0; i < outputs.size(); i++) {
+                File output = outputs.get(i);
+                delete(output);
+                copy(new File(directory, String.valueOf(i)), output);
+            }
+            return true;
+        } finally {
+            FileUtils.delete(archive);
+            if (directory != null) {
+                delete(directory);
+            }
+        }
+    }
+
+    /**
+     * Store outputs in the cache. Nothing is stored if no output exists.
+     * 
+     * @param fingerprint
+     *            fingerprint of the target inputs
+     * @param outputs
+     *            files or directories produced by the target
+     * @return true if outputs have been stored
+     * @throws IOException
+     *             if the cache entry cannot be written
+     */
+    public boolean store(String fingerprint, List<File> outputs) throws IOException {
+        Map<String, File> entries = new TreeMap<String, File>();
+        for (int i = 0; i < outputs.size(); i++) {
+            File output = outputs.get(i);
+            if (output.isFile()) {
+                entries.put(String.valueOf(i), output);
+            } else if (output.isDirectory()) {
+                DirectoryScanner scanner = new DirectoryScanner();
+                scanner.setBasedir(output);
+                scanner.scan();
+                for (String file : scanner.getIncludedFiles()) {
+                    entries.put(i + "/" + file, new File(output, file));
+                }
+            }
+        }
+        if (entries.isEmpty()) {
+            return false;
+        }
+        File archive = File.createTempFile("easyant-cache-", ".zip");
+        try {
+            CacheArchive.zip(entries, archive);
+            backend.store(fingerprint, archive);
+        } finally {
+            FileUtils.delete(archive);
+        }
+        return true;
+    }
+
+    private void copy(File source, File destination) throws IOException {
+        if (source.isDirectory()) {
+            destination.mkdirs();
+            File[] children = source.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    copy(child, new File(destination, child.getName()));
+                }
+            }
+        } else if (source.isFile()) {
+            FileUtils.getFileUtils().copyFile(source, destination, null, true, true);
+        }
+    }
+
+    private void delete(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to delete " + file);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
+import org.apache.easyant.core.ant.ProjectStreamRouter;
 import org.apache.easyant.core.descriptor.PluginDescriptor;
 import org.apache.tools.ant.Project;
 
@@ -35,10 +36,10 @@ import org.apache.tools.ant.Project;
 public class EasyAntConfiguration {
 
     /** Stream to use for logging. */
-    private PrintStream out = System.out;
+    private PrintStream out = ProjectStreamRouter.getSystemOut();
 
     /** Stream that we are using for logging error messages. */
-    private PrintStream err = System.err;
+    private PrintStream err = ProjectStreamRouter.getSystemErr();
 
     /** Our current message output status. Follows Project.MSG_XXX. */
     private int msgOutputLevel = Project.MSG_INFO;
@@ -0,0 +1,231 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.Message;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Keeps track of the last time each module revision of a repository cache has been used. Accesses are recorded in
+ * memory by the cache managers and persisted in a properties file stored at the root of the cache when
+ * {@link #save()} is invoked, so recording an access never touches the disk.
+ */
+public class CacheAccessLog {
+
+    /**
+     * Name of the file holding access times, relative to the cache base directory
+     */
+    public static final String ACCESS_LOG_FILE = ".easyant-cache-access.properties";
+
+    private static final Map<File, CacheAccessLog> INSTANCES = new HashMap<File, CacheAccessLog>();
+
+    private final File logFile;
+
+    private final Map<String, Long> accesses = new ConcurrentHashMap<String, Long>();
+
+    private final Set<String> forgotten = new HashSet<String>();
+
+    private volatile boolean loaded = false;
+
+    private volatile boolean dirty = false;
+
+    CacheAccessLog(File cacheDir) {
+        this.logFile = new File(cacheDir, ACCESS_LOG_FILE);
+    }
+
+    /**
+     * Get the access log bound to a given cache directory
+     *
+     * @param cacheDir
+     *            a cache base directory
+     * @return the access log of this cache
+     */
+    public static synchronized CacheAccessLog getInstance(File cacheDir) {
+        File key = cacheDir.getAbsoluteFile();
+        CacheAccessLog log = INSTANCES.get(key);
+        if (log == null) {
+            log = new CacheAccessLog(key);
+            INSTANCES.put(key, log);
+        }
+        return log;
+    }
+
+    /**
+     * Persist pending accesses of every known cache. Logs which have been saved are forgotten, so that caches used by
+     * past builds are not kept in memory, and are loaded again from disk when needed.
+     */
+    public static void saveAll() {
+        List<CacheAccessLog> logs;
+        synchronized (CacheAccessLog.class) {
+            logs = new ArrayList<CacheAccessLog>(INSTANCES.values());
+        }
+        for (CacheAccessLog log : logs) {
+            log.save();
+            synchronized (CacheAccessLog.class) {
+                // accesses recorded since it was saved are kept for the next save
+                if (!log.dirty && INSTANCES.get(log.logFile.getParentFile()) == log) {
+                    INSTANCES.remove(log.logFile.getParentFile());
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the key used to identify a module revision in the log. Branch and extra attributes are not taken into
+     * account as they are not part of the default cache layout.
+     */
+    static String toKey(ModuleRevisionId mrid) {
+        return mrid.getOrganisation() + "#" + mrid.getName() + ";" + mrid.getRevision();
+    }
+
+    /**
+     * Record an access on a module revision
+     *
+     * @param mrid
+     *            accessed module revision
+     */
+    public void recordAccess(ModuleRevisionId mrid) {
+        if (mrid == null) {
+            return;
+        }
+        accesses.put(toKey(mrid), System.currentTimeMillis());
+        dirty = true;
+    }
+
+    /**
+     * Get the last access time of a module revision
+     *
+     * @param mrid
+     *            a module revision
+     * @return the last access time in milliseconds, or -1 if this module revision has never been recorded
+     */
+    public long getLastAccess(ModuleRevisionId mrid) {
+        load();
+        Long lastAccess = accesses.get(toKey(mrid));
+        return lastAccess == null ? -1 : lastAccess;
+    }
+
+    /**
+     * Forget a module revision, typically once it has been evicted from the cache
+     *
+     * @param mrid
+     *            a module revision
+     */
+    public synchronized void forget(ModuleRevisionId mrid) {
+        load();
+        String key = toKey(mrid);
+        accesses.remove(key);
+        forgotten.add(key);
+        dirty = true;
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        mergeLogFile();
+        loaded = true;
+    }
+
+    private void mergeLogFile() {
+        for (Map.Entry<String, Long> entry : readLogFile().entrySet()) {
+            if (!forgotten.contains(entry.getKey())) {
+                merge(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void merge(String key, long lastAccess) {
+        Long current = accesses.get(key);
+        if (current == null || current < lastAccess) {
+            accesses.put(key, lastAccess);
+        }
+    }
+
+    private Map<String, Long> readLogFile() {
+        Map<String, Long> result = new HashMap<String, Long>();
+        if (!logFile.exists()) {
+            return result;
+        }
+        Properties props = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(logFile);
+            props.load(is);
+        } catch (IOException e) {
+            Message.verbose("unable to read cache access log " + logFile + ": " + e.getMessage());
+        } finally {
+            FileUtils.close(is);
+        }
+        for (String key : props.stringPropertyNames()) {
+            try {
+                result.put(key, Long.valueOf(props.getProperty(key)));
+            } catch (NumberFormatException e) {
+                // ignore corrupted entries
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Persist recorded accesses. Entries already stored on disk (possibly by another build) are merged, the most recent
+     * access wins.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        // entries on disk may have been refreshed by another process since we loaded them
+        mergeLogFile();
+        loaded = true;
+        Properties props = new Properties();
+        for (Map.Entry<String, Long> entry : accesses.entrySet()) {
+            props.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        if (!logFile.getParentFile().exists()) {
+            logFile.getParentFile().mkdirs();
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(logFile);
+            props.store(os, "EasyAnt cache access log");
+            forgotten.clear();
+            dirty = false;
+        } catch (IOException e) {
+            Message.verbose("unable to write cache access log " + logFile + ": " + e.getMessage());
+        } finally {
+            FileUtils.close(os);
+        }
+    }
+}
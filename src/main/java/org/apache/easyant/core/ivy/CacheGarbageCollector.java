@@ -0,0 +1,354 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
+import org.apache.ivy.plugins.repository.url.URLResource;
+import org.apache.ivy.util.Message;
+
+/**
+ * Evicts least recently used module revisions from a repository cache until it fits in a given size, and/or evicts
+ * module revisions that have not been used for a given amount of time.
+ *
+ * Module revisions are discovered by matching cache content against the ivy pattern of the cache manager. Last access
+ * times come from the {@link CacheAccessLog} of the cache, falling back on file modification dates for revisions
+ * cached before access tracking was enabled.
+ */
+public class CacheGarbageCollector {
+
+    private static final String ORGANISATION_PATH_KEY = "orgPath";
+
+    private final DefaultRepositoryCacheManager cacheManager;
+
+    private final IvySettings settings;
+
+    private long maxSize = -1;
+
+    private long maxAge = -1;
+
+    private boolean dryRun = false;
+
+    private final Set<String> protectedModules = new HashSet<String>();
+
+    public CacheGarbageCollector(DefaultRepositoryCacheManager cacheManager, IvySettings settings) {
+        this.cacheManager = cacheManager;
+        this.settings = settings;
+    }
+
+    /**
+     * Protect a module revision from eviction (typically because it is used by the current build)
+     *
+     * @param mrid
+     *            a module revision
+     */
+    public void addProtectedModule(ModuleRevisionId mrid) {
+        protectedModules.add(CacheAccessLog.toKey(mrid));
+    }
+
+    /**
+     * Run the garbage collection
+     *
+     * @return evicted module revisions, least recently used first
+     */
+    public List<CachedModuleRevision> collect() {
+        CacheAccessLog accessLog = CacheAccessLog.getInstance(cacheManager.getBasedir());
+        List<CachedModuleRevision> revisions = listCachedModuleRevisions(accessLog);
+        Collections.sort(revisions, new Comparator<CachedModuleRevision>() {
+            public int compare(CachedModuleRevision o1, CachedModuleRevision o2) {
+                return o1.getLastAccess() < o2.getLastAccess() ? -1 : (o1.getLastAccess() == o2.getLastAccess() ? 0
+                        : 1);
+            }
+        });
+        long totalSize = 0;
+        for (CachedModuleRevision revision : revisions) {
+            totalSize += revision.getSize();
+        }
+
+        List<CachedModuleRevision> evicted = new ArrayList<CachedModuleRevision>();
+        long expiration = maxAge >= 0 ? System.currentTimeMillis() - maxAge : Long.MIN_VALUE;
+        for (CachedModuleRevision revision : revisions) {
+            boolean expired = revision.getLastAccess() < expiration;
+            boolean oversized = maxSize >= 0 && totalSize > maxSize;
+            if (!expired && !oversized) {
+                // revisions are sorted, following ones are more recent
+                break;
+            }
+            if (protectedModules.contains(CacheAccessLog.toKey(revision.getModuleRevisionId()))) {
+                Message.verbose("\tkeeping " + revision.getModuleRevisionId() + " as it is used by current build");
+                continue;
+            }
+            evict(revision, accessLog);
+            evicted.add(revision);
+            totalSize -= revision.getSize();
+        }
+        if (!dryRun) {
+            accessLog.save();
+        }
+        return evicted;
+    }
+
+    private void evict(CachedModuleRevision revision, CacheAccessLog accessLog) {
+        Message.verbose("\tevicting " + revision.getModuleRevisionId() + " (" + revision.getSize() + " bytes)");
+        if (dryRun) {
+            return;
+        }
+        for (File file : revision.getFiles()) {
+            if (file.delete()) {
+                deleteEmptyParents(file.getParentFile());
+            } else {
+                Message.warn("unable to delete " + file.getAbsolutePath());
+            }
+        }
+        accessLog.forget(revision.getModuleRevisionId());
+    }
+
+    private void deleteEmptyParents(File directory) {
+        File basedir = cacheManager.getBasedir().getAbsoluteFile();
+        File current = directory.getAbsoluteFile();
+        while (current != null && !current.equals(basedir)) {
+            String[] children = current.list();
+            if (children == null || children.length > 0 || !current.delete()) {
+                return;
+            }
+            current = current.getParentFile();
+        }
+    }
+
+    /**
+     * List all module revisions stored in the cache
+     */
+    List<CachedModuleRevision> listCachedModuleRevisions(CacheAccessLog accessLog) {
+        List<String> tokens = new ArrayList<String>();
+        Pattern ivyFilePattern = compilePattern(cacheManager.getIvyPattern(), tokens);
+        List<CachedModuleRevision> revisions = new ArrayList<CachedModuleRevision>();
+        File basedir = cacheManager.getBasedir();
+        if (basedir == null || !basedir.isDirectory()) {
+            return revisions;
+        }
+        List<File> files = new ArrayList<File>();
+        listFiles(basedir, files);
+        String basePath = basedir.getAbsolutePath();
+        for (File file : files) {
+            String relativePath = file.getAbsolutePath().substring(basePath.length() + 1)
+                    .replace(File.separatorChar, '/');
+            Matcher matcher = ivyFilePattern.matcher(relativePath);
+            if (!matcher.matches()) {
+                continue;
+            }
+            Map<String, String> values = new HashMap<String, String>();
+            for (int i = 0; i < tokens.size(); i++) {
+                if (matcher.group(i + 1) != null) {
+                    values.put(tokens.get(i), matcher.group(i + 1));
+                }
+            }
+            String organisation = values.get(IvyPatternHelper.ORGANISATION_KEY);
+            if (organisation == null) {
+                organisation = values.get(IvyPatternHelper.ORGANISATION_KEY2);
+            }
+            if (organisation == null && values.get(ORGANISATION_PATH_KEY) != null) {
+                organisation = values.get(ORGANISATION_PATH_KEY).replace('/', '.');
+            }
+            String module = values.get(IvyPatternHelper.MODULE_KEY);
+            String revision = values.get(IvyPatternHelper.REVISION_KEY);
+            if (organisation == null || module == null || revision == null) {
+                continue;
+            }
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance(organisation, module,
+                    values.get(IvyPatternHelper.BRANCH_KEY), revision);
+            revisions.add(buildCachedModuleRevision(mrid, file, accessLog));
+        }
+        return revisions;
+    }
+
+    private CachedModuleRevision buildCachedModuleRevision(ModuleRevisionId mrid, File ivyFile,
+            CacheAccessLog accessLog) {
+        Set<File> files = new LinkedHashSet<File>();
+        files.add(ivyFile);
+        files.add(new File(ivyFile.getAbsolutePath() + ".original"));
+        files.add(new File(cacheManager.getBasedir(), IvyPatternHelper.substitute(cacheManager.getDataFilePattern(),
+                mrid)));
+        for (Artifact artifact : getArtifacts(ivyFile)) {
+            files.add(cacheManager.getArchiveFileInCache(artifact));
+        }
+
+        List<File> existingFiles = new ArrayList<File>();
+        long size = 0;
+        long lastModified = -1;
+        for (File file : files) {
+            if (file.isFile()) {
+                existingFiles.add(file);
+                size += file.length();
+                lastModified = Math.max(lastModified, file.lastModified());
+            }
+        }
+        long lastAccess = accessLog.getLastAccess(mrid);
+        return new CachedModuleRevision(mrid, existingFiles, size, lastAccess >= 0 ? lastAccess : lastModified);
+    }
+
+    private Artifact[] getArtifacts(File ivyFile) {
+        try {
+            URLResource resource = new URLResource(ivyFile.toURI().toURL());
+            ModuleDescriptorParser parser = ModuleDescriptorParserRegistry.getInstance().getParser(resource);
+            if (parser != null) {
+                ModuleDescriptor md = parser.parseDescriptor(settings, ivyFile.toURI().toURL(), resource, false);
+                return md.getAllArtifacts();
+            }
+        } catch (Exception e) {
+            Message.verbose("unable to parse cached module descriptor " + ivyFile + ": " + e.getMessage());
+        }
+        return new Artifact[0];
+    }
+
+    private void listFiles(File directory, List<File> files) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                listFiles(child, files);
+            } else {
+                files.add(child);
+            }
+        }
+    }
+
+    /**
+     * Compile an ivy pattern into a regular expression. Each token is turned into a capturing group, token names are
+     * appended to the given list in group order. Optional parts of the pattern become optional groups.
+     */
+    static Pattern compilePattern(String ivyPattern, List<String> tokens) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < ivyPattern.length(); i++) {
+            char c = ivyPattern.charAt(i);
+            if (c == '[' && ivyPattern.indexOf(']', i) > i) {
+                flushLiteral(regex, literal);
+                int end = ivyPattern.indexOf(']', i);
+                String token = ivyPattern.substring(i + 1, end);
+                tokens.add(token);
+                regex.append(ORGANISATION_PATH_KEY.equals(token) ? "(.+?)" : "([^/]+?)");
+                i = end;
+            } else if (c == '(') {
+                flushLiteral(regex, literal);
+                regex.append("(?:");
+            } else if (c == ')') {
+                flushLiteral(regex, literal);
+                regex.append(")?");
+            } else {
+                literal.append(c);
+            }
+        }
+        flushLiteral(regex, literal);
+        return Pattern.compile(regex.toString());
+    }
+
+    private static void flushLiteral(StringBuilder regex, StringBuilder literal) {
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the maximum size of the cache in bytes. A negative value disables size based eviction.
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Set the maximum time in milliseconds a module revision can stay unused in the cache. A negative value disables
+     * age based eviction.
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * When true, module revisions to evict are computed but no file is deleted
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * A module revision stored in the cache, with all the files belonging to it
+     */
+    public static class CachedModuleRevision {
+        private final ModuleRevisionId moduleRevisionId;
+        private final List<File> files;
+        private final long size;
+        private final long lastAccess;
+
+        public CachedModuleRevision(ModuleRevisionId moduleRevisionId, List<File> files, long size, long lastAccess) {
+            this.moduleRevisionId = moduleRevisionId;
+            this.files = files;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+
+        public ModuleRevisionId getModuleRevisionId() {
+            return moduleRevisionId;
+        }
+
+        public List<File> getFiles() {
+            return files;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastAccess() {
+            return lastAccess;
+        }
+    }
+}
@@ -17,11 +17,20 @@
  */
 package org.apache.easyant.core.ivy;
 
+import org.apache.ivy.core.cache.CacheDownloadOptions;
+import org.apache.ivy.core.cache.CacheMetadataOptions;
 import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
 import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.repository.ArtifactResourceResolver;
+import org.apache.ivy.plugins.repository.ResourceDownloader;
 import org.apache.ivy.plugins.repository.url.URLResource;
 
 import java.io.File;
@@ -31,6 +40,9 @@ import java.net.MalformedURLException;
  * Fork default CacheManager as default cache resolver use {@link XmlModuleDescriptorParser} to resolve files from cache
  * If parent module is resolved from cache with {@link XmlModuleDescriptorParser} then easyant is not able to handle
  * inherit properties or plugins
+ * 
+ * Module revisions found in or downloaded to this cache are also recorded in a {@link CacheAccessLog}, allowing least
+ * recently used revisions to be evicted by {@link CacheGarbageCollector}.
  */
 public class EasyAntRepositoryCacheManager extends DefaultRepositoryCacheManager {
     public EasyAntRepositoryCacheManager() {
@@ -51,4 +63,31 @@ public class EasyAntRepositoryCacheManager extends DefaultRepositoryCacheManager
             throw new RuntimeException("Can't access to " + moduleDescriptorFile.getAbsolutePath(), e);
         }
     }
+
+    @Override
+    public ResolvedModuleRevision findModuleInCache(DependencyDescriptor dd, ModuleRevisionId requestedRevisionId,
+            CacheMetadataOptions options, String expectedResolver) {
+        ResolvedModuleRevision rmr = super.findModuleInCache(dd, requestedRevisionId, options, expectedResolver);
+        if (rmr != null) {
+            getAccessLog().recordAccess(rmr.getId());
+        }
+        return rmr;
+    }
+
+    @Override
+    public ArtifactDownloadReport download(Artifact artifact, ArtifactResourceResolver resourceResolver,
+            ResourceDownloader resourceDownloader, CacheDownloadOptions options) {
+        ArtifactDownloadReport report = super.download(artifact, resourceResolver, resourceDownloader, options);
+        getAccessLog().recordAccess(artifact.getModuleRevisionId());
+        return report;
+    }
+
+    /**
+     * Get the access log of this cache
+     * 
+     * @return the {@link CacheAccessLog} bound to cache base directory
+     */
+    public CacheAccessLog getAccessLog() {
+        return CacheAccessLog.getInstance(getBasedir());
+    }
 }
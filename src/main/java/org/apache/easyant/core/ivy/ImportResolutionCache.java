@@ -0,0 +1,142 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.descriptor.IncludeRule;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.tools.ant.Project;
+
+/**
+ * Memorizes resolutions of imported modules during a build, so that a module imported by several sub-modules (e.g.
+ * system plugins) is resolved only once. The cache is stored as a reference of the root project and shared with
+ * sub-modules.
+ *
+ * Resolutions are keyed by everything that can change their result: imported module, main configuration, additional
+ * dependencies, excludes, conflict managers, changing flag, offline mode and ivy settings location.
+ */
+public class ImportResolutionCache {
+
+    private final Map<String, ResolveReport> reports = new ConcurrentHashMap<String, ResolveReport>();
+
+    /**
+     * Get the cache bound to a project, creating it if needed
+     *
+     * @param project
+     *            a project
+     * @return the import resolution cache of the build
+     */
+    public static synchronized ImportResolutionCache getInstance(Project project) {
+        ImportResolutionCache cache = project.getReference(EasyAntMagicNames.IMPORT_RESOLUTION_CACHE);
+        if (cache == null) {
+            cache = new ImportResolutionCache();
+            project.addReference(EasyAntMagicNames.IMPORT_RESOLUTION_CACHE, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Get a previous resolution
+     *
+     * @param key
+     *            a key computed by {@link #computeKey(ModuleRevisionId, String, boolean, ModuleDescriptor, String, IvySettings, boolean)}
+     * @return a resolve report, null if this resolution has not been done yet
+     */
+    public ResolveReport get(String key) {
+        return reports.get(key);
+    }
+
+    /**
+     * Store a resolution. Resolutions in error are not stored so that they are tried again.
+     *
+     * @param key
+     *            a key computed by {@link #computeKey(ModuleRevisionId, String, boolean, ModuleDescriptor, String, IvySettings, boolean)}
+     * @param report
+     *            a resolve report
+     */
+    public void put(String key, ResolveReport report) {
+        if (!report.hasError()) {
+            reports.put(key, report);
+        }
+    }
+
+    public int size() {
+        return reports.size();
+    }
+
+    /**
+     * Compute the key identifying a resolution
+     *
+     * @param mrid
+     *            imported module
+     * @param mainConf
+     *            main configuration of the import
+     * @param changing
+     *            true if imported module is changing
+     * @param md
+     *            caller module descriptor, including additional dependencies and excludes
+     * @param conflicts
+     *            description of conflict managers, as they can't be read back from the module descriptor
+     * @param settings
+     *            ivy settings used for the resolution
+     * @param offline
+     *            true if the resolution only uses the cache
+     * @return a key
+     */
+    public static String computeKey(ModuleRevisionId mrid, String mainConf, boolean changing, ModuleDescriptor md,
+            String conflicts, IvySettings settings, boolean offline) {
+        StringBuilder key = new StringBuilder();
+        key.append(mrid).append('|').append(mainConf).append('|').append(changing).append('|').append(offline);
+        key.append('|').append(settings.getVariable("ivy.settings.url"));
+        for (DependencyDescriptor dd : md.getDependencies()) {
+            key.append("|dependency:").append(dd.getDependencyRevisionId());
+            key.append(',').append(dd.isForce()).append(',').append(dd.isChanging()).append(',')
+                    .append(dd.isTransitive());
+            for (String conf : dd.getModuleConfigurations()) {
+                key.append(',').append(conf).append("->")
+                        .append(Arrays.toString(dd.getDependencyConfigurations(conf)));
+            }
+            for (DependencyArtifactDescriptor dad : dd.getAllDependencyArtifacts()) {
+                key.append(",artifact:").append(dad.getName()).append('.').append(dad.getType()).append('.')
+                        .append(dad.getExt()).append('@').append(dad.getUrl());
+            }
+            for (IncludeRule rule : dd.getAllIncludeRules()) {
+                key.append(",include:").append(rule.getId()).append(rule.getMatcher().getName());
+            }
+            for (ExcludeRule rule : dd.getAllExcludeRules()) {
+                key.append(",exclude:").append(rule.getId()).append(rule.getMatcher().getName());
+            }
+        }
+        for (ExcludeRule rule : md.getAllExcludeRules()) {
+            key.append("|exclude:").append(rule.getId()).append(rule.getMatcher().getName())
+                    .append(Arrays.toString(rule.getConfigurations()));
+        }
+        key.append("|conflicts:").append(conflicts);
+        return key.toString();
+    }
+}
@@ -17,9 +17,21 @@
  */
 package org.apache.easyant.core.ivy;
 
+import java.lang.reflect.Field;
+
 import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.ivy.Ivy;
+import org.apache.ivy.ant.AntMessageLogger;
 import org.apache.ivy.ant.IvyAntSettings;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.lock.LockStrategy;
+import org.apache.ivy.util.MessageLogger;
+import org.apache.ivy.util.MessageLoggerEngine;
+import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectComponent;
 import org.apache.tools.ant.types.Reference;
 
 /**
@@ -121,4 +133,77 @@ public class IvyInstanceHelper {
         }
     }
 
+    /**
+     * Make every repository cache of an ivy instance lock the artifacts it downloads, installs or publishes. Caches
+     * are shared on disk by all the projects of a build, this prevents concurrent sub-builds from reading partially
+     * written artifacts or metadata.
+     * 
+     * @param ivyAntSettings
+     *            an {@link IvyAntSettings} instance
+     * @param component
+     *            the component configuring the ivy instance
+     */
+    public static void useArtifactLocks(IvyAntSettings ivyAntSettings, ProjectComponent component) {
+        IvySettings settings = ivyAntSettings.getConfiguredIvyInstance(component).getSettings();
+        LockStrategy lockStrategy = settings.getLockStrategy("artifact-lock");
+        settings.setDefaultLockStrategy(lockStrategy);
+        useLockStrategy(settings.getDefaultRepositoryCacheManager(), lockStrategy);
+        for (RepositoryCacheManager cacheManager : settings.getRepositoryCacheManagers()) {
+            useLockStrategy(cacheManager, lockStrategy);
+        }
+    }
+
+    private static void useLockStrategy(RepositoryCacheManager cacheManager, LockStrategy lockStrategy) {
+        if (cacheManager instanceof DefaultRepositoryCacheManager) {
+            ((DefaultRepositoryCacheManager) cacheManager).setLockStrategy(lockStrategy);
+        }
+    }
+
+    /**
+     * Pop the loggers pushed on the calling thread by the ivy instances of a project. Ivy pushes a logger bound to the
+     * running task on a per thread stack, and only pops it when an enclosing task finishes: loggers pushed while
+     * easyant executes tasks directly would keep their project reachable from the thread as long as it lives.
+     * 
+     * @param project
+     *            a project instance
+     */
+    public static void popLoggers(Project project) {
+        for (Object reference : project.getReferences().values()) {
+            if (reference instanceof IvyAntSettings) {
+                Ivy ivy = getIvyEngine((IvyAntSettings) reference);
+                if (ivy != null) {
+                    popLoggers(ivy.getLoggerEngine());
+                }
+            }
+        }
+    }
+
+    private static void popLoggers(MessageLoggerEngine loggerEngine) {
+        MessageLogger logger = loggerEngine.peekLogger();
+        while (logger instanceof AntMessageLogger) {
+            loggerEngine.popLogger();
+            MessageLogger previous = logger;
+            logger = loggerEngine.peekLogger();
+            if (logger == previous) {
+                // the stack is empty, this is the default logger
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the ivy engine of an {@link IvyAntSettings} without creating it, as creating it pushes a logger
+     */
+    private static Ivy getIvyEngine(IvyAntSettings ivyAntSettings) {
+        try {
+            Field ivyEngine = IvyAntSettings.class.getDeclaredField("ivyEngine");
+            ivyEngine.setAccessible(true);
+            return (Ivy) ivyEngine.get(ivyAntSettings);
+        } catch (NoSuchFieldException e) {
+            throw new BuildException(e);
+        } catch (IllegalAccessException e) {
+            throw new BuildException(e);
+        }
+    }
+
 }
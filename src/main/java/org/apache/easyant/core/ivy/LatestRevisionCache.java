@@ -0,0 +1,150 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.Message;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Revisions found for dynamic module revisions (like latest.release), persisted in a properties file so that they can
+ * be reused by later builds without looking at repositories again.
+ */
+public class LatestRevisionCache {
+
+    /**
+     * Name of the file holding found revisions, relative to the cache base directory
+     */
+    public static final String CACHE_FILE = ".easyant-latest-revisions.properties";
+
+    private final File cacheFile;
+
+    private final Map<String, Long> foundTimes = new HashMap<String, Long>();
+
+    private final Map<String, String> revisions = new HashMap<String, String>();
+
+    private boolean dirty = false;
+
+    private LatestRevisionCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Load the revisions stored in a given file
+     *
+     * @param cacheFile
+     *            a properties file, which may not exist yet
+     * @return the cache, empty if the file doesn't exist or cannot be read
+     */
+    public static LatestRevisionCache load(File cacheFile) {
+        LatestRevisionCache cache = new LatestRevisionCache(cacheFile);
+        if (!cacheFile.exists()) {
+            return cache;
+        }
+        Properties props = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(cacheFile);
+            props.load(is);
+        } catch (IOException e) {
+            Message.verbose("unable to read latest revisions " + cacheFile + ": " + e.getMessage());
+        } finally {
+            FileUtils.close(is);
+        }
+        for (String key : props.stringPropertyNames()) {
+            String value = props.getProperty(key);
+            int separator = value.indexOf(' ');
+            try {
+                cache.foundTimes.put(key, Long.valueOf(value.substring(0, separator)));
+                cache.revisions.put(key, value.substring(separator + 1));
+            } catch (RuntimeException e) {
+                // ignore corrupted entries
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Get the revision found for a dynamic module revision
+     *
+     * @param mrid
+     *            a dynamic module revision
+     * @param timeToLive
+     *            maximum age of the revision in milliseconds
+     * @return the revision found less than timeToLive ago, or null
+     */
+    public synchronized String getRevision(ModuleRevisionId mrid, long timeToLive) {
+        String key = mrid.encodeToString();
+        Long foundTime = foundTimes.get(key);
+        if (foundTime == null || System.currentTimeMillis() - foundTime >= timeToLive) {
+            return null;
+        }
+        return revisions.get(key);
+    }
+
+    /**
+     * Record the revision found for a dynamic module revision
+     *
+     * @param mrid
+     *            a dynamic module revision
+     * @param revision
+     *            the revision it currently matches
+     */
+    public synchronized void putRevision(ModuleRevisionId mrid, String revision) {
+        String key = mrid.encodeToString();
+        foundTimes.put(key, System.currentTimeMillis());
+        revisions.put(key, revision);
+        dirty = true;
+    }
+
+    /**
+     * Persist found revisions
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        Properties props = new Properties();
+        for (Map.Entry<String, String> entry : revisions.entrySet()) {
+            props.setProperty(entry.getKey(), foundTimes.get(entry.getKey()) + " " + entry.getValue());
+        }
+        if (cacheFile.getParentFile() != null && !cacheFile.getParentFile().exists()) {
+            cacheFile.getParentFile().mkdirs();
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(cacheFile);
+            props.store(os, "EasyAnt latest revisions");
+            dirty = false;
+        } catch (IOException e) {
+            Message.warn("unable to write latest revisions " + cacheFile + ": " + e.getMessage());
+        } finally {
+            FileUtils.close(os);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.easyant.core.EasyAntConstants;
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ant.ModuleFinder;
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.resolver.AbstractPatternsBasedResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.Message;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Local index of the module revisions available in a repository, with their description and the types of their
+ * artifacts (telling plugins and build types from skeletons for instance). The index is persisted in a properties file
+ * per resolver and refreshed incrementally:
+ * <ul>
+ * <li>a search is answered from the index as long as the same criteria have been listed on the repository less than
+ * {@link #setTimeToLive(long) time to live} ago, the repository is listed again otherwise;</li>
+ * <li>descriptors are only read for revisions the index doesn't describe yet, concurrently.</li>
+ * </ul>
+ */
+public class ModuleIndex {
+
+    /**
+     * Default time to live of listings, in milliseconds
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 10 * 60 * 1000;
+
+    private static final Map<File, ModuleIndex> INSTANCES = new HashMap<File, ModuleIndex>();
+
+    private static final String LISTING_PREFIX = "listing.";
+
+    private static final String REVISION_PREFIX = "revision.";
+
+    private static final String DESCRIPTION_PREFIX = "description.";
+
+    private static final String TYPES_PREFIX = "types.";
+
+    private final File indexFile;
+
+    private final Map<String, Long> listings = new HashMap<String, Long>();
+
+    private final Map<ModuleRevisionId, Entry> entries = new LinkedHashMap<ModuleRevisionId, Entry>();
+
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    private boolean loaded = false;
+
+    private boolean dirty = false;
+
+    ModuleIndex(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Get the index of a resolver
+     *
+     * @param indexDir
+     *            directory holding indexes
+     * @param resolver
+     *            an Ivy resolver
+     * @return the index of this resolver
+     */
+    public static synchronized ModuleIndex getInstance(File indexDir, DependencyResolver resolver) {
+        File key = new File(indexDir, getIndexFileName(resolver)).getAbsoluteFile();
+        ModuleIndex index = INSTANCES.get(key);
+        if (index == null) {
+            index = new ModuleIndex(key);
+            INSTANCES.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get the index of a resolver, stored in the directory and using the time to live configured in a project
+     *
+     * @param project
+     *            a project, defining {@link EasyAntMagicNames#MODULE_INDEX_DIR} and
+     *            {@link EasyAntMagicNames#MODULE_INDEX_TTL} properties if defaults don't suit
+     * @param resolver
+     *            an Ivy resolver
+     * @return the index of this resolver
+     */
+    public static ModuleIndex getInstance(Project project, DependencyResolver resolver) {
+        String dir = project.getProperty(EasyAntMagicNames.MODULE_INDEX_DIR);
+        File indexDir = dir != null ? project.resolveFile(dir) : new File(
+                project.replaceProperties(EasyAntConstants.DEFAULT_MODULE_INDEX_DIR));
+        ModuleIndex index = getInstance(indexDir, resolver);
+        String ttl = project.getProperty(EasyAntMagicNames.MODULE_INDEX_TTL);
+        if (ttl != null) {
+            try {
+                index.setTimeToLive(Long.parseLong(ttl.trim()) * 60 * 1000);
+            } catch (NumberFormatException e) {
+                throw new BuildException("invalid module index time to live " + ttl + ", a number of minutes expected");
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Name the index file after the resolver name and, when available, its patterns, so that homonym resolvers of
+     * different settings don't share the same index
+     */
+    private static String getIndexFileName(DependencyResolver resolver) {
+        StringBuilder key = new StringBuilder(resolver.getName());
+        if (resolver instanceof AbstractPatternsBasedResolver) {
+            AbstractPatternsBasedResolver patternsBasedResolver = (AbstractPatternsBasedResolver) resolver;
+            key.append('|').append(patternsBasedResolver.getIvyPatterns());
+            key.append('|').append(patternsBasedResolver.getArtifactPatterns());
+        }
+        return resolver.getName().replaceAll("[^\\w.-]", "_") + "-" + Integer.toHexString(key.toString().hashCode())
+                + ".properties";
+    }
+
+    public synchronized long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Set the time during which a listing of the repository is trusted. 0 lists the repository on every search.
+     *
+     * @param timeToLive
+     *            a duration in milliseconds
+     */
+    public synchronized void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Search module revisions matching given criteria, listing the repository only if the index doesn't know them
+     * already. As in {@link org.apache.ivy.core.search.SearchEngine}, branches are not part of the criteria.
+     *
+     * @param ivy
+     *            Ivy instance used to list the repository
+     * @param resolver
+     *            the resolver this index is bound to
+     * @param criteria
+     *            organisation, module and revision to search, null values match anything
+     * @param matcher
+     *            matcher used to compare criteria
+     * @return matching module revisions
+     */
+    public synchronized ModuleRevisionId[] search(Ivy ivy, DependencyResolver resolver, ModuleRevisionId criteria,
+            PatternMatcher matcher) {
+        load();
+        String listingKey = matcher.getName() + "|" + criteria.getOrganisation() + "|" + criteria.getName() + "|"
+                + criteria.getRevision();
+        Long listedAt = listings.get(listingKey);
+        if (listedAt == null || System.currentTimeMillis() - listedAt >= timeToLive) {
+            ModuleRevisionId[] listed;
+            ivy.pushContext();
+            try {
+                listed = ivy.getSearchEngine().listModules(resolver, criteria, matcher);
+            } finally {
+                ivy.popContext();
+            }
+            update(criteria, matcher, listed);
+            listings.put(listingKey, System.currentTimeMillis());
+            dirty = true;
+            return listed;
+        }
+        List<ModuleRevisionId> result = new ArrayList<ModuleRevisionId>();
+        for (ModuleRevisionId mrid : entries.keySet()) {
+            if (matches(criteria, matcher, mrid)) {
+                result.add(mrid);
+            }
+        }
+        return result.toArray(new ModuleRevisionId[result.size()]);
+    }
+
+    /**
+     * Replace indexed revisions matching the criteria by the ones just listed, keeping what is known about them
+     */
+    private void update(ModuleRevisionId criteria, PatternMatcher matcher, ModuleRevisionId[] listed) {
+        Set<ModuleRevisionId> found = new LinkedHashSet<ModuleRevisionId>();
+        for (ModuleRevisionId mrid : listed) {
+            found.add(mrid);
+        }
+        for (Iterator<ModuleRevisionId> it = entries.keySet().iterator(); it.hasNext();) {
+            ModuleRevisionId mrid = it.next();
+            if (!found.contains(mrid) && matches(criteria, matcher, mrid)) {
+                it.remove();
+            }
+        }
+        for (ModuleRevisionId mrid : found) {
+            if (!entries.containsKey(mrid)) {
+                entries.put(mrid, new Entry());
+            }
+        }
+    }
+
+    private static boolean matches(ModuleRevisionId criteria, PatternMatcher matcher, ModuleRevisionId mrid) {
+        return matches(matcher, criteria.getOrganisation(), mrid.getOrganisation())
+                && matches(matcher, criteria.getName(), mrid.getName())
+                && matches(matcher, criteria.getRevision(), mrid.getRevision());
+    }
+
+    private static boolean matches(PatternMatcher matcher, String expression, String value) {
+        return expression == null || matcher.getMatcher(expression).matches(value);
+    }
+
+    /**
+     * Read the descriptors of the given module revisions the index doesn't describe yet, concurrently
+     *
+     * @param ivy
+     *            Ivy instance used to find module descriptors
+     * @param mrids
+     *            module revisions to describe
+     * @param threadCount
+     *            maximum number of descriptors read at the same time
+     */
+    public void describe(Ivy ivy, Collection<ModuleRevisionId> mrids, int threadCount) {
+        List<ModuleRevisionId> undescribed = new ArrayList<ModuleRevisionId>();
+        synchronized (this) {
+            load();
+            for (ModuleRevisionId mrid : new LinkedHashSet<ModuleRevisionId>(mrids)) {
+                Entry entry = entries.get(mrid);
+                if (entry == null || entry.description == null) {
+                    undescribed.add(mrid);
+                }
+            }
+        }
+        if (undescribed.isEmpty()) {
+            return;
+        }
+        Map<ModuleRevisionId, ResolvedModuleRevision> found = ModuleFinder.findModules(ivy, undescribed,
+                "module-index", threadCount);
+        for (Map.Entry<ModuleRevisionId, ResolvedModuleRevision> module : found.entrySet()) {
+            record(module.getKey(), module.getValue());
+        }
+    }
+
+    private synchronized void record(ModuleRevisionId mrid, ResolvedModuleRevision rmr) {
+        Entry entry = new Entry();
+        String description = rmr.getDescriptor().getDescription();
+        entry.description = description == null ? "" : description.trim();
+        Set<String> types = new LinkedHashSet<String>();
+        for (Artifact artifact : rmr.getDescriptor().getAllArtifacts()) {
+            types.add(artifact.getType());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String type : types) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(type);
+        }
+        entry.types = sb.toString();
+        entries.put(mrid, entry);
+        dirty = true;
+    }
+
+    /**
+     * Get the description of a module revision
+     *
+     * @param mrid
+     *            a module revision
+     * @return its description, empty if it has none, or null if its descriptor has not been read
+     */
+    public synchronized String getDescription(ModuleRevisionId mrid) {
+        load();
+        Entry entry = entries.get(mrid);
+        return entry == null ? null : entry.description;
+    }
+
+    /**
+     * Get the types of the artifacts published by a module revision
+     *
+     * @param mrid
+     *            a module revision
+     * @return comma separated artifact types, or null if its descriptor has not been read
+     */
+    public synchronized String getTypes(ModuleRevisionId mrid) {
+        load();
+        Entry entry = entries.get(mrid);
+        return entry == null ? null : entry.types;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!indexFile.exists()) {
+            return;
+        }
+        Properties props = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(indexFile);
+            props.load(is);
+        } catch (IOException e) {
+            Message.verbose("unable to read module index " + indexFile + ": " + e.getMessage());
+            return;
+        } finally {
+            FileUtils.close(is);
+        }
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(LISTING_PREFIX)) {
+                try {
+                    listings.put(key.substring(LISTING_PREFIX.length()), Long.valueOf(props.getProperty(key)));
+                } catch (NumberFormatException e) {
+                    // ignore corrupted entries
+                }
+            }
+        }
+        for (int i = 0; props.getProperty(REVISION_PREFIX + i) != null; i++) {
+            try {
+                Entry entry = new Entry();
+                entry.description = props.getProperty(DESCRIPTION_PREFIX + i);
+                entry.types = props.getProperty(TYPES_PREFIX + i);
+                entries.put(ModuleRevisionId.decode(props.getProperty(REVISION_PREFIX + i)), entry);
+            } catch (IllegalArgumentException e) {
+                // ignore corrupted entries
+            }
+        }
+    }
+
+    /**
+     * Persist the index if it changed
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        Properties props = new Properties();
+        for (Map.Entry<String, Long> listing : listings.entrySet()) {
+            props.setProperty(LISTING_PREFIX + listing.getKey(), String.valueOf(listing.getValue()));
+        }
+        int i = 0;
+        for (Map.Entry<ModuleRevisionId, Entry> entry : entries.entrySet()) {
+            props.setProperty(REVISION_PREFIX + i, entry.getKey().encodeToString());
+            if (entry.getValue().description != null) {
+                props.setProperty(DESCRIPTION_PREFIX + i, entry.getValue().description);
+                props.setProperty(TYPES_PREFIX + i, entry.getValue().types);
+            }
+            i++;
+        }
+        if (indexFile.getParentFile() != null && !indexFile.getParentFile().exists()) {
+            indexFile.getParentFile().mkdirs();
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(indexFile);
+            props.store(os, "EasyAnt module index");
+            dirty = false;
+        } catch (IOException e) {
+            Message.warn("unable to write module index " + indexFile + ": " + e.getMessage());
+        } finally {
+            FileUtils.close(os);
+        }
+    }
+
+    private static class Entry {
+
+        private String description;
+
+        private String types;
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * A repository packed in a single file, read through a memory-mapped index. Packing a repository made of thousands of
+ * small files makes it much cheaper to copy, checksum and scan, especially on network file systems.
+ * <p>
+ * A packed repository starts with a header, followed by a data region holding the content of each file and by an index
+ * of entries sorted by path. The header gives the location of the current index:
+ * 
+ * <pre>
+ * header: magic (int) version (int) index offset (long) index length (long)
+ * index:  entry count (int) entry positions (int[count]) entries
+ * entry:  path length (short) path (UTF-8) data offset (long) data length (long) last modified (long)
+ * </pre>
+ * 
+ * Files are only ever appended: adding files to a packed repository appends their content and a new index, then
+ * points the header to the new index, so that an interrupted update leaves the previous content readable.
+ * <p>
+ * Instances are safe for concurrent reads.
+ */
+public class PackedRepository {
+
+    private static final int MAGIC = 0x45415052; // "EAPR"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 24;
+
+    private static final String SEPARATOR = "/";
+
+    private final File archive;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer index;
+
+    private final int size;
+
+    private PackedRepository(File archive) throws IOException {
+        this.archive = archive;
+        file = new RandomAccessFile(archive, "r");
+        try {
+            channel = file.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            if (channel.read(header, 0) != HEADER_LENGTH || header.getInt(0) != MAGIC) {
+                throw new IOException(archive + " is not a packed repository");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported packed repository version " + header.getInt(4) + " in " + archive);
+            }
+            long indexOffset = header.getLong(8);
+            long indexLength = header.getLong(16);
+            if (indexOffset < HEADER_LENGTH || indexLength < 4 || indexOffset + indexLength > channel.size()) {
+                throw new IOException("Corrupted packed repository " + archive);
+            }
+            index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, indexLength);
+            size = index.getInt(0);
+        } catch (IOException e) {
+            closeFile(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Open a packed repository
+     * 
+     * @param archive
+     *            a file created by {@link #pack(File, File, boolean)}
+     * @return the packed repository, to be closed once no longer used
+     * @throws IOException
+     *             if the file cannot be read or is not a packed repository
+     */
+    public static PackedRepository open(File archive) throws IOException {
+        return new PackedRepository(archive);
+    }
+
+    /**
+     * Get the file holding this packed repository
+     */
+    public File getArchive() {
+        return archive;
+    }
+
+    /**
+     * Get the number of files of this packed repository
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether a file exists in this packed repository
+     * 
+     * @param path
+     *            path of the file, relative to the repository root and separated by slashes
+     */
+    public boolean exists(String path) {
+        return find(path) >= 0;
+    }
+
+    /**
+     * Get the length of a file
+     * 
+     * @param path
+     *            path of the file, relative to the repository root and separated by slashes
+     * @return a number of bytes, or -1 if the file doesn't exist
+     */
+    public long getLength(String path) {
+        int entry = find(path);
+        return entry < 0 ? -1 : index.getLong(getDataPosition(entry) + 8);
+    }
+
+    /**
+     * Get the last modification date of a file
+     * 
+     * @param path
+     *            path of the file, relative to the repository root and separated by slashes
+     * @return a number of milliseconds since the epoch, or 0 if the file doesn't exist
+     */
+    public long getLastModified(String path) {
+        int entry = find(path);
+        return entry < 0 ? 0 : index.getLong(getDataPosition(entry) + 16);
+    }
+
+    /**
+     * Read the content of a file. The content is mapped in memory and is not copied.
+     * 
+     * @param path
+     *            path of the file, relative to the repository root and separated by slashes
+     * @return a read-only buffer, or null if the file doesn't exist
+     * @throws IOException
+     *             if the content cannot be mapped
+     */
+    public ByteBuffer read(String path) throws IOException {
+        int entry = find(path);
+        if (entry < 0) {
+            return null;
+        }
+        int position = getDataPosition(entry);
+        return channel.map(FileChannel.MapMode.READ_ONLY, index.getLong(position), index.getLong(position + 8));
+    }
+
+    /**
+     * Copy the content of a file, letting the operating system transfer data without copying it through the JVM when
+     * possible
+     * 
+     * @param path
+     *            path of the file, relative to the repository root and separated by slashes
+     * @param destination
+     *            the file to write, which is overwritten
+     * @return the number of bytes copied
+     * @throws IOException
+     *             if the file doesn't exist or cannot be copied
+     */
+    public long copy(String path, File destination) throws IOException {
+        int entry = find(path);
+        if (entry < 0) {
+            throw new IOException(path + " not found in " + archive);
+        }
+        int position = getDataPosition(entry);
+        long offset = index.getLong(position);
+        long length = index.getLong(position + 8);
+        if (destination.getParentFile() != null) {
+            destination.getParentFile().mkdirs();
+        }
+        FileOutputStream out = new FileOutputStream(destination);
+        try {
+            FileChannel target = out.getChannel();
+            long copied = 0;
+            while (copied < length) {
+                long transferred = channel.transferTo(offset + copied, length - copied, target);
+                if (transferred <= 0) {
+                    throw new IOException("Truncated packed repository " + archive);
+                }
+                copied += transferred;
+            }
+        } finally {
+            FileUtils.close(out);
+        }
+        destination.setLastModified(index.getLong(position + 16));
+        return length;
+    }
+
+    /**
+     * List the children of a directory
+     * 
+     * @param directory
+     *            path of the directory, relative to the repository root and separated by slashes, or an empty string
+     *            for the repository root
+     * @return paths of the files and directories the directory contains, empty if it doesn't exist
+     */
+    public List<String> list(String directory) {
+        String prefix = directory.length() == 0 || directory.endsWith(SEPARATOR) ? directory : directory + SEPARATOR;
+        byte[] key = toBytes(prefix);
+        // first entry following the prefix
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        Set<String> children = new LinkedHashSet<String>();
+        for (int entry = low; entry < size; entry++) {
+            String path = getPath(entry);
+            if (!path.startsWith(prefix)) {
+                break;
+            }
+            int end = path.indexOf(SEPARATOR, prefix.length());
+            children.add(end < 0 ? path : path.substring(0, end));
+        }
+        return new ArrayList<String>(children);
+    }
+
+    /**
+     * Get the paths of all files of this packed repository
+     * 
+     * @return paths sorted in index order
+     */
+    public List<String> getPaths() {
+        List<String> paths = new ArrayList<String>(size);
+        for (int entry = 0; entry < size; entry++) {
+            paths.add(getPath(entry));
+        }
+        return paths;
+    }
+
+    /**
+     * Release the file held by this packed repository. Buffers already returned by {@link #read(String)} remain valid.
+     */
+    public void close() {
+        closeFile(file);
+    }
+
+    /*
+     * FileUtils only closes random access files from Ant 1.10 on
+     */
+    private static void closeFile(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /*
+     * binary search in the index, comparing raw UTF-8 bytes of paths without decoding them
+     */
+    private int find(String path) {
+        byte[] key = toBytes(path);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int entry, byte[] key) {
+        int position = index.getInt(4 + entry * 4);
+        int length = index.getShort(position) & 0xffff;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (index.get(position + 2 + i) & 0xff) - (key[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private String getPath(int entry) {
+        int position = index.getInt(4 + entry * 4);
+        byte[] path = new byte[index.getShort(position) & 0xffff];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = index.get(position + 2 + i);
+        }
+        try {
+            return new String(path, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * position of the data offset, length and last modified date of an entry
+     */
+    private int getDataPosition(int entry) {
+        int position = index.getInt(4 + entry * 4);
+        return position + 2 + (index.getShort(position) & 0xffff);
+    }
+
+    /**
+     * Pack all files of a directory
+     * 
+     * @param directory
+     *            a repository directory
+     * @param archive
+     *            the packed repository to write
+     * @param append
+     *            true to add files to an existing packed repository, replacing files with the same path, false to
+     *            create a new one
+     * @return the number of packed files
+     * @throws IOException
+     *             if a file cannot be read or the packed repository cannot be written
+     */
+    public static int pack(File directory, File archive, boolean append) throws IOException {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(directory);
+        scanner.scan();
+        Map<String, File> files = new TreeMap<String, File>();
+        for (String name : scanner.getIncludedFiles()) {
+            files.put(name.replace(File.separatorChar, '/'), new File(directory, name));
+        }
+        Map<String, long[]> entries = new TreeMap<String, long[]>();
+        if (append && archive.exists()) {
+            PackedRepository existing = open(archive);
+            try {
+                for (int entry = 0; entry < existing.size; entry++) {
+                    int position = existing.getDataPosition(entry);
+                    entries.put(existing.getPath(entry), new long[] { existing.index.getLong(position),
+                            existing.index.getLong(position + 8), existing.index.getLong(position + 16) });
+                }
+            } finally {
+                existing.close();
+            }
+        } else {
+            FileUtils.delete(archive);
+        }
+        if (archive.getParentFile() != null) {
+            archive.getParentFile().mkdirs();
+        }
+        RandomAccessFile out = new RandomAccessFile(archive, "rw");
+        try {
+            FileChannel channel = out.getChannel();
+            if (channel.size() < HEADER_LENGTH) {
+                // header is written once data and index are
+                channel.write(ByteBuffer.allocate(HEADER_LENGTH), 0);
+            }
+            long offset = channel.size();
+            for (Map.Entry<String, File> file : files.entrySet()) {
+                FileInputStream in = new FileInputStream(file.getValue());
+                try {
+                    long length = file.getValue().length();
+                    long copied = 0;
+                    while (copied < length) {
+                        long transferred = channel.transferFrom(in.getChannel(), offset + copied, length - copied);
+                        if (transferred <= 0) {
+                            throw new IOException(file.getValue() + " changed while being packed");
+                        }
+                        copied += transferred;
+                    }
+                    entries.put(file.getKey(), new long[] { offset, length, file.getValue().lastModified() });
+                    offset += length;
+                } finally {
+                    FileUtils.close(in);
+                }
+            }
+            byte[] index = writeIndex(entries);
+            channel.write(ByteBuffer.wrap(index), offset);
+            channel.force(false);
+            // publish the new index only once it is written
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC).putInt(VERSION).putLong(offset).putLong(index.length).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } finally {
+            closeFile(out);
+        }
+        return files.size();
+    }
+
+    private static byte[] writeIndex(Map<String, long[]> entries) throws IOException {
+        // index order is the order of UTF-8 bytes, which is the one used by binary searches
+        byte[][] paths = new byte[entries.size()][];
+        long[][] values = new long[entries.size()][];
+        int i = 0;
+        for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+            paths[i] = toBytes(entry.getKey());
+            if (paths[i].length > 0xffff) {
+                throw new IOException("Path too long: " + entry.getKey());
+            }
+            values[i++] = entry.getValue();
+        }
+        Integer[] order = new Integer[paths.length];
+        for (i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        final byte[][] sortedPaths = paths;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return compareBytes(sortedPaths[o1], sortedPaths[o2]);
+            }
+        });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(order.length);
+        int position = 4 + order.length * 4;
+        for (int entry : order) {
+            out.writeInt(position);
+            position += 2 + paths[entry].length + 24;
+        }
+        for (int entry : order) {
+            out.writeShort(paths[entry].length);
+            out.write(paths[entry]);
+            out.writeLong(values[entry][0]);
+            out.writeLong(values[entry][1]);
+            out.writeLong(values[entry][2]);
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Extract all files of a packed repository. Files escaping the target directory are rejected.
+     * 
+     * @param archive
+     *            a packed repository
+     * @param directory
+     *            directory receiving the files
+     * @return the number of extracted files
+     * @throws IOException
+     *             if the packed repository cannot be read or is invalid, or if a file cannot be written
+     */
+    public static int unpack(File archive, File directory) throws IOException {
+        String root = directory.getCanonicalPath() + File.separator;
+        PackedRepository repository = open(archive);
+        try {
+            List<String> paths = repository.getPaths();
+            for (String path : paths) {
+                File file = new File(directory, path);
+                if (!file.getCanonicalPath().startsWith(root)) {
+                    throw new IOException("Invalid packed repository entry " + path);
+                }
+                repository.copy(path, file);
+            }
+            return paths.size();
+        } finally {
+            repository.close();
+        }
+    }
+
+    private static byte[] toBytes(String path) {
+        try {
+            return path.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int compareBytes(byte[] b1, byte[] b2) {
+        int common = Math.min(b1.length, b2.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (b1[i] & 0xff) - (b2[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return b1.length - b2.length;
+    }
+}
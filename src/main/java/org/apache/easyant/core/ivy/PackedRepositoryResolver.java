@@ -0,0 +1,229 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.ivy.plugins.repository.AbstractRepository;
+import org.apache.ivy.plugins.repository.Resource;
+import org.apache.ivy.plugins.repository.TransferEvent;
+import org.apache.ivy.plugins.resolver.RepositoryResolver;
+
+/**
+ * Resolver reading descriptors and artifacts from a {@link PackedRepository}. Patterns are relative to the root of the
+ * packed repository, the same patterns as the ones of the packed directory are expected. This resolver is read only.
+ * <p>
+ * It can be declared in ivy settings:
+ * 
+ * <pre>
+ * &lt;typedef name="packed" classname="org.apache.easyant.core.ivy.PackedRepositoryResolver"/&gt;
+ * &lt;resolvers&gt;
+ *   &lt;packed name="offline" file="${basedir}/offline/project.pack"&gt;
+ *     &lt;ivy pattern="[organisation]/[module]/[revision]/[module].ivy"/&gt;
+ *     &lt;artifact pattern="[organisation]/[module]/[revision]/[artifact](-[classifier]).[ext]"/&gt;
+ *   &lt;/packed&gt;
+ * &lt;/resolvers&gt;
+ * </pre>
+ */
+public class PackedRepositoryResolver extends RepositoryResolver {
+
+    public PackedRepositoryResolver() {
+        setRepository(new PackedFileRepository());
+    }
+
+    /**
+     * Set the packed repository to read
+     * 
+     * @param file
+     *            a file created by {@link PackedRepository#pack(File, File, boolean)}
+     */
+    public void setFile(String file) {
+        getPackedFileRepository().setArchive(new File(file));
+    }
+
+    public String getFile() {
+        File archive = getPackedFileRepository().getArchive();
+        return archive == null ? null : archive.getAbsolutePath();
+    }
+
+    private PackedFileRepository getPackedFileRepository() {
+        return (PackedFileRepository) getRepository();
+    }
+
+    @Override
+    public String getTypeName() {
+        return "packed";
+    }
+
+    private static class PackedFileRepository extends AbstractRepository {
+
+        private File archive;
+
+        private PackedRepository packedRepository;
+
+        private synchronized File getArchive() {
+            return archive;
+        }
+
+        private synchronized void setArchive(File archive) {
+            if (packedRepository != null) {
+                packedRepository.close();
+                packedRepository = null;
+            }
+            this.archive = archive;
+        }
+
+        /*
+         * the packed repository is opened on first access, and kept open so that its index stays mapped
+         */
+        private synchronized PackedRepository getPackedRepository() throws IOException {
+            if (archive == null) {
+                throw new IOException("No file set for packed repository " + getName());
+            }
+            if (packedRepository == null) {
+                packedRepository = PackedRepository.open(archive);
+            }
+            return packedRepository;
+        }
+
+        public Resource getResource(String source) throws IOException {
+            return new PackedResource(getPackedRepository(), toPath(source));
+        }
+
+        public void get(String source, File destination) throws IOException {
+            String path = toPath(source);
+            Resource resource = new PackedResource(getPackedRepository(), path);
+            fireTransferInitiated(resource, TransferEvent.REQUEST_GET);
+            try {
+                getPackedRepository().copy(path, destination);
+                fireTransferCompleted(resource.getContentLength());
+            } catch (IOException e) {
+                fireTransferError(e);
+                throw e;
+            }
+        }
+
+        public List<String> list(String parent) throws IOException {
+            return getPackedRepository().list(toPath(parent));
+        }
+
+        private static String toPath(String source) {
+            String path = source.replace('\\', '/');
+            while (path.startsWith("/")) {
+                path = path.substring(1);
+            }
+            return path;
+        }
+    }
+
+    private static class PackedResource implements Resource {
+
+        private final PackedRepository packedRepository;
+
+        private final String path;
+
+        private PackedResource(PackedRepository packedRepository, String path) {
+            this.packedRepository = packedRepository;
+            this.path = path;
+        }
+
+        public String getName() {
+            return path;
+        }
+
+        public long getLastModified() {
+            return packedRepository.getLastModified(path);
+        }
+
+        public long getContentLength() {
+            return packedRepository.getLength(path);
+        }
+
+        public boolean exists() {
+            return packedRepository.exists(path);
+        }
+
+        public boolean isLocal() {
+            // content is not available as a file
+            return false;
+        }
+
+        public Resource clone(String cloneName) {
+            return new PackedResource(packedRepository, cloneName);
+        }
+
+        public InputStream openStream() throws IOException {
+            ByteBuffer content = packedRepository.read(path);
+            if (content == null) {
+                throw new IOException(path + " not found in " + packedRepository.getArchive());
+            }
+            return new ByteBufferInputStream(content);
+        }
+
+        @Override
+        public String toString() {
+            return packedRepository.getArchive() + "!" + path;
+        }
+    }
+
+    /**
+     * Stream reading a buffer without copying it
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
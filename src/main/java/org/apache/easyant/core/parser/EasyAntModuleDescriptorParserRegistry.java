@@ -0,0 +1,185 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.easyant.core.descriptor.EasyAntModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
+import org.apache.ivy.plugins.parser.ParserSettings;
+import org.apache.ivy.plugins.repository.Resource;
+
+/**
+ * Registry of easyant module descriptor parsers.
+ * <p>
+ * Ivy's {@link ModuleDescriptorParserRegistry} is JVM wide and can't forget a parser, so registering a parser per
+ * build makes it grow forever. Instead, easyant registers a single delegating parser in ivy's registry, delegating to
+ * the parser in use. Parsers registered here must be unregistered once they are not used anymore.
+ * <p>
+ * Parsers are bound to the thread registering them (and the threads it starts), so that concurrent builds each use
+ * their own parser. Threads which didn't register any parser use the default easyant parser rather than the parser of
+ * another build.
+ */
+public final class EasyAntModuleDescriptorParserRegistry {
+
+    private static final EasyAntModuleDescriptorParserRegistry INSTANCE = new EasyAntModuleDescriptorParserRegistry();
+
+    private final List<Registration> registrations = new ArrayList<Registration>();
+
+    private final InheritableThreadLocal<Registration> threadRegistration = new InheritableThreadLocal<Registration>();
+
+    private boolean registeredInIvy = false;
+
+    private EasyAntModuleDescriptorParserRegistry() {
+    }
+
+    public static EasyAntModuleDescriptorParserRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register a parser for the current thread. It takes precedence over parsers previously registered.
+     *
+     * @param parser
+     *            a parser
+     */
+    public synchronized void register(EasyAntModuleDescriptorParser parser) {
+        if (!registeredInIvy) {
+            ModuleDescriptorParserRegistry.getInstance().addParser(new DelegatingParser());
+            registeredInIvy = true;
+        }
+        Registration registration = new Registration(parser, threadRegistration.get());
+        registrations.add(registration);
+        threadRegistration.set(registration);
+    }
+
+    /**
+     * Unregister a parser
+     *
+     * @param parser
+     *            a parser previously registered
+     */
+    public synchronized void unregister(EasyAntModuleDescriptorParser parser) {
+        // remove last registration of this parser
+        for (int i = registrations.size() - 1; i >= 0; i--) {
+            Registration registration = registrations.get(i);
+            if (registration.parser == parser) {
+                registration.active = false;
+                registrations.remove(i);
+                break;
+            }
+        }
+        Registration current = threadRegistration.get();
+        while (current != null && !current.active) {
+            current = current.previous;
+        }
+        if (current == null) {
+            threadRegistration.remove();
+        } else {
+            threadRegistration.set(current);
+        }
+    }
+
+    /**
+     * Get the parser in use
+     *
+     * @return the last parser registered by the current thread if any, the default easyant parser otherwise
+     */
+    public synchronized EasyAntModuleDescriptorParser getParser() {
+        Registration registration = threadRegistration.get();
+        while (registration != null && !registration.active) {
+            registration = registration.previous;
+        }
+        if (registration != null) {
+            return registration.parser;
+        }
+        return DefaultEasyAntXmlModuleDescriptorParser.getInstance();
+    }
+
+    /**
+     * Number of registered parsers
+     */
+    public synchronized int size() {
+        return registrations.size();
+    }
+
+    private static class Registration {
+
+        private final EasyAntModuleDescriptorParser parser;
+
+        private final Registration previous;
+
+        private boolean active = true;
+
+        private Registration(EasyAntModuleDescriptorParser parser, Registration previous) {
+            this.parser = parser;
+            this.previous = previous;
+        }
+    }
+
+    /**
+     * Parser registered in ivy's registry, delegating to the parser in use
+     */
+    private class DelegatingParser implements EasyAntModuleDescriptorParser {
+
+        public boolean accept(Resource res) {
+            return getParser().accept(res);
+        }
+
+        public ModuleDescriptor parseDescriptor(ParserSettings ivySettings, URL descriptorURL, boolean validate)
+                throws ParseException, IOException {
+            return getParser().parseDescriptor(ivySettings, descriptorURL, validate);
+        }
+
+        public ModuleDescriptor parseDescriptor(ParserSettings ivySettings, URL descriptorURL, Resource res,
+                boolean validate) throws ParseException, IOException {
+            return getParser().parseDescriptor(ivySettings, descriptorURL, res, validate);
+        }
+
+        public void toIvyFile(InputStream is, Resource res, File destFile, ModuleDescriptor md)
+                throws ParseException, IOException {
+            getParser().toIvyFile(is, res, destFile, md);
+        }
+
+        public String getType() {
+            return getParser().getType();
+        }
+
+        public Artifact getMetadataArtifact(ModuleRevisionId mrid, Resource res) {
+            return getParser().getMetadataArtifact(mrid, res);
+        }
+
+        public EasyAntModuleDescriptor getEasyAntModuleDescriptor() {
+            return getParser().getEasyAntModuleDescriptor();
+        }
+
+        @Override
+        public String toString() {
+            return "easyant parser: " + getParser();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
+/**
+ * Updates available for the dependencies of a module, as found by comparing the dependencies it currently resolves
+ * with the ones it would resolve using the latest revisions.
+ */
+public class DependencyUpdateReport {
+
+    private final ModuleRevisionId moduleRevisionId;
+
+    private final List<DependencyUpdate> updates = new ArrayList<DependencyUpdate>();
+
+    private final List<ModuleRevisionId> newDependencies = new ArrayList<ModuleRevisionId>();
+
+    private final List<ModuleRevisionId> missingDependencies = new ArrayList<ModuleRevisionId>();
+
+    public DependencyUpdateReport(ModuleRevisionId moduleRevisionId) {
+        this.moduleRevisionId = moduleRevisionId;
+    }
+
+    /**
+     * Get the module whose dependencies have been checked
+     */
+    public ModuleRevisionId getModuleRevisionId() {
+        return moduleRevisionId;
+    }
+
+    public void addUpdate(ModuleRevisionId current, ModuleRevisionId latest, boolean transitive) {
+        updates.add(new DependencyUpdate(current, latest, transitive));
+    }
+
+    public List<DependencyUpdate> getUpdates() {
+        return Collections.unmodifiableList(updates);
+    }
+
+    /**
+     * Record a dependency only resolved with the latest revisions
+     */
+    public void addNewDependency(ModuleRevisionId mrid) {
+        newDependencies.add(mrid);
+    }
+
+    public List<ModuleRevisionId> getNewDependencies() {
+        return Collections.unmodifiableList(newDependencies);
+    }
+
+    /**
+     * Record a dependency not resolved anymore with the latest revisions
+     */
+    public void addMissingDependency(ModuleRevisionId mrid) {
+        missingDependencies.add(mrid);
+    }
+
+    public List<ModuleRevisionId> getMissingDependencies() {
+        return Collections.unmodifiableList(missingDependencies);
+    }
+
+    public static class DependencyUpdate {
+
+        private final ModuleRevisionId current;
+
+        private final ModuleRevisionId latest;
+
+        private final boolean transitive;
+
+        public DependencyUpdate(ModuleRevisionId current, ModuleRevisionId latest, boolean transitive) {
+            this.current = current;
+            this.latest = latest;
+            this.transitive = transitive;
+        }
+
+        /**
+         * Get the revision currently resolved
+         */
+        public ModuleRevisionId getCurrent() {
+            return current;
+        }
+
+        /**
+         * Get the latest revision available
+         */
+        public ModuleRevisionId getLatest() {
+            return latest;
+        }
+
+        /**
+         * Check whether this dependency is a transitive one rather than a direct dependency of the checked module
+         */
+        public boolean isTransitive() {
+            return transitive;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.easyant.core.report.DependencyUpdateReport.DependencyUpdate;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.XMLHelper;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.util.FileUtils;
+
+/**
+ * Writes {@link DependencyUpdateReport}s of one or several modules in xml or json format.
+ */
+public class DependencyUpdateReportWriter {
+
+    public static final String XML_FORMAT = "xml";
+
+    public static final String JSON_FORMAT = "json";
+
+    static final String REPORT_ENCODING = "UTF-8";
+
+    private final String format;
+
+    /**
+     * @param format
+     *            {@link #XML_FORMAT} or {@link #JSON_FORMAT}
+     */
+    public DependencyUpdateReportWriter(String format) {
+        if (!XML_FORMAT.equals(format) && !JSON_FORMAT.equals(format)) {
+            throw new IllegalArgumentException("Unknown dependency update report format: " + format);
+        }
+        this.format = format;
+    }
+
+    /**
+     * Write reports in a file, creating its parent directories if needed
+     *
+     * @param reports
+     *            reports to write
+     * @param reportFile
+     *            file to write
+     * @param format
+     *            {@link #XML_FORMAT}, {@link #JSON_FORMAT}, or null to write json in .json files and xml otherwise
+     * @throws BuildException
+     *             if the format is unknown or the file can't be written
+     */
+    public static void write(Collection<DependencyUpdateReport> reports, File reportFile, String format) {
+        if (format == null) {
+            format = reportFile.getName().endsWith(".json") ? JSON_FORMAT : XML_FORMAT;
+        }
+        DependencyUpdateReportWriter writer;
+        try {
+            writer = new DependencyUpdateReportWriter(format);
+        } catch (IllegalArgumentException e) {
+            throw new BuildException(e.getMessage());
+        }
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(reportFile);
+            writer.output(reports, os);
+        } catch (IOException e) {
+            throw new BuildException("impossible to write dependency update report " + reportFile + ": " + e, e);
+        } finally {
+            FileUtils.close(os);
+        }
+    }
+
+    public void output(Collection<DependencyUpdateReport> reports, OutputStream stream) {
+        PrintWriter out;
+        try {
+            out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(stream, REPORT_ENCODING)));
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(REPORT_ENCODING + " is not known on your jvm", e);
+        }
+        if (XML_FORMAT.equals(format)) {
+            outputXml(reports, out);
+        } else {
+            outputJson(reports, out);
+        }
+        out.flush();
+    }
+
+    private void outputXml(Collection<DependencyUpdateReport> reports, PrintWriter out) {
+        out.println("<?xml version=\"1.0\" encoding=\"" + REPORT_ENCODING + "\"?>");
+        out.println("<dependency-updates version=\"1.0\">");
+        for (DependencyUpdateReport report : reports) {
+            out.println("\t<module " + toXmlAttributes(report.getModuleRevisionId()) + ">");
+            for (DependencyUpdate update : report.getUpdates()) {
+                out.println("\t\t<update " + toXmlAttributes(update.getCurrent()) + " latest=\""
+                        + XMLHelper.escape(update.getLatest().getRevision()) + "\" transitive=\""
+                        + update.isTransitive() + "\"/>");
+            }
+            for (ModuleRevisionId mrid : report.getNewDependencies()) {
+                out.println("\t\t<new " + toXmlAttributes(mrid) + "/>");
+            }
+            for (ModuleRevisionId mrid : report.getMissingDependencies()) {
+                out.println("\t\t<missing " + toXmlAttributes(mrid) + "/>");
+            }
+            out.println("\t</module>");
+        }
+        out.println("</dependency-updates>");
+    }
+
+    private String toXmlAttributes(ModuleRevisionId mrid) {
+        return "organisation=\"" + XMLHelper.escape(mrid.getOrganisation()) + "\" name=\""
+                + XMLHelper.escape(mrid.getName()) + "\" revision=\"" + XMLHelper.escape(mrid.getRevision()) + "\"";
+    }
+
+    private void outputJson(Collection<DependencyUpdateReport> reports, PrintWriter out) {
+        out.println("{");
+        out.println("  \"modules\": [");
+        for (Iterator<DependencyUpdateReport> it = reports.iterator(); it.hasNext();) {
+            DependencyUpdateReport report = it.next();
+            out.println("    {");
+            out.println("      " + toJsonFields(report.getModuleRevisionId()) + ",");
+            out.println("      \"updates\": [");
+            for (Iterator<DependencyUpdate> updates = report.getUpdates().iterator(); updates.hasNext();) {
+                DependencyUpdate update = updates.next();
+                out.println("        { " + toJsonFields(update.getCurrent()) + ", \"latest\": "
+                        + toJsonString(update.getLatest().getRevision()) + ", \"transitive\": "
+                        + update.isTransitive() + " }" + (updates.hasNext() ? "," : ""));
+            }
+            out.println("      ],");
+            outputJson("new", report.getNewDependencies(), out);
+            out.println(",");
+            outputJson("missing", report.getMissingDependencies(), out);
+            out.println();
+            out.println("    }" + (it.hasNext() ? "," : ""));
+        }
+        out.println("  ]");
+        out.println("}");
+    }
+
+    private void outputJson(String name, List<ModuleRevisionId> mrids, PrintWriter out) {
+        out.println("      \"" + name + "\": [");
+        for (Iterator<ModuleRevisionId> it = mrids.iterator(); it.hasNext();) {
+            out.println("        { " + toJsonFields(it.next()) + " }" + (it.hasNext() ? "," : ""));
+        }
+        out.print("      ]");
+    }
+
+    private String toJsonFields(ModuleRevisionId mrid) {
+        return "\"organisation\": " + toJsonString(mrid.getOrganisation()) + ", \"name\": "
+                + toJsonString(mrid.getName()) + ", \"revision\": " + toJsonString(mrid.getRevision());
+    }
+
+    private static String toJsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
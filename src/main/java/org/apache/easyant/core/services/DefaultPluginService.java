@@ -20,12 +20,15 @@ package org.apache.easyant.core.services;
 import org.apache.easyant.core.EasyAntConstants;
 import org.apache.easyant.core.EasyAntMagicNames;
 import org.apache.easyant.core.ant.ProjectUtils;
+import org.apache.easyant.core.ant.StaticTaskInspector;
 import org.apache.easyant.core.ant.listerners.TaskCollectorFromImplicitTargetListener;
 import org.apache.easyant.core.descriptor.EasyAntModuleDescriptor;
 import org.apache.easyant.core.descriptor.PluginType;
 import org.apache.easyant.core.descriptor.PropertyDescriptor;
+import org.apache.easyant.core.ivy.ModuleIndex;
 import org.apache.easyant.core.parser.DefaultEasyAntXmlModuleDescriptorParser;
 import org.apache.easyant.core.parser.EasyAntModuleDescriptorParser;
+import org.apache.easyant.core.parser.EasyAntModuleDescriptorParserRegistry;
 import org.apache.easyant.core.report.*;
 import org.apache.easyant.tasks.*;
 import org.apache.ivy.Ivy;
@@ -40,7 +43,6 @@ import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.matcher.PatternMatcher;
-import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
 import org.apache.ivy.plugins.repository.url.URLResource;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.util.Message;
@@ -55,7 +57,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -91,7 +97,14 @@ public class DefaultPluginService implements PluginService {
             throw new IllegalArgumentException("You must set a valid easyant module descriptor parser");
         }
         this.parser = parser;
-        ModuleDescriptorParserRegistry.getInstance().addParser(parser);
+        EasyAntModuleDescriptorParserRegistry.getInstance().register(parser);
+    }
+
+    /**
+     * Release resources registered by this plugin service. The plugin service should not be used once closed.
+     */
+    public void close() {
+        EasyAntModuleDescriptorParserRegistry.getInstance().unregister(parser);
     }
 
     public EasyAntReport getPluginInfo(File pluginIvyFile, File sourceDirectory, String conf) throws Exception {
@@ -198,6 +211,7 @@ public class DefaultPluginService implements PluginService {
         TaskCollectorFromImplicitTargetListener listener = new TaskCollectorFromImplicitTargetListener();
         listener.addClassToCollect(ParameterTask.class);
         listener.addClassToCollect(Property.class);
+        listener.addClassToCollect(PropertiesTask.class);
         listener.addClassToCollect(Import.class);
         listener.addClassToCollect(ImportDeferred.class);
         listener.addClassToCollect(Path.class);
@@ -246,55 +260,108 @@ public class DefaultPluginService implements PluginService {
         }
     }
 
-    private Object maybeConfigureTask(Task task) {
-        if (task.getRuntimeConfigurableWrapper().getProxy() instanceof UnknownElement) {
-            UnknownElement ue = (UnknownElement) task.getRuntimeConfigurableWrapper().getProxy();
-            ue.maybeConfigure();
-            return ue.getRealThing();
-        } else if (task instanceof UnknownElement) {
-            UnknownElement ue = (UnknownElement) task;
-            ue.maybeConfigure();
-            return ue.getRealThing();
-        } else {
-            return task;
+    /**
+     * Report a task without configuring it: its attributes are read as parsed
+     */
+    private void handleTask(Project project, EasyAntReport eaReport, String conf, Task task) throws Exception {
+        if (isA(project, task, ParameterTask.class)) {
+            handleParameterTask(task, eaReport);
+        }
+        if (isA(project, task, Property.class)) {
+            handleProperty(getAttributes(task), getText(task), task, eaReport);
+        }
+        if (isA(project, task, PropertiesTask.class)) {
+            if (isConfigured(task)) {
+                for (PropertyTask property : ((PropertiesTask) task).getProperties()) {
+                    handleProperty(getAttributes(property), null, task, eaReport);
+                }
+            } else {
+                for (RuntimeConfigurable property : StaticTaskInspector.getChildren(task
+                        .getRuntimeConfigurableWrapper())) {
+                    handleProperty(StaticTaskInspector.getAttributes(project, property),
+                            StaticTaskInspector.getText(project, property), task, eaReport);
+                }
+            }
+        }
+        if (isA(project, task, Import.class)) {
+            handleImport(task, eaReport, conf);
+        }
+
+        if (isA(project, task, ImportDeferred.class)) {
+            handleImportDeferred(task, eaReport, conf);
+        }
+        if (isA(project, task, Path.class)) {
+            handlePathParameter(task.getRuntimeConfigurableWrapper().getId(), task, eaReport);
+        }
+        if (isA(project, task, PathTask.class)) {
+            handlePathParameter(getAttributes(task).get("pathid"), task, eaReport);
+        }
+        if (isA(project, task, FileSet.class)) {
+            handleFilesetParameter(task.getRuntimeConfigurableWrapper().getId(), task, eaReport);
         }
     }
 
-    private void handleTask(Project project, EasyAntReport eaReport, String conf, Task task) throws Exception {
-        Class<?> taskClass = ComponentHelper.getComponentHelper(project).getComponentClass(task.getTaskType());
-        if (taskClass != null) {
-            if (ParameterTask.class.isAssignableFrom(taskClass)) {
-                ParameterTask parameterTask = (ParameterTask) maybeConfigureTask(task);
-                handleParameterTask(parameterTask, eaReport);
-            }
-            if (Property.class.isAssignableFrom(taskClass)) {
-                Property propertyTask = (Property) maybeConfigureTask(task);
-                handleProperty(propertyTask, eaReport);
-            }
-            if (Import.class.isAssignableFrom(taskClass)) {
-                Import importTask = (Import) maybeConfigureTask(task);
-                handleImport(importTask, eaReport, conf);
-            }
+    /**
+     * Check whether a task has been created and configured programmatically (by {@link LoadModule} for instance)
+     * rather than parsed from a build file
+     */
+    private boolean isConfigured(Task task) {
+        return !(task instanceof UnknownElement)
+                && !(task.getRuntimeConfigurableWrapper().getProxy() instanceof UnknownElement);
+    }
 
-            if (ImportDeferred.class.isAssignableFrom(taskClass)) {
-                ImportDeferred importTask = (ImportDeferred) maybeConfigureTask(task);
-                handleImportDeferred(importTask, eaReport, conf);
-            }
-            if (Path.class.isAssignableFrom(taskClass)) {
-                Path path = (Path) maybeConfigureTask(task);
-                handlePathParameter(task.getRuntimeConfigurableWrapper().getId(), path, task.getOwningTarget(),
-                        eaReport);
-            }
-            if (PathTask.class.isAssignableFrom(taskClass)) {
-                PathTask pathTask = (PathTask) maybeConfigureTask(task);
-                handlePathParameter(pathTask, eaReport);
-            }
-            if (FileSet.class.isAssignableFrom(taskClass)) {
-                FileSet fileSet = (FileSet) maybeConfigureTask(task);
-                handleFilesetParameter(task.getRuntimeConfigurableWrapper().getId(), fileSet, task.getOwningTarget(),
-                        eaReport);
-            }
+    private boolean isA(Project project, Task task, Class<?> type) {
+        return isConfigured(task) ? type.isInstance(task) : StaticTaskInspector.isA(project, task.getTaskType(),
+                type);
+    }
+
+    private String getText(Task task) {
+        return isConfigured(task) ? null : StaticTaskInspector.getText(task.getProject(),
+                task.getRuntimeConfigurableWrapper());
+    }
+
+    /**
+     * Get the attributes of a task, read as parsed, or from its getters if it has been configured programmatically
+     */
+    private Map<String, String> getAttributes(Task task) {
+        if (!isConfigured(task)) {
+            return StaticTaskInspector.getAttributes(task);
         }
+        Map<String, String> attributes = new HashMap<String, String>();
+        attributes.put("description", task.getDescription());
+        if (task instanceof AbstractImport) {
+            AbstractImport importTask = (AbstractImport) task;
+            attributes.put("mandatory", String.valueOf(importTask.isMandatory()));
+            attributes.put("mode", importTask.getMode());
+            attributes.put("as", importTask.getAs());
+        }
+        if (task instanceof Import) {
+            Import importTask = (Import) task;
+            attributes.put("mrid", importTask.getMrid());
+            attributes.put("organisation", importTask.getOrganisation());
+            attributes.put("module", importTask.getModule());
+            attributes.put("revision", importTask.getRevision());
+        } else if (task instanceof ImportDeferred) {
+            ImportDeferred importTask = (ImportDeferred) task;
+            attributes.put("organisation", importTask.getOrganisation());
+            attributes.put("module", importTask.getModule());
+        } else if (task instanceof Property) {
+            Property property = (Property) task;
+            attributes.put("name", property.getName());
+            attributes.put("value", property.getValue());
+            attributes.put("file", property.getFile() != null ? property.getFile().getAbsolutePath() : null);
+        } else if (task instanceof ParameterTask) {
+            ParameterTask parameterTask = (ParameterTask) task;
+            attributes.put("property", parameterTask.getProperty());
+            attributes.put("path", parameterTask.getPath());
+            attributes.put("default", parameterTask.getDefault());
+            // Use unsafe version since we are in audit mode and we want the real value of the required field
+            attributes.put("required", String.valueOf(parameterTask.isRequiredUnsafe()));
+            attributes.put("description", parameterTask.getDescription());
+        } else if (task instanceof PathTask) {
+            attributes.put("pathid", ((PathTask) task).getPathid());
+        }
+        return attributes;
     }
 
     private boolean isCurrentModule(Project project, Location location) {
@@ -306,16 +373,17 @@ public class DefaultPluginService implements PluginService {
         return location != null && location.getFileName().equals(rootModuleLocation);
     }
 
-    private void handleImport(Import importTask, EasyAntReport eaReport, String conf) throws Exception {
+    private void handleImport(Task importTask, EasyAntReport eaReport, String conf) throws Exception {
+        Map<String, String> attributes = getAttributes(importTask);
         ImportedModuleReport importedModuleReport = new ImportedModuleReport();
 
-        importedModuleReport.setModuleMrid(importTask.getMrid());
-        importedModuleReport.setOrganisation(importTask.getOrganisation());
-        importedModuleReport.setModule(importTask.getModule());
-        importedModuleReport.setRevision(importTask.getRevision());
-        importedModuleReport.setMandatory(importTask.isMandatory());
-        importedModuleReport.setMode(importTask.getMode());
-        importedModuleReport.setAs(importTask.getAs());
+        importedModuleReport.setModuleMrid(attributes.get("mrid"));
+        importedModuleReport.setOrganisation(StaticTaskInspector.getAttribute(attributes, "organisation", "org"));
+        importedModuleReport.setModule(attributes.get("module"));
+        importedModuleReport.setRevision(StaticTaskInspector.getAttribute(attributes, "revision", "rev"));
+        importedModuleReport.setMandatory(StaticTaskInspector.getBoolean(attributes, "mandatory", false));
+        importedModuleReport.setMode(attributes.get("mode"));
+        importedModuleReport.setAs(attributes.get("as"));
 
         EasyAntReport pluginInfo = getPluginInfo(ModuleRevisionId.parse(importedModuleReport.getModuleMrid()), conf);
         importedModuleReport.setEasyantReport(pluginInfo);
@@ -326,27 +394,30 @@ public class DefaultPluginService implements PluginService {
                 + importedModuleReport.getMode());
     }
 
-    private void handleImportDeferred(ImportDeferred importTask, EasyAntReport eaReport, String conf) throws Exception {
+    private void handleImportDeferred(Task importTask, EasyAntReport eaReport, String conf) throws Exception {
+        Map<String, String> attributes = getAttributes(importTask);
         ImportedModuleReport importedModuleReport = new ImportedModuleReport();
 
-        importedModuleReport.setOrganisation(importTask.getOrganisation());
-        importedModuleReport.setModule(importTask.getModule());
+        String organisation = StaticTaskInspector.getAttribute(attributes, "organisation", "org");
+        String module = attributes.get("module");
+        importedModuleReport.setOrganisation(organisation);
+        importedModuleReport.setModule(module);
         ResolveReport resolveReport = importTask.getProject().getReference(
                 EasyAntMagicNames.IMPORTED_MODULES_RESOLVE_REPORT_REF);
         if (resolveReport != null) {
             for (Object o : resolveReport.getDependencies()) {
                 IvyNode dependency = (IvyNode) o;
-                if (dependency.getResolvedId().getOrganisation().equals(importTask.getOrganisation()) //
-                        && dependency.getResolvedId().getName().equals(importTask.getModule())) {
+                if (dependency.getResolvedId().getOrganisation().equals(organisation) //
+                        && dependency.getResolvedId().getName().equals(module)) {
                     importedModuleReport.setRevision(dependency.getResolvedId().getRevision());
                 }
 
             }
         }
 
-        importedModuleReport.setMandatory(importTask.isMandatory());
-        importedModuleReport.setMode(importTask.getMode());
-        importedModuleReport.setAs(importTask.getAs());
+        importedModuleReport.setMandatory(StaticTaskInspector.getBoolean(attributes, "mandatory", false));
+        importedModuleReport.setMode(attributes.get("mode"));
+        importedModuleReport.setAs(attributes.get("as"));
 
         EasyAntReport pluginInfo = getPluginInfo(ModuleRevisionId.parse(importedModuleReport.getModuleMrid()), conf);
         importedModuleReport.setEasyantReport(pluginInfo);
@@ -357,11 +428,12 @@ public class DefaultPluginService implements PluginService {
                 + importedModuleReport.getMode());
     }
 
-    private void handleProperty(Property property, EasyAntReport eaReport) throws IOException {
+    private void handleProperty(Map<String, String> attributes, String text, Task property, EasyAntReport eaReport)
+            throws IOException {
         boolean isCurrentModule = isCurrentModule(property.getProject(), property.getLocation());
-        if (property.getFile() != null) {
+        if (attributes.get("file") != null) {
             Properties propToLoad = new Properties();
-            File f = property.getFile();
+            File f = property.getProject().resolveFile(attributes.get("file"));
             if (f.exists()) {
                 FileInputStream fis = null;
 
@@ -380,7 +452,7 @@ public class DefaultPluginService implements PluginService {
                     }
 
                 } catch (IOException e) {
-                    IOException ioe = new IOException("Unable to parse the property file :" + property.getFile());
+                    IOException ioe = new IOException("Unable to parse the property file :" + f);
                     ioe.initCause(e);
                     throw ioe;
                 } finally {
@@ -391,38 +463,47 @@ public class DefaultPluginService implements PluginService {
             }
 
         }
-        if (property.getName() != null) {
-            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(property.getName());
-            propertyDescriptor.setValue(property.getValue());
+        String name = attributes.get("name");
+        if (name != null) {
+            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(name);
+            String value = attributes.get("value");
+            if (value == null && attributes.get("location") != null) {
+                value = property.getProject().resolveFile(attributes.get("location")).getAbsolutePath();
+            }
+            propertyDescriptor.setValue(value != null ? value : text);
             if (property.getOwningTarget() != null) {
                 propertyDescriptor.setOwningTarget(property.getOwningTarget().getName());
             }
-            eaReport.addPropertyDescriptor(property.getName(), propertyDescriptor, isCurrentModule);
+            eaReport.addPropertyDescriptor(name, propertyDescriptor, isCurrentModule);
         }
     }
 
-    private void handleParameterTask(ParameterTask parameterTask, EasyAntReport eaReport) {
+    private void handleParameterTask(Task parameterTask, EasyAntReport eaReport) {
         boolean isCurrentModule = isCurrentModule(parameterTask.getProject(), parameterTask.getLocation());
-
-        if (parameterTask.getProperty() != null) {
-            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(parameterTask.getProperty());
-            propertyDescriptor.setDefaultValue(parameterTask.getDefault());
-            // Use unsafe version since we are in audit mode and we want the real value of the required field 
-            // (#isRequired method will always return false in audit mode)
-            propertyDescriptor.setRequired(parameterTask.isRequiredUnsafe());
-            propertyDescriptor.setDescription(parameterTask.getDescription());
+        Map<String, String> attributes = getAttributes(parameterTask);
+        String description = attributes.get("description");
+        String text = getText(parameterTask);
+        if (text != null) {
+            description = description == null ? text : description + text;
+        }
+        // the required attribute is read as declared, audit mode doesn't apply
+        boolean required = StaticTaskInspector.getBoolean(attributes, "required", false);
+
+        if (attributes.get("property") != null) {
+            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(attributes.get("property"));
+            propertyDescriptor.setDefaultValue(attributes.get("default"));
+            propertyDescriptor.setRequired(required);
+            propertyDescriptor.setDescription(description);
             if (parameterTask.getOwningTarget() != null) {
                 propertyDescriptor.setOwningTarget(parameterTask.getOwningTarget().getName());
             }
             Message.debug("Ant file has a property called : " + propertyDescriptor.getName());
             eaReport.addPropertyDescriptor(propertyDescriptor.getName(), propertyDescriptor, isCurrentModule);
-        } else if (parameterTask.getPath() != null) {
+        } else if (attributes.get("path") != null) {
             ParameterReport parameterReport = new ParameterReport(ParameterType.PATH);
-            parameterReport.setName(parameterTask.getPath());
-            // Use unsafe version since we are in audit mode and we want the real value of the required field 
-            // (#isRequired method will always return false in audit mode)
-            parameterReport.setRequired(parameterTask.isRequiredUnsafe());
-            parameterReport.setDescription(parameterTask.getDescription());
+            parameterReport.setName(attributes.get("path"));
+            parameterReport.setRequired(required);
+            parameterReport.setDescription(description);
             if (parameterTask.getOwningTarget() != null) {
                 parameterReport.setOwningTarget(parameterTask.getOwningTarget().getName());
             }
@@ -431,14 +512,14 @@ public class DefaultPluginService implements PluginService {
         }
     }
 
-    private void handleFilesetParameter(String id, FileSet fileSet, Target target, EasyAntReport eaReport) {
+    private void handleFilesetParameter(String id, Task fileSet, EasyAntReport eaReport) {
         ParameterReport parameterReport = new ParameterReport(ParameterType.FILESET);
         if (id != null) {
             parameterReport.setName(id);
             parameterReport.setRequired(false);
-            parameterReport.setDescription(fileSet.getDescription());
-            if (target != null) {
-                parameterReport.setOwningTarget(target.getName());
+            parameterReport.setDescription(getAttributes(fileSet).get("description"));
+            if (fileSet.getOwningTarget() != null) {
+                parameterReport.setOwningTarget(fileSet.getOwningTarget().getName());
             }
             eaReport.addParameterReport(parameterReport, isCurrentModule(fileSet.getProject(), fileSet.getLocation()));
             Message.debug("Ant file has a fileset called : " + parameterReport.getName());
@@ -446,34 +527,20 @@ public class DefaultPluginService implements PluginService {
 
     }
 
-    private void handlePathParameter(String pathid, Path path, Target target, EasyAntReport eaReport) {
+    private void handlePathParameter(String pathid, Task path, EasyAntReport eaReport) {
         ParameterReport parameterReport = new ParameterReport(ParameterType.PATH);
         if (pathid != null) {
             parameterReport.setName(pathid);
             parameterReport.setRequired(false);
-            parameterReport.setDescription(path.getDescription());
-            if (target != null) {
-                parameterReport.setOwningTarget(target.getName());
+            parameterReport.setDescription(getAttributes(path).get("description"));
+            if (path.getOwningTarget() != null) {
+                parameterReport.setOwningTarget(path.getOwningTarget().getName());
             }
             eaReport.addParameterReport(parameterReport, isCurrentModule(path.getProject(), path.getLocation()));
             Message.debug("Ant file has a path called : " + parameterReport.getName());
         }
     }
 
-    private void handlePathParameter(PathTask pathTask, EasyAntReport eaReport) {
-        ParameterReport parameterReport = new ParameterReport(ParameterType.PATH);
-        if (pathTask.getPathid() != null) {
-            parameterReport.setName(pathTask.getPathid());
-            parameterReport.setRequired(false);
-            parameterReport.setDescription(pathTask.getDescription());
-            if (pathTask.getOwningTarget() != null) {
-                parameterReport.setOwningTarget(pathTask.getOwningTarget().getName());
-            }
-            eaReport.addParameterReport(parameterReport, isCurrentModule(pathTask.getProject(), pathTask.getLocation()));
-            Message.debug("Ant file has a path called : " + parameterReport.getName());
-        }
-    }
-
     private void handleTarget(Target target, EasyAntReport eaReport) {
         boolean isCurrentModule = isCurrentModule(target.getProject(), target.getLocation());
         boolean isExtensionPoint = target instanceof ExtensionPoint;
@@ -550,13 +617,15 @@ public class DefaultPluginService implements PluginService {
                     + moduleDescriptor.getAbsolutePath());
         }
         IvyContext.pushNewContext().setIvy(ivyInstance);
-        // First we need to parse the specified file to retrieve all the easyant
-        // stuff
-        parser.parseDescriptor(ivyInstance.getSettings(), moduleDescriptor.toURI().toURL(), new URLResource(
-                moduleDescriptor.toURI().toURL()), true);
-        EasyAntModuleDescriptor md = parser.getEasyAntModuleDescriptor();
-        IvyContext.popContext();
-        return md;
+        try {
+            // First we need to parse the specified file to retrieve all the easyant
+            // stuff
+            parser.parseDescriptor(ivyInstance.getSettings(), moduleDescriptor.toURI().toURL(), new URLResource(
+                    moduleDescriptor.toURI().toURL()), true);
+            return parser.getEasyAntModuleDescriptor();
+        } finally {
+            IvyContext.popContext();
+        }
     }
 
     public EasyAntReport generateEasyAntReport(File moduleDescriptor, File optionalAntModule, File overrideAntModule)
@@ -616,11 +685,14 @@ public class DefaultPluginService implements PluginService {
 
         PatternMatcher patternMatcher = settings.getMatcher(matcher);
         if (PatternMatcher.ANY_EXPRESSION.equals(resolver)) {
-            // search in all resolvers. this can be quite slow for complex
-            // repository configurations
-            // with ChainResolvers, since resolvers in chains will be searched
-            // multiple times.
-            return ivyInstance.listModules(criteria, patternMatcher);
+            // search in all resolvers. resolvers in chains are searched
+            // multiple times, their module indexes limit the cost of this
+            List<ModuleRevisionId> result = new ArrayList<ModuleRevisionId>();
+            for (Object dependencyResolver : settings.getResolvers()) {
+                result.addAll(Arrays.asList(searchIndex((DependencyResolver) dependencyResolver, criteria,
+                        patternMatcher)));
+            }
+            return result.toArray(new ModuleRevisionId[result.size()]);
         } else {
             // limit search to the specified resolver.
             DependencyResolver dependencyResolver = resolver == null ? settings.getDefaultResolver() : settings
@@ -628,16 +700,18 @@ public class DefaultPluginService implements PluginService {
             if (dependencyResolver == null) {
                 throw new IllegalArgumentException("Unknown dependency resolver for search: " + resolver);
             }
-
-            ivyInstance.pushContext();
-            try {
-                return ivyInstance.getSearchEngine().listModules(dependencyResolver, criteria, patternMatcher);
-            } finally {
-                ivyInstance.popContext();
-            }
+            return searchIndex(dependencyResolver, criteria, patternMatcher);
         }
     }
 
+    private ModuleRevisionId[] searchIndex(DependencyResolver dependencyResolver, ModuleRevisionId criteria,
+            PatternMatcher patternMatcher) {
+        ModuleIndex index = ModuleIndex.getInstance(easyantIvySettings.getProject(), dependencyResolver);
+        ModuleRevisionId[] mrids = index.search(ivyInstance, dependencyResolver, criteria, patternMatcher);
+        index.save();
+        return mrids;
+    }
+
     public ModuleRevisionId[] search(String organisation, String moduleName) throws Exception {
         return search(organisation, moduleName, null, null, PatternMatcher.EXACT_OR_REGEXP, null);
     }
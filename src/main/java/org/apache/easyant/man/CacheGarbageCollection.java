@@ -0,0 +1,62 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.man;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ivy.IvyInstanceHelper;
+import org.apache.easyant.tasks.CacheGc;
+import org.apache.tools.ant.types.Reference;
+
+/**
+ * Implements support for -cacheGc easyant switch.
+ * 
+ * Evicts least recently used module revisions from easyant and project repository caches. The maximum cache size can
+ * be given as argument, otherwise "cache.gc.max.size" and "cache.gc.max.age" properties are used.
+ */
+public class CacheGarbageCollection extends EasyantOption {
+
+    private static final long serialVersionUID = 1L;
+
+    public CacheGarbageCollection() throws IllegalArgumentException {
+        super("cacheGc", true, "Evict least recently used modules from repository caches down to the given size");
+        setOptionalArg(true);
+        setArgName("maxsize");
+        setStopBuild(true);
+    }
+
+    public void execute() {
+        collect(IvyInstanceHelper.buildEasyAntIvyReference(getProject()));
+        String projectIvyInstance = IvyInstanceHelper.getProjectIvyInstanceName(getProject());
+        if (!EasyAntMagicNames.EASYANT_IVY_INSTANCE.equals(projectIvyInstance)
+                && getProject().getReference(projectIvyInstance) != null) {
+            collect(IvyInstanceHelper.buildProjectIvyReference(getProject()));
+        }
+    }
+
+    private void collect(Reference ivyInstance) {
+        CacheGc cacheGc = new CacheGc();
+        cacheGc.setProject(getProject());
+        cacheGc.setTaskName("cache-gc");
+        cacheGc.setSettingsRef(ivyInstance);
+        if (getValue() != null) {
+            cacheGc.setMaxSize(getValue());
+        }
+        cacheGc.execute();
+    }
+
+}
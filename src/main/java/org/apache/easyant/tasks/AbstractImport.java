@@ -19,14 +19,19 @@ package org.apache.easyant.tasks;
 
 import java.io.File;
 
+import org.apache.easyant.core.BuildConfigurationMatcher.RequestedBuildConfigurations;
 import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ant.EasyAntComponentHelper;
+import org.apache.easyant.core.ant.PluginClassLoaderPool;
 import org.apache.ivy.core.LogOptions;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.tools.ant.AntClassLoader;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.MagicNames;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.ImportTask;
 import org.apache.tools.ant.types.Path;
@@ -51,6 +56,7 @@ public abstract class AbstractImport extends AbstractEasyAntTask {
     private String mode;
     private boolean mandatory;
     private String buildConfigurations;
+    private RequestedBuildConfigurations requestedBuildConfigurations;
     private String mainConf = "default";
     private String providedConf = "provided";
     private boolean changing = false;
@@ -84,6 +90,7 @@ public abstract class AbstractImport extends AbstractEasyAntTask {
                         artifact.getLocalFile());
             }
         }
+        registerModuleClassLoader(moduleRevisionId.getModuleId(), path);
         // effective import should be executed AFTER any other resource files has been handled
         if (antFile != null && antFile.exists()) {
             doEffectiveImport(antFile);
@@ -182,6 +189,28 @@ public abstract class AbstractImport extends AbstractEasyAntTask {
         return path;
     }
 
+    /**
+     * Register a class loader for a module classpath. Class loaders come from {@link PluginClassLoaderPool}, so
+     * projects importing the same plugin revisions share loaded classes. Taskdefs and typedefs using the module
+     * classpath reference are given this class loader by {@link EasyAntComponentHelper}, other ones are left
+     * untouched. This can be disabled by setting "easyant.plugin.classloader.pool" property to false.
+     * 
+     * @param moduleId
+     *            the imported module
+     * @param path
+     *            the module classpath
+     */
+    protected void registerModuleClassLoader(ModuleId moduleId, Path path) {
+        String poolEnabled = getProject().getProperty(EasyAntMagicNames.PLUGIN_CLASSLOADER_POOL);
+        if (poolEnabled != null && !Project.toBoolean(poolEnabled) || path.size() == 0) {
+            return;
+        }
+        AntClassLoader loader = PluginClassLoaderPool.getInstance().getClassLoader(
+                PluginClassLoaderPool.getParent(getProject()), PluginClassLoaderPool.toFiles(path.list()));
+        getProject().addReference(MagicNames.REFID_CLASSPATH_LOADER_PREFIX + moduleId.toString() + ".classpath",
+                loader);
+    }
+
     /**
      * Configures resolve options
      * 
@@ -293,12 +322,24 @@ public abstract class AbstractImport extends AbstractEasyAntTask {
         return buildConfigurations;
     }
 
+    /**
+     * Get build configurations of this task, parsed only once
+     */
+    protected RequestedBuildConfigurations getRequestedBuildConfigurations() {
+        if (requestedBuildConfigurations == null && buildConfigurations != null) {
+            requestedBuildConfigurations = new RequestedBuildConfigurations(buildConfigurations);
+        }
+        return requestedBuildConfigurations;
+    }
+
     public void setBuildConfigurations(String conf) {
         this.buildConfigurations = conf;
+        this.requestedBuildConfigurations = null;
     }
 
     public void setConf(String conf) {
         this.buildConfigurations = conf;
+        this.requestedBuildConfigurations = null;
     }
 
     /**
@@ -18,6 +18,7 @@
 package org.apache.easyant.tasks;
 
 import org.apache.easyant.core.BuildConfigurationHelper;
+import org.apache.easyant.core.BuildConfigurationMatcher.RequestedBuildConfigurations;
 import org.apache.tools.ant.*;
 
 import java.util.Enumeration;
@@ -29,10 +30,12 @@ public class BindTarget extends Task {
 
     private String buildConfigurations;
 
+    private RequestedBuildConfigurations requestedBuildConfigurations;
+
     public void execute() throws BuildException {
         String message = "extension-point mapping for target " + getTarget();
-        if (!BuildConfigurationHelper.isBuildConfigurationActive(getBuildConfigurations(), getProject(),
-                message)) {
+        if (!BuildConfigurationHelper.isRequestedBuildConfigurationActive(getRequestedBuildConfigurations(),
+                getProject(), message)) {
             log("no matching build configuration for this extension-point mapping, this mapping will be ignored",
                     Project.MSG_DEBUG);
             return;
@@ -116,12 +119,24 @@ public class BindTarget extends Task {
         return buildConfigurations;
     }
 
+    /**
+     * Get build configurations of this task, parsed only once
+     */
+    private RequestedBuildConfigurations getRequestedBuildConfigurations() {
+        if (requestedBuildConfigurations == null && buildConfigurations != null) {
+            requestedBuildConfigurations = new RequestedBuildConfigurations(buildConfigurations);
+        }
+        return requestedBuildConfigurations;
+    }
+
     public void setBuildConfigurations(String buildConfigurations) {
         this.buildConfigurations = buildConfigurations;
+        this.requestedBuildConfigurations = null;
     }
 
     public void setConf(String conf) {
         this.buildConfigurations = conf;
+        this.requestedBuildConfigurations = null;
     }
 
 }
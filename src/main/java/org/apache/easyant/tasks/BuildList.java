@@ -0,0 +1,328 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.easyant.core.EasyAntConstants;
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ant.BuildListSnapshot;
+import org.apache.ivy.ant.IvyAntSettings;
+import org.apache.ivy.ant.IvyBuildList;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.Path;
+import org.apache.tools.ant.types.Reference;
+
+/**
+ * Compute the sorted list of build files of a multi-module project, as ivy:buildlist does, and record it in a
+ * {@link BuildListSnapshot}. As long as no module descriptor changed, the build list is restored from the snapshot
+ * without loading ivy settings nor parsing and sorting module descriptors.
+ * <p>
+ * The snapshot is stored in the user cache by default, another location can be set through the snapshot attribute or
+ * the {@link EasyAntMagicNames#BUILD_LIST_SNAPSHOT_FILE} property.
+ */
+public class BuildList extends Task {
+
+    private static final String SORTED_MODULES_PROPERTY = "ivy.sorted.modules";
+
+    private final List<FileSet> buildFileSets = new ArrayList<FileSet>();
+
+    private String reference;
+
+    private String ivyFilePath = "ivy.xml";
+
+    private String root = "*";
+
+    private String leaf = "*";
+
+    private boolean excludeRoot = false;
+
+    private boolean excludeLeaf = false;
+
+    private String delimiter = ",";
+
+    private boolean onlyDirectDep = false;
+
+    private boolean haltOnError = true;
+
+    private String onMissingDescriptor = IvyBuildList.OnMissingDescriptor.HEAD;
+
+    private boolean reverse = false;
+
+    private String restartFrom = "*";
+
+    private Reference settingsRef;
+
+    private File snapshotFile;
+
+    public void execute() throws BuildException {
+        if (reference == null) {
+            throw new BuildException("reference attribute is mandatory");
+        }
+        Map<File, File> descriptors = getDescriptors();
+        String configuration = getConfiguration();
+        File file = snapshotFile != null ? snapshotFile : getDefaultSnapshotFile();
+        BuildListSnapshot snapshot = BuildListSnapshot.load(file, getProject());
+        if (snapshot.isUpToDate(configuration, descriptors)) {
+            Path path = new Path(getProject());
+            for (File buildFile : snapshot.getBuildFiles()) {
+                path.createPathElement().setLocation(buildFile);
+            }
+            getProject().addReference(reference, path);
+            getProject().setProperty(SORTED_MODULES_PROPERTY, snapshot.getSortedModules());
+            log("Build list of " + descriptors.size() + " modules restored from " + file, Project.MSG_VERBOSE);
+            return;
+        }
+
+        IvyBuildList buildList = new IvyBuildList();
+        buildList.setProject(getProject());
+        buildList.setTaskName(getTaskName());
+        buildList.setLocation(getLocation());
+        buildList.setOwningTarget(getOwningTarget());
+        for (FileSet fileSet : buildFileSets) {
+            buildList.addFileset(fileSet);
+        }
+        buildList.setReference(reference);
+        buildList.setIvyfilepath(ivyFilePath);
+        buildList.setRoot(root);
+        buildList.setLeaf(leaf);
+        buildList.setExcludeRoot(excludeRoot);
+        buildList.setExcludeLeaf(excludeLeaf);
+        buildList.setDelimiter(delimiter);
+        buildList.setOnlydirectdep(onlyDirectDep);
+        buildList.setHaltonerror(haltOnError);
+        buildList.setOnMissingDescriptor(onMissingDescriptor);
+        buildList.setReverse(reverse);
+        buildList.setRestartFrom(restartFrom);
+        if (settingsRef != null) {
+            buildList.setSettingsRef(settingsRef);
+        }
+        buildList.execute();
+
+        List<File> buildFiles = new ArrayList<File>();
+        for (String buildFile : ((Path) getProject().getReference(reference)).list()) {
+            buildFiles.add(new File(buildFile));
+        }
+        snapshot.record(configuration, descriptors, buildFiles, getProject().getProperty(SORTED_MODULES_PROPERTY),
+                getDependencies(buildFiles, descriptors));
+        snapshot.save(getProject());
+    }
+
+    /*
+     * module descriptor of each build file, sorted by build file
+     */
+    private Map<File, File> getDescriptors() {
+        Map<File, File> descriptors = new TreeMap<File, File>();
+        for (FileSet fileSet : buildFileSets) {
+            DirectoryScanner scanner = fileSet.getDirectoryScanner(getProject());
+            for (String name : scanner.getIncludedFiles()) {
+                File buildFile = new File(scanner.getBasedir(), name).getAbsoluteFile();
+                descriptors.put(buildFile, new File(buildFile.getParentFile(), ivyFilePath));
+            }
+        }
+        return descriptors;
+    }
+
+    private String getConfiguration() {
+        return reference + "|" + ivyFilePath + "|" + root + "|" + leaf + "|" + excludeRoot + "|" + excludeLeaf + "|"
+                + delimiter + "|" + onlyDirectDep + "|" + onMissingDescriptor + "|" + reverse + "|" + restartFrom
+                + "|" + (settingsRef == null ? "" : settingsRef.getRefId());
+    }
+
+    private File getDefaultSnapshotFile() {
+        String file = getProject().getProperty(EasyAntMagicNames.BUILD_LIST_SNAPSHOT_FILE);
+        if (file != null) {
+            return getProject().resolveFile(file);
+        }
+        File dir = new File(getProject().replaceProperties(EasyAntConstants.DEFAULT_BUILD_LIST_SNAPSHOT_DIR));
+        String key = getProject().getBaseDir().getAbsolutePath() + "|" + reference;
+        return new File(dir, Integer.toHexString(key.hashCode()) + ".properties");
+    }
+
+    /*
+     * organisation#module names of the modules of the build list each module depends on. Descriptors are parsed again
+     * without validation, which is cheap compared to the settings loading and sorting done by ivy:buildlist.
+     */
+    private Map<String, Set<String>> getDependencies(List<File> buildFiles, Map<File, File> descriptors) {
+        IvyAntSettings ivyAntSettings = settingsRef == null ? IvyAntSettings.getDefaultInstance(this)
+                : (IvyAntSettings) settingsRef.getReferencedObject(getProject());
+        IvySettings settings = ivyAntSettings.getConfiguredIvyInstance(this).getSettings();
+        Map<ModuleId, ModuleDescriptor> modules = new HashMap<ModuleId, ModuleDescriptor>();
+        for (File buildFile : buildFiles) {
+            File descriptor = descriptors.get(buildFile.getAbsoluteFile());
+            if (descriptor == null || !descriptor.isFile()) {
+                continue;
+            }
+            try {
+                ModuleDescriptor md = ModuleDescriptorParserRegistry.getInstance().parseDescriptor(settings,
+                        descriptor.toURI().toURL(), false);
+                modules.put(md.getModuleRevisionId().getModuleId(), md);
+            } catch (ParseException e) {
+                log("Unable to parse " + descriptor + ": " + e.getMessage(), Project.MSG_VERBOSE);
+            } catch (IOException e) {
+                log("Unable to read " + descriptor + ": " + e.getMessage(), Project.MSG_VERBOSE);
+            }
+        }
+        Map<String, Set<String>> dependencies = new TreeMap<String, Set<String>>();
+        for (ModuleDescriptor md : modules.values()) {
+            Set<String> moduleDependencies = new TreeSet<String>();
+            for (DependencyDescriptor dependency : md.getDependencies()) {
+                ModuleId dependencyId = dependency.getDependencyRevisionId().getModuleId();
+                if (modules.containsKey(dependencyId)) {
+                    moduleDependencies.add(dependencyId.toString());
+                }
+            }
+            dependencies.put(md.getModuleRevisionId().getModuleId().toString(), moduleDependencies);
+        }
+        return dependencies;
+    }
+
+    public void addFileset(FileSet buildFiles) {
+        buildFileSets.add(buildFiles);
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    public String getIvyfilepath() {
+        return ivyFilePath;
+    }
+
+    public void setIvyfilepath(String ivyFilePath) {
+        this.ivyFilePath = ivyFilePath;
+    }
+
+    public String getRoot() {
+        return root;
+    }
+
+    public void setRoot(String root) {
+        this.root = root;
+    }
+
+    public String getLeaf() {
+        return leaf;
+    }
+
+    public void setLeaf(String leaf) {
+        this.leaf = leaf;
+    }
+
+    public boolean isExcludeRoot() {
+        return excludeRoot;
+    }
+
+    public void setExcludeRoot(boolean excludeRoot) {
+        this.excludeRoot = excludeRoot;
+    }
+
+    public boolean isExcludeLeaf() {
+        return excludeLeaf;
+    }
+
+    public void setExcludeLeaf(boolean excludeLeaf) {
+        this.excludeLeaf = excludeLeaf;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public boolean getOnlydirectdep() {
+        return onlyDirectDep;
+    }
+
+    public void setOnlydirectdep(boolean onlyDirectDep) {
+        this.onlyDirectDep = onlyDirectDep;
+    }
+
+    public boolean isHaltonerror() {
+        return haltOnError;
+    }
+
+    public void setHaltonerror(boolean haltOnError) {
+        this.haltOnError = haltOnError;
+    }
+
+    public String getOnMissingDescriptor() {
+        return onMissingDescriptor;
+    }
+
+    public void setOnMissingDescriptor(String onMissingDescriptor) {
+        this.onMissingDescriptor = onMissingDescriptor;
+    }
+
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    public void setReverse(boolean reverse) {
+        this.reverse = reverse;
+    }
+
+    public String getRestartFrom() {
+        return restartFrom;
+    }
+
+    public void setRestartFrom(String restartFrom) {
+        this.restartFrom = restartFrom;
+    }
+
+    public Reference getSettingsRef() {
+        return settingsRef;
+    }
+
+    public void setSettingsRef(Reference settingsRef) {
+        this.settingsRef = settingsRef;
+    }
+
+    public File getSnapshot() {
+        return snapshotFile;
+    }
+
+    public void setSnapshot(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+}
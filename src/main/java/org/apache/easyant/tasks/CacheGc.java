@@ -0,0 +1,271 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ivy.CacheAccessLog;
+import org.apache.easyant.core.ivy.CacheGarbageCollector;
+import org.apache.easyant.core.ivy.CacheGarbageCollector.CachedModuleRevision;
+import org.apache.ivy.ant.IvyTask;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+/**
+ * This task evicts least recently used module revisions from repository caches (including build scoped caches) until
+ * they fit in a given size, and/or evicts module revisions unused for a given amount of time. Module revisions
+ * referenced by resolve reports of the current build are never evicted.
+ *
+ * <pre>
+ * &lt;ea:cache-gc maxsize="2g" maxage="30d" settingsRef="easyant.ivy.instance"/&gt;
+ * </pre>
+ */
+public class CacheGc extends IvyTask {
+
+    private String cache;
+
+    private String maxSize;
+
+    private String maxAge;
+
+    private boolean dryRun = false;
+
+    @Override
+    public void doExecute() throws BuildException {
+        long maxSizeInBytes = parseSize(getMaxSize());
+        long maxAgeInMillis = parseDuration(getMaxAge());
+        if (maxSizeInBytes < 0 && maxAgeInMillis < 0) {
+            throw new BuildException("maxsize or maxage attribute is mandatory");
+        }
+        // flush pending accesses of the running build before reading them
+        CacheAccessLog.saveAll();
+
+        for (DefaultRepositoryCacheManager cacheManager : getCacheManagers()) {
+            CacheGarbageCollector gc = new CacheGarbageCollector(cacheManager, getSettings());
+            gc.setMaxSize(maxSizeInBytes);
+            gc.setMaxAge(maxAgeInMillis);
+            gc.setDryRun(dryRun);
+            for (ResolveReport report : getCurrentResolveReports()) {
+                gc.addProtectedModule(report.getModuleDescriptor().getModuleRevisionId());
+                for (Object o : report.getDependencies()) {
+                    IvyNode node = (IvyNode) o;
+                    gc.addProtectedModule(node.getId());
+                    if (node.getResolvedId() != null) {
+                        gc.addProtectedModule(node.getResolvedId());
+                    }
+                }
+            }
+            List<CachedModuleRevision> evicted = gc.collect();
+            long freed = 0;
+            for (CachedModuleRevision revision : evicted) {
+                freed += revision.getSize();
+            }
+            log((dryRun ? "[dry run] " : "") + cacheManager.getName() + ": " + evicted.size()
+                    + " module revision(s) evicted, " + freed / 1024 + "kB freed", Project.MSG_INFO);
+        }
+    }
+
+    /**
+     * Get cache managers to clean. Build scoped caches are registered as regular cache managers in ivy settings.
+     */
+    private List<DefaultRepositoryCacheManager> getCacheManagers() {
+        IvySettings settings = getSettings();
+        List<RepositoryCacheManager> candidates = new ArrayList<RepositoryCacheManager>();
+        candidates.add(settings.getDefaultRepositoryCacheManager());
+        for (RepositoryCacheManager cacheManager : settings.getRepositoryCacheManagers()) {
+            candidates.add(cacheManager);
+        }
+        List<DefaultRepositoryCacheManager> cacheManagers = new ArrayList<DefaultRepositoryCacheManager>();
+        Set<File> basedirs = new HashSet<File>();
+        for (RepositoryCacheManager candidate : candidates) {
+            if (!(candidate instanceof DefaultRepositoryCacheManager)) {
+                continue;
+            }
+            DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) candidate;
+            if (cache != null && !cache.equals(cacheManager.getName())) {
+                continue;
+            }
+            if (cacheManager.getBasedir() != null && basedirs.add(cacheManager.getBasedir().getAbsoluteFile())) {
+                cacheManagers.add(cacheManager);
+            }
+        }
+        if (cache != null && cacheManagers.isEmpty()) {
+            throw new BuildException("unknown repository cache " + cache);
+        }
+        return cacheManagers;
+    }
+
+    private List<ResolveReport> getCurrentResolveReports() {
+        List<ResolveReport> reports = new ArrayList<ResolveReport>();
+        for (Object reference : getProject().getReferences().values()) {
+            if (reference instanceof ResolveReport) {
+                reports.add((ResolveReport) reference);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Parse a size expressed in bytes, optionally suffixed with kb, mb or gb. A bare m is rejected as it means minutes
+     * in durations.
+     *
+     * @return the size in bytes, -1 if size is null
+     */
+    static long parseSize(String size) {
+        if (size == null || size.trim().length() == 0) {
+            return -1;
+        }
+        String value = size.trim().toLowerCase();
+        long multiplier = 1;
+        if (value.endsWith("m")) {
+            throw new BuildException("invalid size " + size + ", use mb for megabytes");
+        }
+        if (value.endsWith("b")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        if (value.endsWith("k")) {
+            multiplier = 1024L;
+        } else if (value.endsWith("m")) {
+            multiplier = 1024L * 1024;
+        } else if (value.endsWith("g")) {
+            multiplier = 1024L * 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value.trim()) * multiplier;
+        } catch (NumberFormatException e) {
+            throw new BuildException("invalid size " + size);
+        }
+    }
+
+    /**
+     * Parse a duration expressed in days, optionally suffixed with d (days), h (hours) or m (minutes)
+     *
+     * @return the duration in milliseconds, -1 if duration is null
+     */
+    static long parseDuration(String duration) {
+        if (duration == null || duration.trim().length() == 0) {
+            return -1;
+        }
+        String value = duration.trim().toLowerCase();
+        long multiplier = 24L * 60 * 60 * 1000;
+        if (value.endsWith("h")) {
+            multiplier = 60L * 60 * 1000;
+        } else if (value.endsWith("m")) {
+            multiplier = 60L * 1000;
+        }
+        if (value.endsWith("d") || value.endsWith("h") || value.endsWith("m")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value.trim()) * multiplier;
+        } catch (NumberFormatException e) {
+            throw new BuildException("invalid duration " + duration);
+        }
+    }
+
+    /**
+     * Get the name of the repository cache to clean
+     *
+     * @return a cache name, or null if all caches should be cleaned
+     */
+    public String getCache() {
+        return cache;
+    }
+
+    /**
+     * Set the name of the repository cache to clean. If not set, all repository caches of the ivy instance are
+     * cleaned.
+     *
+     * @param cache
+     *            a cache name
+     */
+    public void setCache(String cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Get the maximum size of each cache. Defaults to the value of "cache.gc.max.size" property
+     *
+     * @return a size (e.g. 512mb, 2gb)
+     */
+    public String getMaxSize() {
+        if (maxSize == null) {
+            return getProject().getProperty(EasyAntMagicNames.CACHE_GC_MAX_SIZE);
+        }
+        return maxSize;
+    }
+
+    /**
+     * Set the maximum size of each cache
+     *
+     * @param maxSize
+     *            a size in bytes, optionally suffixed by kb, mb or gb (e.g. 512mb, 2gb)
+     */
+    public void setMaxSize(String maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the maximum time a module revision can stay unused. Defaults to the value of "cache.gc.max.age" property
+     *
+     * @return a duration (e.g. 30d)
+     */
+    public String getMaxAge() {
+        if (maxAge == null) {
+            return getProject().getProperty(EasyAntMagicNames.CACHE_GC_MAX_AGE);
+        }
+        return maxAge;
+    }
+
+    /**
+     * Set the maximum time a module revision can stay unused
+     *
+     * @param maxAge
+     *            a number of days, optionally suffixed by d (days), h (hours) or m (minutes) (e.g. 30d, 12h)
+     */
+    public void setMaxAge(String maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * When true, only report what would be evicted
+     *
+     * @param dryRun
+     *            true to keep cache untouched
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+}
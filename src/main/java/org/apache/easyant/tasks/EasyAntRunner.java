@@ -42,9 +42,13 @@ public class EasyAntRunner extends Task {
         if (fork) {
             eaEngine.doBuild();
         } else {
-            eaEngine.configureEasyAnt(getProject());
-            eaEngine.loadProject(getProject());
-            getProject().executeTargets(new Vector(getEasyantConfiguration().getTargets()));
+            try {
+                eaEngine.configureEasyAnt(getProject());
+                eaEngine.loadProject(getProject());
+                getProject().executeTargets(new Vector(getEasyantConfiguration().getTargets()));
+            } finally {
+                eaEngine.close();
+            }
         }
     }
 
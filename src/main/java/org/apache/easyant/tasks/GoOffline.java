@@ -18,31 +18,56 @@
 package org.apache.easyant.tasks;
 
 import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ant.ThreadPools;
+import org.apache.easyant.core.cache.ModuleFingerprint;
 import org.apache.easyant.core.ivy.IvyInstanceHelper;
 import org.apache.easyant.core.report.EasyAntReport;
 import org.apache.easyant.core.report.ImportedModuleReport;
 import org.apache.easyant.core.services.PluginService;
-import org.apache.ivy.ant.IvyAntSettings;
+import org.apache.ivy.Ivy;
 import org.apache.ivy.ant.IvyInstall;
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 
 /**
  * Provide go offline feature. It retrieves all easyant modules used by the project (plugins, buildtype) and all project
  * dependencies. You can then define target resolver name where all artifacts will get installed. You can combine
  * GoOffline task with ConfigureBuildScopeRepository, to have everything embedded in your project directory
- * 
+ * <p>
+ * Module revisions to install are computed first, so that each of them is installed only once even if it is used by
+ * several plugins or dependencies. Checking whether a revision is already installed in the target resolver with the
+ * same artifacts, and downloading the artifacts of the others, run concurrently. Revisions are then installed one at a
+ * time, as publishing to a resolver is not thread safe.
  */
 public class GoOffline extends AbstractEasyAntTask {
 
     private String projectResolverName;
     private String easyantResolverName;
     private File moduleIvy;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
 
     @Override
     public void execute() throws BuildException {
@@ -64,75 +89,219 @@ public class GoOffline extends AbstractEasyAntTask {
         PluginService pluginService = getProject().getReference(
                 EasyAntMagicNames.PLUGIN_SERVICE_INSTANCE);
         EasyAntReport easyAntReport;
+        Set<Installation> installations = new LinkedHashSet<Installation>();
         try {
             easyAntReport = pluginService.generateEasyAntReport(moduleIvy);
-            installBuildTypeAndPlugins(easyAntReport);
-            installProjectDependencies(easyAntReport);
+            addBuildTypeAndPlugins(easyAntReport, installations);
+            addProjectDependencies(easyAntReport, installations);
         } catch (Exception e) {
             throw new BuildException("Can't retrieve project report", e);
         }
-
+        install(getTransitiveInstallations(installations));
     }
 
     /***
-     * Install project dependencies
+     * Add project dependencies to the modules to install
      * 
      * @param easyAntReport
      *            {@link EasyAntReport} where project dependencies are described
+     * @param installations
+     *            modules to install
      */
-    private void installProjectDependencies(EasyAntReport easyAntReport) {
+    private void addProjectDependencies(EasyAntReport easyAntReport, Set<Installation> installations) {
         for (DependencyDescriptor dependencyDescriptor : easyAntReport.getModuleDescriptor().getDependencies()) {
-            install(dependencyDescriptor.getDependencyRevisionId(), getProjectResolverName(),
-                    IvyInstanceHelper.getProjectIvyInstanceName(getProject()));
+            installations.add(new Installation(dependencyDescriptor.getDependencyRevisionId(),
+                    getProjectResolverName(), IvyInstanceHelper.getProjectIvyInstanceName(getProject())));
         }
     }
 
     /**
-     * Install easyant plugins and buildtypes used by a project
+     * Add easyant plugins and buildtypes used by a project to the modules to install
      * 
      * @param easyAntReport
      *            {@link EasyAntReport} where plugin / buildtypes is described
+     * @param installations
+     *            modules to install
      */
-    private void installBuildTypeAndPlugins(EasyAntReport easyAntReport) {
+    private void addBuildTypeAndPlugins(EasyAntReport easyAntReport, Set<Installation> installations) {
         for (ImportedModuleReport importedModule : easyAntReport.getImportedModuleReports()) {
-            install(ModuleRevisionId.parse(importedModule.getModuleMrid()), getEasyantResolverName(),
-                    EasyAntMagicNames.EASYANT_IVY_INSTANCE);
-            if (importedModule.getEasyantReport() != null) {
-                // install module dependencies
-                ResolveReport resolveReport = importedModule.getEasyantReport().getResolveReport();
-                for (Object o : resolveReport.getDependencies()) {
+            Installation installation = new Installation(ModuleRevisionId.parse(importedModule.getModuleMrid()),
+                    getEasyantResolverName(), EasyAntMagicNames.EASYANT_IVY_INSTANCE);
+            // plugins imported by several modules are walked only once
+            if (installations.add(installation) && importedModule.getEasyantReport() != null) {
+                addBuildTypeAndPlugins(importedModule.getEasyantReport(), installations);
+            }
+        }
+    }
+
+    /**
+     * Resolve modules to install with all their configurations, and collect the revisions of all their dependencies.
+     * Only metadata are resolved, artifacts are downloaded later on.
+     */
+    private Set<Installation> getTransitiveInstallations(Set<Installation> installations) {
+        Set<Installation> transitiveInstallations = new LinkedHashSet<Installation>();
+        for (Installation installation : installations) {
+            Ivy ivy = getIvyInstance(installation.ivyInstanceRef);
+            ResolveOptions options = new ResolveOptions();
+            options.setConfs(getPublicConfigurations(ivy, installation.moduleRevisionId));
+            options.setDownload(false);
+            options.setOutputReport(false);
+            try {
+                ResolveReport report = ivy.resolve(installation.moduleRevisionId, options, false);
+                for (Object o : report.getDependencies()) {
                     IvyNode dependency = (IvyNode) o;
-                    install(dependency.getResolvedId(), getEasyantResolverName(),
-                            EasyAntMagicNames.EASYANT_IVY_INSTANCE);
+                    if (!dependency.isCompletelyEvicted() && !dependency.hasProblem()) {
+                        transitiveInstallations.add(new Installation(dependency.getResolvedId(),
+                                installation.targetResolver, installation.ivyInstanceRef));
+                    }
+                }
+                if (!report.hasError()) {
+                    continue;
                 }
-                // install plugins declared inside current module
+                for (Object problem : report.getAllProblemMessages()) {
+                    log(String.valueOf(problem), Project.MSG_WARN);
+                }
+            } catch (ParseException e) {
+                log("Can't resolve " + installation.moduleRevisionId + ": " + e.getMessage(), Project.MSG_WARN);
+            } catch (IOException e) {
+                log("Can't resolve " + installation.moduleRevisionId + ": " + e.getMessage(), Project.MSG_WARN);
+            }
+            // let the installation report the failure
+            transitiveInstallations.add(installation);
+        }
+        return transitiveInstallations;
+    }
 
-                installBuildTypeAndPlugins(importedModule.getEasyantReport());
+    /**
+     * Download artifacts of module revisions concurrently, then install those which are not installed yet once all of
+     * them are downloaded. Publishing to a resolver is not thread safe, revisions are installed one at a time.
+     */
+    private void install(Set<Installation> installations) {
+        if (installations.isEmpty()) {
+            return;
+        }
+        List<Callable<Boolean>> checks = new ArrayList<Callable<Boolean>>();
+        for (final Installation installation : installations) {
+            checks.add(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return isInstalled(installation);
+                }
+            });
+        }
+        // installing makes the source resolver the dictator of the whole settings, so that checks still
+        // running would look at the wrong repository: all of them are over before the first installation
+        boolean[] installed = new boolean[checks.size()];
+        try {
+            List<Future<Boolean>> upToDate = ThreadPools.invokeAll(getTaskName(), threadCount, checks);
+            for (int i = 0; i < installed.length; i++) {
+                installed[i] = upToDate.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while downloading modules", e);
+        } catch (ExecutionException e) {
+            throw new BuildException("Can't download modules", e.getCause());
+        }
+        int skipped = 0;
+        int i = 0;
+        for (Installation installation : installations) {
+            if (installed[i++]) {
+                log(installation.moduleRevisionId + " is already installed in " + installation.targetResolver,
+                        Project.MSG_VERBOSE);
+                skipped++;
+            } else {
+                install(installation);
             }
+        }
+        log((installations.size() - skipped) + " module revisions installed, " + skipped + " already up to date");
+    }
 
+    /**
+     * Download the artifacts of a module revision in the cache, and check whether the target resolver already contains
+     * its descriptor and the same artifacts. Only file system resolvers are checked, revisions are always installed
+     * in other ones.
+     */
+    private boolean isInstalled(Installation installation) throws ParseException, IOException {
+        Ivy ivy = getIvyInstance(installation.ivyInstanceRef);
+        ivy.pushContext();
+        try {
+            ResolveOptions options = new ResolveOptions();
+            options.setConfs(getPublicConfigurations(ivy, installation.moduleRevisionId));
+            options.setTransitive(false);
+            options.setOutputReport(false);
+            ResolveReport report = ivy.resolve(installation.moduleRevisionId, options, false);
+            DependencyResolver target = ivy.getSettings().getResolver(installation.targetResolver);
+            if (report.hasError() || !(target instanceof FileSystemResolver)) {
+                return false;
+            }
+            FileSystemResolver repository = (FileSystemResolver) target;
+            File descriptor = getInstalledFile(repository,
+                    DefaultArtifact.newIvyArtifact(installation.moduleRevisionId, null));
+            if (descriptor == null || !descriptor.isFile()) {
+                return false;
+            }
+            for (ArtifactDownloadReport artifactReport : report.getAllArtifactsReports()) {
+                File cached = artifactReport.getLocalFile();
+                File installed = getInstalledFile(repository, artifactReport.getArtifact());
+                if (cached == null || installed == null || !installed.isFile() || installed.length() != cached.length()
+                        || !ModuleFingerprint.checksum(installed).equals(ModuleFingerprint.checksum(cached))) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            ivy.popContext();
         }
     }
 
-    private void install(ModuleRevisionId moduleRevisionId, String targetResolver, String ivyInstanceRef) {
+    /**
+     * Get the configurations a module revision can be resolved with. All configurations are requested if its
+     * descriptor cannot be found, to let the resolve report the failure.
+     */
+    private String[] getPublicConfigurations(Ivy ivy, ModuleRevisionId moduleRevisionId) {
+        // Ivy 2.4 expands "*" to private configurations too, which cannot be resolved from a caller
+        ResolvedModuleRevision module = ivy.findModule(moduleRevisionId);
+        return module == null ? new String[] { "*" } : module.getDescriptor().getPublicConfigurationsNames();
+    }
+
+    /**
+     * Get the file where a file system resolver publishes an artifact, null if it cannot be computed
+     */
+    private File getInstalledFile(FileSystemResolver repository, Artifact artifact) {
+        List<?> patterns = "ivy".equals(artifact.getType()) && !repository.getIvyPatterns().isEmpty() ? repository
+                .getIvyPatterns() : repository.getArtifactPatterns();
+        if (patterns.isEmpty() || repository.isM2compatible()) {
+            return null;
+        }
+        Object pattern = patterns.get(0);
+        return new File(IvyPatternHelper.substitute((String) pattern, artifact.getModuleRevisionId(), artifact));
+    }
+
+    private void install(Installation installation) {
+        ModuleRevisionId moduleRevisionId = installation.moduleRevisionId;
         IvyInstall install = new IvyInstall();
-        install.setSettingsRef(IvyInstanceHelper.buildIvyReference(getProject(), ivyInstanceRef));
+        install.setSettingsRef(IvyInstanceHelper.buildIvyReference(getProject(), installation.ivyInstanceRef));
 
         // locate source resolver
-        IvyAntSettings ivyAntSettings = IvyInstanceHelper.getIvyAntSettings(getProject(), ivyInstanceRef);
-        String from = ivyAntSettings.getConfiguredIvyInstance(this).getSettings().getResolverName(moduleRevisionId);
+        String from = getIvyInstance(installation.ivyInstanceRef).getSettings().getResolverName(moduleRevisionId);
         install.setFrom(from);
 
-        install.setTo(targetResolver);
+        install.setTo(installation.targetResolver);
         install.setOrganisation(moduleRevisionId.getOrganisation());
         install.setModule(moduleRevisionId.getName());
         install.setRevision(moduleRevisionId.getRevision());
         install.setOverwrite(true);
         install.setHaltonfailure(false);
-        install.setTransitive(true);
+        // dependencies are installed on their own
+        install.setTransitive(false);
         initTask(install).execute();
 
     }
 
+    private Ivy getIvyInstance(String ivyInstanceRef) {
+        return IvyInstanceHelper.getIvyAntSettings(getProject(), ivyInstanceRef).getConfiguredIvyInstance(this);
+    }
+
     public String getProjectResolverName() {
         return projectResolverName;
     }
@@ -157,4 +326,53 @@ public class GoOffline extends AbstractEasyAntTask {
         this.moduleIvy = moduleIvy;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Set the number of module revisions checked and downloaded concurrently
+     * 
+     * @param threadCount
+     *            a positive number of threads
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new BuildException("threadCount must be a positive integer");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * A module revision to install in a resolver
+     */
+    private static class Installation {
+
+        private final ModuleRevisionId moduleRevisionId;
+
+        private final String targetResolver;
+
+        private final String ivyInstanceRef;
+
+        private Installation(ModuleRevisionId moduleRevisionId, String targetResolver, String ivyInstanceRef) {
+            this.moduleRevisionId = moduleRevisionId;
+            this.targetResolver = targetResolver;
+            this.ivyInstanceRef = ivyInstanceRef;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Installation)) {
+                return false;
+            }
+            Installation other = (Installation) obj;
+            return moduleRevisionId.equals(other.moduleRevisionId) && targetResolver.equals(other.targetResolver)
+                    && ivyInstanceRef.equals(other.ivyInstanceRef);
+        }
+
+        @Override
+        public int hashCode() {
+            return moduleRevisionId.hashCode() * 31 + targetResolver.hashCode();
+        }
+    }
 }
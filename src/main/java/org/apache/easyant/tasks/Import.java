@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.easyant.core.BuildConfigurationHelper;
+import org.apache.easyant.core.ivy.ImportResolutionCache;
 import org.apache.ivy.ant.EasyAntPluginBridge;
 import org.apache.ivy.ant.IvyConflict;
 import org.apache.ivy.ant.IvyDependency;
@@ -31,6 +32,7 @@ import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DynamicAttribute;
@@ -80,8 +82,8 @@ public class Import extends AbstractImport implements DynamicAttribute {
                     "The module to import is not properly specified, you must set the mrid attribute or set organisation / module / revision attributes");
         }
         String moduleName = moduleRevisionId.toString();
-        if (!BuildConfigurationHelper.isBuildConfigurationActive(getBuildConfigurations(), getProject(), "module"
-                + getModule())) {
+        if (!BuildConfigurationHelper.isRequestedBuildConfigurationActive(getRequestedBuildConfigurations(),
+                getProject(), "module" + getModule())) {
             log("no matching build configuration for module " + moduleName + " this module will be skipped ",
                     Project.MSG_DEBUG);
             return;
@@ -110,25 +112,44 @@ public class Import extends AbstractImport implements DynamicAttribute {
         if (!isMandatory() && toBeSkipped) {
             log(moduleName + " skipped !");
         } else {
+            IvyContext.pushNewContext();
+            IvyContext.getContext().setIvy(getEasyAntIvyInstance());
             try {
                 DefaultModuleDescriptor md = DefaultModuleDescriptor.newCallerInstance(moduleRevisionId, getMainConf()
                         .split(","), true, isChanging());
 
                 IvySettings settings = getEasyAntIvyInstance().getSettings();
-                IvyContext.pushNewContext();
-                IvyContext.getContext().setIvy(getEasyAntIvyInstance());
                 // FIXME: If additionnal dependency are loaded or a superior version of a dependency is defined it works
                 // as expected
                 // But it doesn't work if you specify a revision lower to original one
                 md = EasyAntPluginBridge.computeModuleDescriptor(md, settings, dependencies, conflicts, excludes);
-                ResolveReport report = getEasyAntIvyInstance().getResolveEngine()
-                        .resolve(md, configureResolveOptions());
+                ResolveOptions resolveOptions = configureResolveOptions();
+
+                // the same module is usually imported by every submodule of a build, resolve it only once
+                ImportResolutionCache resolutionCache = null;
+                String resolutionKey = null;
+                String conflictsDescription = describeConflicts();
+                if (conflictsDescription != null) {
+                    resolutionCache = ImportResolutionCache.getInstance(getProject());
+                    resolutionKey = ImportResolutionCache.computeKey(moduleRevisionId, getMainConf(), isChanging(),
+                            md, conflictsDescription, settings, resolveOptions.isUseCacheOnly());
+                }
+                ResolveReport report = resolutionCache != null ? resolutionCache.get(resolutionKey) : null;
+                if (report == null) {
+                    report = getEasyAntIvyInstance().getResolveEngine().resolve(md, resolveOptions);
+                    if (resolutionCache != null) {
+                        resolutionCache.put(resolutionKey, report);
+                    }
+                } else {
+                    log("reusing previous resolution of " + moduleName, Project.MSG_VERBOSE);
+                }
                 importModule(moduleRevisionId, report);
-                IvyContext.popContext();
             } catch (ParseException e) {
                 throw new BuildException("Can't parse module descriptor", e);
             } catch (IOException e) {
                 throw new BuildException("Can't parse module descriptor", e);
+            } finally {
+                IvyContext.popContext();
             }
 
         }
@@ -239,7 +260,7 @@ public class Import extends AbstractImport implements DynamicAttribute {
     }
 
     public IvyConflict createConflict() {
-        IvyConflict c = new IvyConflict();
+        IvyConflict c = new DescribedIvyConflict();
         conflicts.add(c);
         return c;
     }
@@ -268,4 +289,66 @@ public class Import extends AbstractImport implements DynamicAttribute {
         this.conflicts = conflicts;
     }
 
+    /**
+     * Describe conflict managers, as they can't be read back once added to a module descriptor
+     * 
+     * @return a description of conflict managers, or null if one of them can't be described
+     */
+    private String describeConflicts() {
+        StringBuilder description = new StringBuilder();
+        for (IvyConflict conflict : conflicts) {
+            if (!(conflict instanceof DescribedIvyConflict)) {
+                return null;
+            }
+            description.append(conflict).append(';');
+        }
+        return description.toString();
+    }
+
+    /**
+     * An {@link IvyConflict} keeping track of its attributes
+     */
+    private static class DescribedIvyConflict extends IvyConflict {
+        private String org;
+        private String module;
+        private String manager;
+        private String rev;
+        private String matcher;
+
+        @Override
+        public void setOrg(String org) {
+            super.setOrg(org);
+            this.org = org;
+        }
+
+        @Override
+        public void setModule(String module) {
+            super.setModule(module);
+            this.module = module;
+        }
+
+        @Override
+        public void setManager(String manager) {
+            super.setManager(manager);
+            this.manager = manager;
+        }
+
+        @Override
+        public void setRev(String rev) {
+            super.setRev(rev);
+            this.rev = rev;
+        }
+
+        @Override
+        public void setMatcher(String matcher) {
+            super.setMatcher(matcher);
+            this.matcher = matcher;
+        }
+
+        @Override
+        public String toString() {
+            return org + "#" + module + ";" + rev + " " + manager + " " + matcher;
+        }
+    }
+
 }
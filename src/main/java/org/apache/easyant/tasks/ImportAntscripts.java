@@ -302,6 +302,8 @@ public class ImportAntscripts extends Task {
             throw new BuildException("The file " + file + " is not a correct ivy file (" + e.getMessage() + ")", e);
         } catch (IOException e) {
             throw new BuildException("The file " + file + " could not be read (" + e.getMessage() + ")", e);
+        } finally {
+            ivy.popContext();
         }
         return md;
     }
@@ -59,8 +59,8 @@ public class ImportDeferred extends AbstractImport implements DynamicAttribute {
                     "The module to import is not properly specified, you must set set organisation / module attributes");
         }
         String moduleName = moduleId.toString();
-        if (!BuildConfigurationHelper.isBuildConfigurationActive(getBuildConfigurations(), getProject(), "module"
-                + getModule())) {
+        if (!BuildConfigurationHelper.isRequestedBuildConfigurationActive(getRequestedBuildConfigurations(),
+                getProject(), "module" + getModule())) {
             log("no matching build configuration for module " + moduleName + " this module will be skipped ",
                     Project.MSG_DEBUG);
             return;
@@ -110,6 +110,7 @@ public class ImportDeferred extends AbstractImport implements DynamicAttribute {
                         path.createPathElement().setLocation(artifactReport.getLocalFile());
                     }
                 }
+                registerModuleClassLoader(moduleId, path);
 
                 File antFile = null;
                 for (ArtifactDownloadReport artifact : artifactsReports) {
@@ -60,9 +60,9 @@ public class ImportTestModule extends AbstractImport {
             throw new BuildException("sourceDirectory does not exists or is not a directory");
         }
 
+        IvyContext.pushNewContext();
+        IvyContext.getContext().setIvy(getEasyAntIvyInstance());
         try {
-            IvyContext.pushNewContext();
-            IvyContext.getContext().setIvy(getEasyAntIvyInstance());
             ResolveReport report = getEasyAntIvyInstance().getResolveEngine().resolve(moduleIvy);
 
             // expose resolve report for import deferred
@@ -71,12 +71,12 @@ public class ImportTestModule extends AbstractImport {
             // tiny hack report.getModuleDescriptor.getModuleRevisionId() return a caller instance
             ModuleRevisionId moduleRevisionId = report.getModuleDescriptor().getAllArtifacts()[0].getModuleRevisionId();
             importModule(moduleRevisionId, report);
-            IvyContext.popContext();
-
         } catch (ParseException e) {
             throw new BuildException("Can't parse module descriptor", e);
         } catch (IOException e) {
             throw new BuildException("Can't parse module descriptor", e);
+        } finally {
+            IvyContext.popContext();
         }
 
     }
@@ -17,24 +17,38 @@
  */
 package org.apache.easyant.tasks;
 
+import org.apache.easyant.core.ant.ModuleFinder;
+import org.apache.easyant.core.report.DependencyUpdateReport;
+import org.apache.easyant.core.report.DependencyUpdateReportWriter;
+import org.apache.ivy.Ivy;
 import org.apache.ivy.ant.IvyPostResolveTask;
 import org.apache.ivy.core.module.descriptor.Configuration;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.IvyNode;
 import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Backport of IvyDependencyUpdateChecker until a new version of ivy will be released
+ * <p>
+ * Latest revisions of direct dependencies are found concurrently before the latest dependency graph is resolved. Both
+ * graphs are then joined by module id. Updates can also be written in an xml or json report.
  */
 public class IvyDependencyUpdateChecker extends IvyPostResolveTask {
 
@@ -46,25 +60,30 @@ public class IvyDependencyUpdateChecker extends IvyPostResolveTask {
 
     private boolean showTransitive = false;
 
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    private File reportFile;
+
+    private String reportFormat;
+
     public void doExecute() throws BuildException {
         prepareAndCheck();
 
-        ModuleDescriptor originalModuleDescriptor = getResolvedReport().getModuleDescriptor();
+        ResolveReport originalReport = getResolvedReport();
+        ModuleDescriptor originalModuleDescriptor = originalReport.getModuleDescriptor();
         // clone module descriptor
         DefaultModuleDescriptor latestModuleDescriptor = new DefaultModuleDescriptor(
                 originalModuleDescriptor.getModuleRevisionId(), originalModuleDescriptor.getStatus(),
                 originalModuleDescriptor.getPublicationDate());
         // copy configurations
-        for (int i = 0; i < originalModuleDescriptor.getConfigurations().length; i++) {
-            Configuration configuration = originalModuleDescriptor.getConfigurations()[i];
+        for (Configuration configuration : originalModuleDescriptor.getConfigurations()) {
             latestModuleDescriptor.addConfiguration(configuration);
         }
-        // clone dependency and add new one with the requested revisionToCheck
-        for (int i = 0; i < originalModuleDescriptor.getDependencies().length; i++) {
-            DependencyDescriptor dependencyDescriptor = originalModuleDescriptor.getDependencies()[i];
-            ModuleRevisionId upToDateMrid = ModuleRevisionId.newInstance(
-                    dependencyDescriptor.getDependencyRevisionId(), revisionToCheck);
-            latestModuleDescriptor.addDependency(dependencyDescriptor.clone(upToDateMrid));
+        // clone dependency and add new one with the latest revision found for revisionToCheck
+        DependencyDescriptor[] dependencies = originalModuleDescriptor.getDependencies();
+        ModuleRevisionId[] latestRevisions = findLatestRevisions(dependencies);
+        for (int i = 0; i < dependencies.length; i++) {
+            latestModuleDescriptor.addDependency(dependencies[i].clone(latestRevisions[i]));
         }
 
         // resolve
@@ -77,95 +96,125 @@ public class IvyDependencyUpdateChecker extends IvyPostResolveTask {
         ResolveReport latestReport;
         try {
             latestReport = getIvyInstance().getResolveEngine().resolve(latestModuleDescriptor, resolveOptions);
-
-            displayDependencyUpdates(getResolvedReport(), latestReport);
-            if (showTransitive) {
-                displayNewDependencyOnLatest(getResolvedReport(), latestReport);
-                displayMissingDependencyOnLatest(getResolvedReport(), latestReport);
-            }
-
         } catch (ParseException e) {
             throw new BuildException("impossible to resolve dependencies:\n\t" + e, e);
         } catch (IOException e) {
             throw new BuildException("impossible to resolve dependencies:\n\t" + e, e);
         }
 
+        DependencyUpdateReport updateReport = compare(originalReport, latestReport);
+        displayDependencyUpdates(updateReport);
+        if (showTransitive) {
+            displayNewDependencyOnLatest(updateReport);
+            displayMissingDependencyOnLatest(updateReport);
+        }
+        if (reportFile != null) {
+            DependencyUpdateReportWriter.write(Collections.singletonList(updateReport), reportFile, reportFormat);
+            log("Dependency update report written in " + reportFile, Project.MSG_VERBOSE);
+        }
     }
 
-    private void displayDependencyUpdates(ResolveReport originalReport, ResolveReport latestReport) {
-        log("Dependencies updates available :");
-        boolean dependencyUpdateDetected = false;
-        for (Object o : latestReport.getDependencies()) {
-            IvyNode latest = (IvyNode) o;
-            for (Object o1 : originalReport.getDependencies()) {
-                IvyNode originalDependency = (IvyNode) o1;
-                if (originalDependency.getModuleId().equals(latest.getModuleId())) {
-                    if (!originalDependency.getResolvedId().getRevision().equals(latest.getResolvedId().getRevision())) {
-                        // is this dependency a transitive dependency ? or direct dependency
-                        // (unfortunatly
-                        // .isTranstive() methods doesn't have the same meaning)
-                        boolean isTransitiveDependency = latest.getDependencyDescriptor(latest.getRoot()) == null;
-                        if ((!isTransitiveDependency) || (isTransitiveDependency && showTransitive)) {
-                            log("\t" + originalDependency.getResolvedId().getOrganisation() + '#' + originalDependency.getResolvedId().getName() + (isTransitiveDependency ? " (transitive)" : "") + "\t" + originalDependency.getResolvedId().getRevision() + " -> " + latest.getResolvedId().getRevision());
-                            dependencyUpdateDetected = true;
-                        }
-                    }
-
-                }
+    /**
+     * Find the revision matching revisionToCheck of each dependency, concurrently. Dependencies whose latest revision
+     * can't be found keep revisionToCheck, so that the latest resolve reports them.
+     */
+    private ModuleRevisionId[] findLatestRevisions(DependencyDescriptor[] dependencies) {
+        Ivy ivy = getIvyInstance();
+        ModuleRevisionId[] latestRevisions = new ModuleRevisionId[dependencies.length];
+        List<ModuleRevisionId> dynamicRevisions = new ArrayList<ModuleRevisionId>();
+        for (int i = 0; i < dependencies.length; i++) {
+            latestRevisions[i] = ModuleRevisionId.newInstance(dependencies[i].getDependencyRevisionId(),
+                    revisionToCheck);
+            if (ivy.getSettings().getVersionMatcher().isDynamic(latestRevisions[i])) {
+                dynamicRevisions.add(latestRevisions[i]);
             }
         }
-        if (!dependencyUpdateDetected) {
-            log("\tAll dependencies are up to date");
+        Map<ModuleRevisionId, ResolvedModuleRevision> found = ModuleFinder.findModules(ivy, dynamicRevisions,
+                getTaskName(), threadCount);
+        for (int i = 0; i < dependencies.length; i++) {
+            ResolvedModuleRevision rmr = found.get(latestRevisions[i]);
+            if (rmr != null) {
+                latestRevisions[i] = ModuleRevisionId.newInstance(latestRevisions[i], rmr.getId().getRevision());
+            }
         }
+        return latestRevisions;
     }
 
-    private void displayMissingDependencyOnLatest(ResolveReport originalReport, ResolveReport latestReport) {
-        List/* <ModuleRevisionId> */listOfMissingDependencyOnLatest = new ArrayList/*
-                                                                                    * <ModuleRevisionId >
-                                                                                    */();
-        for (Object o : originalReport.getDependencies()) {
-            IvyNode originalDependency = (IvyNode) o;
-            boolean dependencyFound = false;
-            for (Object o1 : latestReport.getDependencies()) {
-                IvyNode latest = (IvyNode) o1;
-                if (originalDependency.getModuleId().equals(latest.getModuleId())) {
-                    dependencyFound = true;
-                }
+    /**
+     * Join original and latest dependencies by module id
+     */
+    private DependencyUpdateReport compare(ResolveReport originalReport, ResolveReport latestReport) {
+        DependencyUpdateReport updateReport = new DependencyUpdateReport(originalReport.getModuleDescriptor()
+                .getModuleRevisionId());
+        Map<ModuleId, IvyNode> originalDependencies = indexByModuleId(originalReport.getDependencies());
+        Map<ModuleId, IvyNode> latestDependencies = indexByModuleId(latestReport.getDependencies());
+        for (IvyNode latest : latestDependencies.values()) {
+            IvyNode originalDependency = originalDependencies.get(latest.getModuleId());
+            if (originalDependency == null) {
+                updateReport.addNewDependency(latest.getId());
+            } else if (originalDependency.getResolvedId() != null && latest.getResolvedId() != null
+                    && !originalDependency.getResolvedId().getRevision().equals(latest.getResolvedId().getRevision())) {
+                // is this dependency a transitive dependency ? or direct dependency
+                // (unfortunatly
+                // .isTranstive() methods doesn't have the same meaning)
+                boolean isTransitiveDependency = latest.getDependencyDescriptor(latest.getRoot()) == null;
+                updateReport.addUpdate(originalDependency.getResolvedId(), latest.getResolvedId(),
+                        isTransitiveDependency);
             }
-            if (!dependencyFound) {
-                listOfMissingDependencyOnLatest.add(originalDependency.getId());
+        }
+        for (IvyNode originalDependency : originalDependencies.values()) {
+            if (!latestDependencies.containsKey(originalDependency.getModuleId())) {
+                updateReport.addMissingDependency(originalDependency.getId());
             }
         }
+        return updateReport;
+    }
 
-        if (!listOfMissingDependencyOnLatest.isEmpty()) {
-            log("List of missing dependency on latest resolve :");
-            for (Object aListOfMissingDependencyOnLatest : listOfMissingDependencyOnLatest) {
-                ModuleRevisionId moduleRevisionId = (ModuleRevisionId) aListOfMissingDependencyOnLatest;
-                log("\t" + moduleRevisionId.toString());
+    /**
+     * Index nodes by module id. Evicted revisions of a module are only kept when no other revision of this module has
+     * been selected.
+     */
+    private Map<ModuleId, IvyNode> indexByModuleId(List<?> nodes) {
+        Map<ModuleId, IvyNode> index = new LinkedHashMap<ModuleId, IvyNode>();
+        for (Object o : nodes) {
+            IvyNode node = (IvyNode) o;
+            IvyNode indexed = index.get(node.getModuleId());
+            if (indexed == null || (indexed.isCompletelyEvicted() && !node.isCompletelyEvicted())) {
+                index.put(node.getModuleId(), node);
             }
         }
+        return index;
     }
 
-    private void displayNewDependencyOnLatest(ResolveReport originalReport, ResolveReport latestReport) {
-        List/* <ModuleRevisionId> */listOfNewDependencyOnLatest = new ArrayList/* <ModuleRevisionId> */();
-        for (Object o : latestReport.getDependencies()) {
-            IvyNode latest = (IvyNode) o;
-
-            boolean dependencyFound = false;
-            for (Object o1 : originalReport.getDependencies()) {
-                IvyNode originalDependency = (IvyNode) o1;
-                if (originalDependency.getModuleId().equals(latest.getModuleId())) {
-                    dependencyFound = true;
-                }
+    private void displayDependencyUpdates(DependencyUpdateReport updateReport) {
+        log("Dependencies updates available :");
+        boolean dependencyUpdateDetected = false;
+        for (DependencyUpdateReport.DependencyUpdate update : updateReport.getUpdates()) {
+            if (!update.isTransitive() || showTransitive) {
+                log("\t" + update.getCurrent().getOrganisation() + '#' + update.getCurrent().getName()
+                        + (update.isTransitive() ? " (transitive)" : "") + "\t" + update.getCurrent().getRevision()
+                        + " -> " + update.getLatest().getRevision());
+                dependencyUpdateDetected = true;
             }
-            if (!dependencyFound) {
-                listOfNewDependencyOnLatest.add(latest.getId());
+        }
+        if (!dependencyUpdateDetected) {
+            log("\tAll dependencies are up to date");
+        }
+    }
+
+    private void displayMissingDependencyOnLatest(DependencyUpdateReport updateReport) {
+        if (!updateReport.getMissingDependencies().isEmpty()) {
+            log("List of missing dependency on latest resolve :");
+            for (ModuleRevisionId moduleRevisionId : updateReport.getMissingDependencies()) {
+                log("\t" + moduleRevisionId.toString());
             }
         }
-        if (!listOfNewDependencyOnLatest.isEmpty()) {
+    }
+
+    private void displayNewDependencyOnLatest(DependencyUpdateReport updateReport) {
+        if (!updateReport.getNewDependencies().isEmpty()) {
             log("List of new dependency on latest resolve :");
-            for (Object aListOfNewDependencyOnLatest : listOfNewDependencyOnLatest) {
-                ModuleRevisionId moduleRevisionId = (ModuleRevisionId) aListOfNewDependencyOnLatest;
+            for (ModuleRevisionId moduleRevisionId : updateReport.getNewDependencies()) {
                 log("\t" + moduleRevisionId.toString());
             }
         }
@@ -195,4 +244,43 @@ public class IvyDependencyUpdateChecker extends IvyPostResolveTask {
         this.showTransitive = showTransitive;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Set the maximum number of dependencies whose latest revision is looked for at the same time
+     *
+     * @param threadCount
+     *            a positive number of threads, defaults to the number of available processors
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new BuildException("threadCount must be a positive integer");
+        }
+        this.threadCount = threadCount;
+    }
+
+    public File getReportFile() {
+        return reportFile;
+    }
+
+    /**
+     * Set the file where available updates are written
+     */
+    public void setReportFile(File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    public String getReportFormat() {
+        return reportFormat;
+    }
+
+    /**
+     * Set the format of the update report, "xml" or "json". Defaults to json for .json report files, xml otherwise.
+     */
+    public void setReportFormat(String reportFormat) {
+        this.reportFormat = reportFormat;
+    }
+
 }
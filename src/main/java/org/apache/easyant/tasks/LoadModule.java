@@ -25,6 +25,7 @@ import org.apache.easyant.core.ivy.InheritableScope;
 import org.apache.easyant.core.ivy.IvyInstanceHelper;
 import org.apache.easyant.core.parser.DefaultEasyAntXmlModuleDescriptorParser;
 import org.apache.easyant.core.parser.EasyAntModuleDescriptorParser;
+import org.apache.easyant.core.parser.EasyAntModuleDescriptorParserRegistry;
 import org.apache.ivy.ant.IvyConfigure;
 import org.apache.ivy.ant.IvyDependency;
 import org.apache.ivy.ant.IvyInfo;
@@ -32,8 +33,6 @@ import org.apache.ivy.core.IvyContext;
 import org.apache.easyant.core.ivy.EasyAntRepositoryCacheManager;
 import org.apache.easyant.core.ivy.EasyantResolutionCacheManager;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
-import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
-import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
 import org.apache.ivy.plugins.repository.url.URLResource;
 import org.apache.ivy.util.StringUtils;
 import org.apache.tools.ant.BuildException;
@@ -54,6 +53,8 @@ public class LoadModule extends AbstractEasyAntTask {
     private File buildFile;
     private File buildModule;
     private String easyAntMDParserClassName;
+
+    private EasyAntModuleDescriptorParser registeredParser;
     private Boolean useBuildRepository;
 
     /**
@@ -261,10 +262,10 @@ public class LoadModule extends AbstractEasyAntTask {
     }
 
     protected void loadBuildModule(File buildModule) {
-        IvyContext.pushNewContext().setIvy(getEasyAntIvyInstance());
         EasyAntModuleDescriptorParser parser = getEasyAntModuleDescriptorParser(buildModule);
         log("Loading EasyAnt module descriptor :" + parser.getClass().getName(), Project.MSG_DEBUG);
 
+        IvyContext.pushNewContext().setIvy(getEasyAntIvyInstance());
         try {
             parser.parseDescriptor(getEasyAntIvyInstance().getSettings(), buildModule.toURI().toURL(), new URLResource(
                     buildModule.toURI().toURL()), true);
@@ -282,6 +283,9 @@ public class LoadModule extends AbstractEasyAntTask {
             getProject().setProperty(EasyAntMagicNames.AVAILABLE_BUILD_CONFIGURATIONS, buildConfigurations);
             updateMainConfs();
 
+            // all properties are loaded at once
+            PropertiesTask propertiesTask = new PropertiesTask();
+            propertiesTask.setTaskType("antlib:org.apache.easyant:properties");
             for (PropertyDescriptor property : md.getProperties().values()) {
                 if (canInherit(property, currentModule)) {
                     PropertyTask propTask = new PropertyTask();
@@ -289,10 +293,13 @@ public class LoadModule extends AbstractEasyAntTask {
                     propTask.setValue(property.getValue());
                     propTask.setBuildConfigurations(property.getBuildConfigurations());
                     propTask.setTaskType("antlib:org.apache.easyant:property");
-                    getOwningTarget().addTask(propTask);
-                    initTask(propTask).perform();
+                    propertiesTask.addProperty(propTask);
                 }
             }
+            if (!propertiesTask.getProperties().isEmpty()) {
+                getOwningTarget().addTask(propertiesTask);
+                initTask(propertiesTask).perform();
+            }
             if (md.getConfigureProjectDescriptor() != null) {
                 ConfigureProjectDescriptor descriptor = md.getConfigureProjectDescriptor();
                 ConfigureProject configureProject = new ConfigureProject();
@@ -389,8 +396,13 @@ public class LoadModule extends AbstractEasyAntTask {
             }
         } catch (Exception e) {
             throw new BuildException("problem while parsing Ivy module file: " + e.getMessage(), e);
+        } finally {
+            IvyContext.popContext();
+            if (registeredParser != null) {
+                EasyAntModuleDescriptorParserRegistry.getInstance().unregister(registeredParser);
+                registeredParser = null;
+            }
         }
-        IvyContext.popContext();
     }
 
     /**
@@ -440,40 +452,40 @@ public class LoadModule extends AbstractEasyAntTask {
 
     }
 
+    /**
+     * Get the parser used to load the module descriptor. The parser registered by the easyant engine is used unless
+     * another parser class has been configured. Parsers created here are registered until the module is loaded, so that
+     * parent modules are parsed by the same kind of parser.
+     *
+     * @param file
+     *            module descriptor
+     * @return an easyant module descriptor parser
+     */
     protected EasyAntModuleDescriptorParser getEasyAntModuleDescriptorParser(File file) throws BuildException {
-        ModuleDescriptorParser mdp;
-        EasyAntModuleDescriptorParser parser;
-        try {
-            mdp = ModuleDescriptorParserRegistry.getInstance().getParser(new URLResource(file.toURI().toURL()));
-        } catch (MalformedURLException e) {
-            throw new BuildException("Impossible to find a parser for " + file.getName());
-        }
+        EasyAntModuleDescriptorParser parser = EasyAntModuleDescriptorParserRegistry.getInstance().getParser();
         // If valid easyant parser is defined use it
-        if (mdp != null && mdp.getClass().isInstance(EasyAntModuleDescriptorParser.class)) {
-            return (EasyAntModuleDescriptorParser) mdp;
-        } else {
-            // if the user has customized the loadmodule task
-            if (easyAntMDParserClassName != null) {
-
-                try {
-                    Class<? extends EasyAntModuleDescriptorParser> c = Class.forName(easyAntMDParserClassName)
-                            .asSubclass(EasyAntModuleDescriptorParser.class);
-                    log("Creating instance of " + easyAntMDParserClassName, Project.MSG_DEBUG);
-                    parser = c.newInstance();
-                    ModuleDescriptorParserRegistry.getInstance().addParser(parser);
-                    return parser;
-                } catch (Exception e) {
-                    throw new BuildException("Unable to load " + easyAntMDParserClassName, e);
-                }
-
+        if (parser != null
+                && (easyAntMDParserClassName == null || easyAntMDParserClassName.equals(parser.getClass().getName()))) {
+            return parser;
+        }
+        // if the user has customized the loadmodule task
+        if (easyAntMDParserClassName != null) {
+            try {
+                Class<? extends EasyAntModuleDescriptorParser> c = Class.forName(easyAntMDParserClassName).asSubclass(
+                        EasyAntModuleDescriptorParser.class);
+                log("Creating instance of " + easyAntMDParserClassName, Project.MSG_DEBUG);
+                parser = c.newInstance();
+            } catch (Exception e) {
+                throw new BuildException("Unable to load " + easyAntMDParserClassName, e);
             }
+        } else {
             // the default one
             log("Creating instance of " + DefaultEasyAntXmlModuleDescriptorParser.class.getName(), Project.MSG_DEBUG);
             parser = new DefaultEasyAntXmlModuleDescriptorParser();
-            ModuleDescriptorParserRegistry.getInstance().addParser(parser);
-            return parser;
-
         }
+        EasyAntModuleDescriptorParserRegistry.getInstance().register(parser);
+        registeredParser = parser;
+        return parser;
     }
 
     /**
@@ -0,0 +1,77 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.easyant.core.ivy.PackedRepository;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+
+/**
+ * Pack a repository directory, such as an offline repository populated by {@link GoOffline}, in a single file which
+ * can be read by a {@link org.apache.easyant.core.ivy.PackedRepositoryResolver}.
+ */
+public class PackRepository extends Task {
+
+    private File dir;
+
+    private File file;
+
+    private boolean append = false;
+
+    public void execute() throws BuildException {
+        if (dir == null || file == null) {
+            throw new BuildException("dir and file attributes are mandatory");
+        }
+        if (!dir.isDirectory()) {
+            throw new BuildException(dir + " is not a directory");
+        }
+        try {
+            int count = PackedRepository.pack(dir, file, append);
+            log("Packed " + count + " files from " + dir + " in " + file);
+        } catch (IOException e) {
+            throw new BuildException("Unable to pack " + dir + " in " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public void setDir(File dir) {
+        this.dir = dir;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    public boolean isAppend() {
+        return append;
+    }
+
+    public void setAppend(boolean append) {
+        this.append = append;
+    }
+}
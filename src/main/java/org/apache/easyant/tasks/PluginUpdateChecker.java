@@ -20,18 +20,40 @@ package org.apache.easyant.tasks;
 import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.easyant.core.EasyAntConstants;
 import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ant.ModuleFinder;
+import org.apache.easyant.core.descriptor.EasyAntModuleDescriptor;
+import org.apache.easyant.core.descriptor.PluginDescriptor;
+import org.apache.easyant.core.ivy.LatestRevisionCache;
+import org.apache.easyant.core.report.DependencyUpdateReport;
+import org.apache.easyant.core.report.DependencyUpdateReportWriter;
 import org.apache.easyant.core.report.EasyAntReport;
 import org.apache.easyant.core.report.ImportedModuleReport;
 import org.apache.easyant.core.services.PluginService;
+import org.apache.ivy.Ivy;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
-import org.apache.ivy.core.report.ResolveReport;
-import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
 
+/**
+ * Checks whether newer revisions of the build type and plugins used by one or several modules are available.
+ * <p>
+ * By default only module descriptors are read: the build type and plugins they declare are checked, without loading
+ * build files. Set fullReport to also check modules imported by build files and by plugins themselves. Latest
+ * revisions of all modules are looked for once, concurrently, and kept in the easyant cache for cacheTtl.
+ */
 public class PluginUpdateChecker extends AbstractEasyAntTask {
 
     private File moduleIvy;
@@ -39,10 +61,69 @@ public class PluginUpdateChecker extends AbstractEasyAntTask {
     private File overrideModuleAnt;
     private String revisionToCheck = "latest.release";
     private boolean pluginUpdateDetected=false;
+    private boolean fullReport = false;
+    private String cacheTtl;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private final List<FileSet> moduleIvys = new ArrayList<FileSet>();
+    private File reportFile;
+    private String reportFormat;
+
+    private final Map<ModuleRevisionId, String> foundRevisions = new HashMap<ModuleRevisionId, String>();
 
     public void execute() throws BuildException {
         PluginService pluginService = getProject().getReference(
                 EasyAntMagicNames.PLUGIN_SERVICE_INSTANCE);
+        Map<ModuleRevisionId, List<ModuleRevisionId>> modules = new LinkedHashMap<ModuleRevisionId,
+                List<ModuleRevisionId>>();
+        try {
+            if (moduleIvys.isEmpty()) {
+                initDefaultModuleFiles();
+                addModule(pluginService, moduleIvy, moduleAnt, overrideModuleAnt, modules);
+            } else {
+                for (FileSet fileSet : moduleIvys) {
+                    File dir = fileSet.getDir(getProject());
+                    for (String file : fileSet.getDirectoryScanner(getProject()).getIncludedFiles()) {
+                        addModule(pluginService, new File(dir, file), null, null, modules);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new BuildException(e);
+        }
+
+        Set<ModuleRevisionId> lookups = new LinkedHashSet<ModuleRevisionId>();
+        for (List<ModuleRevisionId> plugins : modules.values()) {
+            for (ModuleRevisionId plugin : plugins) {
+                lookups.add(ModuleRevisionId.newInstance(plugin, revisionToCheck));
+                if (isDynamic(plugin)) {
+                    lookups.add(plugin);
+                }
+            }
+        }
+        findRevisions(lookups);
+
+        List<DependencyUpdateReport> reports = new ArrayList<DependencyUpdateReport>();
+        for (Map.Entry<ModuleRevisionId, List<ModuleRevisionId>> module : modules.entrySet()) {
+            if (modules.size() > 1) {
+                log(module.getKey().getModuleId() + ":");
+            }
+            DependencyUpdateReport report = new DependencyUpdateReport(module.getKey());
+            pluginUpdateDetected = false;
+            log("Plugin updates available :");
+            for (ModuleRevisionId plugin : module.getValue()) {
+                checkNewRevision(plugin, report);
+            }
+            if (!pluginUpdateDetected) {
+                log("\tAll plugins are up to date");
+            }
+            reports.add(report);
+        }
+        if (reportFile != null) {
+            DependencyUpdateReportWriter.write(reports, reportFile, reportFormat);
+        }
+    }
+
+    private void initDefaultModuleFiles() {
         if (moduleIvy == null) {
             String moduleIvyProperty = getProject().getProperty(EasyAntMagicNames.EASYANT_FILE);
             if (moduleIvyProperty != null) {
@@ -62,34 +143,207 @@ public class PluginUpdateChecker extends AbstractEasyAntTask {
                 moduleAnt = new File(getProject().getBaseDir(), EasyAntConstants.DEFAULT_BUILD_FILE);
             }
         }
-        try {
-            EasyAntReport easyantReport = pluginService.generateEasyAntReport(moduleIvy, moduleAnt, overrideModuleAnt);
-            log("Plugin updates available :");
+    }
+
+    /**
+     * Collect the build type and plugins used by a module
+     */
+    private void addModule(PluginService pluginService, File ivyFile, File antFile, File overrideAntFile,
+            Map<ModuleRevisionId, List<ModuleRevisionId>> modules) throws Exception {
+        List<ModuleRevisionId> plugins = new ArrayList<ModuleRevisionId>();
+        ModuleRevisionId module;
+        if (fullReport) {
+            EasyAntReport easyantReport = pluginService.generateEasyAntReport(ivyFile, antFile, overrideAntFile);
+            module = easyantReport.getModuleDescriptor().getModuleRevisionId();
             for (ImportedModuleReport importedModuleReport : easyantReport.getImportedModuleReports()) {
-                checkNewRevision(importedModuleReport.getModuleRevisionId());
+                plugins.add(importedModuleReport.getModuleRevisionId());
             }
-            if (!pluginUpdateDetected) {
-                log("\tAll plugins are up to date");
+        } else {
+            EasyAntModuleDescriptor md = pluginService.getEasyAntModuleDescriptor(ivyFile);
+            module = md.getIvyModuleDescriptor().getModuleRevisionId();
+            if (md.getBuildType() != null) {
+                plugins.add(md.getBuildType().getModuleRevisionId());
+            }
+            for (PluginDescriptor plugin : md.getPlugins()) {
+                plugins.add(plugin.getModuleRevisionId());
             }
-        } catch (Exception e) {
-            throw new BuildException(e);
         }
+        modules.put(module, plugins);
+    }
+
+    private boolean isDynamic(ModuleRevisionId mrid) {
+        return getEasyAntIvyInstance().getSettings().getVersionMatcher().isDynamic(mrid);
+    }
+
+    /**
+     * Find the revisions matching dynamic module revisions, from the cache when they have been found less than cacheTtl
+     * ago, concurrently from repositories otherwise
+     */
+    private void findRevisions(Set<ModuleRevisionId> mrids) {
+        Ivy ivy = getEasyAntIvyInstance();
+        long timeToLive = CacheGc.parseDuration(getCacheTtl());
+        LatestRevisionCache cache = LatestRevisionCache.load(new File(ivy.getSettings()
+                .getDefaultRepositoryCacheBasedir(), LatestRevisionCache.CACHE_FILE));
+        List<ModuleRevisionId> toFind = new ArrayList<ModuleRevisionId>();
+        for (ModuleRevisionId mrid : mrids) {
+            String revision = timeToLive > 0 ? cache.getRevision(mrid, timeToLive) : null;
+            if (revision != null) {
+                foundRevisions.put(mrid, revision);
+            } else {
+                toFind.add(mrid);
+            }
+        }
+        if (toFind.isEmpty()) {
+            return;
+        }
+        Map<ModuleRevisionId, ResolvedModuleRevision> found = ModuleFinder.findModules(ivy, toFind, getTaskName(),
+                threadCount);
+        for (ModuleRevisionId mrid : toFind) {
+            ResolvedModuleRevision rmr = found.get(mrid);
+            if (rmr == null) {
+                log("Can't find " + mrid, Project.MSG_WARN);
+            } else {
+                foundRevisions.put(mrid, rmr.getId().getRevision());
+                cache.putRevision(mrid, rmr.getId().getRevision());
+            }
+        }
+        cache.save();
     }
 
     public void checkNewRevision(ModuleRevisionId moduleRevisionId) throws ParseException, IOException {
-        ModuleRevisionId latest = ModuleRevisionId.newInstance(moduleRevisionId, revisionToCheck);
-
-        ResolveOptions resolveOptions = new ResolveOptions();
-        resolveOptions.setLog(ResolveOptions.LOG_QUIET);
-        resolveOptions.setDownload(false);
-        ResolveReport report = getEasyAntIvyInstance().getResolveEngine().resolve(latest, resolveOptions, true);
-        String resolvedRevision = report.getModuleDescriptor().getDependencies()[0].getDependencyRevisionId()
-                .getRevision();
-        if (!resolvedRevision.equals(moduleRevisionId.getRevision())) {
-            log("\t" + moduleRevisionId.getOrganisation() + '#' + moduleRevisionId.getName() + "\t" + moduleRevisionId.getRevision() + " -> " + resolvedRevision);
+        Set<ModuleRevisionId> lookups = new LinkedHashSet<ModuleRevisionId>();
+        lookups.add(ModuleRevisionId.newInstance(moduleRevisionId, revisionToCheck));
+        if (isDynamic(moduleRevisionId)) {
+            lookups.add(moduleRevisionId);
+        }
+        findRevisions(lookups);
+        checkNewRevision(moduleRevisionId, null);
+    }
+
+    private void checkNewRevision(ModuleRevisionId moduleRevisionId, DependencyUpdateReport report) {
+        String resolvedRevision = foundRevisions.get(ModuleRevisionId.newInstance(moduleRevisionId,
+                revisionToCheck));
+        String currentRevision = isDynamic(moduleRevisionId) ? foundRevisions.get(moduleRevisionId)
+                : moduleRevisionId.getRevision();
+        if (resolvedRevision != null && currentRevision != null && !resolvedRevision.equals(currentRevision)) {
+            log("\t" + moduleRevisionId.getOrganisation() + '#' + moduleRevisionId.getName() + "\t"
+                    + currentRevision + " -> " + resolvedRevision);
             pluginUpdateDetected=true;
+            if (report != null) {
+                report.addUpdate(ModuleRevisionId.newInstance(moduleRevisionId, currentRevision),
+                        ModuleRevisionId.newInstance(moduleRevisionId, resolvedRevision), false);
+            }
         }
 
     }
 
+    public File getModuleIvy() {
+        return moduleIvy;
+    }
+
+    public void setModuleIvy(File moduleIvy) {
+        this.moduleIvy = moduleIvy;
+    }
+
+    public File getModuleAnt() {
+        return moduleAnt;
+    }
+
+    public void setModuleAnt(File moduleAnt) {
+        this.moduleAnt = moduleAnt;
+    }
+
+    public File getOverrideModuleAnt() {
+        return overrideModuleAnt;
+    }
+
+    public void setOverrideModuleAnt(File overrideModuleAnt) {
+        this.overrideModuleAnt = overrideModuleAnt;
+    }
+
+    public String getRevisionToCheck() {
+        return revisionToCheck;
+    }
+
+    public void setRevisionToCheck(String revisionToCheck) {
+        this.revisionToCheck = revisionToCheck;
+    }
+
+    public boolean isFullReport() {
+        return fullReport;
+    }
+
+    /**
+     * Also check modules imported by build files and plugins, loading the whole build of each module instead of only
+     * reading its module descriptor
+     */
+    public void setFullReport(boolean fullReport) {
+        this.fullReport = fullReport;
+    }
+
+    /**
+     * Get how long found revisions are reused. Defaults to the value of "plugin.update.cache.ttl" property, or 1h.
+     */
+    public String getCacheTtl() {
+        if (cacheTtl == null) {
+            String ttl = getProject().getProperty(EasyAntMagicNames.PLUGIN_UPDATE_CACHE_TTL);
+            return ttl != null ? ttl : "1h";
+        }
+        return cacheTtl;
+    }
+
+    /**
+     * Set how long found revisions are reused, as a number of days optionally followed by a unit: d (days), h (hours)
+     * or m (minutes). 0 always looks at repositories.
+     */
+    public void setCacheTtl(String cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Set the maximum number of modules whose latest revision is looked for at the same time
+     *
+     * @param threadCount
+     *            a positive number of threads, defaults to the number of available processors
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new BuildException("threadCount must be a positive integer");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Check all module descriptors of a reactor in one pass
+     */
+    public void addConfiguredModuleIvys(FileSet fileSet) {
+        moduleIvys.add(fileSet);
+    }
+
+    public File getReportFile() {
+        return reportFile;
+    }
+
+    /**
+     * Set the file where available updates are written
+     */
+    public void setReportFile(File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    public String getReportFormat() {
+        return reportFormat;
+    }
+
+    /**
+     * Set the format of the update report, "xml" or "json". Defaults to json for .json report files, xml otherwise.
+     */
+    public void setReportFormat(String reportFormat) {
+        this.reportFormat = reportFormat;
+    }
+
 }
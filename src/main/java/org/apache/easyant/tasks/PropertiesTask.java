@@ -0,0 +1,82 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.easyant.core.BuildConfigurationMatcher.RequestedBuildConfigurations;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+
+/**
+ * Load a set of properties in one operation. Each nested property behaves exactly like the property task (first
+ * definition wins, user properties can't be overridden, build configurations are honored), but nested properties are
+ * not performed as standalone tasks: listeners only get notified of this task.
+ *
+ * <pre>
+ * &lt;ea:properties&gt;
+ *     &lt;ea:property name="src.main.java" value="${basedir}/src/main/java"/&gt;
+ *     &lt;ea:property name="test.framework" value="testng" conf="testng"/&gt;
+ * &lt;/ea:properties&gt;
+ * </pre>
+ */
+public class PropertiesTask extends Task {
+
+    private List<PropertyTask> properties = new ArrayList<PropertyTask>();
+
+    @Override
+    public void execute() throws BuildException {
+        // properties bound to the same build configurations share the parsed configurations
+        Map<String, RequestedBuildConfigurations> requestedBuildConfigurations = new HashMap<String, RequestedBuildConfigurations>();
+        for (PropertyTask property : properties) {
+            property.setProject(getProject());
+            property.setOwningTarget(getOwningTarget());
+            property.setLocation(getLocation());
+            property.setTaskName(getTaskName());
+            String buildConfigurations = property.getBuildConfigurations();
+            if (buildConfigurations != null) {
+                RequestedBuildConfigurations requested = requestedBuildConfigurations.get(buildConfigurations);
+                if (requested == null) {
+                    requested = new RequestedBuildConfigurations(buildConfigurations);
+                    requestedBuildConfigurations.put(buildConfigurations, requested);
+                }
+                property.setRequestedBuildConfigurations(requested);
+            }
+            property.execute();
+        }
+        log(properties.size() + " properties processed", Project.MSG_VERBOSE);
+    }
+
+    /**
+     * Add a property to load
+     *
+     * @param property
+     *            a property
+     */
+    public void addProperty(PropertyTask property) {
+        properties.add(property);
+    }
+
+    public List<PropertyTask> getProperties() {
+        return properties;
+    }
+}
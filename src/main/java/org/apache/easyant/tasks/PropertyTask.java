@@ -18,6 +18,7 @@
 package org.apache.easyant.tasks;
 
 import org.apache.easyant.core.BuildConfigurationHelper;
+import org.apache.easyant.core.BuildConfigurationMatcher.RequestedBuildConfigurations;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Property;
@@ -32,6 +33,8 @@ public class PropertyTask extends Property {
 
     private String buildConfigurations = null;
 
+    private RequestedBuildConfigurations requestedBuildConfigurations;
+
     @Override
     public void execute() throws BuildException {
         // Build the message
@@ -43,8 +46,8 @@ public class PropertyTask extends Property {
             message.append("file ").append(getFile());
         }
 
-        if (BuildConfigurationHelper.isBuildConfigurationActive(getBuildConfigurations(), getProject(),
-                message.toString())) {
+        if (BuildConfigurationHelper.isRequestedBuildConfigurationActive(getRequestedBuildConfigurations(),
+                getProject(), message.toString())) {
             super.execute();
         } else {
             log("this property will be skipped ", Project.MSG_DEBUG);
@@ -55,12 +58,32 @@ public class PropertyTask extends Property {
         return buildConfigurations;
     }
 
+    /**
+     * Get build configurations of this task, parsed only once
+     */
+    private RequestedBuildConfigurations getRequestedBuildConfigurations() {
+        if (requestedBuildConfigurations == null && buildConfigurations != null) {
+            requestedBuildConfigurations = new RequestedBuildConfigurations(buildConfigurations);
+        }
+        return requestedBuildConfigurations;
+    }
+
     public void setBuildConfigurations(String confs) {
         this.buildConfigurations = confs;
+        this.requestedBuildConfigurations = null;
     }
 
     public void setConf(String conf) {
         this.buildConfigurations = conf;
+        this.requestedBuildConfigurations = null;
+    }
+
+    /**
+     * Set build configurations already parsed, typically shared by several properties
+     */
+    void setRequestedBuildConfigurations(RequestedBuildConfigurations requestedBuildConfigurations) {
+        this.buildConfigurations = requestedBuildConfigurations.getValue();
+        this.requestedBuildConfigurations = requestedBuildConfigurations;
     }
 
 }
@@ -58,26 +58,26 @@ public class ResolvePlugins extends AbstractEasyAntTask {
     private boolean changing = false;
 
     public void execute() {
+        IvyContext.pushNewContext();
+        IvyContext.getContext().setIvy(getEasyAntIvyInstance());
         try {
             ModuleRevisionId builderMRID = new ModuleRevisionId(new ModuleId(getProject().getName(), getProject()
                     .getName() + "-builder"), EasyAntEngine.getEasyAntVersion());
             DefaultModuleDescriptor md = DefaultModuleDescriptor.newDefaultInstance(builderMRID);
 
             IvySettings settings = getEasyAntIvyInstance().getSettings();
-            IvyContext.pushNewContext();
-            IvyContext.getContext().setIvy(getEasyAntIvyInstance());
             // FIXME: If additionnal dependency are loaded or a superior version of a dependency is defined it works
             // as expected
             // But it doesn't work if you specify a revision lower to original one
             md = EasyAntPluginBridge.computeModuleDescriptor(md, settings, dependencies, conflicts, excludes);
             ResolveReport report = getEasyAntIvyInstance().getResolveEngine().resolve(md, configureResolveOptions());
             getProject().addReference(EasyAntMagicNames.IMPORTED_MODULES_RESOLVE_REPORT_REF, report);
-
-            IvyContext.popContext();
         } catch (ParseException e) {
             throw new BuildException("Can't parse module descriptor", e);
         } catch (IOException e) {
             throw new BuildException("Can't parse module descriptor", e);
+        } finally {
+            IvyContext.popContext();
         }
     }
 
@@ -18,14 +18,15 @@
 package org.apache.easyant.tasks;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Vector;
 
 import org.apache.easyant.core.EasyAntConstants;
+import org.apache.easyant.core.ivy.ModuleIndex;
 import org.apache.ivy.Ivy;
 import org.apache.ivy.ant.IvyTask;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
-import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.matcher.PatternMatcher;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
@@ -50,6 +51,8 @@ public class SearchModule extends IvyTask {
     private String propertyPrefix;
     private String resolver;
 
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
     public void doExecute() throws BuildException {
         if (getOrganisation() == null) {
             throw new BuildException("no organisation provided for SearchModule task");
@@ -76,14 +79,16 @@ public class SearchModule extends IvyTask {
         }
         ModuleRevisionId mridToSearch = ModuleRevisionId.newInstance(getOrganisation(), getModule(), getBranch(),
                 getRevision());
-        ModuleRevisionId[] mrids = ivy.getSearchEngine().listModules(resolverToCheck, mridToSearch,
-                settings.getMatcher(matcher));
+        ModuleIndex index = ModuleIndex.getInstance(getProject(), resolverToCheck);
+        ModuleRevisionId[] mrids = index.search(ivy, resolverToCheck, mridToSearch, settings.getMatcher(matcher));
+        index.describe(ivy, Arrays.asList(mrids), threadCount);
+        index.save();
 
         // diplay the list
         List<String> choices = new ArrayList<String>();
         for (int i = 0; i < mrids.length; i++) {
-            ResolvedModuleRevision rmr = ivy.findModule(mrids[i]);
-            if (rmr == null) {
+            String description = index.getDescription(mrids[i]);
+            if (description == null) {
                 log("Can't retrieve " + mrids[i].toString(), Project.MSG_WARN);
             } else {
 
@@ -97,8 +102,8 @@ public class SearchModule extends IvyTask {
                     sb.append(" by ").append(mrids[i].getOrganisation());
                 }
                 // Get the description
-                if (rmr.getDescriptor().getDescription() != null && !rmr.getDescriptor().getDescription().equals("")) {
-                    sb.append(" (").append(rmr.getDescriptor().getDescription()).append(")");
+                if (!description.equals("")) {
+                    sb.append(" (").append(description).append(")");
                 }
                 log(sb.toString());
             }
@@ -192,4 +197,18 @@ public class SearchModule extends IvyTask {
         this.resolver = resolver;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Set the maximum number of module descriptors read at the same time to describe matching modules
+     *
+     * @param threadCount
+     *            a number of threads, defaults to the number of available processors
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
 }
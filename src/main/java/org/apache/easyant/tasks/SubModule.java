@@ -19,12 +19,27 @@ package org.apache.easyant.tasks;
 
 import org.apache.easyant.core.EasyAntConstants;
 import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ant.BuildProgress;
+import org.apache.easyant.core.ant.EasyAntComponentHelper;
+import org.apache.easyant.core.ant.LayeredPropertyHelper;
+import org.apache.easyant.core.ant.PipelineScheduler;
+import org.apache.easyant.core.ant.PipelineScheduler.PipelinedBuild;
+import org.apache.easyant.core.ant.ProjectStreamRouter;
 import org.apache.easyant.core.ant.ProjectUtils;
+import org.apache.easyant.core.ant.SubBuildSelector;
+import org.apache.easyant.core.ant.SubBuilds;
+import org.apache.easyant.core.ant.listerners.ExecutionHistory;
 import org.apache.easyant.core.ant.listerners.ExecutionResult;
 import org.apache.easyant.core.ant.listerners.MultiModuleLogger;
+import org.apache.easyant.core.cache.ModuleOutputCache;
+import org.apache.easyant.core.cache.SubBuildFingerprints;
+import org.apache.easyant.core.ivy.ImportResolutionCache;
 import org.apache.easyant.core.ivy.IvyInstanceHelper;
+import org.apache.ivy.ant.IvyAntSettings;
 import org.apache.ivy.ant.IvyPublish;
 import org.apache.ivy.ant.IvyResolve;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.tools.ant.*;
 import org.apache.tools.ant.taskdefs.Ant;
 import org.apache.tools.ant.taskdefs.Property;
@@ -32,9 +47,11 @@ import org.apache.tools.ant.types.Path;
 import org.apache.tools.ant.types.PropertySet;
 import org.apache.tools.ant.types.Reference;
 import org.apache.tools.ant.util.CollectionUtils;
+import org.apache.tools.ant.util.DateUtils;
 import org.apache.tools.ant.util.StringUtils;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -53,23 +70,97 @@ public class SubModule extends AbstractEasyAntTask {
     private TargetList targets = new TargetList();
     private boolean useBuildRepository = false;
     private boolean overwrite = true;
+    private boolean pipelined = false;
+    private String publishTarget = EasyAntConstants.DEFAULT_PIPELINE_PUBLISH_TARGET;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private File historyFile;
+    private int maxHeapUsage = EasyAntConstants.DEFAULT_PIPELINE_MAX_HEAP_USAGE;
+    private String buildCache;
+    private Collection<File> changedFiles;
+    private String modules;
+    private boolean includeUpstream = false;
+    private boolean includeDownstream = false;
+    private File progressFile;
+    private boolean resume = false;
 
     private boolean inheritRefs = false;
     private List<Property> properties = new ArrayList<Property>();
     private List<Ant.Reference> references = new ArrayList<Ant.Reference>();
     private List<PropertySet> propertySets = new ArrayList<PropertySet>();
 
+    private LayeredPropertyHelper.Snapshot parentProperties;
+
+    private ExecutionHistory history;
+
+    private ModuleOutputCache outputCache;
+
+    private BuildProgress progress;
+
+    private SubBuilds subBuilds;
+
+    private SubBuildFingerprints fingerprints;
+
     public void execute() throws BuildException {
         if (buildpath == null) {
             throw new BuildException("No buildpath specified");
         }
-        final String[] filenames = buildpath.list();
-        final int count = filenames.length;
-        if (count < 1) {
+        String[] filenames = buildpath.list();
+        if (filenames.length < 1) {
             log("No sub-builds to iterate on", Project.MSG_WARN);
             return;
         }
+        subBuilds = new SubBuilds(getProject(), moduleFile);
+        if (modules != null) {
+            filenames = new SubBuildSelector(this, subBuilds).selectModules(filenames, modules, includeUpstream,
+                    includeDownstream);
+        }
+        if (changedFiles != null) {
+            filenames = new SubBuildSelector(this, subBuilds).selectAffected(filenames, changedFiles);
+            if (filenames.length < 1) {
+                log("No sub-build affected by changed files", Project.MSG_INFO);
+                return;
+            }
+        }
+        final int count = filenames.length;
+        // user properties are shared by all submodules
+        parentProperties = new LayeredPropertyHelper.Snapshot(getProject());
+        history = historyFile != null ? ExecutionHistory.load(historyFile, getProject()) : null;
+        if (progressFile != null) {
+            progress = BuildProgress.resumeOrStart(progressFile, CollectionUtils.flattenToString(targets), resume,
+                    getProject());
+        }
+        if (buildCache != null) {
+            outputCache = ModuleOutputCache.forLocation(buildCache);
+        }
+        if (outputCache != null || progress != null) {
+            List<ModuleId> buildModules = new ArrayList<ModuleId>();
+            for (String filename : filenames) {
+                ModuleDescriptor md = subBuilds.getModuleDescriptor(subBuilds.getBuildModule(filename));
+                if (md != null) {
+                    buildModules.add(md.getModuleRevisionId().getModuleId());
+                }
+            }
+            fingerprints = new SubBuildFingerprints(buildModules, subBuilds.getDescriptorSettings()
+                    .getVersionMatcher());
+        }
 
+        try {
+            if (pipelined && useBuildRepository && count > 1) {
+                executePipelined(filenames);
+            } else {
+                executeSequentially(filenames);
+            }
+            if (progress != null) {
+                progress.delete();
+            }
+        } finally {
+            if (history != null) {
+                history.save(getProject());
+            }
+        }
+    }
+
+    private void executeSequentially(String[] filenames) {
         BuildException buildException = null;
         for (String filename : filenames) {
             File file = null;
@@ -86,7 +177,7 @@ public class SubModule extends AbstractEasyAntTask {
                     file = new File(file, moduleFile);
                 }
                 directory = file.getParentFile();
-                execute(file, directory);
+                execute(file, directory, null);
                 if (verbose && subdirPath != null) {
                     log("Leaving directory: " + subdirPath + "\n", Project.MSG_INFO);
                 }
@@ -134,15 +225,87 @@ public class SubModule extends AbstractEasyAntTask {
         }
     }
 
+    /**
+     * Runs sub-builds concurrently. Each sub-build starts as soon as the sub-builds it depends on published their
+     * artifacts in the build scoped repository, which happens right after the publish target if it is executed.
+     *
+     * @param filenames sub-builds, in build order
+     * @see PipelineScheduler
+     */
+    private void executePipelined(String[] filenames) {
+        PipelineScheduler scheduler = new PipelineScheduler(this, subBuilds, filenames, history, maxHeapUsage);
+        BuildException buildException = null;
+        try {
+            scheduler.execute(threadCount, new PipelineScheduler.SubBuildRunner() {
+                public void run(PipelinedBuild build) {
+                    File file = build.getBuildModule();
+                    execute(file, file.getParentFile(), build);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            buildException = new BuildException("Interrupted while waiting for sub-builds", e);
+        }
+
+        for (PipelinedBuild build : scheduler.getBuilds()) {
+            if (build.getSubModule() != null) {
+                storeExecutionTimes(getProject(), build.getSubModule());
+            }
+            if (build.getThrottlingReport() != null) {
+                storeThrottlingReport(getProject(), build.getThrottlingReport());
+            }
+            Throwable thrownException = build.getFailure();
+            if (thrownException == null || buildException != null && !getProject().isKeepGoingMode()) {
+                continue;
+            }
+            if (getProject().isKeepGoingMode()) {
+                log("File '" + build.getBuildModule() + "' failed with message '" + thrownException.getMessage()
+                        + "'.", Project.MSG_ERR);
+            }
+            if (buildException == null) {
+                buildException = thrownException instanceof BuildException ? (BuildException) thrownException
+                        : new BuildException(thrownException);
+            }
+        }
+        if (buildException != null) {
+            throw buildException;
+        }
+    }
+
+    private boolean restoreFromBuildCache(Project subModule, String fingerprint) {
+        try {
+            if (outputCache.restore(fingerprint, getArtifactsDir(subModule))) {
+                subModule.log("Restored artifacts from build cache " + outputCache.getBackend() + " (" + fingerprint
+                        + ")", Project.MSG_INFO);
+                return true;
+            }
+        } catch (IOException e) {
+            subModule.log("Unable to restore artifacts from build cache: " + e.getMessage(), Project.MSG_WARN);
+        }
+        return false;
+    }
+
+    private void storeInBuildCache(Project subModule, String fingerprint) {
+        try {
+            if (outputCache.store(fingerprint, getArtifactsDir(subModule))) {
+                subModule.log("Stored artifacts in build cache " + outputCache.getBackend() + " (" + fingerprint + ")",
+                        Project.MSG_VERBOSE);
+            }
+        } catch (IOException e) {
+            subModule.log("Unable to store artifacts in build cache: " + e.getMessage(), Project.MSG_WARN);
+        }
+    }
+
     /**
      * Runs the given target on the provided build file.
      *
      * @param file      the build file to execute
      * @param directory the directory of the current iteration
+     * @param run       the pipelined execution of this sub-build, null if sub-builds are executed one after the other
      * @throws BuildException is the file cannot be found, read, is a directory, or the target called failed, but only if
      *                        <code>failOnError</code> is <code>true</code>. Otherwise, a warning log message is simply output.
      */
-    private void execute(File file, File directory) throws BuildException {
+    private void execute(File file, File directory, PipelinedBuild run) throws BuildException {
         if (!file.exists() || file.isDirectory() || !file.canRead()) {
             String msg = "Invalid file: " + file;
             if (failOnError) {
@@ -152,7 +315,16 @@ public class SubModule extends AbstractEasyAntTask {
             return;
         }
 
-        Project subModule = configureSubModule(file, directory);
+        long startTime = System.currentTimeMillis();
+        String moduleName = subBuilds.getModuleName(directory);
+        Project subModule = configureSubModule(file, directory, run);
+        if (history != null) {
+            subModule.addBuildListener(history.createRecorder(moduleName));
+        }
+        if (run != null) {
+            run.setSubModule(subModule);
+            ProjectStreamRouter.attach(subModule);
+        }
         subModule.fireSubBuildStarted();
 
         try {
@@ -176,6 +348,10 @@ public class SubModule extends AbstractEasyAntTask {
             lm.setLocation(new Location(ProjectUtils.emulateMainScript(getProject()).getAbsolutePath()));
             lm.setUseBuildRepository(useBuildRepository);
             lm.execute();
+            if (run != null) {
+                // as well as project dependencies and artifacts published in the build scoped repository
+                IvyInstanceHelper.useArtifactLocks(IvyInstanceHelper.getProjectIvyAntSettings(subModule), lm);
+            }
 
             helper.resolveExtensionOfAttributes(subModule);
 
@@ -184,79 +360,168 @@ public class SubModule extends AbstractEasyAntTask {
 
             if (targetsToRun != null && !"".equals(targetsToRun.trim())) {
                 subModule.setNewProperty(EasyAntMagicNames.PROJECT_EXECUTED_TARGETS, targetsToRun);
-                subModule.executeTargets(new TargetList(targetsToRun));
-                if (useBuildRepository) {
-                    String targetArtifacts = subModule.getProperty("target.artifacts");
-                    if (targetArtifacts == null) {
-                        targetArtifacts = "target/artifacts";
+                ModuleDescriptor md = fingerprints != null ? subBuilds.getModuleDescriptor(file) : null;
+                String fingerprint = md != null ? fingerprints.compute(subModule, md, directory, targetsToRun,
+                        getArtifactsDir(subModule)) : null;
+                boolean upToDate = fingerprint != null && progress != null && progress.isUpToDate(moduleName,
+                        fingerprint, BuildProgress.describeArtifacts(getArtifactsDir(subModule)));
+                if (upToDate) {
+                    subModule.log("Skipping sub-build, built by the resumed build in "
+                            + DateUtils.formatElapsedTime(progress.getElapsedTime(moduleName)), Project.MSG_INFO);
+                }
+                boolean restored = !upToDate && fingerprint != null && outputCache != null
+                        && restoreFromBuildCache(subModule, fingerprint);
+                if (upToDate || restored) {
+                    if (useBuildRepository) {
+                        publishInBuildScopedRepository(subModule, file);
+                        if (run != null) {
+                            run.published(getArtifactsDir(subModule));
+                        }
                     }
-                    File artifactsDir = subModule.resolveFile(targetArtifacts);
-                    if (artifactsDir.isDirectory()) {
-                        IvyResolve ivyResolve = new IvyResolve();
-                        ivyResolve.setFile(file);
-                        ivyResolve.setProject(subModule);
-                        ivyResolve.setOwningTarget(getOwningTarget());
-                        ivyResolve.setLocation(getLocation());
-                        ivyResolve.setTaskName("publish-buildscoped-repository");
-                        ivyResolve.setSettingsRef(IvyInstanceHelper.buildProjectIvyReference(subModule));
-                        ivyResolve.execute();
-
-                        // this property set by LoadModule task when it
-                        // configures the build repo
-                        String resolver = subModule.getProperty(EasyAntMagicNames.EASYANT_BUILD_REPOSITORY);
-
-                        subModule.log("Publishing in build scoped repository", Project.MSG_INFO);
-                        // Publish on build scoped repository
-                        IvyPublish ivyPublish = new IvyPublish();
-                        ivyPublish.setSettingsRef(IvyInstanceHelper.buildProjectIvyReference(subModule));
-                        ivyPublish.setResolver(resolver);
-                        // TODO: this should be more flexible!
-                        ivyPublish.setArtifactspattern(artifactsDir.getAbsolutePath()
-                                + "/[artifact](-[classifier]).[ext]");
-                        // not all sub-build targets will generate ivy
-                        // artifacts. we don't want to fail
-                        // a successful build just because there's nothing to
-                        // publish.
-                        ivyPublish.setWarnonmissing(false);
-                        ivyPublish.setHaltonmissing(false);
-                        ivyPublish.setProject(subModule);
-                        ivyPublish.setOwningTarget(getOwningTarget());
-                        ivyPublish.setLocation(getLocation());
-                        ivyPublish.setOverwrite(overwrite);
-                        ivyPublish.setForcedeliver(true);
-                        ivyPublish.setTaskName("publish-buildscoped-repository");
-                        ivyPublish.execute();
-                    } else {
-                        subModule.log("Skipping publish because " + artifactsDir.getPath() + " is not a directory",
-                                Project.MSG_VERBOSE);
+                    if (restored) {
+                        recordSuccess(subModule, moduleName, fingerprint, startTime);
                     }
+                } else {
+                    ProjectUtils.installParallelTargetExecutor(subModule);
+                    TargetList targetList = new TargetList(targetsToRun);
+                    if (useBuildRepository && run != null) {
+                        addPublishTarget(subModule, file, targetList, run);
+                    }
+                    subModule.executeTargets(targetList);
+                    if (useBuildRepository && (run == null || run.hasArtifactsChanged(getArtifactsDir(subModule)))) {
+                        publishInBuildScopedRepository(subModule, file);
+                    }
+                    if (fingerprint != null && outputCache != null) {
+                        storeInBuildCache(subModule, fingerprint);
+                    }
+                    recordSuccess(subModule, moduleName, fingerprint, startTime);
                 }
             } else {
                 subModule.log("Skipping sub-project build because no matching targets were found", Project.MSG_VERBOSE);
             }
             subModule.fireSubBuildFinished(null);
         } catch (BuildException e) {
+            if (progress != null) {
+                progress.recordFailure(moduleName);
+                progress.save(getProject());
+            }
             subModule.fireSubBuildFinished(e);
             throw e;
         } finally {
-            // add execution times for the current submodule to parent
-            // project references for access from MetaBuildExecutor
-            storeExecutionTimes(getProject(), subModule);
+            if (run == null) {
+                // add execution times for the current submodule to parent
+                // project references for access from MetaBuildExecutor
+                storeExecutionTimes(getProject(), subModule);
+            } else {
+                ProjectStreamRouter.detach(subModule);
+            }
+            // sub-builds run in the calling thread would otherwise stay reachable from it
+            IvyInstanceHelper.popLoggers(subModule);
         }
 
     }
 
-    private Project configureSubModule(File file, File directory) {
-        Project subModule = getProject().createSubProject();
+    private void recordSuccess(Project subModule, String moduleName, String fingerprint, long startTime) {
+        if (progress != null) {
+            progress.recordSuccess(moduleName, fingerprint, BuildProgress.describeArtifacts(getArtifactsDir(subModule)),
+                    System.currentTimeMillis() - startTime);
+            progress.save(getProject());
+        }
+    }
+
+    private File getArtifactsDir(Project subModule) {
+        String targetArtifacts = subModule.getProperty("target.artifacts");
+        if (targetArtifacts == null) {
+            targetArtifacts = "target/artifacts";
+        }
+        return subModule.resolveFile(targetArtifacts);
+    }
+
+    private void publishInBuildScopedRepository(Project subModule, File file) {
+        File artifactsDir = getArtifactsDir(subModule);
+        if (artifactsDir.isDirectory()) {
+            IvyResolve ivyResolve = new IvyResolve();
+            ivyResolve.setFile(file);
+            ivyResolve.setProject(subModule);
+            ivyResolve.setOwningTarget(getOwningTarget());
+            ivyResolve.setLocation(getLocation());
+            ivyResolve.setTaskName("publish-buildscoped-repository");
+            ivyResolve.setSettingsRef(IvyInstanceHelper.buildProjectIvyReference(subModule));
+            ivyResolve.execute();
+
+            // this property set by LoadModule task when it
+            // configures the build repo
+            String resolver = subModule.getProperty(EasyAntMagicNames.EASYANT_BUILD_REPOSITORY);
+
+            subModule.log("Publishing in build scoped repository", Project.MSG_INFO);
+            // Publish on build scoped repository
+            IvyPublish ivyPublish = new IvyPublish();
+            ivyPublish.setSettingsRef(IvyInstanceHelper.buildProjectIvyReference(subModule));
+            ivyPublish.setResolver(resolver);
+            // TODO: this should be more flexible!
+            ivyPublish.setArtifactspattern(artifactsDir.getAbsolutePath() + "/[artifact](-[classifier]).[ext]");
+            // not all sub-build targets will generate ivy
+            // artifacts. we don't want to fail
+            // a successful build just because there's nothing to
+            // publish.
+            ivyPublish.setWarnonmissing(false);
+            ivyPublish.setHaltonmissing(false);
+            ivyPublish.setProject(subModule);
+            ivyPublish.setOwningTarget(getOwningTarget());
+            ivyPublish.setLocation(getLocation());
+            ivyPublish.setOverwrite(overwrite);
+            ivyPublish.setForcedeliver(true);
+            ivyPublish.setTaskName("publish-buildscoped-repository");
+            ivyPublish.execute();
+        } else {
+            subModule.log("Skipping publish because " + artifactsDir.getPath() + " is not a directory",
+                    Project.MSG_VERBOSE);
+        }
+    }
+
+    /**
+     * Add a target publishing artifacts of a sub-build right after the publish target, so that the next sub-build can
+     * start while this one is still running
+     */
+    private void addPublishTarget(Project subModule, File file, TargetList targetList, PipelinedBuild run) {
+        if (subModule.getTargets().get(publishTarget) == null) {
+            return;
+        }
+        for (int i = 0; i < targetList.size(); i++) {
+            String target = targetList.get(i);
+            boolean executesPublishTarget = target.equals(publishTarget);
+            if (!executesPublishTarget) {
+                for (Target dependency : subModule.topoSort(target, subModule.getTargets(), false)) {
+                    executesPublishTarget |= dependency.getName().equals(publishTarget);
+                }
+            }
+            if (executesPublishTarget) {
+                subModule.addTarget(new PublishTarget(subModule, file, run));
+                targetList.add(target.equals(publishTarget) ? i + 1 : i, PublishTarget.NAME);
+                return;
+            }
+        }
+    }
+
+    private Project configureSubModule(File file, File directory, PipelinedBuild run) {
+        Project subModule = new Project();
+        // definitions loaded from antlib resources are shared with the parent project
+        EasyAntComponentHelper.install(subModule);
+        getProject().initSubProject(subModule);
+        // user properties are read through the parent snapshot instead of being copied
+        LayeredPropertyHelper.install(subModule, parentProperties);
 
         subModule.setNewProperty(EasyAntMagicNames.SUBMODULE, "true");
 
         subModule.setJavaVersionProperty();
-        for (BuildListener buildListener : getProject().getBuildListeners()) {
-            subModule.addBuildListener(buildListener);
+        if (run == null) {
+            for (BuildListener buildListener : getProject().getBuildListeners()) {
+                subModule.addBuildListener(buildListener);
+            }
+        } else {
+            // events of concurrent sub-builds are delivered in build order
+            subModule.addBuildListener(run.getListener());
         }
-        // copy all User properties
-        addAlmostAll(getProject().getUserProperties(), subModule, PropertyType.USER);
         // inherit meta.target directory, for shared build repository.
         String metaTarget = getProject().getProperty(EasyAntMagicNames.META_TARGET);
         if (metaTarget != null) {
@@ -279,9 +544,16 @@ public class SubModule extends AbstractEasyAntTask {
         overrideProperties(subModule);
         addReferences(subModule);
 
-        getEasyAntEngine().configureEasyAntIvyInstance(subModule);
+        IvyAntSettings easyantIvySettings = getEasyAntEngine().configureEasyAntIvyInstance(subModule);
+        if (run != null) {
+            // pipelined sub-builds resolve plugins concurrently in the shared easyant cache
+            IvyInstanceHelper.useArtifactLocks(easyantIvySettings, this);
+        }
         subModule.addReference(EasyAntMagicNames.PLUGIN_SERVICE_INSTANCE,
                 getProject().getReference(EasyAntMagicNames.PLUGIN_SERVICE_INSTANCE));
+        // modules imported by several submodules are resolved once per build
+        subModule.addReference(EasyAntMagicNames.IMPORT_RESOLUTION_CACHE,
+                ImportResolutionCache.getInstance(getProject()));
 
         subModule.setName(file.getName());
         subModule.setBaseDir(directory);
@@ -303,6 +575,16 @@ public class SubModule extends AbstractEasyAntTask {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private void storeThrottlingReport(Project parent, String report) {
+        List<String> reports = parent.getReference(MultiModuleLogger.ADMISSION_THROTTLING_RESULTS);
+        if (reports == null) {
+            reports = new ArrayList<String>();
+            parent.addReference(MultiModuleLogger.ADMISSION_THROTTLING_RESULTS, reports);
+        }
+        reports.add(report);
+    }
+
     /**
      * Filter the active set of targets to only those defined in the given project.
      */
@@ -463,6 +745,140 @@ public class SubModule extends AbstractEasyAntTask {
         this.overwrite = overwrite;
     }
 
+    /**
+     * Sets whether sub-builds should be pipelined: sub-builds run concurrently, each one starting as soon as the
+     * sub-builds it depends on have published their artifacts in the
+     * {@link #setUseBuildRepository(boolean) build-scoped repository}, instead of waiting for all their targets to be
+     * executed. When several sub-builds are ready, the one heading the longest chain of dependent sub-builds recorded
+     * in the {@link #setHistoryFile(File) history} starts first. In keep going mode, sub-builds depending on a failed
+     * one are skipped. Defaults to <code>false</code>.
+     *
+     * @param pipelined the new value for this boolean flag
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Set the target after which a pipelined sub-build publishes its artifacts. Defaults to
+     * {@value EasyAntConstants#DEFAULT_PIPELINE_PUBLISH_TARGET}.
+     *
+     * @param publishTarget a target name
+     */
+    public void setPublishTarget(String publishTarget) {
+        this.publishTarget = publishTarget;
+    }
+
+    /**
+     * Set the maximum number of pipelined sub-builds running at the same time. Defaults to the number of processors.
+     *
+     * @param threadCount a positive number
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new BuildException("threadCount must be a positive integer");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Set the file where durations of sub-builds and of their targets are recorded. Pipelined sub-builds are started
+     * according to the durations recorded by previous builds. Durations are not recorded if unspecified.
+     *
+     * @param historyFile a properties file
+     */
+    public void setHistoryFile(File historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    /**
+     * Set the maximum percentage of the heap pipelined sub-builds may use. A sub-build is not started if the heap
+     * cannot hold it next to the running ones, according to footprints recorded in the
+     * {@link #setHistoryFile(File) history}.
+     * Defaults to {@value EasyAntConstants#DEFAULT_PIPELINE_MAX_HEAP_USAGE}.
+     *
+     * @param maxHeapUsage a percentage, between 1 and 100
+     */
+    public void setMaxHeapUsage(int maxHeapUsage) {
+        if (maxHeapUsage < 1 || maxHeapUsage > 100) {
+            throw new BuildException("maxHeapUsage must be a percentage between 1 and 100");
+        }
+        this.maxHeapUsage = maxHeapUsage;
+    }
+
+    /**
+     * Set the build cache where artifacts of sub-builds are stored, and restored from instead of executing targets when
+     * inputs of a sub-build did not change. Sub-builds are not cached if unspecified.
+     *
+     * @param buildCache a directory, or the http url of a cache server
+     */
+    public void setBuildCache(String buildCache) {
+        this.buildCache = buildCache;
+    }
+
+    /**
+     * Set the file where the progress of the build is recorded after each sub-build: sub-builds built successfully,
+     * fingerprints of their inputs and their artifacts. The file is deleted once all sub-builds are built successfully.
+     * Progress is not recorded if unspecified.
+     *
+     * @param progressFile a properties file
+     */
+    public void setProgressFile(File progressFile) {
+        this.progressFile = progressFile;
+    }
+
+    /**
+     * Resume the build recorded in the {@link #setProgressFile(File) progress file}, if it executed the same targets:
+     * sub-builds it built successfully are skipped, unless their inputs or their artifacts changed. Their artifacts are
+     * published again in the build scoped repository. Defaults to false.
+     *
+     * @param resume true to resume the previous build
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Build only the sub-builds matching given modules. Sub-builds which are not selected are not even configured. All
+     * sub-builds are built if unspecified.
+     *
+     * @param modules module names, organisation#module names or directories relative to the base directory of the
+     *            parent project, separated by commas. Each of them may be a pattern using * and ? wildcards.
+     */
+    public void setModules(String modules) {
+        this.modules = modules;
+    }
+
+    /**
+     * Also build the sub-builds selected {@link #setModules(String) modules} depend on, directly or not. Defaults to
+     * false.
+     *
+     * @param includeUpstream true to build dependencies of selected modules
+     */
+    public void setIncludeUpstream(boolean includeUpstream) {
+        this.includeUpstream = includeUpstream;
+    }
+
+    /**
+     * Also build the sub-builds depending on selected {@link #setModules(String) modules}, directly or not. Defaults
+     * to false.
+     *
+     * @param includeDownstream true to build dependents of selected modules
+     */
+    public void setIncludeDownstream(boolean includeDownstream) {
+        this.includeDownstream = includeDownstream;
+    }
+
+    /**
+     * Build only the sub-builds affected by changed files: the sub-builds owning them, and the sub-builds depending on
+     * those. All sub-builds are built if unspecified.
+     *
+     * @param changedFiles files changed since a base revision
+     */
+    public void setAffectedBy(Collection<File> changedFiles) {
+        this.changedFiles = changedFiles;
+    }
+
     /**
      * Corresponds to <code>&lt;ant&gt;</code>'s <code>inheritrefs</code> attribute.
      *
@@ -523,8 +939,6 @@ public class SubModule extends AbstractEasyAntTask {
             p.setProject(subproject);
             p.execute();
         }
-
-        getProject().copyInheritedProperties(subproject);
     }
 
     /**
@@ -623,6 +1037,33 @@ public class SubModule extends AbstractEasyAntTask {
         subproject.addReference(newKey, copy);
     }
 
+    /**
+     * Target publishing artifacts of a pipelined sub-build in the build scoped repository
+     */
+    private class PublishTarget extends Target {
+
+        private static final String NAME = "publish-buildscoped-repository";
+
+        private final File file;
+
+        private final PipelinedBuild run;
+
+        private PublishTarget(Project subModule, File file, PipelinedBuild run) {
+            this.file = file;
+            this.run = run;
+            setName(NAME);
+            setProject(subModule);
+            setDepends(publishTarget);
+            setLocation(SubModule.this.getLocation());
+        }
+
+        @Override
+        public void execute() throws BuildException {
+            publishInBuildScopedRepository(getProject(), file);
+            run.published(getArtifactsDir(getProject()));
+        }
+    }
+
     /**
      * A Vector or target names, which can be constructed from a simple comma-separated list of values.
      */
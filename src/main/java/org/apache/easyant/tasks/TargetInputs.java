@@ -0,0 +1,73 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.easyant.core.ant.CachedTarget;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.PropertySet;
+import org.apache.tools.ant.types.ResourceCollection;
+
+/**
+ * Declare inputs of a target: paths, filesets or any resource collection, and sets of properties. Once its outputs
+ * are declared with {@link TargetOutputs}, the target is skipped and its outputs are restored from the target cache
+ * when these inputs did not change.
+ * <p>
+ * This task is expected to be used outside of any target, so that declarations are known before targets are
+ * executed. Resource collections are evaluated when the target is executed.
+ */
+public class TargetInputs extends Task {
+
+    private String target;
+
+    private final List<ResourceCollection> inputs = new ArrayList<ResourceCollection>();
+
+    private final List<PropertySet> propertyInputs = new ArrayList<PropertySet>();
+
+    public void execute() throws BuildException {
+        if (target == null) {
+            throw new BuildException("target attribute is mandatory");
+        }
+        CachedTarget cachedTarget = CachedTarget.get(getProject(), target);
+        for (ResourceCollection input : inputs) {
+            cachedTarget.addInput(input);
+        }
+        for (PropertySet propertyInput : propertyInputs) {
+            cachedTarget.addPropertyInput(propertyInput);
+        }
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public void setTarget(String target) {
+        this.target = target;
+    }
+
+    public void add(ResourceCollection input) {
+        inputs.add(input);
+    }
+
+    public void addPropertyset(PropertySet propertyInput) {
+        propertyInputs.add(propertyInput);
+    }
+}
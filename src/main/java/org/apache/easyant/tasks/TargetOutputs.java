@@ -0,0 +1,81 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.easyant.core.ant.CachedTarget;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+
+/**
+ * Declare outputs of a target: files or directories the target produces. Outputs are stored in the target cache once
+ * the target is executed, and restored instead of executing the target when its inputs, declared with
+ * {@link TargetInputs}, did not change. Restored outputs replace existing ones.
+ * <p>
+ * This task is expected to be used outside of any target, so that declarations are known before targets are
+ * executed.
+ */
+public class TargetOutputs extends Task {
+
+    private String target;
+
+    private final List<Output> outputs = new ArrayList<Output>();
+
+    public void execute() throws BuildException {
+        if (target == null) {
+            throw new BuildException("target attribute is mandatory");
+        }
+        CachedTarget cachedTarget = CachedTarget.get(getProject(), target);
+        for (Output output : outputs) {
+            if (output.getLocation() == null) {
+                throw new BuildException("location attribute of output is mandatory");
+            }
+            cachedTarget.addOutput(output.getLocation());
+        }
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public void setTarget(String target) {
+        this.target = target;
+    }
+
+    public Output createOutput() {
+        Output output = new Output();
+        outputs.add(output);
+        return output;
+    }
+
+    public static class Output {
+
+        private File location;
+
+        public File getLocation() {
+            return location;
+        }
+
+        public void setLocation(File location) {
+            this.location = location;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.easyant.core.ivy.PackedRepository;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+
+/**
+ * Extract a repository packed by {@link PackRepository} in a directory
+ */
+public class UnpackRepository extends Task {
+
+    private File file;
+
+    private File dir;
+
+    public void execute() throws BuildException {
+        if (dir == null || file == null) {
+            throw new BuildException("file and dir attributes are mandatory");
+        }
+        if (!file.isFile()) {
+            throw new BuildException(file + " doesn't exist");
+        }
+        try {
+            int count = PackedRepository.unpack(file, dir);
+            log("Unpacked " + count + " files from " + file + " in " + dir);
+        } catch (IOException e) {
+            throw new BuildException("Unable to unpack " + file + " in " + dir + ": " + e.getMessage(), e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public void setDir(File dir) {
+        this.dir = dir;
+    }
+}
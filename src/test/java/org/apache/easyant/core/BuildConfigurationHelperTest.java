@@ -18,11 +18,14 @@
 package org.apache.easyant.core;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import java.util.List;
 
+import org.apache.easyant.core.BuildConfigurationMatcher.RequestedBuildConfigurations;
 import org.apache.tools.ant.Project;
 import org.junit.Rule;
 import org.junit.Test;
@@ -134,6 +137,23 @@ public class BuildConfigurationHelperTest {
         assertThat(buildConfigurationActive, is(true));
     }
 
+    @Test
+    public void shouldReuseMatcherUntilBuildConfigurationsChange() {
+        Project p = new Project();
+        p.setProperty(EasyAntMagicNames.AVAILABLE_BUILD_CONFIGURATIONS, "a-conf,another-conf");
+        p.setProperty(EasyAntMagicNames.MAIN_CONFS, "a-conf");
+        BuildConfigurationMatcher matcher = BuildConfigurationMatcher.getInstance(p);
+        RequestedBuildConfigurations requested = new RequestedBuildConfigurations("another-conf");
+
+        assertThat(BuildConfigurationMatcher.getInstance(p), sameInstance(matcher));
+        assertThat(BuildConfigurationHelper.isRequestedBuildConfigurationActive(requested, p, "a-message"), is(false));
+
+        p.setProperty(EasyAntMagicNames.MAIN_CONFS, "a-conf,another-conf");
+
+        assertThat(BuildConfigurationMatcher.getInstance(p), not(sameInstance(matcher)));
+        assertThat(BuildConfigurationHelper.isRequestedBuildConfigurationActive(requested, p, "a-message"), is(true));
+    }
+
     @Test
     public void shouldRemoveSpaces() {
         assertThat(BuildConfigurationHelper.removeSpaces("aconf, another-conf"), is("aconf,another-conf"));
@@ -0,0 +1,103 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.apache.easyant.core.parser.EasyAntModuleDescriptorParserRegistry;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
+import org.apache.tools.ant.Project;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs many consecutive builds in the same JVM and checks that nothing is retained between builds: a closed build must
+ * be unreachable and the heap must stay flat. Number of builds can be changed through "easyant.soak.builds" system
+ * property.
+ */
+public class EasyAntEngineSoakTest extends EasyAntBaseTest {
+
+    private static final int WARMUP_BUILDS = 50;
+
+    /**
+     * Allowed heap growth between the end of the warmup and the last build
+     */
+    private static final long MAX_HEAP_GROWTH = 16 * 1024 * 1024;
+
+    @Before
+    public void setUp() {
+        configureProject(this.getResource("standardJavaProject.ivy"), Project.MSG_WARN);
+    }
+
+    @Test
+    public void shouldNotRetainAnythingBetweenBuilds() {
+        int builds = Integer.getInteger("easyant.soak.builds", 200);
+        for (int i = 0; i < WARMUP_BUILDS; i++) {
+            runBuild();
+        }
+        WeakReference<Project> firstBuild = new WeakReference<Project>(runBuild());
+        long heapAfterWarmup = usedHeap();
+        int easyantParsers = EasyAntModuleDescriptorParserRegistry.getInstance().size();
+        int ivyParsers = ModuleDescriptorParserRegistry.getInstance().getParsers().length;
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < builds; i++) {
+            runBuild();
+        }
+        long duration = System.currentTimeMillis() - start;
+        long heapGrowth = usedHeap() - heapAfterWarmup;
+        System.out.println(builds + " builds in " + duration + "ms (" + duration / builds
+                + "ms per build), heap growth: " + heapGrowth / 1024 + "KB");
+
+        assertThat("a closed build is still reachable", firstBuild.get(), nullValue());
+        assertThat(EasyAntModuleDescriptorParserRegistry.getInstance().size(), is(easyantParsers));
+        assertThat(ModuleDescriptorParserRegistry.getInstance().getParsers().length, is(ivyParsers));
+        assertTrue("heap grew by " + heapGrowth + " bytes", heapGrowth < MAX_HEAP_GROWTH);
+    }
+
+    /**
+     * Run a build the way {@link EasyAntEngine#doBuild()} does, keeping the built project
+     */
+    private Project runBuild() {
+        conf.getTargets().clear();
+        conf.getTargets().add("modulewithtarget:mytarget");
+        EasyAntEngine engine = new EasyAntEngine(conf);
+        Project project = new Project();
+        try {
+            engine.configureEasyAnt(project);
+            engine.loadProject(project);
+            engine.doBuild(project);
+        } finally {
+            engine.close();
+        }
+        return project;
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
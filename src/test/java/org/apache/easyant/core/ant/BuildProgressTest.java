@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.tools.ant.Project;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildProgressTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Project project = new Project();
+
+    @Test
+    public void shouldPersistSuccessfulAndFailedModules() {
+        File progressFile = new File(folder.getRoot(), "progress/build.properties");
+        BuildProgress progress = BuildProgress.load(progressFile, project);
+        progress.start("clean,package");
+        progress.recordSuccess("core", "abc", "{core.jar=1:2}", 1000);
+        progress.recordFailure("web");
+        progress.recordFailure("cli");
+        progress.save(project);
+
+        BuildProgress reloaded = BuildProgress.load(progressFile, project);
+        assertThat(reloaded.getTargets(), is("clean,package"));
+        assertThat(reloaded.getFailedModule(), is("web"));
+        assertThat(reloaded.isUpToDate("core", "abc", "{core.jar=1:2}"), is(true));
+        assertThat(reloaded.isUpToDate("core", "abd", "{core.jar=1:2}"), is(false));
+        assertThat(reloaded.isUpToDate("core", "abc", "{core.jar=3:2}"), is(false));
+        assertThat(reloaded.isUpToDate("web", "abc", "{}"), is(false));
+        assertThat(reloaded.getElapsedTime("core"), is(1000L));
+    }
+
+    @Test
+    public void shouldForgetModulesWhichCannotBeFingerprinted() {
+        BuildProgress progress = BuildProgress.load(new File(folder.getRoot(), "build.properties"), project);
+        progress.start("package");
+        progress.recordFailure("core");
+        progress.recordSuccess("core", null, "{}", 1000);
+
+        assertThat(progress.getFailedModule(), is(nullValue()));
+        assertThat(progress.getElapsedTime("core"), is(-1L));
+    }
+
+    @Test
+    public void shouldResumeOnlyBuildOfSameTargets() {
+        File progressFile = new File(folder.getRoot(), "build.properties");
+        BuildProgress progress = BuildProgress.load(progressFile, project);
+        progress.start("package");
+        progress.recordFailure("web");
+        progress.save(project);
+
+        assertThat(BuildProgress.resumeOrStart(progressFile, "package", true, project).getFailedModule(), is("web"));
+        assertThat(BuildProgress.resumeOrStart(progressFile, "package", false, project).getFailedModule(),
+                is(nullValue()));
+        assertThat(BuildProgress.resumeOrStart(progressFile, "clean,package", true, project).getFailedModule(),
+                is(nullValue()));
+    }
+
+    @Test
+    public void shouldDescribeArtifactsChanges() throws IOException {
+        File artifactsDir = folder.newFolder("artifacts");
+        String empty = BuildProgress.describeArtifacts(artifactsDir);
+        File artifact = new File(artifactsDir, "core.jar");
+        artifact.createNewFile();
+        String created = BuildProgress.describeArtifacts(artifactsDir);
+        artifact.setLastModified(artifact.lastModified() - 10000);
+
+        assertThat(created.equals(empty), is(false));
+        assertThat(BuildProgress.describeArtifacts(artifactsDir).equals(created), is(false));
+        assertThat(BuildProgress.describeArtifacts(new File(folder.getRoot(), "missing")), is("{}"));
+    }
+
+    @Test
+    public void shouldDeleteProgressOfSuccessfulBuild() {
+        File progressFile = new File(folder.getRoot(), "build.properties");
+        BuildProgress progress = BuildProgress.load(progressFile, project);
+        progress.start("package");
+        progress.save(project);
+        assertThat(progressFile.exists(), is(true));
+
+        progress.delete();
+
+        assertThat(progressFile.exists(), is(false));
+        assertThat(BuildProgress.load(progressFile, project).getTargets(), is(nullValue()));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.taskdefs.Execute;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangedFilesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadChangedFilesFromList() throws IOException {
+        File list = folder.newFile("changes.txt");
+        write(list, "# changed files\ncore/src/Core.java\n\n  web/module.ivy  \n");
+
+        List<File> changedFiles = ChangedFiles.read(list, folder.getRoot());
+
+        assertThat(changedFiles, is(Arrays.asList(new File(folder.getRoot(), "core/src/Core.java"), new File(
+                folder.getRoot(), "web/module.ivy"))));
+    }
+
+    @Test
+    public void shouldListGitChangesSinceBaseRevision() throws IOException {
+        File repository = folder.getRoot().getCanonicalFile();
+        Assume.assumeTrue(git(repository, "init", "-q"));
+        git(repository, "config", "user.email", "test@example.org");
+        git(repository, "config", "user.name", "test");
+        File core = new File(repository, "core");
+        core.mkdirs();
+        write(new File(core, "Core.java"), "class Core {}");
+        write(new File(repository, "README"), "readme");
+        git(repository, "add", ".");
+        git(repository, "commit", "-q", "-m", "initial");
+
+        write(new File(core, "Core.java"), "class Core { }");
+        File web = new File(repository, "web");
+        web.mkdirs();
+        write(new File(web, "Web.java"), "class Web {}");
+
+        List<File> changedFiles = ChangedFiles.fromGit(core, "HEAD");
+
+        assertThat(changedFiles.size(), is(1));
+        assertThat(changedFiles, hasItems(new File(core, "Core.java")));
+        changedFiles = ChangedFiles.fromGit(repository, "HEAD");
+        assertThat(changedFiles.size(), is(2));
+        assertThat(changedFiles, hasItems(new File(core, "Core.java"), new File(web, "Web.java")));
+    }
+
+    @Test(expected = BuildException.class)
+    public void shouldFailOnUnknownRevision() throws IOException {
+        File repository = folder.getRoot().getCanonicalFile();
+        Assume.assumeTrue(git(repository, "init", "-q"));
+
+        ChangedFiles.fromGit(repository, "unknown-revision");
+    }
+
+    private boolean git(File workDir, String... args) {
+        String[] commandline = new String[args.length + 1];
+        commandline[0] = "git";
+        System.arraycopy(args, 0, commandline, 1, args.length);
+        Execute execute = new Execute();
+        execute.setWorkingDirectory(workDir);
+        execute.setCommandline(commandline);
+        try {
+            return execute.execute() == 0;
+        } catch (IOException e) {
+            // git is not available
+            return false;
+        }
+    }
+
+    private void write(File file, String content) throws IOException {
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.apache.tools.ant.ComponentHelper;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.taskdefs.Echo;
+import org.apache.tools.ant.taskdefs.Taskdef;
+import org.apache.tools.ant.types.Path;
+import org.apache.tools.ant.types.Reference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EasyAntComponentHelperTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Project project;
+
+    private EasyAntComponentHelper helper;
+
+    @Before
+    public void setUp() throws IOException {
+        File antlibDir = folder.newFolder("org", "example");
+        FileWriter writer = new FileWriter(new File(antlibDir, "antlib.xml"));
+        try {
+            writer.write("<antlib><taskdef name=\"hello\" classname=\"org.apache.tools.ant.taskdefs.Echo\"/></antlib>");
+        } finally {
+            writer.close();
+        }
+
+        project = new Project();
+        helper = EasyAntComponentHelper.install(project);
+        project.init();
+        Path antlibClasspath = new Path(project, folder.getRoot().getAbsolutePath());
+        project.addReference("antlib.classpath", antlibClasspath);
+        project.addReference(MagicNames.REFID_CLASSPATH_LOADER_PREFIX + "antlib.classpath", PluginClassLoaderPool
+                .getInstance().getClassLoader(getClass().getClassLoader(),
+                        PluginClassLoaderPool.toFiles(antlibClasspath.list())));
+    }
+
+    @After
+    public void tearDown() {
+        PluginClassLoaderPool.getInstance().clear();
+    }
+
+    @Test
+    public void shouldUseCachingDefiners() {
+        assertThat(project.createTask("taskdef"), instanceOf(EasyAntComponentHelper.CachingTaskdef.class));
+        assertThat(project.createTask("typedef"), instanceOf(EasyAntComponentHelper.CachingTypedef.class));
+    }
+
+    @Test
+    public void shouldShareDefinitionsWithSubProjects() {
+        loadAntlib(project);
+        assertThat(helper.getSharedResourcesCount(), is(1));
+
+        Project subProject = new Project();
+        EasyAntComponentHelper.install(subProject);
+        project.initSubProject(subProject);
+        subProject.addReference("antlib.classpath", project.getReference("antlib.classpath"));
+        // class loaders are shared between projects by the plugin class loader pool
+        subProject.addReference(MagicNames.REFID_CLASSPATH_LOADER_PREFIX + "antlib.classpath",
+                project.getReference(MagicNames.REFID_CLASSPATH_LOADER_PREFIX + "antlib.classpath"));
+        ComponentHelper.getComponentHelper(subProject).getAntTypeTable().remove("hello");
+
+        loadAntlib(subProject);
+
+        assertThat(ComponentHelper.getComponentHelper(subProject).getDefinition("hello"),
+                sameInstance(ComponentHelper.getComponentHelper(project).getDefinition("hello")));
+        assertThat(subProject.createTask("hello"), instanceOf(Echo.class));
+        assertThat(helper.getSharedResourcesCount(), is(1));
+    }
+
+    @Test
+    public void shouldNotRecordDefinitionsOfClassLoadersCreatedPerProject() {
+        for (int i = 0; i < 5; i++) {
+            Project subProject = new Project();
+            EasyAntComponentHelper.install(subProject);
+            project.initSubProject(subProject);
+            subProject.addReference("user.classpath", new Path(subProject, folder.getRoot().getAbsolutePath()));
+            ComponentHelper.getComponentHelper(subProject).getAntTypeTable().remove("hello");
+
+            loadAntlib(subProject, "user.classpath");
+
+            assertThat(subProject.createTask("hello"), instanceOf(Echo.class));
+            assertThat(helper.getSharedResourcesCount(), is(0));
+        }
+    }
+
+    @Test
+    public void shouldUsePluginClassLoaderOnlyForPluginClasspaths() {
+        loadAntlib(project);
+        assertThat(ComponentHelper.getComponentHelper(project).getDefinition("hello").getClassLoader(),
+                sameInstance(project.getReference(MagicNames.REFID_CLASSPATH_LOADER_PREFIX + "antlib.classpath")));
+
+        project.addReference("user.classpath", new Path(project, folder.getRoot().getAbsolutePath()));
+        Taskdef taskdef = loadAntlib(project, "user.classpath");
+
+        assertThat(project.getProperty(MagicNames.REFID_CLASSPATH_REUSE_LOADER), nullValue());
+        // ant registers loaders under this reference only when reusing them
+        assertThat(project.getReference(MagicNames.REFID_CLASSPATH_LOADER_PREFIX + "user.classpath"), nullValue());
+        assertThat(taskdef.getLoaderId(), is(MagicNames.REFID_CLASSPATH_LOADER_PREFIX + "user.classpath"));
+    }
+
+    private void loadAntlib(Project project) {
+        loadAntlib(project, "antlib.classpath");
+    }
+
+    private Taskdef loadAntlib(Project project, String classpathId) {
+        Taskdef taskdef = (Taskdef) project.createTask("taskdef");
+        taskdef.setResource("org/example/antlib.xml");
+        taskdef.setClasspathRef(new Reference(project, classpathId));
+        taskdef.execute();
+        return taskdef;
+    }
+}
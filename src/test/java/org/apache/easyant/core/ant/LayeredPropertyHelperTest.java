@@ -0,0 +1,84 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.apache.tools.ant.Project;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LayeredPropertyHelperTest {
+
+    private Project parent;
+
+    private Project child;
+
+    @Before
+    public void setUp() {
+        parent = new Project();
+        parent.setUserProperty("user.prop", "parent");
+        parent.setInheritedProperty("inherited.prop", "inherited");
+        parent.setProperty("plain.prop", "plain");
+
+        child = parent.createSubProject();
+        LayeredPropertyHelper.install(child, new LayeredPropertyHelper.Snapshot(parent));
+    }
+
+    @Test
+    public void shouldReadParentUserPropertiesThroughSnapshot() {
+        assertThat(child.getProperty("user.prop"), is("parent"));
+        assertThat(child.getUserProperty("inherited.prop"), is("inherited"));
+        assertThat(child.replaceProperties("${user.prop}"), is("parent"));
+        assertThat(child.getProperty("plain.prop"), nullValue());
+    }
+
+    @Test
+    public void shouldNotOverrideParentUserProperties() {
+        child.setNewProperty("user.prop", "child");
+        child.setProperty("user.prop", "child");
+
+        assertThat(child.getProperty("user.prop"), is("parent"));
+    }
+
+    @Test
+    public void shouldStoreChildWritesLocally() {
+        child.setProperty("child.prop", "child");
+        child.setUserProperty("user.prop", "child");
+
+        assertThat(child.getProperty("child.prop"), is("child"));
+        assertThat(child.getProperty("user.prop"), is("child"));
+        assertThat(parent.getProperty("child.prop"), nullValue());
+        assertThat(parent.getProperty("user.prop"), is("parent"));
+    }
+
+    @Test
+    public void shouldExposeMergedViewToSubBuilds() {
+        child.setProperty("child.prop", "child");
+        Project grandChild = child.createSubProject();
+        child.copyUserProperties(grandChild);
+        child.copyInheritedProperties(grandChild);
+
+        assertThat(child.getProperties().get("user.prop"), is((Object) "parent"));
+        assertThat(child.getProperties().get("child.prop"), is((Object) "child"));
+        assertThat(grandChild.getUserProperty("user.prop"), is("parent"));
+        assertThat(grandChild.getInheritedProperties().containsKey("inherited.prop"), is(true));
+    }
+}
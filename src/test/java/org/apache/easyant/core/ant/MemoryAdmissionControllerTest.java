@@ -0,0 +1,102 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.lang.management.MemoryUsage;
+
+import org.apache.easyant.core.ant.listerners.ExecutionHistory;
+import org.apache.tools.ant.Project;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MemoryAdmissionControllerTest {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private long usedHeap = 100 * MEGABYTE;
+
+    @Test
+    public void shouldAlwaysAdmitFirstModule() {
+        usedHeap = 990 * MEGABYTE;
+        MemoryAdmissionController controller = new TestController(null);
+
+        assertThat(controller.admit("core"), is(true));
+    }
+
+    @Test
+    public void shouldLearnFootprintOfFinishedModules() {
+        ExecutionHistory history = ExecutionHistory.load(new File(folder.getRoot(), "history.properties"),
+                new Project());
+        MemoryAdmissionController controller = new TestController(history);
+
+        controller.started("core");
+        usedHeap = 400 * MEGABYTE;
+        controller.finished("core");
+
+        assertThat(history.getModuleFootprint("core"), is(300 * MEGABYTE));
+    }
+
+    @Test
+    public void shouldDelayModulesNotFittingInHeap() {
+        ExecutionHistory history = ExecutionHistory.load(new File(folder.getRoot(), "history.properties"),
+                new Project());
+        history.recordModuleFootprint("core", 500 * MEGABYTE);
+        history.recordModuleFootprint("web", 300 * MEGABYTE);
+        history.recordModuleFootprint("doc", 10 * MEGABYTE);
+        MemoryAdmissionController controller = new TestController(history);
+
+        controller.started("core");
+        usedHeap = 200 * MEGABYTE;
+
+        // 200MB used + 400MB still expected from core + 300MB needed > 80% of 1000MB
+        assertThat(controller.admit("web"), is(false));
+        assertThat(controller.getRefusalReason(),
+                is("heap: 200MB used, 400MB reserved by running sub-modules, 300MB needed, of 1000MB"));
+        assertThat(controller.admit("doc"), is(true));
+        assertThat(controller.getRefusalReason(), nullValue());
+
+        controller.finished("core");
+        assertThat(controller.admit("web"), is(true));
+    }
+
+    private class TestController extends MemoryAdmissionController {
+
+        private TestController(ExecutionHistory history) {
+            super(80, history);
+        }
+
+        @Override
+        protected MemoryUsage getHeapUsage() {
+            return new MemoryUsage(0, usedHeap, usedHeap, 1000 * MEGABYTE);
+        }
+
+        @Override
+        protected MemoryUsage getMetaspaceUsage() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModuleFinderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Ivy ivy;
+
+    private File repository;
+
+    @Before
+    public void setUp() throws IOException, ParseException {
+        repository = folder.newFolder("repository");
+        publish("lib", "1.0");
+        publish("lib", "1.1");
+        publish("other", "1.0");
+        File settings = folder.newFile("ivysettings.xml");
+        write(settings, "<ivysettings><settings defaultResolver=\"local\"/>"
+                + "<caches defaultCacheDir=\"" + folder.newFolder("cache").getAbsolutePath() + "\"/>"
+                + "<resolvers><filesystem name=\"local\"><ivy pattern=\"" + repository.getAbsolutePath()
+                + "/[organisation]/[module]/ivy-[revision].xml\"/></filesystem></resolvers></ivysettings>");
+        ivy = Ivy.newInstance();
+        ivy.configure(settings);
+    }
+
+    @Test
+    public void shouldFindModulesInRequestedOrder() {
+        ModuleRevisionId latestLib = ModuleRevisionId.newInstance("mycompany", "lib", "latest.integration");
+        ModuleRevisionId other = ModuleRevisionId.newInstance("mycompany", "other", "1.0");
+        ModuleRevisionId missing = ModuleRevisionId.newInstance("mycompany", "missing", "1.0");
+
+        Map<ModuleRevisionId, ResolvedModuleRevision> found = ModuleFinder.findModules(ivy,
+                Arrays.asList(other, missing, latestLib, other), "test", 2);
+
+        assertThat(found.size(), is(2));
+        assertThat(found.keySet().iterator().next(), is(other));
+        assertThat(found.get(latestLib).getId().getRevision(), is("1.1"));
+        assertThat(found.containsKey(missing), is(false));
+    }
+
+    private void publish(String module, String revision) throws IOException {
+        File ivyFile = new File(repository, "mycompany/" + module + "/ivy-" + revision + ".xml");
+        ivyFile.getParentFile().mkdirs();
+        write(ivyFile, "<ivy-module version=\"2.0\"><info organisation=\"mycompany\" module=\"" + module
+                + "\" revision=\"" + revision + "\" status=\"integration\"/><publications/></ivy-module>");
+    }
+
+    private void write(File file, String content) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            FileUtils.close(writer);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelTargetExecutorTest {
+
+    private final Project project = new Project();
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() {
+        project.init();
+        project.setName("parallel");
+        project.setNewProperty(EasyAntMagicNames.PARALLEL_TARGETS_THREADS, "4");
+        project.setExecutor(new ParallelTargetExecutor());
+        project.addBuildListener(new EventCollector());
+    }
+
+    @Test
+    public void shouldRunIndependentTargetsConcurrently() {
+        CountDownLatch latch = new CountDownLatch(2);
+        createTarget("doc", null, new AwaitTask(latch));
+        createTarget("source-jar", null, new AwaitTask(latch));
+        createTarget("package", "doc,source-jar", new AwaitTask(null));
+
+        executeTargets("package");
+
+        assertThat(events, is(Arrays.asList(">doc", "doc done", "<doc", ">source-jar", "source-jar done",
+                "<source-jar", ">package", "package done", "<package")));
+    }
+
+    @Test
+    public void shouldGroupEventsInExecutionOrder() {
+        createTarget("slow", null, new SleepTask(200, false));
+        createTarget("fast", null, new SleepTask(0, false));
+        createTarget("package", "slow,fast", new SleepTask(0, false));
+
+        executeTargets("package");
+
+        assertThat(events, is(Arrays.asList(">slow", "slow done", "<slow", ">fast", "fast done", "<fast", ">package",
+                "package done", "<package")));
+    }
+
+    @Test
+    public void shouldRunTargetsAddedToExtensionPointAfterTheirDependencies() {
+        createTarget("compile", null, new SleepTask(100, false));
+        createTarget("checksum", "compile", new SleepTask(0, false));
+        createTarget("package", null, new SleepTask(0, false));
+        project.getTargets().get("package").addDependency("checksum");
+
+        executeTargets("package");
+
+        assertThat(events, is(Arrays.asList(">compile", "compile done", "<compile", ">checksum", "checksum done",
+                "<checksum", ">package", "package done", "<package")));
+    }
+
+    @Test
+    public void shouldCancelRemainingTargetsOnFailure() {
+        createTarget("slow", null, new SleepTask(10000, false));
+        createTarget("failing", null, new SleepTask(100, true));
+        createTarget("package", "slow,failing", new SleepTask(0, false));
+
+        long start = System.currentTimeMillis();
+        try {
+            executeTargets("package");
+            fail("build should have failed");
+        } catch (BuildException e) {
+            assertThat(e.getMessage(), is("failing failed"));
+        }
+
+        assertThat(System.currentTimeMillis() - start < 10000, is(true));
+        assertThat(events, is(Arrays.asList(">slow", "slow interrupted", "<slow", ">failing", "<failing")));
+    }
+
+    @Test
+    public void shouldSkipDependentTargetsInKeepGoingMode() {
+        project.setKeepGoingMode(true);
+        createTarget("failing", null, new SleepTask(0, true));
+        createTarget("test", "failing", new SleepTask(0, false));
+        createTarget("doc", null, new SleepTask(100, false));
+        createTarget("package", "test,doc", new SleepTask(0, false));
+
+        try {
+            executeTargets("package");
+            fail("build should have failed");
+        } catch (BuildException e) {
+            assertThat(e.getMessage(), is("failing failed"));
+        }
+
+        assertThat(events, is(Arrays.asList(">failing", "<failing", "failing failed with message 'failing failed'.",
+                "Cannot execute 'test' - 'failing' failed or was not executed.", ">doc", "doc done", "<doc",
+                "Cannot execute 'package' - 'test' failed or was not executed.")));
+    }
+
+    @Test
+    public void shouldRestoreProjectListeners() {
+        List<BuildListener> listeners = new ArrayList<BuildListener>(project.getBuildListeners());
+        createTarget("package", null, new SleepTask(0, false));
+
+        executeTargets("package");
+
+        assertThat(new ArrayList<BuildListener>(project.getBuildListeners()), is(listeners));
+    }
+
+    private void executeTargets(String... targets) {
+        project.getExecutor().executeTargets(project, targets);
+    }
+
+    private void createTarget(String name, String depends, Task task) {
+        Target target = new Target();
+        target.setName(name);
+        target.setProject(project);
+        if (depends != null) {
+            target.setDepends(depends);
+        }
+        task.setProject(project);
+        task.setTaskName("work");
+        task.setOwningTarget(target);
+        target.addTask(task);
+        project.addTarget(target);
+    }
+
+    public static class SleepTask extends Task {
+
+        private final long duration;
+
+        private final boolean failing;
+
+        public SleepTask(long duration, boolean failing) {
+            this.duration = duration;
+            this.failing = failing;
+        }
+
+        @Override
+        public void execute() {
+            try {
+                Thread.sleep(duration);
+                if (failing) {
+                    throw new BuildException(getOwningTarget().getName() + " failed");
+                }
+                log(getOwningTarget().getName() + " done");
+            } catch (InterruptedException e) {
+                log(getOwningTarget().getName() + " interrupted");
+            }
+        }
+    }
+
+    public static class AwaitTask extends Task {
+
+        private final CountDownLatch latch;
+
+        public AwaitTask(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void execute() {
+            if (latch != null) {
+                latch.countDown();
+                try {
+                    // both targets must be running at the same time to go through
+                    if (!latch.await(10, TimeUnit.SECONDS)) {
+                        throw new BuildException("targets were not executed concurrently");
+                    }
+                } catch (InterruptedException e) {
+                    throw new BuildException(e);
+                }
+            }
+            log(getOwningTarget().getName() + " done");
+        }
+    }
+
+    private class EventCollector implements BuildListener {
+
+        public void messageLogged(BuildEvent event) {
+            if (event.getPriority() <= Project.MSG_INFO) {
+                events.add(event.getMessage());
+            }
+        }
+
+        public void targetStarted(BuildEvent event) {
+            events.add(">" + event.getTarget().getName());
+        }
+
+        public void targetFinished(BuildEvent event) {
+            events.add("<" + event.getTarget().getName());
+        }
+
+        public void buildStarted(BuildEvent event) {
+        }
+
+        public void buildFinished(BuildEvent event) {
+        }
+
+        public void taskStarted(BuildEvent event) {
+        }
+
+        public void taskFinished(BuildEvent event) {
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.easyant.core.EasyAntConstants;
+import org.apache.easyant.core.ant.PipelineScheduler.PipelinedBuild;
+import org.apache.easyant.core.ant.PipelineScheduler.SubBuildRunner;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PipelineSchedulerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Project project = new Project();
+
+    private final Task task = new Task() {
+    };
+
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+    private String[] filenames;
+
+    @Before
+    public void setUp() throws IOException {
+        project.setBaseDir(folder.getRoot());
+        task.setProject(project);
+        task.setTaskName("submodule");
+        // core <- web <- dist, tools is independent
+        filenames = new String[] { createModule("core"), createModule("tools"), createModule("web", "core"),
+                createModule("dist", "web") };
+    }
+
+    @Test
+    public void shouldStartDependentsOnceUpstreamSucceeded() throws InterruptedException {
+        PipelineScheduler scheduler = createScheduler();
+
+        scheduler.execute(2, new RecordingRunner(null));
+
+        assertThat(executed.size(), is(4));
+        assertThat(executed.indexOf("core") < executed.indexOf("web"), is(true));
+        assertThat(executed.indexOf("web") < executed.indexOf("dist"), is(true));
+    }
+
+    @Test
+    public void shouldStartDependentsWhileUpstreamRunsAfterPublishing() throws InterruptedException {
+        final CountDownLatch dependentStarted = new CountDownLatch(1);
+        final AtomicBoolean startedWhileUpstreamRunning = new AtomicBoolean();
+        PipelineScheduler scheduler = createScheduler();
+
+        scheduler.execute(3, new RecordingRunner(null) {
+            @Override
+            public void run(PipelinedBuild build) {
+                super.run(build);
+                if ("core".equals(build.getModuleName())) {
+                    build.published(folder.getRoot());
+                    // core keeps running targets following the publication until web started
+                    try {
+                        startedWhileUpstreamRunning.set(dependentStarted.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else if ("web".equals(build.getModuleName())) {
+                    dependentStarted.countDown();
+                }
+            }
+        });
+
+        assertThat(startedWhileUpstreamRunning.get(), is(true));
+        assertThat(executed.size(), is(4));
+    }
+
+    @Test
+    public void shouldSkipDependentsOfFailedSubBuildInKeepGoingMode() throws InterruptedException {
+        project.setKeepGoingMode(true);
+        PipelineScheduler scheduler = createScheduler();
+
+        scheduler.execute(2, new RecordingRunner("core"));
+
+        Collections.sort(executed);
+        assertThat(executed, is(Arrays.asList("core", "tools")));
+        List<PipelinedBuild> builds = scheduler.getBuilds();
+        assertThat(builds.get(0).getFailure() instanceof BuildException, is(true));
+        assertThat(builds.get(1).getFailure(), nullValue());
+        assertThat(builds.get(1).isSkipped(), is(false));
+        assertThat(builds.get(2).isSkipped(), is(true));
+        assertThat(builds.get(3).isSkipped(), is(true));
+    }
+
+    @Test
+    public void shouldStopStartingSubBuildsAfterFailure() throws InterruptedException {
+        PipelineScheduler scheduler = createScheduler();
+
+        scheduler.execute(1, new RecordingRunner("core"));
+
+        assertThat(executed, is(Arrays.asList("core")));
+    }
+
+    private PipelineScheduler createScheduler() {
+        return new PipelineScheduler(task, new SubBuilds(project, EasyAntConstants.DEFAULT_BUILD_MODULE), filenames,
+                null, 100);
+    }
+
+    private String createModule(String name, String... dependencies) throws IOException {
+        File directory = folder.newFolder(name);
+        StringBuilder descriptor = new StringBuilder();
+        descriptor.append("<ivy-module version=\"2.0\">\n");
+        descriptor.append("  <info organisation=\"org.example\" module=\"").append(name).append("\"/>\n");
+        descriptor.append("  <dependencies>\n");
+        for (String dependency : dependencies) {
+            descriptor.append("    <dependency org=\"org.example\" name=\"").append(dependency)
+                    .append("\" rev=\"latest.integration\"/>\n");
+        }
+        descriptor.append("  </dependencies>\n");
+        descriptor.append("</ivy-module>\n");
+        Writer writer = new FileWriter(new File(directory, EasyAntConstants.DEFAULT_BUILD_MODULE));
+        try {
+            writer.write(descriptor.toString());
+        } finally {
+            FileUtils.close(writer);
+        }
+        return directory.getAbsolutePath();
+    }
+
+    private class RecordingRunner implements SubBuildRunner {
+
+        private final String failingModule;
+
+        private RecordingRunner(String failingModule) {
+            this.failingModule = failingModule;
+        }
+
+        public void run(PipelinedBuild build) {
+            executed.add(build.getModuleName());
+            if (build.getModuleName().equals(failingModule)) {
+                throw new BuildException(failingModule + " failed");
+            }
+        }
+    }
+}
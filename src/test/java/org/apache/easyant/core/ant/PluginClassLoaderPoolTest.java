@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.tools.ant.AntClassLoader;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PluginClassLoaderPoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PluginClassLoaderPool pool = PluginClassLoaderPool.getInstance();
+
+    private final ClassLoader parent = getClass().getClassLoader();
+
+    @After
+    public void tearDown() {
+        pool.clear();
+    }
+
+    @Test
+    public void shouldShareClassLoaderForSameClasspath() throws IOException {
+        File jar = createJar("plugin.jar", "content");
+
+        AntClassLoader loader = pool.getClassLoader(parent, Arrays.asList(jar));
+
+        assertThat(pool.getClassLoader(parent, PluginClassLoaderPool.toFiles(new String[] { jar.getPath() })),
+                sameInstance(loader));
+    }
+
+    @Test
+    public void shouldCreateNewClassLoaderWhenClasspathDiffers() throws IOException {
+        File jar = createJar("plugin.jar", "content");
+        File otherJar = createJar("other-plugin.jar", "other content");
+        List<File> classpath = Arrays.asList(jar, otherJar);
+
+        AntClassLoader loader = pool.getClassLoader(parent, classpath);
+
+        assertThat(pool.getClassLoader(parent, Arrays.asList(otherJar, jar)), not(sameInstance(loader)));
+        assertThat(pool.getClassLoader(new ClassLoader() {
+        }, classpath), not(sameInstance(loader)));
+    }
+
+    @Test
+    public void shouldCreateNewClassLoaderWhenJarIsModified() throws IOException {
+        File jar = createJar("plugin.jar", "content");
+        List<File> classpath = Arrays.asList(jar);
+
+        AntClassLoader loader = pool.getClassLoader(parent, classpath);
+        createJar("plugin.jar", "modified content");
+
+        assertThat(pool.getClassLoader(parent, classpath), not(sameInstance(loader)));
+    }
+
+    @Test
+    public void shouldReleaseClassLoadersWithTheirLastUser() throws IOException {
+        File jar = createJar("plugin.jar", "content");
+        ClassLoader engineLoader = new ClassLoader(parent) {
+        };
+        pool.acquire(engineLoader);
+        pool.acquire(engineLoader);
+        AntClassLoader loader = pool.getClassLoader(engineLoader, Arrays.asList(jar));
+        AntClassLoader otherLoader = pool.getClassLoader(parent, Arrays.asList(jar));
+
+        pool.release(engineLoader);
+        assertThat(pool.contains(loader), is(true));
+
+        pool.release(engineLoader);
+        assertThat(pool.contains(loader), is(false));
+        assertThat(pool.contains(otherLoader), is(true));
+    }
+
+    private File createJar(String name, String content) throws IOException {
+        File jar = new File(folder.getRoot(), name);
+        FileWriter writer = new FileWriter(jar);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.easyant.core.EasyAntEngine;
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.configuration.EasyAntConfiguration;
+import org.apache.easyant.core.configuration.EasyantConfigurationFactory;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectStreamRouterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldRouteOutputToProjectAttachedToCurrentThread() throws InterruptedException {
+        PrintStream systemOut = System.out;
+        final CountDownLatch attached = new CountDownLatch(2);
+        final CountDownLatch written = new CountDownLatch(2);
+        List<String> firstMessages = Collections.synchronizedList(new ArrayList<String>());
+        List<String> secondMessages = Collections.synchronizedList(new ArrayList<String>());
+        Thread first = createBuildThread("first", firstMessages, attached, written);
+        Thread second = createBuildThread("second", secondMessages, attached, written);
+
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        assertThat(firstMessages, is(Collections.nCopies(3, "message from first")));
+        assertThat(secondMessages, is(Collections.nCopies(3, "message from second")));
+        assertThat(System.out, sameInstance(systemOut));
+    }
+
+    @Test
+    public void shouldKeepRoutingWhenDetachingProjectNotAttached() {
+        PrintStream systemOut = System.out;
+        Project attached = new Project();
+        Project other = new Project();
+        List<String> messages = new ArrayList<String>();
+        other.addBuildListener(new MessageCollector(messages));
+        ProjectStreamRouter.attach(attached);
+        try {
+            ProjectStreamRouter.detach(other);
+            assertThat(messages.size(), is(1));
+            assertThat(System.out, not(sameInstance(systemOut)));
+        } finally {
+            ProjectStreamRouter.detach(attached);
+        }
+        assertThat(System.out, sameInstance(systemOut));
+    }
+
+    @Test
+    public void shouldLogConcurrentBuildsToOriginalOutput() throws Exception {
+        PrintStream systemOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        Project runningBuild = new Project();
+        try {
+            // configurations created while another build is running must not log to the routing stream
+            ProjectStreamRouter.attach(runningBuild);
+            final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+            Thread first = createEngineThread(createConfiguration(), failures);
+            Thread second = createEngineThread(createConfiguration(), failures);
+
+            first.start();
+            second.start();
+            first.join();
+            second.join();
+
+            assertThat(failures.isEmpty(), is(true));
+        } finally {
+            ProjectStreamRouter.detach(runningBuild);
+            System.setOut(systemOut);
+        }
+        assertThat(countOccurrences(output.toString(), "a message from mytarget"), is(2));
+        assertThat(countOccurrences(output.toString(), "BUILD SUCCESSFUL"), is(2));
+    }
+
+    private EasyAntConfiguration createConfiguration() throws IOException, URISyntaxException {
+        EasyAntConfiguration configuration = EasyantConfigurationFactory.getInstance().createDefaultConfiguration();
+        configuration.setBuildModule(new File(getClass().getResource("/org/apache/easyant/core/standardJavaProject.ivy")
+                .toURI()));
+        configuration.getTargets().add("modulewithtarget:mytarget");
+        configuration.getDefinedProps().put(EasyAntMagicNames.SKIP_CORE_REVISION_CHECKER, "true");
+        configuration.getDefinedProps().put(EasyAntMagicNames.IGNORE_USER_IVYSETTINGS, "true");
+        configuration.getDefinedProps().put(EasyAntMagicNames.PROJECT_IVY_INSTANCE,
+                EasyAntMagicNames.EASYANT_IVY_INSTANCE);
+        configuration.getDefinedProps().put("ivy.cache.dir", folder.newFolder().getAbsolutePath());
+        configuration.setEasyantIvySettingsUrl(getClass().getResource("/repositories/easyant-ivysettings-test.xml"));
+        return configuration;
+    }
+
+    private Thread createEngineThread(final EasyAntConfiguration configuration, final List<Throwable> failures) {
+        return new Thread() {
+            @Override
+            public void run() {
+                try {
+                    new EasyAntEngine(configuration).doBuild();
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }
+        };
+    }
+
+    private int countOccurrences(String text, String substring) {
+        int count = 0;
+        for (int index = text.indexOf(substring); index != -1; index = text.indexOf(substring, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private Thread createBuildThread(final String name, final List<String> messages, final CountDownLatch attached,
+            final CountDownLatch written) {
+        return new Thread() {
+            @Override
+            public void run() {
+                Project project = new Project();
+                project.setName(name);
+                project.addBuildListener(new MessageCollector(messages));
+                ProjectStreamRouter.attach(project);
+                try {
+                    // make sure both projects are attached at the same time
+                    attached.countDown();
+                    attached.await();
+                    for (int i = 0; i < 3; i++) {
+                        System.out.println("message from " + name);
+                    }
+                    written.countDown();
+                    written.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    ProjectStreamRouter.detach(project);
+                }
+            }
+        };
+    }
+
+    private static class MessageCollector implements BuildListener {
+
+        private final List<String> messages;
+
+        private MessageCollector(List<String> messages) {
+            this.messages = messages;
+        }
+
+        public void messageLogged(BuildEvent event) {
+            messages.add(event.getMessage());
+        }
+
+        public void buildStarted(BuildEvent event) {
+        }
+
+        public void buildFinished(BuildEvent event) {
+        }
+
+        public void targetStarted(BuildEvent event) {
+        }
+
+        public void targetFinished(BuildEvent event) {
+        }
+
+        public void taskStarted(BuildEvent event) {
+        }
+
+        public void taskFinished(BuildEvent event) {
+        }
+    }
+}
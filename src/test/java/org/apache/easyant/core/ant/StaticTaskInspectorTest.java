@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.easyant.tasks.AbstractImport;
+import org.apache.easyant.tasks.Import;
+import org.apache.tools.ant.AntTypeDefinition;
+import org.apache.tools.ant.ComponentHelper;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.taskdefs.Property;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StaticTaskInspectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Project project = new Project();
+
+    @Before
+    public void setUp() throws IOException {
+        File buildFile = folder.newFile("build.xml");
+        FileWriter writer = new FileWriter(buildFile);
+        try {
+            writer.write("<project name=\"test\">\n" //
+                    + "  <taskdef name=\"import\" classname=\"" + Import.class.getName() + "\"/>\n" //
+                    + "  <property name=\"org\" value=\"org.apache.easyant.plugins\"/>\n" //
+                    + "  <presetdef name=\"plugin\"><import mandatory=\"true\"/></presetdef>\n" //
+                    + "  <taskdef name=\"pluginproperty\" classname=\"" + PluginProperty.class.getName() + "\"/>\n" //
+                    + "  <presetdef name=\"presetproperty\"><pluginproperty/></presetdef>\n" //
+                    + "  <target name=\"main\">\n" //
+                    + "    <plugin org=\"${org}\" Module=\"compile-java\" rev=\"0.9\"/>\n" //
+                    + "    <property name=\"foo\">bar</property>\n" //
+                    + "    <pluginproperty name=\"baz\" value=\"qux\"/>\n" //
+                    + "    <presetproperty name=\"quux\" value=\"corge\"/>\n" //
+                    + "  </target>\n" //
+                    + "</project>\n");
+        } finally {
+            writer.close();
+        }
+        project.init();
+        ProjectHelper.configureProject(project, buildFile);
+    }
+
+    @Test
+    public void shouldIdentifyComponentsWithoutConfiguringThem() {
+        Task[] tasks = project.getTargets().get("main").getTasks();
+
+        assertThat(StaticTaskInspector.isA(project, tasks[0].getTaskType(), Import.class), is(true));
+        assertThat(StaticTaskInspector.isA(project, tasks[0].getTaskType(), AbstractImport.class), is(true));
+        assertThat(StaticTaskInspector.isA(project, tasks[0].getTaskType(), Property.class), is(false));
+        assertThat(StaticTaskInspector.isA(project, tasks[1].getTaskType(), Property.class), is(true));
+        assertThat(StaticTaskInspector.isA(project, "unknown", Property.class), is(false));
+    }
+
+    @Test
+    public void shouldIdentifySubclassesDefinedOutsideCore() {
+        Task[] tasks = project.getTargets().get("main").getTasks();
+
+        assertThat(StaticTaskInspector.isA(project, tasks[2].getTaskType(), Property.class), is(true));
+        assertThat(StaticTaskInspector.isA(project, tasks[2].getTaskType(), AbstractImport.class), is(false));
+        assertThat(StaticTaskInspector.isA(project, tasks[3].getTaskType(), Property.class), is(true));
+    }
+
+    @Test
+    public void shouldNotIdentifyComponentsWhoseClassIsMissing() {
+        AntTypeDefinition definition = new AntTypeDefinition();
+        definition.setName("missing");
+        definition.setClassName("org.example.MissingProperty");
+        definition.setClassLoader(getClass().getClassLoader());
+        ComponentHelper.getComponentHelper(project).addDataTypeDefinition(definition);
+
+        assertThat(StaticTaskInspector.isA(project, "missing", Property.class), is(false));
+    }
+
+    @Test
+    public void shouldReadParsedAttributes() {
+        Task[] tasks = project.getTargets().get("main").getTasks();
+
+        Map<String, String> attributes = StaticTaskInspector.getAttributes(tasks[0]);
+        assertThat(StaticTaskInspector.getAttribute(attributes, "organisation", "org"),
+                is("org.apache.easyant.plugins"));
+        assertThat(attributes.get("module"), is("compile-java"));
+        assertThat(StaticTaskInspector.getBoolean(attributes, "mandatory", false), is(true));
+        assertThat(attributes.get("mrid"), nullValue());
+
+        assertThat(StaticTaskInspector.getText(project, tasks[1].getRuntimeConfigurableWrapper()), is("bar"));
+    }
+
+    /**
+     * A property task provided by a plugin
+     */
+    public static class PluginProperty extends Property {
+    }
+}
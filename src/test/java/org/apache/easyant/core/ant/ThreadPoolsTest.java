@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ThreadPoolsTest {
+
+    @Test
+    public void shouldNotCreateMoreThreadsThanTasks() {
+        assertThat(poolSize(ThreadPools.newDaemonPool("test", 4, 2)), is(2));
+        assertThat(poolSize(ThreadPools.newDaemonPool("test", 4, 10)), is(4));
+        assertThat(poolSize(ThreadPools.newDaemonPool("test", 4, 0)), is(1));
+    }
+
+    @Test
+    public void shouldCreateNamedDaemonThreads() throws Exception {
+        ExecutorService pool = ThreadPools.newDaemonPool("test", 2, 2);
+        try {
+            Thread thread = pool.submit(new Callable<Thread>() {
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+            assertThat(thread.getName(), is("test-1"));
+            assertThat(thread.isDaemon(), is(true));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldWaitForRunningTasksWhenInterrupted() throws InterruptedException {
+        ExecutorService pool = ThreadPools.newDaemonPool("test", 1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean finished = new AtomicBoolean();
+        pool.execute(new Runnable() {
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.set(true);
+            }
+        });
+        started.await();
+        Thread.currentThread().interrupt();
+        ThreadPools.shutdownAndWait(pool);
+
+        assertThat(Thread.interrupted(), is(true));
+        assertThat(finished.get(), is(true));
+    }
+
+    @Test
+    public void shouldInvokeAllTasksInOrder() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < 5; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+                public Integer call() throws InterruptedException {
+                    Thread.sleep(50 - value * 10);
+                    return value;
+                }
+            });
+        }
+        List<Future<Integer>> results = ThreadPools.invokeAll("test", 3, tasks);
+
+        assertThat(results.size(), is(5));
+        for (int i = 0; i < 5; i++) {
+            assertThat(results.get(i).isDone(), is(true));
+            assertThat(results.get(i).get(), is(i));
+        }
+    }
+
+    private int poolSize(ExecutorService pool) {
+        pool.shutdown();
+        return ((ThreadPoolExecutor) pool).getMaximumPoolSize();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant.listerners;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
+import org.apache.tools.ant.Target;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExecutionHistoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Project project = new Project();
+
+    @Test
+    public void shouldPersistAveragedDurations() {
+        File historyFile = new File(folder.getRoot(), "history/durations.properties");
+        ExecutionHistory history = ExecutionHistory.load(historyFile, project);
+        assertThat(history.getModuleDuration("core"), is(-1L));
+
+        history.recordModuleDuration("core", 1000);
+        history.recordModuleDuration("core", 3000);
+        history.recordTargetDuration("core", "compile", 500);
+        history.save(project);
+
+        ExecutionHistory reloaded = ExecutionHistory.load(historyFile, project);
+        assertThat(reloaded.getModuleDuration("core"), is(2000L));
+        assertThat(reloaded.getTargetDuration("core", "compile"), is(500L));
+        assertThat(reloaded.getTargetDuration("core", "test"), is(-1L));
+    }
+
+    @Test
+    public void shouldRecordSuccessfulExecutionsOnly() {
+        ExecutionHistory history = ExecutionHistory.load(new File(folder.getRoot(), "durations.properties"), project);
+        SubBuildListener recorder = history.createRecorder("core");
+        Target compile = createTarget("compile");
+        Target test = createTarget("test");
+
+        recorder.subBuildStarted(new BuildEvent(project));
+        recorder.targetStarted(new BuildEvent(compile));
+        recorder.targetFinished(new BuildEvent(compile));
+        recorder.targetStarted(new BuildEvent(test));
+        BuildEvent failure = new BuildEvent(test);
+        failure.setException(new BuildException("test failed"));
+        recorder.targetFinished(failure);
+        failure = new BuildEvent(project);
+        failure.setException(new BuildException("test failed"));
+        recorder.subBuildFinished(failure);
+
+        assertThat(history.getTargetDuration("core", "compile") >= 0, is(true));
+        assertThat(history.getTargetDuration("core", "test"), is(-1L));
+        assertThat(history.getModuleDuration("core"), is(-1L));
+    }
+
+    private Target createTarget(String name) {
+        Target target = new Target();
+        target.setName(name);
+        target.setProject(project);
+        return target;
+    }
+}
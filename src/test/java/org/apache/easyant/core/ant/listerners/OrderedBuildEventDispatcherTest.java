@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ant.listerners;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.junit.Test;
+
+public class OrderedBuildEventDispatcherTest {
+
+    private final Project project = new Project();
+
+    private final List<String> messages = new ArrayList<String>();
+
+    private final List<Long> eventTimes = new ArrayList<Long>();
+
+    private final OrderedBuildEventDispatcher dispatcher = new OrderedBuildEventDispatcher(
+            Collections.singletonList(new MessageCollector()), 3);
+
+    @Test
+    public void shouldDeliverEventsInSlotOrder() {
+        log(2, "third");
+        log(1, "second");
+        log(0, "first");
+        assertThat(messages, is(Arrays.asList("first")));
+
+        dispatcher.finish(2);
+        assertThat(messages, is(Arrays.asList("first")));
+
+        dispatcher.finish(0);
+        assertThat(messages, is(Arrays.asList("first", "second")));
+
+        log(1, "second again");
+        assertThat(messages, is(Arrays.asList("first", "second", "second again")));
+
+        dispatcher.finish(1);
+        assertThat(messages, is(Arrays.asList("first", "second", "second again", "third")));
+    }
+
+    @Test
+    public void shouldDeliverUnorderedEventsImmediately() {
+        log(1, "second");
+        BuildEvent event = new BuildEvent(project);
+        event.setMessage("unordered", Project.MSG_INFO);
+        dispatcher.getUnorderedListener().messageLogged(event);
+
+        assertThat(messages, is(Arrays.asList("unordered")));
+    }
+
+    @Test
+    public void shouldDeliverAllEventsOnFlush() {
+        log(2, "third");
+        log(1, "second");
+        dispatcher.flush();
+
+        assertThat(messages, is(Arrays.asList("second", "third")));
+    }
+
+    @Test
+    public void shouldExposeTimeOfBufferedEvents() throws InterruptedException {
+        long before = System.currentTimeMillis();
+        log(1, "second");
+        Thread.sleep(50);
+        dispatcher.finish(0);
+
+        assertThat(eventTimes.get(0) - before < 50, is(true));
+    }
+
+    private void log(int slot, String message) {
+        BuildEvent event = new BuildEvent(project);
+        event.setMessage(message, Project.MSG_INFO);
+        dispatcher.getListener(slot).messageLogged(event);
+    }
+
+    private class MessageCollector implements BuildListener {
+
+        public void messageLogged(BuildEvent event) {
+            messages.add(event.getMessage());
+            eventTimes.add(OrderedBuildEventDispatcher.getEventTime());
+        }
+
+        public void buildStarted(BuildEvent event) {
+        }
+
+        public void buildFinished(BuildEvent event) {
+        }
+
+        public void targetStarted(BuildEvent event) {
+        }
+
+        public void targetFinished(BuildEvent event) {
+        }
+
+        public void taskStarted(BuildEvent event) {
+        }
+
+        public void taskFinished(BuildEvent event) {
+        }
+    }
+}
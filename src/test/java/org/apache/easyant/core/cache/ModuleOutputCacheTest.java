@@ -0,0 +1,138 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class ModuleOutputCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void shouldRestoreArtifactsFromLocalDirectory() throws IOException {
+        ModuleOutputCache cache = ModuleOutputCache.forLocation(folder.newFolder("cache").getAbsolutePath());
+
+        assertRoundTrip(cache);
+    }
+
+    @Test
+    public void shouldRestoreArtifactsFromHttpServer() throws IOException {
+        final Map<String, byte[]> entries = new HashMap<String, byte[]>();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/cache/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                if ("PUT".equals(exchange.getRequestMethod())) {
+                    ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    LocalBuildCacheBackend.copy(exchange.getRequestBody(), content);
+                    entries.put(path, content.toByteArray());
+                    exchange.sendResponseHeaders(201, -1);
+                } else if (entries.containsKey(path)) {
+                    exchange.sendResponseHeaders(200, entries.get(path).length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(entries.get(path));
+                    out.close();
+                } else {
+                    exchange.sendResponseHeaders(404, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        ModuleOutputCache cache = ModuleOutputCache.forLocation("http://localhost:" + server.getAddress().getPort()
+                + "/cache");
+
+        assertRoundTrip(cache);
+        assertThat(entries.keySet().iterator().next(), is("/cache/abc123.zip"));
+    }
+
+    @Test
+    public void shouldNotStoreEmptyArtifactsDirectory() throws IOException {
+        File cacheDir = folder.newFolder("cache");
+        ModuleOutputCache cache = ModuleOutputCache.forLocation(cacheDir.getAbsolutePath());
+
+        assertThat(cache.store("abc123", folder.newFolder("artifacts")), is(false));
+        assertThat(cacheDir.list().length, is(0));
+    }
+
+    private void assertRoundTrip(ModuleOutputCache cache) throws IOException {
+        File artifacts = folder.newFolder("artifacts");
+        write(new File(artifacts, "module1.jar"), "jar content");
+        write(new File(artifacts, "doc/module1-javadoc.zip"), "javadoc content");
+        File restored = new File(folder.getRoot(), "restored");
+
+        assertThat(cache.restore("abc123", restored), is(false));
+        assertThat(cache.store("abc123", artifacts), is(true));
+        assertThat(cache.restore("abc123", restored), is(true));
+
+        assertThat(read(new File(restored, "module1.jar")), is("jar content"));
+        assertThat(read(new File(restored, "doc/module1-javadoc.zip")), is("javadoc content"));
+    }
+
+    private void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            FileUtils.close(out);
+        }
+    }
+
+    private String read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return FileUtils.readFully(new InputStreamReader(in, "UTF-8"));
+        } finally {
+            FileUtils.close(in);
+        }
+    }
+}
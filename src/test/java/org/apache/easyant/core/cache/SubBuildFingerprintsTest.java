@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SubBuildFingerprintsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DefaultModuleDescriptor core;
+
+    private DefaultModuleDescriptor app;
+
+    private SubBuildFingerprints fingerprints;
+
+    @Before
+    public void setUp() {
+        core = DefaultModuleDescriptor.newDefaultInstance(ModuleRevisionId.newInstance("org", "core", "1.0"));
+        app = DefaultModuleDescriptor.newDefaultInstance(ModuleRevisionId.newInstance("org", "app", "1.0"));
+        app.addDependency(new DefaultDependencyDescriptor(app, core.getModuleRevisionId(), false, false, true));
+        fingerprints = new SubBuildFingerprints(Arrays.asList(core.getModuleRevisionId().getModuleId(), app
+                .getModuleRevisionId().getModuleId()), new IvySettings().getVersionMatcher());
+    }
+
+    @Test
+    public void shouldChangeFingerprintWhenSourcesChange() throws IOException {
+        File directory = folder.newFolder("core");
+        File source = new File(directory, "src/Core.java");
+        write(source, "class Core {}");
+
+        String fingerprint = compute(core, directory);
+        assertThat(fingerprint, notNullValue());
+        assertThat(compute(core, directory), is(fingerprint));
+
+        write(source, "class Core { int field; }");
+        assertThat(compute(core, directory), is(not(fingerprint)));
+    }
+
+    @Test
+    public void shouldIgnoreArtifactsOfSubBuild() throws IOException {
+        File directory = folder.newFolder("core");
+        write(new File(directory, "src/Core.java"), "class Core {}");
+        String fingerprint = compute(core, directory);
+
+        write(new File(directory, "target/artifacts/core.jar"), "jar content");
+        assertThat(compute(core, directory), is(fingerprint));
+    }
+
+    @Test
+    public void shouldRequireFingerprintOfUpstreamSubBuilds() throws IOException {
+        File coreDirectory = folder.newFolder("core");
+        File appDirectory = folder.newFolder("app");
+
+        assertThat(compute(app, appDirectory), nullValue());
+
+        String coreFingerprint = compute(core, coreDirectory);
+        String appFingerprint = compute(app, appDirectory);
+        assertThat(appFingerprint, notNullValue());
+        assertThat(appFingerprint, is(not(coreFingerprint)));
+    }
+
+    @Test
+    public void shouldNotFingerprintSubBuildWithDynamicDependency() throws IOException {
+        DefaultModuleDescriptor md = DefaultModuleDescriptor.newDefaultInstance(ModuleRevisionId.newInstance("org",
+                "core", "1.0"));
+        md.addDependency(new DefaultDependencyDescriptor(md, ModuleRevisionId.newInstance("org", "external",
+                "latest.integration"), false, false, true));
+
+        assertThat(compute(md, folder.newFolder("core")), nullValue());
+    }
+
+    private String compute(DefaultModuleDescriptor md, File directory) {
+        Project subModule = new Project();
+        subModule.setBaseDir(directory);
+        return fingerprints.compute(subModule, md, directory, "package", new File(directory, "target/artifacts"));
+    }
+
+    private void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            FileUtils.close(writer);
+        }
+    }
+}
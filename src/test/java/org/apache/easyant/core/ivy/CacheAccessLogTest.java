@@ -0,0 +1,53 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CacheAccessLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldForgetSavedLogs() throws IOException {
+        File cacheDir = folder.newFolder("cache");
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "module", "1.0");
+        CacheAccessLog accessLog = CacheAccessLog.getInstance(cacheDir);
+        assertThat(CacheAccessLog.getInstance(cacheDir), sameInstance(accessLog));
+        accessLog.recordAccess(mrid);
+        long lastAccess = accessLog.getLastAccess(mrid);
+
+        CacheAccessLog.saveAll();
+
+        CacheAccessLog reloaded = CacheAccessLog.getInstance(cacheDir);
+        assertThat(reloaded, not(sameInstance(accessLog)));
+        assertThat(reloaded.getLastAccess(mrid), is(lastAccess));
+    }
+}
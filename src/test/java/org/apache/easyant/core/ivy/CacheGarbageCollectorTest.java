@@ -0,0 +1,145 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.easyant.core.ivy.CacheGarbageCollector.CachedModuleRevision;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CacheGarbageCollectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cacheDir;
+
+    private EasyAntRepositoryCacheManager cacheManager;
+
+    private CacheAccessLog accessLog;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = folder.newFolder("cache");
+        IvySettings settings = new IvySettings();
+        cacheManager = new EasyAntRepositoryCacheManager("test-cache", settings, cacheDir);
+        accessLog = cacheManager.getAccessLog();
+    }
+
+    @Test
+    public void shouldCompileIvyPatternWithOptionalParts() {
+        List<String> tokens = new ArrayList<String>();
+        Pattern pattern = CacheGarbageCollector.compilePattern("[organisation]/[module](/[branch])/ivy-[revision].xml",
+                tokens);
+        Matcher matcher = pattern.matcher("org.apache/foo/ivy-1.0.xml");
+
+        assertThat(matcher.matches(), is(true));
+        assertThat(tokens.size(), is(4));
+        assertThat(matcher.group(1), is("org.apache"));
+        assertThat(matcher.group(2), is("foo"));
+        assertThat(matcher.group(4), is("1.0"));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedModulesWhenCacheIsTooBig() throws IOException {
+        ModuleRevisionId oldest = createCachedModule("mycompany", "oldest", "1.0", 1000);
+        ModuleRevisionId newest = createCachedModule("mycompany", "newest", "1.0", 3000);
+
+        CacheGarbageCollector gc = new CacheGarbageCollector(cacheManager, new IvySettings());
+        gc.setMaxSize(cacheManager.getIvyFileInCache(newest).length());
+        List<CachedModuleRevision> evicted = gc.collect();
+
+        assertThat(evicted.size(), is(1));
+        assertThat(evicted.get(0).getModuleRevisionId(), is(oldest));
+        assertThat(cacheManager.getIvyFileInCache(oldest).exists(), is(false));
+        assertThat(cacheManager.getIvyFileInCache(newest).exists(), is(true));
+    }
+
+    @Test
+    public void shouldNotEvictProtectedModules() throws IOException {
+        ModuleRevisionId oldest = createCachedModule("mycompany", "oldest", "1.0", 1000);
+        ModuleRevisionId newest = createCachedModule("mycompany", "newest", "1.0", 3000);
+
+        CacheGarbageCollector gc = new CacheGarbageCollector(cacheManager, new IvySettings());
+        gc.setMaxSize(0);
+        gc.addProtectedModule(oldest);
+        List<CachedModuleRevision> evicted = gc.collect();
+
+        assertThat(evicted.size(), is(1));
+        assertThat(evicted.get(0).getModuleRevisionId(), is(newest));
+        assertThat(cacheManager.getIvyFileInCache(oldest).exists(), is(true));
+    }
+
+    @Test
+    public void shouldEvictExpiredModules() throws IOException {
+        ModuleRevisionId expired = createCachedModule("mycompany", "expired", "1.0", 1000);
+        ModuleRevisionId recent = createCachedModule("mycompany", "recent", "1.0", System.currentTimeMillis());
+
+        CacheGarbageCollector gc = new CacheGarbageCollector(cacheManager, new IvySettings());
+        gc.setMaxAge(60 * 60 * 1000);
+        List<CachedModuleRevision> evicted = gc.collect();
+
+        assertThat(evicted.size(), is(1));
+        assertThat(evicted.get(0).getModuleRevisionId(), is(expired));
+        assertThat(cacheManager.getIvyFileInCache(recent).exists(), is(true));
+        assertThat(accessLog.getLastAccess(expired), is(-1L));
+    }
+
+    @Test
+    public void shouldKeepCacheUntouchedInDryRunMode() throws IOException {
+        ModuleRevisionId module = createCachedModule("mycompany", "module", "1.0", 1000);
+
+        CacheGarbageCollector gc = new CacheGarbageCollector(cacheManager, new IvySettings());
+        gc.setMaxSize(0);
+        gc.setDryRun(true);
+        List<CachedModuleRevision> evicted = gc.collect();
+
+        assertThat(evicted.size(), is(1));
+        assertThat(cacheManager.getIvyFileInCache(module).exists(), is(true));
+    }
+
+    private ModuleRevisionId createCachedModule(String org, String module, String rev, long lastAccess)
+            throws IOException {
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance(org, module, rev);
+        File ivyFile = cacheManager.getIvyFileInCache(mrid);
+        ivyFile.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(ivyFile);
+        try {
+            writer.write("<ivy-module version=\"2.0\"><info organisation=\"" + org + "\" module=\"" + module
+                    + "\" revision=\"" + rev + "\"/></ivy-module>");
+        } finally {
+            writer.close();
+        }
+        ivyFile.setLastModified(lastAccess);
+        return mrid;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher;
+import org.apache.tools.ant.Project;
+import org.junit.Test;
+
+public class ImportResolutionCacheTest {
+
+    private final IvySettings settings = new IvySettings();
+
+    private final ModuleRevisionId mrid = ModuleRevisionId.parse("org.apache.easyant.plugins#compile-java;0.9");
+
+    @Test
+    public void shouldShareCacheThroughProjectReference() {
+        Project project = new Project();
+        ImportResolutionCache cache = ImportResolutionCache.getInstance(project);
+
+        assertThat(ImportResolutionCache.getInstance(project), sameInstance(cache));
+    }
+
+    @Test
+    public void shouldComputeSameKeyForSameImport() {
+        String key = computeKey(createCallerInstance(false), "");
+
+        assertThat(computeKey(createCallerInstance(false), ""), is(key));
+    }
+
+    @Test
+    public void shouldComputeDifferentKeysWhenImportIsCustomized() {
+        String key = computeKey(createCallerInstance(false), "");
+
+        assertThat(computeKey(createCallerInstance(true), ""), not(key));
+        assertThat(computeKey(createCallerInstance(false), "org#module;1.0 latest-compatible null;"), not(key));
+        assertThat(ImportResolutionCache.computeKey(mrid, "default", true, createCallerInstance(false), "", settings,
+                false), not(key));
+        assertThat(ImportResolutionCache.computeKey(mrid, "default", false, createCallerInstance(false), "", settings,
+                true), not(key));
+    }
+
+    @Test
+    public void shouldReuseStoredResolution() {
+        ImportResolutionCache cache = new ImportResolutionCache();
+        DefaultModuleDescriptor md = createCallerInstance(false);
+        ResolveReport report = new ResolveReport(md);
+        String key = computeKey(md, "");
+
+        cache.put(key, report);
+
+        assertThat(cache.get(key), sameInstance(report));
+        assertThat(cache.size(), is(1));
+    }
+
+    private String computeKey(DefaultModuleDescriptor md, String conflicts) {
+        return ImportResolutionCache.computeKey(mrid, "default", false, md, conflicts, settings, false);
+    }
+
+    private DefaultModuleDescriptor createCallerInstance(boolean withExclude) {
+        DefaultModuleDescriptor md = DefaultModuleDescriptor.newCallerInstance(mrid, new String[] { "default" }, true,
+                false);
+        if (withExclude) {
+            DefaultExcludeRule rule = new DefaultExcludeRule(new ArtifactId(ModuleId.newInstance("org", "module"),
+                    "*", "*", "*"), ExactPatternMatcher.INSTANCE, null);
+            rule.addConfiguration("default");
+            md.addExcludeRule(rule);
+        }
+        return md;
+    }
+}
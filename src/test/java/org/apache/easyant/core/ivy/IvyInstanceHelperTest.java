@@ -0,0 +1,95 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.ant.AntMessageLogger;
+import org.apache.ivy.ant.IvyAntSettings;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.lock.LockStrategy;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.taskdefs.Echo;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IvyInstanceHelperTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldLockArtifactsOfEveryRepositoryCache() throws IOException {
+        Project project = new Project();
+        project.init();
+        IvyAntSettings ivyAntSettings = new IvyAntSettings();
+        ivyAntSettings.setProject(project);
+        ivyAntSettings.setUrl(IvySettings.getDefaultSettingsURL());
+        Echo component = new Echo();
+        component.setProject(project);
+
+        IvySettings settings = ivyAntSettings.getConfiguredIvyInstance(component).getSettings();
+        EasyAntRepositoryCacheManager defaultCache = new EasyAntRepositoryCacheManager("default-test-cache", settings,
+                folder.newFolder("default-cache"));
+        settings.setDefaultRepositoryCacheManager(defaultCache);
+        EasyAntRepositoryCacheManager buildScopedCache = new EasyAntRepositoryCacheManager("build-scoped-cache",
+                settings, folder.newFolder("build-scoped-cache"));
+        settings.addConfigured(buildScopedCache);
+
+        IvyInstanceHelper.useArtifactLocks(ivyAntSettings, component);
+
+        LockStrategy artifactLock = settings.getLockStrategy("artifact-lock");
+        assertThat(settings.getDefaultLockStrategy(), sameInstance(artifactLock));
+        assertThat(defaultCache.getLockStrategy(), sameInstance(artifactLock));
+        assertThat(buildScopedCache.getLockStrategy(), sameInstance(artifactLock));
+        assertThat(((DefaultRepositoryCacheManager) settings.getRepositoryCacheManager("build-scoped-cache"))
+                .getLockStrategy(), sameInstance(artifactLock));
+    }
+
+    @Test
+    public void shouldPopLoggersPushedOnCurrentThread() {
+        Project project = new Project();
+        project.init();
+        IvyAntSettings ivyAntSettings = new IvyAntSettings();
+        ivyAntSettings.setProject(project);
+        ivyAntSettings.setUrl(IvySettings.getDefaultSettingsURL());
+        ivyAntSettings.setId("test.ivy.instance");
+        Echo component = new Echo();
+        component.setProject(project);
+
+        // creating the engine and running tasks outside of a performed task push loggers that are never popped
+        Ivy ivy = ivyAntSettings.getConfiguredIvyInstance(component);
+        Echo task = new Echo();
+        task.setProject(project);
+        AntMessageLogger.register(task, ivy);
+        assertThat(ivy.getLoggerEngine().peekLogger(), is(instanceOf(AntMessageLogger.class)));
+
+        IvyInstanceHelper.popLoggers(project);
+
+        assertThat(ivy.getLoggerEngine().peekLogger(), is(not(instanceOf(AntMessageLogger.class))));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.matcher.ExactOrRegexpPatternMatcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
+import org.apache.ivy.util.FileUtil;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModuleIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PatternMatcher matcher = ExactOrRegexpPatternMatcher.INSTANCE;
+
+    private final ModuleRevisionId criteria = ModuleRevisionId.newInstance("mycompany", ".*", "*");
+
+    private File repository;
+
+    private FileSystemResolver resolver;
+
+    private Ivy ivy;
+
+    @Before
+    public void setUp() throws IOException {
+        repository = folder.newFolder("repository");
+        resolver = new FileSystemResolver();
+        resolver.setName("test");
+        resolver.addIvyPattern(repository.getAbsolutePath() + "/[organisation]/[module]/ivy-[revision].xml");
+        resolver.addArtifactPattern(repository.getAbsolutePath()
+                + "/[organisation]/[module]/[artifact]-[revision].[ext]");
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(folder.newFolder("cache"));
+        settings.addResolver(resolver);
+        settings.setDefaultResolver("test");
+        ivy = Ivy.newInstance(settings);
+    }
+
+    @Test
+    public void shouldAnswerFromIndexUntilListingExpires() throws IOException {
+        publish("simpleplugin", "0.1", "a simple plugin");
+        ModuleIndex index = new ModuleIndex(new File(folder.getRoot(), "index.properties"));
+
+        assertThat(index.search(ivy, resolver, criteria, matcher).length, is(1));
+
+        publish("simpleplugin", "0.2", "a simple plugin");
+        assertThat(index.search(ivy, resolver, criteria, matcher).length, is(1));
+
+        index.setTimeToLive(0);
+        assertThat(index.search(ivy, resolver, criteria, matcher).length, is(2));
+    }
+
+    @Test
+    public void shouldPersistDescriptions() throws IOException {
+        publish("simpleplugin", "0.1", "a simple plugin");
+        publish("complexplugin", "0.1", null);
+        File indexFile = new File(folder.getRoot(), "index.properties");
+        ModuleIndex index = new ModuleIndex(indexFile);
+        ModuleRevisionId[] mrids = index.search(ivy, resolver, criteria, matcher);
+        index.describe(ivy, Arrays.asList(mrids), 2);
+        index.save();
+
+        // neither the repository nor descriptors are read anymore once indexed
+        FileUtil.forceDelete(repository);
+        ModuleIndex reloaded = new ModuleIndex(indexFile);
+        ModuleRevisionId simplePlugin = ModuleRevisionId.newInstance("mycompany", "simpleplugin", "0.1");
+        assertThat(reloaded.search(ivy, resolver, criteria, matcher).length, is(2));
+        assertThat(reloaded.getDescription(simplePlugin), is("a simple plugin"));
+        assertThat(reloaded.getTypes(simplePlugin), is("ant"));
+        assertThat(reloaded.getDescription(ModuleRevisionId.newInstance("mycompany", "complexplugin", "0.1")), is(""));
+        assertThat(reloaded.getDescription(ModuleRevisionId.newInstance("mycompany", "unknown", "0.1")),
+                is(nullValue()));
+    }
+
+    private void publish(String module, String revision, String description) throws IOException {
+        File ivyFile = new File(repository, "mycompany/" + module + "/ivy-" + revision + ".xml");
+        ivyFile.getParentFile().mkdirs();
+        String info = "<info organisation=\"mycompany\" module=\"" + module + "\" revision=\"" + revision + "\"";
+        info += description == null ? "/>" : "><description>" + description + "</description></info>";
+        Writer writer = new FileWriter(ivyFile);
+        try {
+            writer.write("<ivy-module version=\"2.0\">" + info + "<publications><artifact name=\"" + module
+                    + "\" type=\"ant\" ext=\"ant\"/></publications></ivy-module>");
+        } finally {
+            FileUtils.close(writer);
+        }
+    }
+}
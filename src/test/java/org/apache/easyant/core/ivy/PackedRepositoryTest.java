@@ -0,0 +1,175 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.ivy;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PackedRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File repository;
+
+    private File archive;
+
+    @Before
+    public void setUp() throws IOException {
+        repository = folder.newFolder("repository");
+        archive = new File(folder.getRoot(), "repository.pack");
+        write("org/core/1.0/core.ivy", "core descriptor");
+        write("org/core/1.0/core.jar", "core jar");
+        write("org/core/2.0/core.jar", "core jar 2");
+        write("org/web/1.0/web.jar", "web jar");
+    }
+
+    @Test
+    public void shouldReadPackedFiles() throws IOException {
+        assertThat(PackedRepository.pack(repository, archive, false), is(4));
+
+        PackedRepository packed = PackedRepository.open(archive);
+        try {
+            assertThat(packed.size(), is(4));
+            assertThat(packed.exists("org/core/1.0/core.jar"), is(true));
+            assertThat(packed.exists("org/core/1.0"), is(false));
+            assertThat(packed.getLength("org/web/1.0/web.jar"), is(7L));
+            assertThat(read(packed, "org/core/2.0/core.jar"), is("core jar 2"));
+            assertThat(packed.read("org/missing.jar"), nullValue());
+            assertThat(packed.list("org"), is(Arrays.asList("org/core", "org/web")));
+            assertThat(packed.list("org/core/"), is(Arrays.asList("org/core/1.0", "org/core/2.0")));
+            assertThat(packed.list("org/missing").isEmpty(), is(true));
+        } finally {
+            packed.close();
+        }
+    }
+
+    @Test
+    public void shouldAppendFilesToPackedRepository() throws IOException {
+        PackedRepository.pack(repository, archive, false);
+        repository = folder.newFolder("update");
+        write("org/core/1.0/core.jar", "core jar patched");
+        write("org/cli/1.0/cli.jar", "cli jar");
+
+        assertThat(PackedRepository.pack(repository, archive, true), is(2));
+
+        PackedRepository packed = PackedRepository.open(archive);
+        try {
+            assertThat(packed.size(), is(5));
+            assertThat(read(packed, "org/core/1.0/core.jar"), is("core jar patched"));
+            assertThat(read(packed, "org/web/1.0/web.jar"), is("web jar"));
+            assertThat(packed.getPaths().get(0), is("org/cli/1.0/cli.jar"));
+        } finally {
+            packed.close();
+        }
+    }
+
+    @Test
+    public void shouldUnpackPackedRepository() throws IOException {
+        PackedRepository.pack(repository, archive, false);
+        File unpacked = new File(folder.getRoot(), "unpacked");
+
+        assertThat(PackedRepository.unpack(archive, unpacked), is(4));
+
+        File jar = new File(unpacked, "org/core/1.0/core.jar");
+        assertThat(read(jar), is("core jar"));
+        assertThat(jar.lastModified(), is(new File(repository, "org/core/1.0/core.jar").lastModified()));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectInvalidPackedRepository() throws IOException {
+        PackedRepository.open(new File(repository, "org/core/1.0/core.jar"));
+    }
+
+    @Test
+    public void shouldResolveModulesFromPackedRepository() throws Exception {
+        File plugins = new File(this.getClass().getResource("/repositories/plugins").toURI());
+        PackedRepository.pack(plugins, archive, false);
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(folder.newFolder("cache"));
+        PackedRepositoryResolver resolver = new PackedRepositoryResolver();
+        resolver.setName("packed");
+        resolver.setFile(archive.getAbsolutePath());
+        resolver.addIvyPattern("[organisation]/[module]/ivys/ivy-[revision].xml");
+        resolver.addArtifactPattern("[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+        settings.addResolver(resolver);
+        settings.setDefaultResolver("packed");
+        Ivy ivy = Ivy.newInstance(settings);
+
+        ResolveOptions options = new ResolveOptions();
+        options.setConfs(new String[] { "*" });
+        ResolveReport report = ivy.resolve(ModuleRevisionId.newInstance("mycompany", "simpleplugin",
+                "latest.integration"), options, false);
+
+        assertThat(report.hasError(), is(false));
+        ArtifactDownloadReport[] artifacts = report.getAllArtifactsReports();
+        assertThat(artifacts.length, is(1));
+        assertThat(artifacts[0].getArtifact().getModuleRevisionId().getRevision(), is("0.1"));
+        assertThat(FileUtils.getFileUtils().contentEquals(artifacts[0].getLocalFile(),
+                new File(plugins, "mycompany/simpleplugin/ants/simpleplugin-0.1.ant")), is(true));
+    }
+
+    private String read(PackedRepository packed, String path) throws IOException {
+        ByteBuffer content = packed.read(path);
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private String read(File file) throws IOException {
+        Reader reader = new FileReader(file);
+        try {
+            return FileUtils.readFully(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(repository, path);
+        file.getParentFile().mkdirs();
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+}
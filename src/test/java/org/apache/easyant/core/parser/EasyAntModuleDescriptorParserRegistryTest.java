@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.core.parser;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
+import org.apache.ivy.plugins.repository.file.FileResource;
+import org.junit.Test;
+
+public class EasyAntModuleDescriptorParserRegistryTest {
+
+    private final EasyAntModuleDescriptorParserRegistry registry = EasyAntModuleDescriptorParserRegistry.getInstance();
+
+    @Test
+    public void shouldUseLastRegisteredParser() {
+        DefaultEasyAntXmlModuleDescriptorParser parser = new DefaultEasyAntXmlModuleDescriptorParser();
+        DefaultEasyAntXmlModuleDescriptorParser otherParser = new DefaultEasyAntXmlModuleDescriptorParser();
+        registry.register(parser);
+        registry.register(otherParser);
+
+        assertThat(registry.getParser(), sameInstance((EasyAntModuleDescriptorParser) otherParser));
+
+        registry.unregister(otherParser);
+        assertThat(registry.getParser(), sameInstance((EasyAntModuleDescriptorParser) parser));
+        registry.unregister(parser);
+    }
+
+    @Test
+    public void shouldNotGrowIvyRegistry() throws URISyntaxException {
+        int registeredParsers = registry.size();
+        DefaultEasyAntXmlModuleDescriptorParser parser = new DefaultEasyAntXmlModuleDescriptorParser();
+        registry.register(parser);
+        registry.unregister(parser);
+        int ivyParsers = ModuleDescriptorParserRegistry.getInstance().getParsers().length;
+
+        for (int i = 0; i < 10; i++) {
+            parser = new DefaultEasyAntXmlModuleDescriptorParser();
+            registry.register(parser);
+            assertThat(ModuleDescriptorParserRegistry.getInstance().getParser(
+                    new FileResource(null, new File(getClass().getResource("../simpleproject.ivy").toURI()))),
+                    instanceOf(EasyAntModuleDescriptorParser.class));
+            registry.unregister(parser);
+        }
+
+        assertThat(registry.size(), is(registeredParsers));
+        assertThat(ModuleDescriptorParserRegistry.getInstance().getParsers().length, is(ivyParsers));
+    }
+
+    @Test
+    public void shouldBindParsersToRegisteringThread() throws InterruptedException {
+        DefaultEasyAntXmlModuleDescriptorParser parser = new DefaultEasyAntXmlModuleDescriptorParser();
+        final DefaultEasyAntXmlModuleDescriptorParser otherParser = new DefaultEasyAntXmlModuleDescriptorParser();
+        final List<EasyAntModuleDescriptorParser> parsersInUse = new ArrayList<EasyAntModuleDescriptorParser>();
+        registry.register(parser);
+
+        Thread otherBuild = new Thread() {
+            @Override
+            public void run() {
+                registry.register(otherParser);
+                parsersInUse.add(registry.getParser());
+                registry.unregister(otherParser);
+            }
+        };
+        otherBuild.start();
+        otherBuild.join();
+
+        assertThat(parsersInUse.get(0), sameInstance((EasyAntModuleDescriptorParser) otherParser));
+        assertThat(registry.getParser(), sameInstance((EasyAntModuleDescriptorParser) parser));
+        registry.unregister(parser);
+    }
+
+    @Test
+    public void shouldNotUseParserOfAnotherThread() throws InterruptedException {
+        final DefaultEasyAntXmlModuleDescriptorParser parser = new DefaultEasyAntXmlModuleDescriptorParser();
+        final CountDownLatch registered = new CountDownLatch(1);
+        final CountDownLatch checked = new CountDownLatch(1);
+        Thread otherBuild = new Thread() {
+            @Override
+            public void run() {
+                registry.register(parser);
+                registered.countDown();
+                try {
+                    checked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                registry.unregister(parser);
+            }
+        };
+        otherBuild.start();
+        registered.await();
+        try {
+            assertThat(registry.getParser(), not(sameInstance((EasyAntModuleDescriptorParser) parser)));
+        } finally {
+            checked.countDown();
+            otherBuild.join();
+        }
+    }
+}
@@ -61,6 +61,7 @@ public class PluginServiceTest {
 
         File cache = folder.newFolder("build-cache");
         p.setProperty("ivy.cache.dir", cache.getAbsolutePath());
+        p.setProperty(EasyAntMagicNames.MODULE_INDEX_DIR, folder.newFolder("module-index").getAbsolutePath());
 
         IvyConfigure configure = new IvyConfigure();
         configure.setProject(p);
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.easyant.core.ant.BuildListSnapshot;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildListTest extends AntTaskBaseTest {
+
+    private static final String SORTED_MODULES = "org.apache.easyant#core, org.apache.easyant#web, "
+            + "org.apache.easyant#cli";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    private File snapshotFile;
+
+    private File settingsFile;
+
+    @Before
+    public void setUp() throws IOException, URISyntaxException {
+        settingsFile = new File(this.getClass().getResource("/repositories/easyant-ivysettings-test.xml").toURI());
+        root = folder.newFolder("project");
+        snapshotFile = new File(folder.getRoot(), "build-list.properties");
+        createModule("core");
+        createModule("web", "core");
+        createModule("cli", "web");
+    }
+
+    @Test
+    public void shouldRecordSortedBuildList() {
+        Project project = buildList();
+
+        assertThat(project.getProperty("ivy.sorted.modules"), is(SORTED_MODULES));
+        assertThat(getBuildPath(project), is(Arrays.asList("core", "web", "cli")));
+        assertLogNotContaining("restored");
+        BuildListSnapshot snapshot = BuildListSnapshot.load(snapshotFile, project);
+        assertThat(snapshot.getSortedModules(), is(SORTED_MODULES));
+        assertThat(snapshot.getDependencies("org.apache.easyant#cli"),
+                is(Collections.singletonList("org.apache.easyant#web")));
+        assertThat(snapshot.getDependencies("org.apache.easyant#core").isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldRestoreBuildListIfNoDescriptorChanged() {
+        buildList();
+        File descriptor = new File(root, "web/module.ivy");
+        descriptor.setLastModified(descriptor.lastModified() - 10000);
+
+        Project project = buildList();
+
+        assertLogContaining("Build list of 3 modules restored from " + snapshotFile);
+        assertThat(project.getProperty("ivy.sorted.modules"), is(SORTED_MODULES));
+        assertThat(getBuildPath(project), is(Arrays.asList("core", "web", "cli")));
+    }
+
+    @Test
+    public void shouldComputeBuildListAgainIfDescriptorsChanged() throws IOException {
+        buildList();
+        createModule("core", "cli");
+        createModule("web");
+
+        Project project = buildList();
+
+        assertLogNotContaining("restored");
+        assertThat(project.getProperty("ivy.sorted.modules"),
+                is("org.apache.easyant#web, org.apache.easyant#cli, org.apache.easyant#core"));
+
+        createModule("api");
+        project = buildList();
+
+        assertLogNotContaining("restored");
+        assertThat(getBuildPath(project).size(), is(4));
+    }
+
+    private Project buildList() {
+        Project project = new Project();
+        project.setBaseDir(root);
+        project.setUserProperty("ivy.settings.file", settingsFile.getAbsolutePath());
+        configureBuildLogger(project, Project.MSG_VERBOSE);
+        BuildList buildList = new BuildList();
+        buildList.setProject(project);
+        buildList.setReference("build-path");
+        buildList.setIvyfilepath("module.ivy");
+        buildList.setSnapshot(snapshotFile);
+        FileSet fileSet = new FileSet();
+        fileSet.setDir(root);
+        fileSet.setIncludes("*/module.ivy");
+        buildList.addFileset(fileSet);
+        buildList.execute();
+        return project;
+    }
+
+    private List<String> getBuildPath(Project project) {
+        List<String> modules = new ArrayList<String>();
+        for (String buildFile : ((Path) project.getReference("build-path")).list()) {
+            modules.add(new File(buildFile).getParentFile().getName());
+        }
+        return modules;
+    }
+
+    private void createModule(String name, String... dependencies) throws IOException {
+        File module = new File(root, name);
+        module.mkdirs();
+        StringBuilder ivy = new StringBuilder();
+        ivy.append("<ivy-module version=\"2.0\"><info organisation=\"org.apache.easyant\" module=\"").append(name)
+                .append("\"/><dependencies>");
+        for (String dependency : dependencies) {
+            ivy.append("<dependency org=\"org.apache.easyant\" name=\"").append(dependency)
+                    .append("\" rev=\"latest.integration\"/>");
+        }
+        ivy.append("</dependencies></ivy-module>");
+        OutputStream os = new FileOutputStream(new File(module, "module.ivy"));
+        try {
+            os.write(ivy.toString().getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.apache.tools.ant.BuildException;
+import org.junit.Test;
+
+public class CacheGcTest {
+
+    @Test
+    public void shouldParseSizes() {
+        assertThat(CacheGc.parseSize(null), is(-1L));
+        assertThat(CacheGc.parseSize("512"), is(512L));
+        assertThat(CacheGc.parseSize("2kb"), is(2048L));
+        assertThat(CacheGc.parseSize("512mb"), is(512L * 1024 * 1024));
+        assertThat(CacheGc.parseSize("2GB"), is(2L * 1024 * 1024 * 1024));
+    }
+
+    @Test(expected = BuildException.class)
+    public void shouldRejectSizesInM() {
+        CacheGc.parseSize("512m");
+    }
+
+    @Test
+    public void shouldParseDurations() {
+        assertThat(CacheGc.parseDuration("2"), is(2L * 24 * 60 * 60 * 1000));
+        assertThat(CacheGc.parseDuration("12h"), is(12L * 60 * 60 * 1000));
+        assertThat(CacheGc.parseDuration("30m"), is(30L * 60 * 1000));
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.ivy.ant.IvyConfigure;
 import org.apache.ivy.plugins.resolver.FileSystemResolver;
 import org.apache.tools.ant.Location;
 import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -142,6 +143,12 @@ public class GoOfflineTest extends AntTaskBaseTest {
         goOffline.execute();
     }
 
+    @Test
+    public void shouldFailIfThreadCountIsNotPositive() {
+        expectedException.expectMessage("threadCount must be a positive integer");
+        goOffline.setThreadCount(0);
+    }
+
     @Test
     public void shouldFailIfProjectResolverNameIsNotSet() throws URISyntaxException {
         expectedException.expectMessage("projectResolverName is mandatory !");
@@ -193,5 +200,31 @@ public class GoOfflineTest extends AntTaskBaseTest {
         assertFileExists(projectBuildScopeRepoFolder, "/org.mortbay.jetty/jetty-util/6.1.14/jetty-util.jar");
     }
 
+    @Test
+    public void shouldSkipModulesAlreadyInstalled() throws URISyntaxException, IOException {
+        goOffline.setEasyantResolverName(EASYANT_BUILDSCOPE_REP);
+        goOffline.setProjectResolverName(PROJECT_BUILDSCOPE_REP);
+        goOffline.setModuleIvy(new File(this.getClass().getResource("dependencies/module.ivy").toURI()));
+        goOffline.execute();
+        assertLogContaining("0 already up to date");
+
+        int installed = antTestListener.getLog().length();
+        goOffline.execute();
+
+        String log = antTestListener.getLog().substring(installed);
+        assertThat(log.contains("installing"), is(false));
+        assertThat(log.contains("0 module revisions installed"), is(true));
+        assertThat(log.contains("junit#junit;4.4 is already installed in " + PROJECT_BUILDSCOPE_REP), is(true));
 
+        // alter an installed artifact
+        FileUtils.getFileUtils().copyFile(
+                new File(projectBuildScopeRepoFolder, "org.mortbay.jetty/jetty-util/6.1.14/jetty-util.jar"),
+                new File(projectBuildScopeRepoFolder, "junit/junit/4.4/junit.jar"), null, true);
+        int skipped = antTestListener.getLog().length();
+        goOffline.execute();
+
+        log = antTestListener.getLog().substring(skipped);
+        assertThat(log.contains("installing junit#junit;4.4"), is(true));
+        assertThat(log.contains("1 module revisions installed"), is(true));
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ivy.IvyInstanceHelper;
+import org.apache.ivy.ant.IvyConfigure;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IvyDependencyUpdateCheckerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final IvyDependencyUpdateChecker checker = new IvyDependencyUpdateChecker();
+
+    private File repository;
+
+    @Before
+    public void setUp() throws IOException {
+        repository = folder.newFolder("repository");
+        publish("lib", "1.0");
+        publish("lib", "1.1");
+        publish("other", "1.0");
+        File settings = folder.newFile("ivysettings.xml");
+        write(settings, "<ivysettings><settings defaultResolver=\"local\"/><resolvers>"
+                + "<filesystem name=\"local\"><ivy pattern=\"" + repository.getAbsolutePath()
+                + "/[organisation]/[module]/ivy-[revision].xml\"/></filesystem></resolvers></ivysettings>");
+
+        Project project = new Project();
+        project.setProperty("ivy.cache.dir", folder.newFolder("build-cache").getAbsolutePath());
+        IvyConfigure configure = new IvyConfigure();
+        configure.setProject(project);
+        configure.setFile(settings);
+        configure.setSettingsId(EasyAntMagicNames.EASYANT_IVY_INSTANCE);
+        configure.execute();
+
+        File moduleIvy = folder.newFile("module.ivy");
+        write(moduleIvy, "<ivy-module version=\"2.0\"><info organisation=\"mycompany\" module=\"app\"/>"
+                + "<dependencies><dependency org=\"mycompany\" name=\"lib\" rev=\"1.0\"/>"
+                + "<dependency org=\"mycompany\" name=\"other\" rev=\"1.0\"/></dependencies></ivy-module>");
+        checker.setProject(project);
+        checker.setSettingsRef(IvyInstanceHelper.buildEasyAntIvyReference(project));
+        checker.setFile(moduleIvy);
+    }
+
+    @Test(expected = BuildException.class)
+    public void shouldFailIfThreadCountIsNotPositive() {
+        checker.setThreadCount(0);
+    }
+
+    @Test
+    public void shouldWriteUpdatesInJsonReport() throws IOException {
+        File report = new File(folder.getRoot(), "reports/updates.json");
+        checker.setReportFile(report);
+        checker.execute();
+
+        String content = read(report);
+        assertThat(content, containsString("{ \"organisation\": \"mycompany\", \"name\": \"lib\", "
+                + "\"revision\": \"1.0\", \"latest\": \"1.1\", \"transitive\": false }"));
+        assertThat(content, not(containsString("\"other\"")));
+    }
+
+    @Test
+    public void shouldWriteUpdatesInXmlReport() throws IOException {
+        File report = new File(folder.getRoot(), "updates.txt");
+        checker.setReportFile(report);
+        checker.setReportFormat("xml");
+        checker.execute();
+
+        String content = read(report);
+        assertThat(content, containsString("<module organisation=\"mycompany\" name=\"app\""));
+        assertThat(content, containsString("<update organisation=\"mycompany\" name=\"lib\" revision=\"1.0\" "
+                + "latest=\"1.1\" transitive=\"false\"/>"));
+        assertThat(content, not(containsString("name=\"other\"")));
+    }
+
+    private void publish(String module, String revision) throws IOException {
+        File ivyFile = new File(repository, "mycompany/" + module + "/ivy-" + revision + ".xml");
+        ivyFile.getParentFile().mkdirs();
+        write(ivyFile, "<ivy-module version=\"2.0\"><info organisation=\"mycompany\" module=\"" + module
+                + "\" revision=\"" + revision + "\" status=\"integration\"/><publications/></ivy-module>");
+    }
+
+    private void write(File file, String content) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            FileUtils.close(writer);
+        }
+    }
+
+    private String read(File file) throws IOException {
+        Reader reader = new FileReader(file);
+        try {
+            return FileUtils.readFully(reader);
+        } finally {
+            FileUtils.close(reader);
+        }
+    }
+}
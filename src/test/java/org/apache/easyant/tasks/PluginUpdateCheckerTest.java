@@ -0,0 +1,135 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URISyntaxException;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ivy.IvyInstanceHelper;
+import org.apache.easyant.core.ivy.LatestRevisionCache;
+import org.apache.easyant.core.services.DefaultPluginService;
+import org.apache.ivy.ant.IvyConfigure;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PluginUpdateCheckerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PluginUpdateChecker pluginUpdateChecker = new PluginUpdateChecker();
+
+    private File cache;
+
+    @Before
+    public void setUp() throws URISyntaxException, IOException {
+        Project project = new Project();
+        cache = folder.newFolder("build-cache");
+        project.setProperty("ivy.cache.dir", cache.getAbsolutePath());
+
+        IvyConfigure configure = new IvyConfigure();
+        configure.setProject(project);
+        configure.setFile(new File(this.getClass().getResource("/repositories/easyant-ivysettings-test.xml").toURI()));
+        configure.setSettingsId(EasyAntMagicNames.EASYANT_IVY_INSTANCE);
+        configure.execute();
+        project.addReference(EasyAntMagicNames.PLUGIN_SERVICE_INSTANCE, new DefaultPluginService(
+                IvyInstanceHelper.getEasyAntIvyAntSettings(project)));
+
+        pluginUpdateChecker.setProject(project);
+        pluginUpdateChecker.setRevisionToCheck("latest.integration");
+    }
+
+    @Test(expected = BuildException.class)
+    public void shouldFailIfThreadCountIsNotPositive() {
+        pluginUpdateChecker.setThreadCount(0);
+    }
+
+    @Test
+    public void shouldCheckModuleDescriptor() throws IOException {
+        pluginUpdateChecker.setModuleIvy(writeModule("app", "app/module.ivy"));
+        File report = new File(folder.getRoot(), "updates.json");
+        pluginUpdateChecker.setReportFile(report);
+        pluginUpdateChecker.execute();
+
+        String content = read(report);
+        assertThat(content, containsString("\"name\": \"simpleplugin\", \"revision\": \"0.0\", \"latest\": \"0.1\""));
+        assertThat(content, not(containsString("simplepluginwithproperties")));
+        assertThat(new File(cache, LatestRevisionCache.CACHE_FILE).exists(), is(true));
+    }
+
+    @Test
+    public void shouldCheckWholeReactor() throws IOException {
+        writeModule("core", "reactor/core/module.ivy");
+        writeModule("web", "reactor/web/module.ivy");
+        FileSet moduleIvys = new FileSet();
+        moduleIvys.setDir(new File(folder.getRoot(), "reactor"));
+        moduleIvys.setIncludes("**/module.ivy");
+        pluginUpdateChecker.addConfiguredModuleIvys(moduleIvys);
+        File report = new File(folder.getRoot(), "updates.xml");
+        pluginUpdateChecker.setReportFile(report);
+        pluginUpdateChecker.execute();
+
+        String content = read(report);
+        assertThat(content, containsString("<module organisation=\"mycompany\" name=\"core\""));
+        assertThat(content, containsString("<module organisation=\"mycompany\" name=\"web\""));
+        assertThat(content, containsString("<update organisation=\"mycompany\" name=\"simpleplugin\" "
+                + "revision=\"0.0\" latest=\"0.1\" transitive=\"false\"/>"));
+    }
+
+    private File writeModule(String module, String path) throws IOException {
+        File moduleIvy = new File(folder.getRoot(), path);
+        moduleIvy.getParentFile().mkdirs();
+        Writer writer = new FileWriter(moduleIvy);
+        try {
+            writer.write("<ivy-module version=\"2.0\" xmlns:ea=\"http://www.easyant.org\">"
+                    + "<info organisation=\"mycompany\" module=\"" + module + "\" revision=\"1.0\">"
+                    + "<ea:build org=\"mycompany\" module=\"simpleplugin\" revision=\"0.0\">"
+                    + "<ea:plugin org=\"mycompany\" module=\"simplepluginwithproperties\" revision=\"0.1\"/>"
+                    + "</ea:build></info></ivy-module>");
+        } finally {
+            FileUtils.close(writer);
+        }
+        return moduleIvy;
+    }
+
+    private String read(File file) throws IOException {
+        Reader reader = new FileReader(file);
+        try {
+            return FileUtils.readFully(reader);
+        } finally {
+            FileUtils.close(reader);
+        }
+    }
+}
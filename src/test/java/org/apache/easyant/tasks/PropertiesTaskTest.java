@@ -0,0 +1,78 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.tools.ant.Project;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PropertiesTaskTest extends AntTaskBaseTest {
+
+    private PropertiesTask propertiesTask;
+
+    @Before
+    public void setUp() {
+        Project project = new Project();
+
+        propertiesTask = new PropertiesTask();
+        propertiesTask.setProject(project);
+    }
+
+    @Test
+    public void shouldCreatePropertiesWithSamePrecedenceAsPropertyTask() {
+        propertiesTask.getProject().setUserProperty("a-user-property", "a-user-value");
+
+        propertiesTask.addProperty(createProperty("a-property", "a-value", null));
+        propertiesTask.addProperty(createProperty("a-property", "another-value", null));
+        propertiesTask.addProperty(createProperty("a-user-property", "a-value", null));
+        propertiesTask.execute();
+
+        assertThat(propertiesTask.getProject().getProperty("a-property"), equalTo("a-value"));
+        assertThat(propertiesTask.getProject().getProperty("a-user-property"), equalTo("a-user-value"));
+    }
+
+    @Test
+    public void shouldOnlyCreatePropertiesOfActiveConfigurations() {
+        propertiesTask.getProject().setProperty(EasyAntMagicNames.AVAILABLE_BUILD_CONFIGURATIONS,
+                "aBuildConfActive,aBuildConfNotActive");
+        propertiesTask.getProject().setProperty(EasyAntMagicNames.MAIN_CONFS, "aBuildConfActive");
+
+        propertiesTask.addProperty(createProperty("a-property", "a-value", "aBuildConfActive"));
+        propertiesTask.addProperty(createProperty("another-property", "a-value", "aBuildConfNotActive"));
+        propertiesTask.addProperty(createProperty("yet-another-property", "a-value", "aBuildConfActive"));
+        propertiesTask.execute();
+
+        assertThat(propertiesTask.getProject().getProperty("a-property"), equalTo("a-value"));
+        assertThat(propertiesTask.getProject().getProperty("another-property"), is(nullValue()));
+        assertThat(propertiesTask.getProject().getProperty("yet-another-property"), equalTo("a-value"));
+    }
+
+    private PropertyTask createProperty(String name, String value, String conf) {
+        PropertyTask propertyTask = new PropertyTask();
+        propertyTask.setName(name);
+        propertyTask.setValue(value);
+        propertyTask.setBuildConfigurations(conf);
+        return propertyTask;
+    }
+}
@@ -54,6 +54,7 @@ public class SearchModuleTest {
 
         File cache = folder.newFolder("build-cache");
         project.setProperty("ivy.cache.dir", cache.getAbsolutePath());
+        project.setProperty(EasyAntMagicNames.MODULE_INDEX_DIR, folder.newFolder("module-index").getAbsolutePath());
 
         IvyConfigure configure = new IvyConfigure();
         configure.setSettingsId(EasyAntMagicNames.EASYANT_IVY_INSTANCE);
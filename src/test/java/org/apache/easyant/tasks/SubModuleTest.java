@@ -18,19 +18,29 @@
 
 package org.apache.easyant.tasks;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Properties;
 
 import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ant.BuildProgress;
+import org.apache.easyant.core.ant.listerners.ExecutionHistory;
 import org.apache.easyant.core.ant.listerners.MultiModuleLogger;
 import org.apache.easyant.tasks.SubModule.TargetList;
+import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.types.Path;
+import org.apache.tools.ant.util.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -185,4 +195,255 @@ public class SubModuleTest extends AntTaskBaseTest {
         assertThat(submodule.getProject().getReference(MultiModuleLogger.EXECUTION_TIMER_BUILD_RESULTS),
                 notNullValue());
     }
+
+    @Test
+    public void shouldPublishPipelinedModulesAfterPublishTarget() throws URISyntaxException, IOException {
+        configureBuildLogger(submodule.getProject(), Project.MSG_VERBOSE);
+        submodule.getProject().setUserProperty(EasyAntMagicNames.META_TARGET, folder.newFolder("meta").getAbsolutePath());
+
+        Path path = new Path(submodule.getProject());
+        FileSet fs = new FileSet();
+        File multimodule = new File(this.getClass().getResource("multimodule").toURI());
+        fs.setDir(multimodule);
+        path.addFileset(fs);
+        path.createPath();
+
+        submodule.setBuildpath(path);
+        submodule.setUseBuildRepository(true);
+        submodule.setPipelined(true);
+        submodule.setPublishTarget("modulewithtarget:firstTarget");
+        submodule.setTargets(new TargetList("modulewithtarget:firstTarget", "modulewithtarget:secondTarget"));
+        submodule.execute();
+
+        String log = antTestListener.getLog();
+        int module1 = log.indexOf("Executing [modulewithtarget:firstTarget, modulewithtarget:secondTarget] on module1");
+        int module2 = log.indexOf("Executing [modulewithtarget:firstTarget, modulewithtarget:secondTarget] on module2");
+        assertThat(module1 >= 0, is(true));
+        assertThat(module2 >= 0, is(true));
+        // modules create no artifacts: both try to publish once the publish target is done
+        for (String module : Arrays.asList("module1", "module2")) {
+            String artifactsDir = new File(new File(multimodule, module), "target/artifacts").getPath();
+            assertThat(log.indexOf("Skipping publish because " + artifactsDir + " is not a directory") >= 0, is(true));
+        }
+        assertThat(submodule.getProject().getReference(MultiModuleLogger.EXECUTION_TIMER_BUILD_RESULTS),
+                notNullValue());
+    }
+
+    @Test
+    public void shouldStartPipelinedModulesWithLongestCriticalPathFirst() throws URISyntaxException, IOException {
+        configureBuildLogger(submodule.getProject(), Project.MSG_VERBOSE);
+        submodule.getProject().setUserProperty(EasyAntMagicNames.META_TARGET, folder.newFolder("meta").getAbsolutePath());
+
+        File multimodule = new File(this.getClass().getResource("multimodule").toURI());
+        submodule.getProject().setBaseDir(multimodule);
+        Path path = new Path(submodule.getProject());
+        FileSet fs = new FileSet();
+        fs.setDir(multimodule);
+        path.addFileset(fs);
+        path.createPath();
+
+        File historyFile = folder.newFile("history.properties");
+        Properties durations = new Properties();
+        durations.setProperty("module1", "1000");
+        durations.setProperty("module2", "60000");
+        OutputStream os = new FileOutputStream(historyFile);
+        try {
+            durations.store(os, null);
+        } finally {
+            os.close();
+        }
+
+        submodule.setBuildpath(path);
+        submodule.setUseBuildRepository(true);
+        submodule.setPipelined(true);
+        submodule.setThreadCount(1);
+        submodule.setHistoryFile(historyFile);
+        submodule.setTarget("modulewithtarget:firstTarget");
+        submodule.execute();
+
+        String log = antTestListener.getLog();
+        int module1 = log.indexOf("Starting module1 (critical path: 1 second)");
+        int module2 = log.indexOf("Starting module2 (critical path: 1 minute 0 seconds)");
+        assertThat(module1 > module2, is(true));
+        assertThat(module2 >= 0, is(true));
+
+        ExecutionHistory history = ExecutionHistory.load(historyFile, submodule.getProject());
+        assertThat(history.getModuleDuration("module2") < 60000, is(true));
+        assertThat(history.getTargetDuration("module1", "modulewithtarget:firstTarget") >= 0, is(true));
+    }
+
+    @Test
+    public void shouldRestoreArtifactsFromBuildCache() throws URISyntaxException, IOException {
+        configureBuildLogger(submodule.getProject(), Project.MSG_INFO);
+
+        File module = folder.newFolder("modules", "module1");
+        FileUtils.getFileUtils().copyFile(
+                new File(this.getClass().getResource("multimodule/module1/module.ivy").toURI()),
+                new File(module, "module.ivy"));
+        OutputStream os = new FileOutputStream(new File(module, "module.ant"));
+        try {
+            os.write(("<project name=\"module1\"><target name=\"build-jar\">"
+                    + "<echo>building module1</echo>"
+                    + "<echo file=\"${basedir}/target/artifacts/module1.jar\">jar content</echo>"
+                    + "</target></project>").getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+        String buildCache = folder.newFolder("build-cache-entries").getAbsolutePath();
+
+        buildModule(module, buildCache);
+        FileUtils.delete(new File(module, "target/artifacts/module1.jar"));
+        buildModule(module, buildCache);
+
+        String log = antTestListener.getLog();
+        assertThat(log.indexOf("building module1"), is(log.lastIndexOf("building module1")));
+        assertLogContaining("Restored artifacts from build cache");
+        assertThat(new File(module, "target/artifacts/module1.jar").isFile(), is(true));
+    }
+
+    @Test
+    public void shouldBuildOnlyAffectedModulesAndTheirDependents() throws IOException {
+        configureBuildLogger(submodule.getProject(), Project.MSG_INFO);
+        File root = folder.newFolder("affected");
+        submodule.getProject().setBaseDir(root);
+        Path path = new Path(submodule.getProject());
+        path.createPathElement().setLocation(createModule(root, "core"));
+        path.createPathElement().setLocation(createModule(root, "web", "core"));
+        path.createPathElement().setLocation(createModule(root, "tools"));
+        path.createPathElement().setLocation(createModule(root, "cli", "web"));
+
+        submodule.setBuildpath(path);
+        submodule.setTarget("build");
+        submodule.setAffectedBy(Arrays.asList(new File(root, "core/src/Core.java"), new File(folder.getRoot(),
+                "elsewhere.txt")));
+        submodule.execute();
+
+        assertLogContaining("3 of 4 sub-builds affected by changed files: [core, web, cli]");
+        assertLogContaining("building core");
+        assertLogContaining("building web");
+        assertLogContaining("building cli");
+        assertLogNotContaining("building tools");
+    }
+
+    @Test
+    public void shouldBuildOnlySelectedModulesAndTheirUpstream() throws IOException {
+        configureBuildLogger(submodule.getProject(), Project.MSG_INFO);
+        File root = folder.newFolder("selected");
+        submodule.getProject().setBaseDir(root);
+        Path path = new Path(submodule.getProject());
+        path.createPathElement().setLocation(createModule(root, "core"));
+        path.createPathElement().setLocation(createModule(root, "web", "core"));
+        path.createPathElement().setLocation(createModule(root, "tools"));
+        path.createPathElement().setLocation(createModule(root, "cli", "web"));
+
+        submodule.setBuildpath(path);
+        submodule.setTarget("build");
+        submodule.setModules("org.apache.easyant#w*, tools");
+        submodule.setIncludeUpstream(true);
+        submodule.execute();
+
+        assertLogContaining("3 of 4 sub-builds selected: [core, web, tools]");
+        assertLogContaining("building core");
+        assertLogContaining("building web");
+        assertLogContaining("building tools");
+        assertLogNotContaining("cli");
+    }
+
+    @Test
+    public void shouldFailIfNoModuleMatchesSelection() throws IOException {
+        expectedException.expectMessage("No sub-module matches unknown");
+        File root = folder.newFolder("selected");
+        submodule.getProject().setBaseDir(root);
+        Path path = new Path(submodule.getProject());
+        path.createPathElement().setLocation(createModule(root, "core"));
+
+        submodule.setBuildpath(path);
+        submodule.setModules("core,unknown");
+        submodule.execute();
+    }
+
+    @Test
+    public void shouldResumeBuildFromFailedModule() throws IOException {
+        configureBuildLogger(submodule.getProject(), Project.MSG_INFO);
+        File root = folder.newFolder("resumed");
+        submodule.getProject().setBaseDir(root);
+        Path path = new Path(submodule.getProject());
+        path.createPathElement().setLocation(createModule(root, "core"));
+        File web = createModule(root, "web", "core");
+        path.createPathElement().setLocation(web);
+        path.createPathElement().setLocation(createModule(root, "cli", "web"));
+        write(new File(web, "module.ant"), "<project name=\"web\"><target name=\"build\">"
+                + "<available file=\"${basedir}/broken\" property=\"broken\"/>"
+                + "<fail if=\"broken\">web is broken</fail>"
+                + "<echo>building web</echo></target></project>");
+        File broken = new File(web, "broken");
+        write(broken, "");
+        File progressFile = new File(folder.getRoot(), "progress.properties");
+
+        try {
+            buildModules(path, progressFile, false);
+            fail("web should fail");
+        } catch (BuildException e) {
+            assertThat(e.getMessage(), is("web is broken"));
+        }
+        assertThat(BuildProgress.load(progressFile, submodule.getProject()).getFailedModule(), is("web"));
+        FileUtils.delete(broken);
+        int resumed = antTestListener.getLog().length();
+        buildModules(path, progressFile, true);
+
+        String log = antTestListener.getLog().substring(resumed);
+        assertThat(log.contains("Resuming previous build from web"), is(true));
+        assertThat(log.contains("building core"), is(false));
+        assertThat(log.contains("Skipping sub-build, built by the resumed build"), is(true));
+        assertThat(log.contains("building web"), is(true));
+        assertThat(log.contains("building cli"), is(true));
+        assertThat(progressFile.exists(), is(false));
+    }
+
+    private void buildModules(Path path, File progressFile, boolean resume) {
+        SubModule submodule = new SubModule();
+        submodule.setProject(this.submodule.getProject());
+        submodule.setBuildpath(path);
+        submodule.setTarget("build");
+        submodule.setProgressFile(progressFile);
+        submodule.setResume(resume);
+        submodule.execute();
+    }
+
+    private File createModule(File root, String name, String... dependencies) throws IOException {
+        File module = new File(root, name);
+        module.mkdirs();
+        StringBuilder ivy = new StringBuilder();
+        ivy.append("<ivy-module version=\"2.0\"><info organisation=\"org.apache.easyant\" module=\"").append(name)
+                .append("\"/><dependencies>");
+        for (String dependency : dependencies) {
+            ivy.append("<dependency org=\"org.apache.easyant\" name=\"").append(dependency)
+                    .append("\" rev=\"latest.integration\"/>");
+        }
+        ivy.append("</dependencies></ivy-module>");
+        write(new File(module, "module.ivy"), ivy.toString());
+        write(new File(module, "module.ant"), "<project name=\"" + name + "\"><target name=\"build\">"
+                + "<echo>building " + name + "</echo></target></project>");
+        return module;
+    }
+
+    private void write(File file, String content) throws IOException {
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+
+    private void buildModule(File module, String buildCache) {
+        SubModule submodule = new SubModule();
+        submodule.setProject(this.submodule.getProject());
+        Path path = new Path(submodule.getProject());
+        path.createPathElement().setLocation(module);
+        submodule.setBuildpath(path);
+        submodule.setBuildCache(buildCache);
+        submodule.setTarget("build-jar");
+        submodule.execute();
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.easyant.tasks;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.apache.easyant.core.EasyAntMagicNames;
+import org.apache.easyant.core.ant.CachedTarget;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.PropertySet;
+import org.apache.tools.ant.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+public class TargetOutputsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private Project project;
+
+    private File sources;
+
+    private File classes;
+
+    private int executions;
+
+    @Before
+    public void setUp() throws IOException {
+        project = new Project();
+        project.init();
+        project.setBaseDir(folder.newFolder("module"));
+        project.setProperty(EasyAntMagicNames.TARGET_CACHE_DIR, folder.newFolder("cache").getAbsolutePath());
+        project.setProperty("javac.debug", "true");
+        sources = new File(project.getBaseDir(), "src");
+        classes = new File(project.getBaseDir(), "target/classes");
+        sources.mkdirs();
+        write(new File(sources, "A.java"), "class A {}");
+
+        Target compile = new Target();
+        compile.setName("compile:compile");
+        compile.setProject(project);
+        CompileTask compileTask = new CompileTask();
+        compileTask.setProject(project);
+        compile.addTask(compileTask);
+        project.addTarget(compile);
+
+        TargetInputs targetInputs = new TargetInputs();
+        targetInputs.setProject(project);
+        targetInputs.setTarget("compile:compile");
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(project);
+        fileSet.setDir(sources);
+        targetInputs.add(fileSet);
+        PropertySet propertySet = new PropertySet();
+        propertySet.setProject(project);
+        propertySet.appendName("javac.debug");
+        targetInputs.addPropertyset(propertySet);
+        targetInputs.execute();
+
+        TargetOutputs targetOutputs = new TargetOutputs();
+        targetOutputs.setProject(project);
+        targetOutputs.setTarget("compile:compile");
+        targetOutputs.createOutput().setLocation(classes);
+        targetOutputs.execute();
+    }
+
+    @Test
+    public void shouldRestoreOutputsWhenInputsDidNotChange() throws IOException {
+        assertThat(project.getTargets().get("compile:compile") instanceof CachedTarget, is(true));
+        project.executeTarget("compile:compile");
+        File stale = new File(classes, "Stale.class");
+        write(stale, "stale");
+
+        project.executeTarget("compile:compile");
+
+        assertThat(executions, is(1));
+        assertThat(FileUtils.readFully(new FileReader(new File(classes, "A.class"))), is("class A {}"));
+        assertThat(stale.exists(), is(false));
+    }
+
+    @Test
+    public void shouldExecuteTargetWhenInputsChanged() throws IOException {
+        project.executeTarget("compile:compile");
+        write(new File(sources, "A.java"), "class A { int a; }");
+        project.executeTarget("compile:compile");
+        project.setProperty("javac.debug", "false");
+        project.executeTarget("compile:compile");
+
+        assertThat(executions, is(3));
+        assertThat(FileUtils.readFully(new FileReader(new File(classes, "A.class"))),
+                is("class A { int a; }"));
+    }
+
+    @Test
+    public void shouldExecuteTargetWhenCacheIsSkipped() {
+        project.setProperty(EasyAntMagicNames.SKIP_TARGET_CACHE, "true");
+        project.executeTarget("compile:compile");
+        project.executeTarget("compile:compile");
+
+        assertThat(executions, is(2));
+    }
+
+    @Test
+    public void shouldFailOnUnknownTarget() {
+        expectedException.expect(BuildException.class);
+        expectedException.expectMessage("unable to find target unknown");
+        TargetOutputs targetOutputs = new TargetOutputs();
+        targetOutputs.setProject(project);
+        targetOutputs.setTarget("unknown");
+        targetOutputs.execute();
+    }
+
+    private void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            FileUtils.close(writer);
+        }
+    }
+
+    /**
+     * Copy sources to classes, counting executions
+     */
+    public class CompileTask extends Task {
+
+        @Override
+        public void execute() {
+            executions++;
+            try {
+                FileUtils.getFileUtils().copyFile(new File(sources, "A.java"), new File(classes, "A.class"), null, true);
+            } catch (IOException e) {
+                throw new BuildException(e);
+            }
+        }
+    }
+}